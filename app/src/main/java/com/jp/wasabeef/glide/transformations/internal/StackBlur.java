@@ -0,0 +1,363 @@
+package com.jp.wasabeef.glide.transformations.internal;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The stack blur used by {@link FastBlur}, operating on a buffer of ARGB pixels, with no Android dependencies.
+ * <p>
+ * Each row is blurred independently by the horizontal pass, and each column by the vertical pass, so both passes are split into bands
+ * which are run in parallel on an {@link Executor}. The output is identical to a single threaded blur.
+ * <p>
+ * The per-channel intermediate buffers are pooled between calls, and the division table is cached per radius. Pooled buffers are only
+ * softly referenced, so they're given up under memory pressure.
+ */
+public final class StackBlur {
+
+    // Bands smaller than this many rows/columns aren't worth a separate task
+    private static final int MIN_BAND_SIZE = 32;
+
+    // Division tables are cached for radii up to this size. 25 is the largest radius RenderScript supports.
+    private static final int MAX_CACHED_RADIUS = 25;
+
+    private static final ConcurrentHashMap<Integer, int[]> divTables = new ConcurrentHashMap<>();
+
+    private final Executor executor;
+    private final int parallelism;
+
+    private final int maxPooledPixels;
+
+    // Guarded by 'this'
+    private final List<PooledBuffer> pooledBuffers = new ArrayList<>();
+    private int pooledPixels;
+
+    /**
+     * @param executor        runs the bands of each pass, other than the one run by the calling thread.
+     * @param parallelism     the maximum number of bands each pass is split into.
+     * @param maxPooledPixels the maximum total size of the buffers kept for reuse, in pixels.
+     */
+    public StackBlur(Executor executor, int parallelism, int maxPooledPixels) {
+        this.executor = executor;
+        this.parallelism = parallelism;
+        this.maxPooledPixels = maxPooledPixels;
+    }
+
+    /**
+     * Blurs the passed in pixels, in place. The alpha channel is preserved.
+     *
+     * @param pix    ARGB pixels, in rows of {@code w}
+     * @param radius the blur radius. Must be at least 1.
+     */
+    public void blur(int[] pix, int w, int h, int radius) {
+        int[] r = acquire(w * h);
+        int[] g = acquire(w * h);
+        int[] b = acquire(w * h);
+        try {
+            int div = radius + radius + 1;
+            int[] dv = getDivTable(radius);
+
+            runInBands(h, (start, end) -> horizontalBlur(pix, r, g, b, w, start, end, radius, div, dv));
+            runInBands(w, (start, end) -> verticalBlur(pix, r, g, b, w, h, start, end, radius, div, dv));
+        } finally {
+            release(r);
+            release(g);
+            release(b);
+        }
+    }
+
+    /**
+     * @return a buffer of at least {@code size} ints, from the pool if possible. Its contents are undefined.
+     */
+    public int[] acquire(int size) {
+        synchronized (this) {
+            for (int i = pooledBuffers.size() - 1; i >= 0; i--) {
+                PooledBuffer pooledBuffer = pooledBuffers.get(i);
+                int[] buffer = pooledBuffer.get();
+                if (buffer == null || buffer.length >= size) {
+                    pooledBuffers.remove(i);
+                    pooledPixels -= pooledBuffer.length;
+                    if (buffer != null) {
+                        return buffer;
+                    }
+                }
+            }
+        }
+        return new int[size];
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire(int)} to the pool, if there's room for it.
+     */
+    public void release(int[] buffer) {
+        synchronized (this) {
+            if (pooledPixels + buffer.length <= maxPooledPixels) {
+                pooledBuffers.add(new PooledBuffer(buffer));
+                pooledPixels += buffer.length;
+            }
+        }
+    }
+
+    /**
+     * @return the total size of the buffers currently pooled, in pixels, including any which have been cleared but not yet removed.
+     */
+    synchronized int getPooledPixels() {
+        return pooledPixels;
+    }
+
+    private static final class PooledBuffer extends SoftReference<int[]> {
+
+        // Kept separately, so the pool's size can be updated once the buffer has been cleared
+        final int length;
+
+        PooledBuffer(int[] buffer) {
+            super(buffer);
+            this.length = buffer.length;
+        }
+    }
+
+    private static int[] getDivTable(int radius) {
+        if (radius > MAX_CACHED_RADIUS) {
+            return createDivTable(radius);
+        }
+        int[] dv = divTables.get(radius);
+        if (dv == null) {
+            dv = createDivTable(radius);
+            divTables.put(radius, dv);
+        }
+        return dv;
+    }
+
+    private static int[] createDivTable(int radius) {
+        int divsum = radius + 1;
+        divsum *= divsum;
+        int[] dv = new int[256 * divsum];
+        for (int i = 0; i < dv.length; i++) {
+            dv[i] = (i / divsum);
+        }
+        return dv;
+    }
+
+    private interface Band {
+
+        void run(int start, int end);
+    }
+
+    /**
+     * Splits [0, count) into bands, and runs them in parallel.
+     * <p>
+     * The calling thread works through the bands too, and bands are claimed by whichever thread gets to them first. So if the executor
+     * is busy (or is running the caller), the caller ends up running the remaining bands itself, rather than waiting on queued tasks.
+     */
+    private void runInBands(int count, Band band) {
+        int bands = Math.min(parallelism, count / MIN_BAND_SIZE);
+        if (bands <= 1) {
+            band.run(0, count);
+            return;
+        }
+
+        AtomicInteger nextBand = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(bands);
+        Runnable worker = () -> {
+            int i;
+            while ((i = nextBand.getAndIncrement()) < bands) {
+                try {
+                    band.run((int) ((long) count * i / bands), (int) ((long) count * (i + 1) / bands));
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        for (int i = 1; i < bands; i++) {
+            executor.execute(worker);
+        }
+        worker.run();
+
+        // Bands claimed by other threads are already running. The buffers they use mustn't be released until they're done.
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blurs rows [startY, endY) of pix into r, g & b.
+     */
+    private static void horizontalBlur(int[] pix, int[] r, int[] g, int[] b, int w, int startY, int endY, int radius, int div, int[] dv) {
+        int wm = w - 1;
+        int r1 = radius + 1;
+        int[] stack = new int[div * 3];
+
+        for (int y = startY; y < endY; y++) {
+            int yi = y * w;
+            int rinsum = 0, ginsum = 0, binsum = 0;
+            int routsum = 0, goutsum = 0, boutsum = 0;
+            int rsum = 0, gsum = 0, bsum = 0;
+
+            for (int i = -radius; i <= radius; i++) {
+                int p = pix[yi + Math.min(wm, Math.max(i, 0))];
+                int sir = (i + radius) * 3;
+                int sr = (p & 0xff0000) >> 16;
+                int sg = (p & 0x00ff00) >> 8;
+                int sb = (p & 0x0000ff);
+                stack[sir] = sr;
+                stack[sir + 1] = sg;
+                stack[sir + 2] = sb;
+                int rbs = r1 - Math.abs(i);
+                rsum += sr * rbs;
+                gsum += sg * rbs;
+                bsum += sb * rbs;
+                if (i > 0) {
+                    rinsum += sr;
+                    ginsum += sg;
+                    binsum += sb;
+                } else {
+                    routsum += sr;
+                    goutsum += sg;
+                    boutsum += sb;
+                }
+            }
+            int stackpointer = radius;
+
+            for (int x = 0; x < w; x++) {
+                r[yi] = dv[rsum];
+                g[yi] = dv[gsum];
+                b[yi] = dv[bsum];
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                int sir = ((stackpointer - radius + div) % div) * 3;
+
+                routsum -= stack[sir];
+                goutsum -= stack[sir + 1];
+                boutsum -= stack[sir + 2];
+
+                int p = pix[y * w + Math.min(x + r1, wm)];
+
+                int sr = (p & 0xff0000) >> 16;
+                int sg = (p & 0x00ff00) >> 8;
+                int sb = (p & 0x0000ff);
+                stack[sir] = sr;
+                stack[sir + 1] = sg;
+                stack[sir + 2] = sb;
+
+                rinsum += sr;
+                ginsum += sg;
+                binsum += sb;
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                sir = stackpointer * 3;
+
+                routsum += stack[sir];
+                goutsum += stack[sir + 1];
+                boutsum += stack[sir + 2];
+
+                rinsum -= stack[sir];
+                ginsum -= stack[sir + 1];
+                binsum -= stack[sir + 2];
+
+                yi++;
+            }
+        }
+    }
+
+    /**
+     * Blurs columns [startX, endX) of r, g & b back into pix.
+     */
+    private static void verticalBlur(int[] pix, int[] r, int[] g, int[] b, int w, int h, int startX, int endX, int radius, int div, int[] dv) {
+        int hm = h - 1;
+        int r1 = radius + 1;
+        int[] stack = new int[div * 3];
+
+        for (int x = startX; x < endX; x++) {
+            int rinsum = 0, ginsum = 0, binsum = 0;
+            int routsum = 0, goutsum = 0, boutsum = 0;
+            int rsum = 0, gsum = 0, bsum = 0;
+            int yp = -radius * w;
+
+            for (int i = -radius; i <= radius; i++) {
+                int yi = Math.max(0, yp) + x;
+                int sir = (i + radius) * 3;
+                stack[sir] = r[yi];
+                stack[sir + 1] = g[yi];
+                stack[sir + 2] = b[yi];
+                int rbs = r1 - Math.abs(i);
+                rsum += r[yi] * rbs;
+                gsum += g[yi] * rbs;
+                bsum += b[yi] * rbs;
+                if (i > 0) {
+                    rinsum += r[yi];
+                    ginsum += g[yi];
+                    binsum += b[yi];
+                } else {
+                    routsum += r[yi];
+                    goutsum += g[yi];
+                    boutsum += b[yi];
+                }
+                if (i < hm) {
+                    yp += w;
+                }
+            }
+            int yi = x;
+            int stackpointer = radius;
+            for (int y = 0; y < h; y++) {
+                pix[yi] = (0xff000000 & pix[yi]) | (dv[rsum] << 16) | (dv[gsum] << 8) | dv[bsum];
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                int sir = ((stackpointer - radius + div) % div) * 3;
+
+                routsum -= stack[sir];
+                goutsum -= stack[sir + 1];
+                boutsum -= stack[sir + 2];
+
+                int p = x + Math.min(y + r1, hm) * w;
+
+                stack[sir] = r[p];
+                stack[sir + 1] = g[p];
+                stack[sir + 2] = b[p];
+
+                rinsum += r[p];
+                ginsum += g[p];
+                binsum += b[p];
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                sir = stackpointer * 3;
+
+                routsum += stack[sir];
+                goutsum += stack[sir + 1];
+                boutsum += stack[sir + 2];
+
+                rinsum -= stack[sir];
+                ginsum -= stack[sir + 1];
+                binsum -= stack[sir + 2];
+
+                yi += w;
+            }
+        }
+    }
+}
@@ -18,7 +18,7 @@ import com.simplecity.amp_library.model.Genre
 import com.simplecity.amp_library.model.Playlist
 import com.simplecity.amp_library.model.Song
 import com.simplecity.amp_library.utils.StringUtils
-import com.simplecity.amp_library.utils.extensions.getSongsObservable
+import com.simplecity.amp_library.utils.extensions.getSongs
 import com.simplecity.amp_library.utils.extensions.getSongsSingle
 import io.reactivex.Single
 import io.reactivex.android.schedulers.AndroidSchedulers
@@ -219,7 +219,7 @@ class MediaIdHelper(
                     return genresRepository.getGenres()
                         .first(emptyList())
                         .flatMap { genres -> Single.just(genres.first { genre -> genre.name == genreName }) }
-                        .flatMap { genresSingle -> genresSingle.getSongsObservable(application) }
+                        .flatMap { genresSingle -> genresSingle.getSongs(songsRepository) }
                         .map { songs ->
                             Pair(songs.sortedBy { it.playlistSongPlayOrder }.toMutableList(), 0)
                         }
@@ -344,7 +344,7 @@ class MediaIdHelper(
         return genresRepository.getGenres()
             .first(emptyList())
             .flatMap { genres -> Single.just(genres.first { genre -> genre.id == genreId }) }
-            .flatMap { genresSingle -> genresSingle.getSongsObservable(application) }
+            .flatMap { genresSingle -> genresSingle.getSongs(songsRepository) }
             .map { songs ->
                 songs.shuffled().toMutableList()
             }
@@ -4,8 +4,8 @@ import com.jakewharton.rxrelay2.BehaviorRelay
 import com.simplecity.amp_library.data.Repository.AlbumArtistsRepository
 import com.simplecity.amp_library.data.Repository.AlbumsRepository
 import com.simplecity.amp_library.model.AlbumArtist
+import com.simplecity.amp_library.utils.AlbumArtistAggregator
 import com.simplecity.amp_library.utils.LogUtils
-import com.simplecity.amp_library.utils.Operators
 import io.reactivex.Observable
 import io.reactivex.disposables.Disposable
 import io.reactivex.functions.Consumer
@@ -16,13 +16,15 @@ import javax.inject.Singleton
 @Singleton
 class AlbumArtistsRepository @Inject constructor(private val albumsRepository: AlbumsRepository) : AlbumArtistsRepository {
 
+    private val albumArtistAggregator = AlbumArtistAggregator()
+
     private var albumArtistsSubscription: Disposable? = null
     private val albumArtistsRelay = BehaviorRelay.create<List<AlbumArtist>>()
 
     override fun getAlbumArtists(): Observable<List<AlbumArtist>> {
         if (albumArtistsSubscription == null || albumArtistsSubscription?.isDisposed == true) {
             albumArtistsSubscription = albumsRepository.getAlbums()
-                .flatMap { albums -> Observable.just(Operators.albumsToAlbumArtists(albums)) }
+                .map { albums -> albumArtistAggregator.aggregate(albums) }
                 .subscribe(
                     albumArtistsRelay,
                     Consumer { error -> LogUtils.logException(PlaylistsRepository.TAG, "Failed to get album artists", error) }
@@ -3,8 +3,8 @@ package com.simplecity.amp_library.data
 import com.jakewharton.rxrelay2.BehaviorRelay
 import com.simplecity.amp_library.data.Repository.AlbumsRepository
 import com.simplecity.amp_library.model.Album
+import com.simplecity.amp_library.utils.AlbumAggregator
 import com.simplecity.amp_library.utils.LogUtils
-import com.simplecity.amp_library.utils.Operators
 import io.reactivex.Observable
 import io.reactivex.disposables.Disposable
 import io.reactivex.functions.Consumer
@@ -15,13 +15,15 @@ import javax.inject.Singleton
 @Singleton
 class AlbumsRepository @Inject constructor(private val songsRepository: Repository.SongsRepository) : AlbumsRepository {
 
+    private val albumAggregator = AlbumAggregator()
+
     private var albumsSubscription: Disposable? = null
     private val albumsRelay = BehaviorRelay.create<List<Album>>()
 
     override fun getAlbums(): Observable<List<Album>> {
         if (albumsSubscription == null || albumsSubscription?.isDisposed == true) {
             albumsSubscription = songsRepository.getSongs()
-                .flatMap { songs -> Observable.just(Operators.songsToAlbums(songs)) }
+                .map { songs -> albumAggregator.aggregate(songs) }
                 .subscribe(
                     albumsRelay,
                     Consumer { error -> LogUtils.logException(PlaylistsRepository.TAG, "Failed to get albums", error) }
@@ -0,0 +1,141 @@
+package com.simplecity.amp_library.data
+
+import android.content.Context
+import android.database.Cursor
+import android.provider.MediaStore
+import android.util.Log
+import android.support.annotation.WorkerThread
+import com.simplecity.amp_library.model.Genre
+import com.simplecity.amp_library.model.Query
+import com.simplecity.amp_library.sql.SqlUtils
+import com.simplecity.amp_library.utils.LogUtils
+import com.simplecity.amp_library.utils.LongHashSet
+import java.util.Arrays
+
+/**
+ * An immutable snapshot of which songs belong to which genre, so genre song counts and membership can be looked up without a
+ * MediaStore query per genre.
+ *
+ * Membership is as stored in the MediaStore, with no blacklist or podcast filtering applied. Song counts can therefore be higher than the
+ * number of songs a genre's detail screen shows, which filters the songs through the blacklist. This is deliberate: a genre whose songs
+ * are all blacklisted still has songs, and mustn't be deleted as empty.
+ */
+class GenreIndex private constructor(private val songIds: Map<Long, LongArray>) {
+
+    /**
+     * @return the ids of the songs belonging to the given genre, in MediaStore order.
+     */
+    fun getSongIds(genreId: Long): LongArray {
+        return songIds[genreId] ?: EMPTY_IDS
+    }
+
+    fun getSongCount(genreId: Long): Int {
+        return songIds[genreId]?.size ?: 0
+    }
+
+    fun getSongIdSet(genreId: Long): LongHashSet {
+        val ids = getSongIds(genreId)
+        val set = LongHashSet(ids.size)
+        ids.forEach { id -> set.add(id) }
+        return set
+    }
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is GenreIndex) return false
+
+        if (songIds.size != other.songIds.size) return false
+        return songIds.all { (genreId, ids) -> Arrays.equals(ids, other.songIds[genreId]) }
+    }
+
+    override fun hashCode(): Int {
+        return songIds.entries.sumBy { (genreId, ids) -> genreId.hashCode() xor Arrays.hashCode(ids) }
+    }
+
+    companion object {
+
+        private const val TAG = "GenreIndex"
+
+        private val EMPTY_IDS = LongArray(0)
+
+        val EMPTY = GenreIndex(emptyMap())
+
+        /**
+         * Builds the index with a single query against the MediaStore's combined genre membership table, falling back to a query per
+         * genre on devices which don't expose it, or which return no members for it while genres exist.
+         *
+         * The fallback queries run one after the other, and each cursor is closed before the next is opened, so large genre lists don't
+         * exhaust the available cursor windows.
+         */
+        @WorkerThread
+        fun build(context: Context, genres: List<Genre>): GenreIndex {
+            val allMembersQuery = Query.Builder()
+                .uri(MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI.buildUpon().appendPath("all").appendPath("members").build())
+                .projection(arrayOf(MediaStore.Audio.Genres.Members.GENRE_ID, MediaStore.Audio.Genres.Members.AUDIO_ID))
+                .build()
+
+            try {
+                SqlUtils.createQuery(context, allMembersQuery)?.use { cursor ->
+                    // Some devices answer the combined query with no rows rather than an error. Trusting that would make every genre look
+                    // empty, so it's only taken at its word when there are no genres either.
+                    if (cursor.count > 0 || genres.isEmpty()) {
+                        return fromMembersCursor(cursor)
+                    }
+                    Log.w(TAG, "Genre members query returned no rows for ${genres.size} genres, querying each genre")
+                }
+            } catch (e: IllegalArgumentException) {
+                LogUtils.logException(TAG, "Genre members query unsupported, querying each genre", e)
+            } catch (e: UnsupportedOperationException) {
+                LogUtils.logException(TAG, "Genre members query unsupported, querying each genre", e)
+            }
+
+            val songIds = HashMap<Long, LongArray>(genres.size * 2)
+            genres.forEach { genre ->
+                val query = Query.Builder()
+                    .uri(MediaStore.Audio.Genres.Members.getContentUri("external", genre.id))
+                    .projection(arrayOf(MediaStore.Audio.Genres.Members.AUDIO_ID))
+                    .build()
+
+                SqlUtils.createQuery(context, query)?.use { cursor ->
+                    val ids = LongArray(cursor.count)
+                    var i = 0
+                    while (cursor.moveToNext() && i < ids.size) {
+                        ids[i++] = cursor.getLong(0)
+                    }
+                    if (i > 0) {
+                        songIds[genre.id] = if (i == ids.size) ids else ids.copyOf(i)
+                    }
+                }
+            }
+            return GenreIndex(songIds)
+        }
+
+        /**
+         * Reads a cursor of (genre id, audio id) rows in two passes: the first counts the members of each genre, so each genre's id
+         * array can be allocated at its final size in the second.
+         */
+        private fun fromMembersCursor(cursor: Cursor): GenreIndex {
+            val counts = HashMap<Long, IntArray>()
+            while (cursor.moveToNext()) {
+                val count = counts.getOrPut(cursor.getLong(0)) { IntArray(1) }
+                count[0]++
+            }
+
+            val songIds = HashMap<Long, LongArray>(counts.size * 2)
+            counts.forEach { (genreId, count) -> songIds[genreId] = LongArray(count[0]) }
+
+            cursor.moveToPosition(-1)
+            while (cursor.moveToNext()) {
+                val genreId = cursor.getLong(0)
+                val count = counts[genreId] ?: continue
+                val ids = songIds[genreId] ?: continue
+                // The count now holds the number of free slots left, so (size - count) is the next one
+                if (count[0] > 0) {
+                    ids[ids.size - count[0]] = cursor.getLong(1)
+                    count[0]--
+                }
+            }
+            return GenreIndex(songIds)
+        }
+    }
+}
@@ -7,7 +7,6 @@ import com.simplecity.amp_library.sql.sqlbrite.SqlBriteUtils
 import com.simplecity.amp_library.utils.LogUtils
 import io.reactivex.Observable
 import io.reactivex.disposables.Disposable
-import io.reactivex.functions.Consumer
 import io.reactivex.schedulers.Schedulers
 import javax.inject.Inject
 import javax.inject.Singleton
@@ -17,20 +16,43 @@ class GenresRepository @Inject constructor(private val application: ShuttleAppli
 
     private var genresSubscription: Disposable? = null
     private val genresRelay = BehaviorRelay.create<List<Genre>>()
+    private val genreIndexRelay = BehaviorRelay.create<GenreIndex>()
 
     override fun getGenres(): Observable<List<Genre>> {
+        subscribeToGenres()
+
+        return genresRelay.subscribeOn(Schedulers.io())
+    }
+
+    override fun getGenreIndex(): Observable<GenreIndex> {
+        subscribeToGenres()
+
+        return genreIndexRelay.subscribeOn(Schedulers.io())
+    }
+
+    /**
+     * The genre list and the index are refreshed together, whenever the MediaStore notifies of a change to the genres. The index is only
+     * republished if its membership has actually changed, so genre detail screens aren't reloaded by unrelated MediaStore changes.
+     */
+    private fun subscribeToGenres() {
         if (genresSubscription == null || genresSubscription?.isDisposed == true) {
             genresSubscription = SqlBriteUtils.createObservableList<Genre>(application, { Genre(it) }, Genre.getQuery())
+                .map { genres -> Pair(genres, GenreIndex.build(application, genres)) }
                 .subscribe(
-                    genresRelay,
-                    Consumer { error -> LogUtils.logException(PlaylistsRepository.TAG, "Failed to get genres", error) }
+                    { (genres, genreIndex) ->
+                        genres.forEach { genre -> genre.numSongs = genreIndex.getSongCount(genre.id) }
+
+                        if (genreIndexRelay.value != genreIndex) {
+                            genreIndexRelay.accept(genreIndex)
+                        }
+                        genresRelay.accept(genres)
+                    },
+                    { error -> LogUtils.logException(TAG, "Failed to get genres", error) }
                 )
         }
-
-        return genresRelay.subscribeOn(Schedulers.io())
     }
 
     companion object {
         const val TAG = "GenresRepository"
     }
-}
\ No newline at end of file
+}
@@ -19,6 +19,8 @@ interface Repository {
 
         /**
          * Returns a continuous List of [Song]s, excluding those which are blacklisted, podcasts, or not-whitelisted.
+         *
+         * With no predicate, the emitted list is shared with other subscribers, and may be read-only. Copy it before sorting.
          */
         fun getSongs(predicate: ((Song) -> Boolean)? = null): Observable<List<Song>>
 
@@ -62,9 +64,14 @@ interface Repository {
     interface GenresRepository {
 
         /**
-         * Returns a continuous List of [Genre]s
+         * Returns a continuous List of [Genre]s, with their song counts populated
          */
         fun getGenres(): Observable<List<Genre>>
+
+        /**
+         * Returns a continuous [GenreIndex] of the songs belonging to each [Genre]
+         */
+        fun getGenreIndex(): Observable<GenreIndex>
     }
 
     interface PlaylistsRepository {
@@ -8,6 +8,7 @@ import com.jakewharton.rxrelay2.BehaviorRelay
 import com.simplecity.amp_library.data.Repository.SongsRepository
 import com.simplecity.amp_library.model.Album
 import com.simplecity.amp_library.model.AlbumArtist
+import com.simplecity.amp_library.model.ColumnarSongList
 import com.simplecity.amp_library.model.Genre
 import com.simplecity.amp_library.model.InclExclItem
 import com.simplecity.amp_library.model.Playlist
@@ -23,6 +24,7 @@ import com.simplecity.amp_library.utils.playlists.PlaylistManager
 import io.reactivex.Observable
 import io.reactivex.ObservableTransformer
 import io.reactivex.disposables.Disposable
+import io.reactivex.functions.BiFunction
 import io.reactivex.functions.Consumer
 import io.reactivex.functions.Function3
 import io.reactivex.schedulers.Schedulers
@@ -36,6 +38,7 @@ open class SongsRepository @Inject constructor(
     private val context: Context,
     private val blacklistRepository: Repository.BlacklistRepository,
     private val whitelistRepository: Repository.WhitelistRepository,
+    private val genresRepository: Repository.GenresRepository,
     private val settingsManager: SettingsManager
 ) : SongsRepository {
 
@@ -48,6 +51,8 @@ open class SongsRepository @Inject constructor(
     override fun getAllSongs(): Observable<List<Song>> {
         if (allSongsSubscription == null || allSongsSubscription?.isDisposed == true) {
             allSongsSubscription = SqlBriteUtils.createObservableList<Song>(context, { Song(it) }, Song.getQuery())
+                // Large libraries are held in columnar form, to reduce the heap retained by the song relays
+                .map { songs -> if (songs.size >= COLUMNAR_THRESHOLD) ColumnarSongList.of(songs) else songs }
                 .subscribe(
                     allSongsRelay,
                     Consumer { error -> LogUtils.logException(PlaylistsRepository.TAG, "Failed to get all songs", error) }
@@ -62,11 +67,7 @@ open class SongsRepository @Inject constructor(
         if (songsSubscription == null || songsSubscription?.isDisposed == true) {
             songsSubscription = getAllSongs()
                 .compose(getInclExclTransformer())
-                .map { songs ->
-                    songs
-                        .filterNot { song -> song.isPodcast }
-                        .toList()
-                }
+                .map { songs -> ColumnarSongList.filter(songs) { song -> !song.isPodcast } }
                 .subscribe(songsRelay)
         }
 
@@ -173,7 +174,13 @@ open class SongsRepository @Inject constructor(
     }
 
     override fun getSongs(genre: Genre): Observable<List<Song>> {
-        return getSongs()
+        return Observable.combineLatest<List<Song>, GenreIndex, List<Song>>(
+            getSongs(),
+            genresRepository.getGenreIndex(),
+            BiFunction { songs, genreIndex ->
+                val songIds = genreIndex.getSongIdSet(genre.id)
+                songs.filter { song -> songIds.contains(song.id) }
+            })
             .map { songs ->
                 songs.sortedWith(Comparator { a, b -> ComparisonUtils.compareInt(b.year, a.year) })
                     .sortedWith(Comparator { a, b -> ComparisonUtils.compareInt(a.track, b.track) })
@@ -194,16 +201,12 @@ open class SongsRepository @Inject constructor(
 
                     // Filter out excluded paths
                     if (!exclItems.isEmpty()) {
-                        result = songs
-                            .filterNot { song -> exclItems.any { exclItem -> StringUtils.containsIgnoreCase(song.path, exclItem.path) } }
-                            .toList()
+                        result = ColumnarSongList.filter(result) { song -> exclItems.none { exclItem -> StringUtils.containsIgnoreCase(song.path, exclItem.path) } }
                     }
 
                     // Filter out non-included paths
                     if (!inclItems.isEmpty()) {
-                        result = result
-                            .filter { song -> inclItems.any { inclItem -> StringUtils.containsIgnoreCase(song.path, inclItem.path) } }
-                            .toList()
+                        result = ColumnarSongList.filter(result) { song -> inclItems.any { inclItem -> StringUtils.containsIgnoreCase(song.path, inclItem.path) } }
                     }
 
                     result
@@ -213,5 +216,7 @@ open class SongsRepository @Inject constructor(
 
     companion object {
         const val TAG = "SongsRepository"
+
+        private const val COLUMNAR_THRESHOLD = 5000
     }
 }
\ No newline at end of file
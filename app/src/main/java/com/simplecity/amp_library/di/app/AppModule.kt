@@ -7,6 +7,7 @@ import com.simplecity.amp_library.ShuttleApplication
 import com.simplecity.amp_library.di.app.activity.ActivityScope
 import com.simplecity.amp_library.playback.MusicService
 import com.simplecity.amp_library.services.ArtworkDownloadService
+import com.simplecity.amp_library.services.maintenance.MaintenanceJobService
 import com.simplecity.amp_library.ui.screens.main.MainActivity
 import com.simplecity.amp_library.ui.screens.main.MainActivityModule
 import com.simplecity.amp_library.ui.screens.shortcut.ShortcutTrampolineActivity
@@ -51,6 +52,9 @@ abstract class AppModuleBinds {
     @ContributesAndroidInjector
     abstract fun artworkServiceInjector(): ArtworkDownloadService
 
+    @ContributesAndroidInjector
+    abstract fun maintenanceJobServiceInjector(): MaintenanceJobService
+
     @ContributesAndroidInjector
     abstract fun mediaButtonIntentReceiverInjector(): MediaButtonIntentReceiver
 
@@ -145,7 +145,7 @@ public class MultiFetcher implements DataFetcher<InputStream> {
         }
     }
 
-    private String getCustomArtworkSuffix(Context context) {
+    private static String getCustomArtworkSuffix(Context context, ArtworkProvider artworkProvider) {
         if (((ShuttleApplication) context.getApplicationContext()).userSelectedArtwork.containsKey(artworkProvider.getArtworkKey())) {
             UserSelectedArtwork userSelectedArtwork = ((ShuttleApplication) context.getApplicationContext()).userSelectedArtwork.get(artworkProvider.getArtworkKey());
             return "_" + userSelectedArtwork.type + "_" + (userSelectedArtwork.path == null ? "" : userSelectedArtwork.path.hashCode());
@@ -153,8 +153,16 @@ public class MultiFetcher implements DataFetcher<InputStream> {
         return "";
     }
 
+    /**
+     * @return the id of the artwork source used for the passed in {@link ArtworkProvider}. This changes if the user selects different
+     * artwork.
+     */
+    public static String getId(Context context, ArtworkProvider artworkProvider) {
+        return artworkProvider.getArtworkKey() + getCustomArtworkSuffix(context, artworkProvider);
+    }
+
     @Override
     public String getId() {
-        return artworkProvider.getArtworkKey() + getCustomArtworkSuffix(applicationContext);
+        return getId(applicationContext, artworkProvider);
     }
 }
@@ -4,6 +4,7 @@ import android.content.Context
 import android.graphics.Bitmap
 import android.graphics.Color
 import android.support.annotation.WorkerThread
+import android.support.v4.util.Pools
 import com.simplecity.amp_library.utils.color.BitmapPaletteProcessor
 import com.simplecity.amp_library.utils.color.ColorHelper
 
@@ -18,13 +19,22 @@ class ColorSet(
 
     companion object {
 
-        private val bitmapPaletteProcessor = BitmapPaletteProcessor()
+        /**
+         * Processors reuse their buffers, so each one can only be used by a single thread at a time. Bitmaps are processed on several Glide
+         * threads at once, so rather than sharing one, we keep a few around.
+         */
+        private val bitmapPaletteProcessors = Pools.SynchronizedPool<BitmapPaletteProcessor>(4)
         private val colorHelper = ColorHelper()
 
         @WorkerThread
         fun fromBitmap(context: Context, bitmap: Bitmap): ColorSet {
 
-            val colors = bitmapPaletteProcessor.processBitmap(bitmap)
+            val bitmapPaletteProcessor = bitmapPaletteProcessors.acquire() ?: BitmapPaletteProcessor()
+            val colors = try {
+                bitmapPaletteProcessor.processBitmap(bitmap)
+            } finally {
+                bitmapPaletteProcessors.release(bitmapPaletteProcessor)
+            }
             val tintedTextColors = colorHelper.ensureColors(context, true, colors.first!!, colors.second!!)
 
             val primaryTextColor = ColorHelper.resolvePrimaryColor(context, colors.first!!)
@@ -0,0 +1,197 @@
+package com.simplecity.amp_library.glide.palette;
+
+import android.annotation.SuppressLint;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.simplecity.amp_library.glide.fetcher.MultiFetcher;
+import com.simplecity.amp_library.model.ArtworkProvider;
+import com.simplecity.amp_library.sql.databases.ColorSetCacheDbOpenHelper;
+import com.simplecity.amp_library.utils.LogUtils;
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+import java.util.HashMap;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * A persistent cache of the colours extracted from artwork by {@link ColorSetTranscoder}.
+ * <p>
+ * Palette extraction runs every time the now playing artwork changes, and Glide only caches the decoded bitmap, not the colours. So
+ * the primary & accent colours are stored per {@link ArtworkProvider#getArtworkKey()}, along with a fingerprint of the artwork
+ * source (see {@link MultiFetcher#getId(Context, ArtworkProvider)}), so that user selected artwork invalidates the entry.
+ * <p>
+ * The table is read into memory once, in the background, so {@link #get(Context, ArtworkProvider)} can be called on the main thread
+ * and the colours applied in the same frame as the track change. Writes happen in the background.
+ */
+@Singleton
+public class ColorSetCache {
+
+    private static final String TAG = "ColorSetCache";
+
+    // The number of entries kept on disk. The oldest are removed first.
+    static final int MAX_ENTRIES = 2000;
+
+    static final class Entry {
+
+        final String fingerprint;
+        final int primaryColor;
+        final int accentColor;
+
+        Entry(String fingerprint, int primaryColor, int accentColor) {
+            this.fingerprint = fingerprint;
+            this.primaryColor = primaryColor;
+            this.accentColor = accentColor;
+        }
+    }
+
+    private final Context applicationContext;
+
+    private final ColorSetCacheDbOpenHelper dbOpenHelper;
+
+    // Guarded by 'this'
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    private final RequestListener<ArtworkProvider, ColorSet> requestListener = new RequestListener<ArtworkProvider, ColorSet>() {
+        @Override
+        public boolean onException(Exception e, ArtworkProvider model, Target<ColorSet> target, boolean isFirstResource) {
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(ColorSet resource, ArtworkProvider model, Target<ColorSet> target, boolean isFromMemoryCache, boolean isFirstResource) {
+            put(model, resource);
+            return false;
+        }
+    };
+
+    @SuppressLint("CheckResult")
+    @Inject
+    public ColorSetCache(Context context) {
+        applicationContext = context.getApplicationContext();
+        dbOpenHelper = new ColorSetCacheDbOpenHelper(applicationContext);
+
+        Completable.fromAction(this::load)
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {
+                }, error -> LogUtils.logException(TAG, "Failed to load color set cache", error));
+    }
+
+    /**
+     * @return the cached {@link ColorSet} for the passed in artwork, or null if there isn't one, or the artwork source has changed.
+     */
+    @Nullable
+    public ColorSet get(@NonNull Context context, @NonNull ArtworkProvider artworkProvider) {
+        Entry entry = get(artworkProvider.getArtworkKey(), MultiFetcher.getId(applicationContext, artworkProvider));
+        if (entry == null) {
+            return null;
+        }
+        return ColorSet.Companion.fromPrimaryAccentColors(context, entry.primaryColor, entry.accentColor);
+    }
+
+    public void put(@NonNull ArtworkProvider artworkProvider, @NonNull ColorSet colorSet) {
+        put(artworkProvider.getArtworkKey(), MultiFetcher.getId(applicationContext, artworkProvider), colorSet.getPrimaryColor(), colorSet.getAccentColor());
+    }
+
+    /**
+     * @return the entry for the passed in artwork key, or null if there isn't one, or it was stored for a different fingerprint.
+     */
+    @Nullable
+    Entry get(@NonNull String key, @NonNull String fingerprint) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null || !entry.fingerprint.equals(fingerprint)) {
+            return null;
+        }
+        return entry;
+    }
+
+    @SuppressLint("CheckResult")
+    void put(@NonNull String key, @NonNull String fingerprint, int primaryColor, int accentColor) {
+        Entry entry = new Entry(fingerprint, primaryColor, accentColor);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+
+        Completable.fromAction(() -> write(key, entry))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {
+                }, error -> LogUtils.logException(TAG, "Failed to write color set cache entry", error));
+    }
+
+    /**
+     * @return a listener which stores the {@link ColorSet} produced by a Glide request for an {@link ArtworkProvider}.
+     */
+    public RequestListener<ArtworkProvider, ColorSet> getRequestListener() {
+        return requestListener;
+    }
+
+    /**
+     * Removes all entries. Call when the artwork caches are cleared.
+     */
+    @SuppressLint("CheckResult")
+    public void clear() {
+        synchronized (this) {
+            entries.clear();
+        }
+
+        Completable.fromAction(() -> dbOpenHelper.getWritableDatabase().delete(ColorSetCacheDbOpenHelper.TABLE_NAME, null, null))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {
+                }, error -> LogUtils.logException(TAG, "Failed to clear color set cache", error));
+    }
+
+    private void load() {
+        SQLiteDatabase database = dbOpenHelper.getWritableDatabase();
+
+        // Trim the table to the most recent entries
+        database.execSQL("DELETE FROM " + ColorSetCacheDbOpenHelper.TABLE_NAME
+                + " WHERE " + ColorSetCacheDbOpenHelper.COLUMN_KEY + " NOT IN ("
+                + "SELECT " + ColorSetCacheDbOpenHelper.COLUMN_KEY + " FROM " + ColorSetCacheDbOpenHelper.TABLE_NAME
+                + " ORDER BY " + ColorSetCacheDbOpenHelper.COLUMN_TIMESTAMP + " DESC LIMIT " + MAX_ENTRIES + ")");
+
+        Map<String, Entry> loadedEntries = new HashMap<>();
+        Cursor cursor = database.query(ColorSetCacheDbOpenHelper.TABLE_NAME,
+                new String[] {
+                        ColorSetCacheDbOpenHelper.COLUMN_KEY,
+                        ColorSetCacheDbOpenHelper.COLUMN_FINGERPRINT,
+                        ColorSetCacheDbOpenHelper.COLUMN_PRIMARY_COLOR,
+                        ColorSetCacheDbOpenHelper.COLUMN_ACCENT_COLOR
+                },
+                null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                loadedEntries.put(cursor.getString(0), new Entry(cursor.getString(1), cursor.getInt(2), cursor.getInt(3)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        synchronized (this) {
+            // Entries put while loading are newer than those on disk
+            for (Map.Entry<String, Entry> loadedEntry : loadedEntries.entrySet()) {
+                if (!entries.containsKey(loadedEntry.getKey())) {
+                    entries.put(loadedEntry.getKey(), loadedEntry.getValue());
+                }
+            }
+        }
+    }
+
+    private void write(String key, Entry entry) {
+        ContentValues values = new ContentValues();
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_KEY, key);
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_FINGERPRINT, entry.fingerprint);
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_PRIMARY_COLOR, entry.primaryColor);
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_ACCENT_COLOR, entry.accentColor);
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_TIMESTAMP, System.currentTimeMillis());
+        dbOpenHelper.getWritableDatabase().insertWithOnConflict(ColorSetCacheDbOpenHelper.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+}
@@ -0,0 +1,16 @@
+package com.simplecity.amp_library.glide.preloader;
+
+import android.support.annotation.Nullable;
+import com.simplecity.amp_library.model.ArtworkProvider;
+
+/**
+ * Implemented by view models which display artwork, so {@link ArtworkPreloadProvider} can preload it.
+ */
+public interface ArtworkPreloadItem {
+
+    /**
+     * @return the artwork displayed by this item, or null if it doesn't currently display any.
+     */
+    @Nullable
+    ArtworkProvider getPreloadArtwork();
+}
@@ -0,0 +1,89 @@
+package com.simplecity.amp_library.glide.preloader;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.widget.ImageView;
+import com.bumptech.glide.DrawableRequestBuilder;
+import com.bumptech.glide.GenericRequestBuilder;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.simplecity.amp_library.R;
+import com.simplecity.amp_library.model.ArtworkProvider;
+import com.simplecityapps.recycler_adapter.adapter.ViewModelAdapter;
+import com.simplecityapps.recycler_adapter.model.ViewModel;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Provides the artwork for {@link ArtworkPreloadItem}s in a {@link ViewModelAdapter}, for use with {@link VelocityAwarePreloader}.
+ * <p>
+ * Preload requests are built to match those made when the item is bound (same size, disk cache strategy & scale transformation), so a
+ * completed preload is a memory cache hit for the bound view, rather than just a disk cache hit.
+ */
+public class ArtworkPreloadProvider implements
+        ListPreloader.PreloadModelProvider<ArtworkProvider>,
+        ListPreloader.PreloadSizeProvider<ArtworkProvider> {
+
+    private final RequestManager requestManager;
+    private final ViewModelAdapter adapter;
+    private final RecyclerView recyclerView;
+
+    @Nullable
+    private ImageView.ScaleType scaleType;
+
+    public ArtworkPreloadProvider(RequestManager requestManager, ViewModelAdapter adapter, RecyclerView recyclerView) {
+        this.requestManager = requestManager;
+        this.adapter = adapter;
+        this.recyclerView = recyclerView;
+    }
+
+    @NonNull
+    @Override
+    public List<ArtworkProvider> getPreloadItems(int position) {
+        if (position < 0 || position >= adapter.items.size()) {
+            return Collections.emptyList();
+        }
+        ViewModel item = adapter.items.get(position);
+        if (item instanceof ArtworkPreloadItem) {
+            ArtworkProvider artwork = ((ArtworkPreloadItem) item).getPreloadArtwork();
+            if (artwork != null) {
+                return Collections.singletonList(artwork);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    @Nullable
+    @Override
+    public GenericRequestBuilder getPreloadRequestBuilder(ArtworkProvider item) {
+        DrawableRequestBuilder<ArtworkProvider> requestBuilder = requestManager.load(item)
+                .diskCacheStrategy(DiskCacheStrategy.ALL);
+
+        // Glide applies these when loading into an ImageView, and they're part of the memory cache key
+        if (scaleType == ImageView.ScaleType.CENTER_CROP) {
+            requestBuilder = requestBuilder.centerCrop();
+        } else if (scaleType == ImageView.ScaleType.FIT_CENTER) {
+            requestBuilder = requestBuilder.fitCenter();
+        }
+        return requestBuilder;
+    }
+
+    /**
+     * @return the size of the artwork in the currently laid out rows, or null if there aren't any with artwork yet.
+     */
+    @Nullable
+    @Override
+    public int[] getPreloadSize(ArtworkProvider item, int adapterPosition, int perItemPosition) {
+        for (int i = 0, count = recyclerView.getChildCount(); i < count; i++) {
+            View image = recyclerView.getChildAt(i).findViewById(R.id.image);
+            if (image instanceof ImageView && image.getWidth() > 0 && image.getHeight() > 0) {
+                scaleType = ((ImageView) image).getScaleType();
+                return new int[] { image.getWidth(), image.getHeight() };
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,257 @@
+package com.simplecity.amp_library.glide.preloader;
+
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.util.SparseArray;
+import com.bumptech.glide.GenericRequestBuilder;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader.PreloadModelProvider;
+import com.bumptech.glide.ListPreloader.PreloadSizeProvider;
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.request.animation.GlideAnimation;
+import com.bumptech.glide.request.target.BaseTarget;
+import com.bumptech.glide.request.target.SizeReadyCallback;
+import com.simplecity.amp_library.BuildConfig;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Like {@link RecyclerViewPreloader}, loads resources ahead of the direction of scrolling, so they're cached before their views are
+ * bound. Unlike it, the preload distance adapts to the scroll velocity:
+ * <p>
+ * - While scrolling slowly, or once the list settles, up to {@code maxPreload} items ahead of the viewport are preloaded.
+ * <p>
+ * - As the list scrolls faster, fewer items are preloaded, down to none during a fast fling, since items passed over at that speed are
+ * never seen.
+ * <p>
+ * Preloads which fall behind the viewport, or outside the current preload distance, are cancelled. Preloads are made at
+ * {@link Priority#LOW}, so they don't hold up the loads for visible items.
+ * <p>
+ * In debug builds, the number of preloads which were used, cancelled, or completed without ever being seen (wasted) are logged each
+ * time the list settles.
+ * <p>
+ * Must be added as a listener to the {@link RecyclerView} using {@link RecyclerView#addOnScrollListener(RecyclerView.OnScrollListener)}.
+ * Only works with {@link LinearLayoutManager} and its subclasses.
+ *
+ * @param <T> The type of the model being displayed in the {@link RecyclerView}.
+ */
+public final class VelocityAwarePreloader<T> extends RecyclerView.OnScrollListener {
+
+    private static final String TAG = "VelocityAwarePreloader";
+
+    // At or below this velocity (in items per second), the full preload distance is used
+    private static final float MIN_THROTTLE_VELOCITY = 10f;
+
+    // At or above this velocity (in items per second), nothing is preloaded
+    private static final float MAX_PRELOAD_VELOCITY = 60f;
+
+    // The weight given to each new velocity sample. onScrolled() is called once per frame, but the first visible position only changes
+    // every few frames, so individual samples are noisy.
+    private static final float VELOCITY_SMOOTHING = 0.3f;
+
+    private final PreloadModelProvider<T> preloadModelProvider;
+    private final PreloadSizeProvider<T> preloadSizeProvider;
+    private final int maxPreload;
+
+    // Outstanding preloads, keyed by adapter position
+    private final SparseArray<List<PreloadTarget>> preloads = new SparseArray<>();
+
+    private int lastFirstVisible = RecyclerView.NO_POSITION;
+    private long lastScrollTime;
+
+    // Smoothed scroll velocity, in items per second
+    private float velocity;
+
+    private boolean scrollingForward = true;
+
+    private int requestedCount;
+    private int usedCount;
+    private int cancelledCount;
+    private int wastedCount;
+
+    /**
+     * @param preloadModelProvider Provides models to load and requests capable of loading them.
+     * @param preloadSizeProvider Provides the dimensions of images to load. May return null if the dimensions aren't known yet, in
+     * which case the item's position is skipped, and retried on the next scroll.
+     * @param maxPreload Maximum number of items to preload, when the list is scrolling slowly or has settled.
+     */
+    public VelocityAwarePreloader(PreloadModelProvider<T> preloadModelProvider, PreloadSizeProvider<T> preloadSizeProvider, int maxPreload) {
+        this.preloadModelProvider = preloadModelProvider;
+        this.preloadSizeProvider = preloadSizeProvider;
+        this.maxPreload = maxPreload;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int delta = layoutManager.getOrientation() == LinearLayoutManager.VERTICAL ? dy : dx;
+        if (delta != 0) {
+            scrollingForward = delta > 0;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (lastFirstVisible != RecyclerView.NO_POSITION && now > lastScrollTime) {
+            float sample = Math.abs(firstVisible - lastFirstVisible) * 1000f / (now - lastScrollTime);
+            velocity += VELOCITY_SMOOTHING * (sample - velocity);
+        }
+        lastFirstVisible = firstVisible;
+        lastScrollTime = now;
+
+        update(recyclerView, firstVisible, layoutManager.findLastVisibleItemPosition());
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState != RecyclerView.SCROLL_STATE_IDLE) {
+            return;
+        }
+
+        // The list has settled. Preload as much as possible around the viewport, and start measuring velocity afresh next time.
+        velocity = 0;
+        lastFirstVisible = RecyclerView.NO_POSITION;
+
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        if (firstVisible != RecyclerView.NO_POSITION) {
+            update(recyclerView, firstVisible, layoutManager.findLastVisibleItemPosition());
+        }
+
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, String.format("Preloads requested: %d, used: %d, cancelled: %d, wasted: %d", requestedCount, usedCount, cancelledCount, wastedCount));
+        }
+    }
+
+    /**
+     * Cancels all outstanding preloads. Call when the list is no longer displayed.
+     */
+    public void cancelAll() {
+        for (int i = preloads.size() - 1; i >= 0; i--) {
+            clear(preloads.valueAt(i));
+        }
+        preloads.clear();
+    }
+
+    private void update(RecyclerView recyclerView, int firstVisible, int lastVisible) {
+        int distance = getPreloadDistance();
+        int itemCount = recyclerView.getAdapter() == null ? 0 : recyclerView.getAdapter().getItemCount();
+
+        int start = scrollingForward ? lastVisible + 1 : Math.max(firstVisible - distance, 0);
+        int end = scrollingForward ? Math.min(lastVisible + distance, itemCount - 1) : firstVisible - 1;
+
+        // Preloads which are now visible have served their purpose. Those outside the viewport & preload window are stale.
+        for (int i = preloads.size() - 1; i >= 0; i--) {
+            int position = preloads.keyAt(i);
+            if (position >= firstVisible && position <= lastVisible) {
+                usedCount += preloads.valueAt(i).size();
+                clear(preloads.valueAt(i));
+                preloads.removeAt(i);
+            } else if (position < start || position > end) {
+                for (PreloadTarget target : preloads.valueAt(i)) {
+                    if (target.isComplete) {
+                        wastedCount++;
+                    } else if (!target.isFailed) {
+                        cancelledCount++;
+                    }
+                }
+                clear(preloads.valueAt(i));
+                preloads.removeAt(i);
+            }
+        }
+
+        // Preload the nearest items first
+        if (scrollingForward) {
+            for (int position = start; position <= end; position++) {
+                preload(position);
+            }
+        } else {
+            for (int position = end; position >= start; position--) {
+                preload(position);
+            }
+        }
+    }
+
+    private int getPreloadDistance() {
+        if (velocity <= MIN_THROTTLE_VELOCITY) {
+            return maxPreload;
+        }
+        if (velocity >= MAX_PRELOAD_VELOCITY) {
+            return 0;
+        }
+        float fraction = (MAX_PRELOAD_VELOCITY - velocity) / (MAX_PRELOAD_VELOCITY - MIN_THROTTLE_VELOCITY);
+        return Math.round(maxPreload * fraction);
+    }
+
+    private void preload(int position) {
+        if (preloads.get(position) != null) {
+            return;
+        }
+
+        List<T> items = preloadModelProvider.getPreloadItems(position);
+
+        // Until the size of every item is known (i.e. a view has been laid out), nothing is recorded for this position, so it's tried
+        // again on the next update
+        int[][] dimensions = new int[items.size()][];
+        for (int i = 0, size = items.size(); i < size; i++) {
+            dimensions[i] = preloadSizeProvider.getPreloadSize(items.get(i), position, i);
+            if (dimensions[i] == null) {
+                return;
+            }
+        }
+
+        List<PreloadTarget> targets = new ArrayList<>(items.size());
+        for (int i = 0, size = items.size(); i < size; i++) {
+            GenericRequestBuilder requestBuilder = preloadModelProvider.getPreloadRequestBuilder(items.get(i));
+            if (requestBuilder == null) {
+                continue;
+            }
+            PreloadTarget target = new PreloadTarget(dimensions[i][0], dimensions[i][1]);
+            requestBuilder.priority(Priority.LOW).into(target);
+            targets.add(target);
+            requestedCount++;
+        }
+        preloads.put(position, targets);
+    }
+
+    private static void clear(List<PreloadTarget> targets) {
+        for (int i = 0, size = targets.size(); i < size; i++) {
+            Glide.clear(targets.get(i));
+        }
+    }
+
+    private static final class PreloadTarget extends BaseTarget<Object> {
+
+        private final int width;
+        private final int height;
+
+        boolean isComplete;
+        boolean isFailed;
+
+        PreloadTarget(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void getSize(SizeReadyCallback cb) {
+            cb.onSizeReady(width, height);
+        }
+
+        @Override
+        public void onResourceReady(Object resource, GlideAnimation<? super Object> glideAnimation) {
+            isComplete = true;
+        }
+
+        @Override
+        public void onLoadFailed(Exception e, Drawable errorDrawable) {
+            isFailed = true;
+        }
+    }
+}
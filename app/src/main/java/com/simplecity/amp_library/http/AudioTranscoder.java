@@ -0,0 +1,222 @@
+package com.simplecity.amp_library.http;
+
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import io.reactivex.schedulers.Schedulers;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Decodes an audio file on the fly, and streams it as 16-bit PCM WAV, which Cast receivers can always play.
+ * <p>
+ * Decoding runs on a background thread, and writes into a fixed size pipe. When the pipe is full, the decoder blocks until the client
+ * has read more, so memory use is bounded regardless of the file's length. If the client goes away, the pipe is closed and decoding stops.
+ * <p>
+ * Decoding is expensive, so only a couple of files are transcoded at once: enough for the current song and the one the receiver
+ * preloads.
+ */
+final class AudioTranscoder implements Runnable {
+
+    private static final String TAG = "AudioTranscoder";
+
+    static final String OUTPUT_MIME_TYPE = "audio/wav";
+
+    private static final int PIPE_BUFFER_SIZE = 256 * 1024;
+
+    private static final long DEQUEUE_TIMEOUT_US = 10000;
+
+    private static final int MAX_CONCURRENT_TRANSCODES = 2;
+
+    private static final Semaphore permits = new Semaphore(MAX_CONCURRENT_TRANSCODES);
+
+    private final String path;
+
+    private final PipedOutputStream outputStream = new PipedOutputStream();
+    private final PipedInputStream inputStream;
+
+    private byte[] chunk = new byte[0];
+
+    // The AudioFormat encoding of the decoder's output
+    private int encoding = AudioFormat.ENCODING_PCM_16BIT;
+
+    private AudioTranscoder(String path) throws IOException {
+        this.path = path;
+        this.inputStream = new PipedInputStream(outputStream, PIPE_BUFFER_SIZE);
+    }
+
+    /**
+     * Begins transcoding the file at the passed in path.
+     *
+     * @return a stream of WAV data, to be consumed on a thread other than the one doing the decoding, or null if too many files are
+     * already being transcoded.
+     */
+    @Nullable
+    static InputStream start(String path) throws IOException {
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        AudioTranscoder transcoder;
+        try {
+            transcoder = new AudioTranscoder(path);
+        } catch (IOException e) {
+            permits.release();
+            throw e;
+        }
+        Schedulers.io().scheduleDirect(transcoder);
+        return transcoder.inputStream;
+    }
+
+    @Override
+    public void run() {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            extractor.setDataSource(path);
+
+            MediaFormat inputFormat = selectAudioTrack(extractor);
+            if (inputFormat == null) {
+                Log.e(TAG, "No audio track found: " + path);
+                return;
+            }
+
+            codec = MediaCodec.createDecoderByType(inputFormat.getString(MediaFormat.KEY_MIME));
+            codec.configure(inputFormat, null, null, 0);
+            codec.start();
+
+            decode(extractor, codec);
+        } catch (IOException | IllegalStateException e) {
+            // Also thrown once the client closes the connection, and the pipe with it.
+            Log.w(TAG, "Transcoding stopped: " + e.getMessage());
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (IllegalStateException ignored) {
+                }
+                codec.release();
+            }
+            extractor.release();
+            try {
+                outputStream.close();
+            } catch (IOException ignored) {
+            }
+            permits.release();
+        }
+    }
+
+    private static MediaFormat selectAudioTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            MediaFormat format = extractor.getTrackFormat(i);
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                extractor.selectTrack(i);
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private void decode(MediaExtractor extractor, MediaCodec codec) throws IOException {
+        MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+        boolean inputDone = false;
+        boolean headerWritten = false;
+
+        while (true) {
+            if (!inputDone) {
+                int inputIndex = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+                if (inputIndex >= 0) {
+                    ByteBuffer inputBuffer = codec.getInputBuffer(inputIndex);
+                    int sampleSize = inputBuffer == null ? -1 : extractor.readSampleData(inputBuffer, 0);
+                    if (sampleSize < 0) {
+                        codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        inputDone = true;
+                    } else {
+                        codec.queueInputBuffer(inputIndex, 0, sampleSize, extractor.getSampleTime(), 0);
+                        extractor.advance();
+                    }
+                }
+            }
+
+            int outputIndex = codec.dequeueOutputBuffer(bufferInfo, DEQUEUE_TIMEOUT_US);
+            if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                if (!headerWritten) {
+                    writeHeader(codec.getOutputFormat());
+                    headerWritten = true;
+                }
+            } else if (outputIndex >= 0) {
+                if (!headerWritten) {
+                    writeHeader(codec.getOutputFormat());
+                    headerWritten = true;
+                }
+                ByteBuffer outputBuffer = codec.getOutputBuffer(outputIndex);
+                if (outputBuffer != null && bufferInfo.size > 0) {
+                    int length = PcmConverter.outputLength(encoding, bufferInfo.size);
+                    if (chunk.length < length) {
+                        chunk = new byte[length];
+                    }
+                    outputBuffer.limit(bufferInfo.offset + bufferInfo.size);
+                    outputBuffer.position(bufferInfo.offset);
+                    outputStream.write(chunk, 0, PcmConverter.convert(outputBuffer, encoding, chunk));
+                }
+                codec.releaseOutputBuffer(outputIndex, false);
+
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the decoder's output encoding, and writes the WAV header. The output is always 16-bit, whatever the decoder produces.
+     *
+     * @throws IOException if the decoder's output encoding can't be converted
+     */
+    private void writeHeader(MediaFormat outputFormat) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && outputFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)) {
+            encoding = outputFormat.getInteger(MediaFormat.KEY_PCM_ENCODING);
+        }
+        if (!PcmConverter.isSupported(encoding)) {
+            throw new IOException("Unsupported PCM encoding: " + encoding);
+        }
+        writeWavHeader(outputStream, outputFormat);
+    }
+
+    /**
+     * Writes a RIFF/WAVE header. The length isn't known up front, so the size fields are set to their maximum value, which receivers
+     * treat as 'read until the end of the stream'.
+     */
+    private static void writeWavHeader(OutputStream outputStream, MediaFormat format) throws IOException {
+        int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+        int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        int bitsPerSample = 16;
+        int blockAlign = channels * bitsPerSample / 8;
+
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' });
+        header.putInt(0xFFFFFFFF);
+        header.put(new byte[] { 'W', 'A', 'V', 'E' });
+        header.put(new byte[] { 'f', 'm', 't', ' ' });
+        header.putInt(16);
+        header.putShort((short) 1); // PCM
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) bitsPerSample);
+        header.put(new byte[] { 'd', 'a', 't', 'a' });
+        header.putInt(0xFFFFFFFF);
+        outputStream.write(header.array());
+    }
+}
@@ -0,0 +1,87 @@
+package com.simplecity.amp_library.http;
+
+import android.support.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An inclusive byte range, as requested via an HTTP 'Range' header.
+ */
+final class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    final long start;
+    final long end;
+
+    ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    long length() {
+        return end - start + 1;
+    }
+
+    String toContentRange(long fileLength) {
+        return "bytes " + start + "-" + end + "/" + fileLength;
+    }
+
+    /**
+     * Parses a 'Range' header value against a resource of the given length.
+     *
+     * @return the satisfiable ranges (possibly empty, in which case a 416 should be returned), or null if the header
+     * is malformed (including a range whose last byte precedes its first) and should be ignored.
+     */
+    @Nullable
+    static List<ByteRange> parse(String rangeHeader, long fileLength) {
+        String value = rangeHeader.trim();
+        if (!value.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        for (String spec : value.substring(BYTES_UNIT.length()).split(",")) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            long start;
+            long end;
+            try {
+                if (dash == 0) {
+                    // Suffix range: the last n bytes
+                    long suffixLength = Long.parseLong(spec.substring(1));
+                    if (suffixLength <= 0) {
+                        continue;
+                    }
+                    start = Math.max(0, fileLength - suffixLength);
+                    end = fileLength - 1;
+                } else {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    if (dash == spec.length() - 1) {
+                        end = fileLength - 1;
+                    } else {
+                        end = Long.parseLong(spec.substring(dash + 1));
+                        if (end < start) {
+                            // A reversed range makes the whole header invalid, so it's ignored (RFC 7233, section 3.1)
+                            return null;
+                        }
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            if (end > fileLength - 1) {
+                end = fileLength - 1;
+            }
+            if (start <= end) {
+                ranges.add(new ByteRange(start, end));
+            }
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,86 @@
+package com.simplecity.amp_library.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streams a region of a file by memory-mapping it in fixed size windows.
+ * <p>
+ * Reads are positional, so several of these streams can share one {@link FileChannel} without seeking or skipping.
+ */
+final class FileRangeInputStream extends InputStream {
+
+    private static final int WINDOW_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final boolean closeChannel;
+
+    private long position;
+    private final long end;
+
+    private MappedByteBuffer window;
+
+    /**
+     * @param channel      the channel to read from
+     * @param start        the first byte to read
+     * @param length       the number of bytes to read
+     * @param closeChannel whether the channel should be closed along with this stream
+     */
+    FileRangeInputStream(FileChannel channel, long start, long length, boolean closeChannel) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.position = start;
+        this.end = start + length;
+    }
+
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        if (position >= end) {
+            return false;
+        }
+        long size = Math.min(WINDOW_SIZE, end - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        position += size;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureWindow()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int count = Math.min(length, window.remaining());
+        window.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        long remaining = (window != null ? window.remaining() : 0) + (end - position);
+        return (int) Math.min(Integer.MAX_VALUE, remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        position = end;
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+}
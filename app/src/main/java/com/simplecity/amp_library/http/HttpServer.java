@@ -1,27 +1,61 @@
 package com.simplecity.amp_library.http;
 
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
 import android.util.Log;
 import fi.iki.elonen.NanoHTTPD;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Serves local audio files and their artwork to Cast receivers.
+ * <p>
+ * Songs are registered by id, and requested via '/audio/{songId}' and '/image/{songId}'. Each request streams from
+ * its own file channel, so a receiver may issue overlapping range requests, or fetch a song while the previous one
+ * is still being read.
+ * <p>
+ * Formats receivers can't play (see {@link #requiresTranscode(String)}) are requested via '/transcode/{songId}' instead,
+ * and decoded on the fly.
+ */
 public class HttpServer {
 
     private static final String TAG = "HttpServer";
 
+    public static final int PORT = 5000;
+
+    private static final String AUDIO_PATH = "/audio/";
+    private static final String IMAGE_PATH = "/image/";
+    private static final String TRANSCODE_PATH = "/transcode/";
+
+    private static final int MAX_CACHED_IMAGES = 10;
+
+    private static final String MULTIPART_BOUNDARY = "SHUTTLE_BYTERANGES";
+
     private static HttpServer sHttpServer;
 
     private NanoServer server;
 
-    private String audioFileToServe;
-    private byte[] imageBytesToServe;
-
-    private FileInputStream audioInputStream;
-    private ByteArrayInputStream imageInputStream;
+    private final Map<Long, String> audioFiles = new ConcurrentHashMap<>();
+    private final LruCache<Long, byte[]> images = new LruCache<>(MAX_CACHED_IMAGES);
 
     private boolean isStarted = false;
 
@@ -34,49 +68,32 @@ public class HttpServer {
 
     private HttpServer() {
         server = new NanoServer();
-        // Initialize mimeTypes map
-        mimeTypes.put("css", "text/css");
-        mimeTypes.put("htm", "text/html");
-        mimeTypes.put("html", "text/html");
-        mimeTypes.put("xml", "text/xml");
-        mimeTypes.put("java", "text/x-java-source, text/java");
-        mimeTypes.put("md", TEXT_PLAIN);
-        mimeTypes.put("txt", TEXT_PLAIN);
-        mimeTypes.put("asc", TEXT_PLAIN);
-        mimeTypes.put("gif", "image/gif");
-        mimeTypes.put("jpg", "image/jpeg");
-        mimeTypes.put("jpeg", "image/jpeg");
-        mimeTypes.put("png", "image/png");
-        mimeTypes.put("mp3", "audio/mpeg");
-        mimeTypes.put("m3u", "audio/mpeg-url");
-        mimeTypes.put("mp4", "video/mp4");
-        mimeTypes.put("ogv", "video/ogg");
-        mimeTypes.put("flv", "video/x-flv");
-        mimeTypes.put("mov", "video/quicktime");
-        mimeTypes.put("swf", "application/x-shockwave-flash");
-        mimeTypes.put("js", "application/javascript");
-        mimeTypes.put("pdf", "application/pdf");
-        mimeTypes.put("doc", "application/msword");
-        mimeTypes.put("ogg", "application/x-ogg");
-        mimeTypes.put("zip", APPLICATION_OCTET_STREAM);
-        mimeTypes.put("exe", APPLICATION_OCTET_STREAM);
-        mimeTypes.put("class", APPLICATION_OCTET_STREAM);
     }
 
-    public void serveAudio(String audioUri) {
-        if (audioUri != null) {
-            audioFileToServe = audioUri;
+    /**
+     * Makes the audio file at the passed in path available at '/audio/{songId}'
+     */
+    public void serveAudio(long songId, String path) {
+        if (path != null) {
+            audioFiles.put(songId, path);
         }
     }
 
-    public void serveImage(byte[] imageBytes) {
+    /**
+     * Makes the passed in image bytes available at '/image/{songId}'
+     */
+    public void serveImage(long songId, byte[] imageBytes) {
         if (imageBytes != null) {
-            imageBytesToServe = imageBytes;
+            images.put(songId, imageBytes);
         }
     }
 
-    public void clearImage() {
-        imageBytesToServe = null;
+    public boolean hasImage(long songId) {
+        return images.get(songId) != null;
+    }
+
+    public void clearImage(long songId) {
+        images.remove(songId);
     }
 
     public void start() {
@@ -94,100 +111,234 @@ public class HttpServer {
         if (isStarted) {
             server.stop();
             isStarted = false;
-            cleanupAudioStream();
-            cleanupImageStream();
+            // Audio registrations are kept, so items already queued on the receiver can still be fetched once the server is started
+            // again. Artwork is kept too (the cache is bounded), so prefetched images survive a stop/load cycle when skipping tracks
         }
     }
 
     private class NanoServer extends NanoHTTPD {
 
         NanoServer() {
-            super(5000);
+            super(PORT);
         }
 
         @Override
         public Response serve(IHTTPSession session) {
+            String uri = session.getUri();
+            if (uri.startsWith(AUDIO_PATH)) {
+                Long songId = parseSongId(uri, AUDIO_PATH);
+                if (songId != null) {
+                    return serveAudio(session, songId);
+                }
+            } else if (uri.startsWith(TRANSCODE_PATH)) {
+                Long songId = parseSongId(uri, TRANSCODE_PATH);
+                if (songId != null) {
+                    return serveTranscodedAudio(songId);
+                }
+            } else if (uri.startsWith(IMAGE_PATH)) {
+                Long songId = parseSongId(uri, IMAGE_PATH);
+                if (songId != null) {
+                    return serveImage(songId);
+                }
+            }
+            return newFixedLengthResponse(Response.Status.NOT_FOUND, "text/html", "File not found");
+        }
 
-            if (audioFileToServe == null) {
-                Log.e(TAG, "Audio file to serve null");
+        private Response serveAudio(IHTTPSession session, long songId) {
+            String path = audioFiles.get(songId);
+            if (path == null) {
+                Log.e(TAG, "No audio file registered for song " + songId);
                 return newFixedLengthResponse(Response.Status.NOT_FOUND, "text/html", "File not found");
             }
 
-            String uri = session.getUri();
-            if (uri.contains("audio")) {
-                try {
-                    File file = new File(audioFileToServe);
-
-                    Map<String, String> headers = session.getHeaders();
-                    String range = null;
-                    for (String key : headers.keySet()) {
-                        if ("range".equals(key)) {
-                            range = headers.get(key);
-                        }
-                    }
-
-                    if (range == null) {
-                        range = "bytes=0-";
-                        session.getHeaders().put("range", range);
-                    }
-
-                    long start;
-                    long end;
-                    long fileLength = file.length();
-
-                    String rangeValue = range.trim().substring("bytes=".length());
-
-                    if (rangeValue.startsWith("-")) {
-                        end = fileLength - 1;
-                        start = fileLength - 1 - Long.parseLong(rangeValue.substring("-".length()));
-                    } else {
-                        String[] ranges = rangeValue.split("-");
-                        start = Long.parseLong(ranges[0]);
-                        end = ranges.length > 1 ? Long.parseLong(ranges[1]) : fileLength - 1;
-                    }
-                    if (end > fileLength - 1) {
-                        end = fileLength - 1;
-                    }
-
-                    if (start <= end) {
-                        long contentLength = end - start + 1;
-                        cleanupAudioStream();
-                        audioInputStream = new FileInputStream(file);
-                        audioInputStream.skip(start);
-                        Response response = newFixedLengthResponse(Response.Status.PARTIAL_CONTENT, getMimeType(audioFileToServe), audioInputStream, contentLength);
-                        response.addHeader("Content-Length", contentLength + "");
-                        response.addHeader("Content-Range", "bytes " + start + "-" + end + "/" + fileLength);
-                        response.addHeader("Content-Type", getMimeType(audioFileToServe));
-                        return response;
-                    } else {
-                        return newFixedLengthResponse(Response.Status.RANGE_NOT_SATISFIABLE, "text/html", range);
-                    }
-                } catch (IOException e) {
-                    Log.e(TAG, "Error serving audio: " + e.getMessage());
-                    e.printStackTrace();
+            File file = new File(path);
+            if (!file.exists()) {
+                return newFixedLengthResponse(Response.Status.NOT_FOUND, "text/html", "File not found");
+            }
+
+            long fileLength = file.length();
+            long lastModified = file.lastModified();
+            String etag = "\"" + Long.toHexString(songId) + "-" + Long.toHexString(fileLength) + "-" + Long.toHexString(lastModified) + "\"";
+            String mimeType = getMimeType(path);
+
+            // Header names are lower-cased by NanoHTTPD
+            Map<String, String> headers = session.getHeaders();
+            String range = headers.get("range");
+            String ifRange = headers.get("if-range");
+
+            try {
+                if (range == null) {
+                    // Served as a plain 200, which also covers zero-length files (no range of which is satisfiable)
+                    return newFileResponse(Response.Status.OK, file, mimeType, etag, lastModified, new ByteRange(0, fileLength - 1));
+                }
+
+                if (ifRange != null && !ifRangeMatches(ifRange, etag, lastModified)) {
+                    // The client's copy is stale, so it gets the whole file
+                    return newFileResponse(Response.Status.OK, file, mimeType, etag, lastModified, new ByteRange(0, fileLength - 1));
+                }
+
+                List<ByteRange> ranges = ByteRange.parse(range, fileLength);
+                if (ranges == null) {
+                    return newFileResponse(Response.Status.OK, file, mimeType, etag, lastModified, new ByteRange(0, fileLength - 1));
+                }
+
+                if (ranges.isEmpty()) {
+                    Response response = newFixedLengthResponse(Response.Status.RANGE_NOT_SATISFIABLE, "text/html", range);
+                    response.addHeader("Content-Range", "bytes */" + fileLength);
+                    return response;
+                }
+
+                if (ranges.size() == 1) {
+                    Response response = newFileResponse(Response.Status.PARTIAL_CONTENT, file, mimeType, etag, lastModified, ranges.get(0));
+                    response.addHeader("Content-Range", ranges.get(0).toContentRange(fileLength));
+                    return response;
                 }
-            } else if (uri.contains("image")) {
-                if (imageBytesToServe == null) {
-                    return newFixedLengthResponse(Response.Status.NOT_FOUND, "text/html", "Image bytes null");
+
+                return newMultipartResponse(file, mimeType, etag, lastModified, ranges);
+            } catch (IOException e) {
+                Log.e(TAG, "Error serving audio: " + e.getMessage());
+                return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "text/html", "Error serving audio");
+            }
+        }
+
+        private Response serveTranscodedAudio(long songId) {
+            String path = audioFiles.get(songId);
+            if (path == null || !new File(path).exists()) {
+                Log.e(TAG, "No audio file registered for song " + songId);
+                return newFixedLengthResponse(Response.Status.NOT_FOUND, "text/html", "File not found");
+            }
+            try {
+                // The output length isn't known up front, so the response is chunked, and can't honour range requests
+                InputStream inputStream = AudioTranscoder.start(path);
+                if (inputStream == null) {
+                    Response response = newFixedLengthResponse(Response.Status.SERVICE_UNAVAILABLE, "text/html", "Too many transcodes in progress");
+                    response.addHeader("Retry-After", "1");
+                    return response;
                 }
-                cleanupImageStream();
+                return newChunkedResponse(Response.Status.OK, AudioTranscoder.OUTPUT_MIME_TYPE, inputStream);
+            } catch (IOException e) {
+                Log.e(TAG, "Error transcoding audio: " + e.getMessage());
+                return newFixedLengthResponse(Response.Status.INTERNAL_ERROR, "text/html", "Error transcoding audio");
+            }
+        }
+
+        private Response serveImage(long songId) {
+            byte[] imageBytes = images.get(songId);
+            if (imageBytes == null) {
+                return newFixedLengthResponse(Response.Status.NOT_FOUND, "text/html", "Image bytes null");
+            }
+            return newFixedLengthResponse(Response.Status.OK, "image/jpeg", new ByteArrayInputStream(imageBytes), imageBytes.length);
+        }
+
+        private Response newFileResponse(Response.Status status, File file, String mimeType, String etag, long lastModified, ByteRange range) throws IOException {
+            FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+            InputStream inputStream = new FileRangeInputStream(channel, range.start, range.length(), true);
+            Response response = newFixedLengthResponse(status, mimeType, inputStream, range.length());
+            response.addHeader("Content-Length", range.length() + "");
+            addEntityHeaders(response, etag, lastModified);
+            return response;
+        }
+
+        private Response newMultipartResponse(File file, String mimeType, String etag, long lastModified, List<ByteRange> ranges) throws IOException {
+            long fileLength = file.length();
+            FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+
+            Vector<InputStream> parts = new Vector<>();
+            long contentLength = 0;
+            for (int i = 0, size = ranges.size(); i < size; i++) {
+                ByteRange range = ranges.get(i);
+                byte[] partHeader = ("\r\n--" + MULTIPART_BOUNDARY + "\r\n"
+                        + "Content-Type: " + mimeType + "\r\n"
+                        + "Content-Range: " + range.toContentRange(fileLength) + "\r\n\r\n").getBytes(Charset.forName("US-ASCII"));
+                parts.add(new ByteArrayInputStream(partHeader));
+                // The last range stream owns the channel, so it is released once the body has been sent (or abandoned)
+                parts.add(new FileRangeInputStream(channel, range.start, range.length(), i == size - 1));
+                contentLength += partHeader.length + range.length();
+            }
+            byte[] trailer = ("\r\n--" + MULTIPART_BOUNDARY + "--\r\n").getBytes(Charset.forName("US-ASCII"));
+            parts.add(new ByteArrayInputStream(trailer));
+            contentLength += trailer.length;
+
+            String contentType = "multipart/byteranges; boundary=" + MULTIPART_BOUNDARY;
+            Response response = newFixedLengthResponse(Response.Status.PARTIAL_CONTENT, contentType, new SequenceInputStream(parts.elements()), contentLength);
+            response.addHeader("Content-Length", contentLength + "");
+            addEntityHeaders(response, etag, lastModified);
+            return response;
+        }
+
+        private void addEntityHeaders(Response response, String etag, long lastModified) {
+            response.addHeader("Accept-Ranges", "bytes");
+            response.addHeader("ETag", etag);
+            response.addHeader("Last-Modified", newHttpDateFormat().format(new Date(lastModified)));
+        }
+    }
+
+    @Nullable
+    private static Long parseSongId(String uri, String prefix) {
+        String id = uri.substring(prefix.length());
+        int end = id.indexOf('/');
+        if (end != -1) {
+            id = id.substring(0, end);
+        }
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            Log.e(TAG, "Invalid song id: " + uri);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the 'If-Range' validator (either an entity tag or a date) still describes the file being served.
+     */
+    private static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Weak validators never match for sub-range requests
+            return ifRange.equals(etag);
+        }
+        try {
+            Date date = newHttpDateFormat().parse(ifRange);
+            return date.getTime() / 1000 == lastModified / 1000;
+        } catch (ParseException e) {
+            return false;
+        }
+    }
+
+    private static SimpleDateFormat newHttpDateFormat() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return dateFormat;
+    }
+
     private static final String TEXT_PLAIN = "text/plain";
     private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
 
-    private final Map<String, String> mimeTypes = new HashMap<String, String>();
+    private static final Map<String, String> mimeTypes = new HashMap<String, String>() {{
         put("css", "text/css");
         put("htm", "text/html");
         put("html", "text/html");
         put("xml", "text/xml");
         put("java", "text/x-java-source, text/java");
-        put("md", "text/plain");
-        put("txt", "text/plain");
-        put("asc", "text/plain");
+        put("md", TEXT_PLAIN);
+        put("txt", TEXT_PLAIN);
+        put("asc", TEXT_PLAIN);
         put("gif", "image/gif");
         put("jpg", "image/jpeg");
         put("jpeg", "image/jpeg");
         put("png", "image/png");
         put("mp3", "audio/mpeg");
+        put("m4a", "audio/mp4");
+        put("aac", "audio/aac");
+        put("flac", "audio/flac");
+        put("opus", "audio/ogg");
+        put("oga", "audio/ogg");
+        put("wav", "audio/wav");
+        put("weba", "audio/webm");
+        put("wma", "audio/x-ms-wma");
+        put("aif", "audio/aiff");
+        put("aiff", "audio/aiff");
+        put("mka", "audio/x-matroska");
         put("m3u", "audio/mpeg-url");
         put("mp4", "video/mp4");
         put("ogv", "video/ogg");
@@ -197,13 +348,32 @@ public class HttpServer {
         put("js", "application/javascript");
         put("pdf", "application/pdf");
         put("doc", "application/msword");
-        put("ogg", "application/x-ogg");
-        put("zip", "application/octet-stream");
-        put("exe", "application/octet-stream");
-        put("class", "application/octet-stream");
+        put("ogg", "audio/ogg");
+        put("zip", APPLICATION_OCTET_STREAM);
+        put("exe", APPLICATION_OCTET_STREAM);
+        put("class", APPLICATION_OCTET_STREAM);
     }};
 
+    // The audio formats supported by the default Cast receiver
+    private static final Set<String> castMimeTypes = new HashSet<>(Arrays.asList(
+            "audio/mpeg",
+            "audio/mp4",
+            "audio/aac",
+            "audio/flac",
+            "audio/ogg",
+            "audio/wav",
+            "audio/webm"
+    ));
+
     String getMimeType(String filePath) {
-        return mimeTypes.get(filePath.substring(filePath.lastIndexOf(".") + 1));
+        return mimeTypes.get(filePath.substring(filePath.lastIndexOf(".") + 1).toLowerCase(Locale.US));
+    }
+
+    /**
+     * @return true if the file at the passed in path can't be played by a Cast receiver as-is, and should be requested
+     * via '/transcode/{songId}'.
+     */
+    public boolean requiresTranscode(String filePath) {
+        return !castMimeTypes.contains(getMimeType(filePath));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.simplecity.amp_library.http;
+
+import android.media.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Converts decoder output to the 16-bit little-endian PCM written by {@link AudioTranscoder}.
+ * <p>
+ * Decoders usually output 16-bit PCM, but from API 24 they may output 8-bit or float PCM instead (see
+ * {@link android.media.MediaFormat#KEY_PCM_ENCODING}).
+ */
+final class PcmConverter {
+
+    private PcmConverter() {
+
+    }
+
+    /**
+     * @return true if decoder output in the passed in {@link AudioFormat} encoding can be converted.
+     */
+    static boolean isSupported(int encoding) {
+        return encoding == AudioFormat.ENCODING_PCM_16BIT
+                || encoding == AudioFormat.ENCODING_PCM_8BIT
+                || encoding == AudioFormat.ENCODING_PCM_FLOAT;
+    }
+
+    /**
+     * @return the number of 16-bit PCM bytes produced from the passed in number of input bytes.
+     */
+    static int outputLength(int encoding, int inputLength) {
+        switch (encoding) {
+            case AudioFormat.ENCODING_PCM_8BIT:
+                return inputLength * 2;
+            case AudioFormat.ENCODING_PCM_FLOAT:
+                return inputLength / 2;
+            default:
+                return inputLength;
+        }
+    }
+
+    /**
+     * Converts the remaining bytes of the input buffer (in native byte order, as produced by MediaCodec) into the output array.
+     *
+     * @param output an array of at least {@link #outputLength(int, int)} bytes
+     * @return the number of bytes written to the output array
+     */
+    static int convert(ByteBuffer input, int encoding, byte[] output) {
+        input.order(ByteOrder.nativeOrder());
+        int count = 0;
+        switch (encoding) {
+            case AudioFormat.ENCODING_PCM_8BIT:
+                while (input.hasRemaining()) {
+                    // 8-bit PCM is unsigned
+                    count = putSample(output, count, (short) (((input.get() & 0xFF) - 128) << 8));
+                }
+                break;
+            case AudioFormat.ENCODING_PCM_FLOAT:
+                while (input.remaining() >= 4) {
+                    float sample = Math.max(-1f, Math.min(1f, input.getFloat()));
+                    count = putSample(output, count, (short) Math.round(sample * Short.MAX_VALUE));
+                }
+                break;
+            default:
+                if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+                    count = input.remaining() & ~1;
+                    input.get(output, 0, count);
+                    break;
+                }
+                while (input.remaining() >= 2) {
+                    count = putSample(output, count, input.getShort());
+                }
+                break;
+        }
+        return count;
+    }
+
+    private static int putSample(byte[] output, int offset, short sample) {
+        output[offset] = (byte) sample;
+        output[offset + 1] = (byte) (sample >> 8);
+        return offset + 2;
+    }
+}
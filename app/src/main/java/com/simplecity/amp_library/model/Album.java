@@ -56,9 +56,7 @@ public class Album implements
         this.paths = paths;
         this.songPlayCount = songPlayCount;
 
-        //Populate the artwork key & sort key properties if null.
-        setSortKey();
-        setArtworkKey();
+        // The artwork key & sort key are computed on first use.
     }
 
     public static class Builder {
@@ -204,7 +202,7 @@ public class Album implements
     }
 
     private void setArtworkKey() {
-        artworkKey = String.format("%s_%s", albumArtistName, name);
+        artworkKey = albumArtistName + "_" + name;
     }
 
     @Nullable
@@ -11,6 +11,9 @@ public class BaseFileObject implements Serializable {
     public String path;
     public long size;
 
+    // The modification time as of when this was loaded, used to tell whether it's changed since
+    public long lastModified;
+
     @FileType
     public int fileType;
 
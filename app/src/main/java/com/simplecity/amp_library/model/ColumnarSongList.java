@@ -0,0 +1,197 @@
+package com.simplecity.amp_library.model;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.annimon.stream.function.Predicate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A compact, read-only list of library songs.
+ * <p>
+ * Song properties are held in parallel primitive arrays, with artist, album & album artist names stored once in a shared string pool.
+ * {@link Song} objects are created as they're accessed, so only the songs actually in use (by a queue, an adapter etc.) are retained.
+ * <p>
+ * Only the properties read from the MediaStore are stored. Query specific properties (play count, playlist position etc.) aren't, and
+ * changes made to a song returned from {@link #get(int)} aren't reflected in the list.
+ */
+public final class ColumnarSongList extends AbstractList<Song> implements RandomAccess {
+
+    private static final class Columns {
+
+        final long[] ids;
+        final long[] artistIds;
+        final long[] albumIds;
+        final long[] durations;
+        final long[] bookMarks;
+        final int[] years;
+        final int[] dateAddeds;
+        final short[] tracks;
+        final int[] discNumbers;
+        final boolean[] isPodcasts;
+
+        final String[] names;
+        final String[] paths;
+
+        // Indices into the pool
+        final int[] artistNames;
+        final int[] albumNames;
+        final int[] albumArtistNames;
+
+        final String[] pool;
+
+        Columns(List<Song> songs) {
+            int size = songs.size();
+            ids = new long[size];
+            artistIds = new long[size];
+            albumIds = new long[size];
+            durations = new long[size];
+            bookMarks = new long[size];
+            years = new int[size];
+            dateAddeds = new int[size];
+            tracks = new short[size];
+            discNumbers = new int[size];
+            isPodcasts = new boolean[size];
+            names = new String[size];
+            paths = new String[size];
+            artistNames = new int[size];
+            albumNames = new int[size];
+            albumArtistNames = new int[size];
+
+            Map<String, Integer> poolIndices = new HashMap<>();
+            List<String> poolValues = new ArrayList<>();
+
+            for (int i = 0; i < size; i++) {
+                Song song = songs.get(i);
+                ids[i] = song.id;
+                artistIds[i] = song.artistId;
+                albumIds[i] = song.albumId;
+                durations[i] = song.duration;
+                bookMarks[i] = song.bookMark;
+                years[i] = song.year;
+                dateAddeds[i] = song.dateAdded;
+                tracks[i] = (short) song.track;
+                discNumbers[i] = song.discNumber;
+                isPodcasts[i] = song.isPodcast;
+                names[i] = song.name;
+                paths[i] = song.path;
+                artistNames[i] = pool(poolIndices, poolValues, song.artistName);
+                albumNames[i] = pool(poolIndices, poolValues, song.albumName);
+                albumArtistNames[i] = pool(poolIndices, poolValues, song.albumArtistName);
+            }
+
+            pool = poolValues.toArray(new String[0]);
+        }
+
+        private static int pool(Map<String, Integer> poolIndices, List<String> poolValues, @Nullable String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer index = poolIndices.get(value);
+            if (index == null) {
+                index = poolValues.size();
+                poolValues.add(value);
+                poolIndices.put(value, index);
+            }
+            return index;
+        }
+
+        @Nullable
+        String fromPool(int index) {
+            return index == -1 ? null : pool[index];
+        }
+
+        Song song(int row) {
+            Song song = new Song();
+            song.id = ids[row];
+            song.name = names[row];
+            song.artistId = artistIds[row];
+            song.artistName = fromPool(artistNames[row]);
+            song.albumId = albumIds[row];
+            song.albumName = fromPool(albumNames[row]);
+            song.albumArtistName = fromPool(albumArtistNames[row]);
+            song.duration = durations[row];
+            song.year = years[row];
+            song.track = tracks[row];
+            song.discNumber = discNumbers[row];
+            song.dateAdded = dateAddeds[row];
+            song.isPodcast = isPodcasts[row];
+            song.path = paths[row];
+            song.bookMark = bookMarks[row];
+            return song;
+        }
+    }
+
+    private final Columns columns;
+
+    // The rows of columns in this list, or null if this list contains every row
+    @Nullable
+    private final int[] rows;
+
+    private ColumnarSongList(Columns columns, @Nullable int[] rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * @return a columnar copy of the passed in songs.
+     */
+    @NonNull
+    public static ColumnarSongList of(@NonNull List<Song> songs) {
+        return new ColumnarSongList(new Columns(songs), null);
+    }
+
+    /**
+     * Filters the passed in songs. If they're a {@link ColumnarSongList}, the result is a view which shares its columns, so only the
+     * row indices are copied.
+     */
+    @NonNull
+    public static List<Song> filter(@NonNull List<Song> songs, @NonNull Predicate<Song> predicate) {
+        if (songs instanceof ColumnarSongList) {
+            return ((ColumnarSongList) songs).filter(predicate);
+        }
+        List<Song> filtered = new ArrayList<>();
+        for (Song song : songs) {
+            if (predicate.test(song)) {
+                filtered.add(song);
+            }
+        }
+        return filtered;
+    }
+
+    @NonNull
+    private ColumnarSongList filter(@NonNull Predicate<Song> predicate) {
+        int size = size();
+        int[] filtered = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int row = row(i);
+            if (predicate.test(columns.song(row))) {
+                filtered[count++] = row;
+            }
+        }
+        return new ColumnarSongList(columns, count == size && rows == null ? null : Arrays.copyOf(filtered, count));
+    }
+
+    private int row(int index) {
+        return rows == null ? index : rows[index];
+    }
+
+    @Override
+    public Song get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return columns.song(row(index));
+    }
+
+    @Override
+    public int size() {
+        return rows == null ? columns.ids.length : rows.length;
+    }
+}
@@ -19,7 +19,11 @@ public class FileObject extends BaseFileObject {
 
     public String getTimeString(Context context) {
         if (duration == 0) {
-            duration = FileHelper.getDuration(context, this);
+            if (tagInfo != null && tagInfo.trackLength > 0) {
+                duration = tagInfo.trackLength * 1000L;
+            } else {
+                duration = FileHelper.getDuration(context, this);
+            }
         }
         return StringUtils.makeTimeString(context, duration / 1000);
     }
@@ -7,10 +7,20 @@ public class FolderObject extends BaseFileObject {
     public int fileCount;
     public int folderCount;
 
+    // False until the folder's contents have been counted
+    public boolean countsLoaded;
+
     public FolderObject() {
         this.fileType = FileType.FOLDER;
     }
 
+    /**
+     * @return true if the folder has been counted, and has no audio files or subfolders.
+     */
+    public boolean isEmpty() {
+        return countsLoaded && fileCount == 0 && folderCount == 0;
+    }
+
     @Override
     public String toString() {
         return "FolderObject{" +
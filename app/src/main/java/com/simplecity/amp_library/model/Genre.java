@@ -2,12 +2,14 @@ package com.simplecity.amp_library.model;
 
 import android.database.Cursor;
 import android.provider.MediaStore;
+import com.simplecity.amp_library.sql.ColumnIndexCache;
 import java.io.Serializable;
 
 public class Genre implements Serializable {
 
     public long id;
     public String name;
+    // Includes blacklisted songs. See GenreIndex
     public int numSongs;
 
     public static String[] getProjection() {
@@ -27,9 +29,15 @@ public class Genre implements Serializable {
                 .build();
     }
 
+    private static final ColumnIndexCache columnIndexCache = new ColumnIndexCache(new String[] {
+            MediaStore.Audio.Genres._ID,
+            MediaStore.Audio.Genres.NAME
+    });
+
     public Genre(Cursor cursor) {
-        this.id = cursor.getLong(cursor.getColumnIndex(MediaStore.Audio.Genres._ID));
-        this.name = cursor.getString(cursor.getColumnIndex(MediaStore.Audio.Genres.NAME));
+        ColumnIndexCache.Columns columns = columnIndexCache.get(cursor);
+        this.id = cursor.getLong(columns.index(0));
+        this.name = cursor.getString(columns.index(1));
     }
 
     public Genre(long genreId, String name) {
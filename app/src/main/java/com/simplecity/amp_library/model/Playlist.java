@@ -4,7 +4,9 @@ import android.content.Context;
 import android.database.Cursor;
 import android.provider.MediaStore;
 import com.simplecity.amp_library.R;
+import com.simplecity.amp_library.sql.ColumnIndexCache;
 import com.simplecity.amp_library.utils.playlists.FavoritesPlaylistManager;
+import com.simplecity.amp_library.utils.playlists.PlaylistEditor;
 import com.simplecity.amp_library.utils.playlists.PlaylistManager;
 import io.reactivex.annotations.NonNull;
 import io.reactivex.annotations.Nullable;
@@ -94,7 +96,7 @@ public class Playlist implements Serializable {
     }
 
     public boolean moveSong(Context context, int from, int to) {
-        return MediaStore.Audio.Playlists.Members.moveItem(context.getContentResolver(), id, from, to);
+        return new PlaylistEditor(context.getApplicationContext(), id).move(from, to).commit() > 0;
     }
 
     @Override
@@ -123,11 +125,18 @@ public class Playlist implements Serializable {
                 '}';
     }
 
+    private static final ColumnIndexCache memberColumnIndexCache = new ColumnIndexCache(new String[] {
+            MediaStore.Audio.Playlists.Members.AUDIO_ID,
+            MediaStore.Audio.Playlists.Members._ID,
+            MediaStore.Audio.Playlists.Members.PLAY_ORDER
+    });
+
     public static Song createSongFromPlaylistCursor(Cursor cursor) {
         Song song = new Song(cursor);
-        song.id = cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Playlists.Members.AUDIO_ID));
-        song.playlistSongId = cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Playlists.Members._ID));
-        song.playlistSongPlayOrder = cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Playlists.Members.PLAY_ORDER));
+        ColumnIndexCache.Columns columns = memberColumnIndexCache.get(cursor);
+        song.id = cursor.getLong(columns.index(0));
+        song.playlistSongId = cursor.getLong(columns.index(1));
+        song.playlistSongPlayOrder = cursor.getLong(columns.index(2));
         return song;
     }
 }
@@ -9,10 +9,12 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import com.simplecity.amp_library.R;
+import com.simplecity.amp_library.sql.ColumnIndexCache;
 import com.simplecity.amp_library.sql.SqlUtils;
 import com.simplecity.amp_library.sql.providers.PlayCountTable;
 import com.simplecity.amp_library.sql.sqlbrite.SqlBriteUtils;
 import com.simplecity.amp_library.utils.ArtworkUtils;
+import com.simplecity.amp_library.utils.AudioHeaderReader;
 import com.simplecity.amp_library.utils.ComparisonUtils;
 import com.simplecity.amp_library.utils.FileHelper;
 import com.simplecity.amp_library.utils.StringUtils;
@@ -59,6 +61,9 @@ public class Song implements
 
     private TagInfo tagInfo;
 
+    private transient AudioHeaderReader.Header audioHeader;
+    private transient boolean audioHeaderRead;
+
     private String durationLabel;
     private String bitrateLabel;
     private String sampleRateLabel;
@@ -99,50 +104,84 @@ public class Song implements
                 .build();
     }
 
+    private static final int COLUMN_ID = 0;
+    private static final int COLUMN_TITLE = 1;
+    private static final int COLUMN_ARTIST_ID = 2;
+    private static final int COLUMN_ARTIST = 3;
+    private static final int COLUMN_ALBUM_ID = 4;
+    private static final int COLUMN_ALBUM = 5;
+    private static final int COLUMN_DURATION = 6;
+    private static final int COLUMN_YEAR = 7;
+    private static final int COLUMN_TRACK = 8;
+    private static final int COLUMN_DATE_ADDED = 9;
+    private static final int COLUMN_DATA = 10;
+    private static final int COLUMN_IS_PODCAST = 11;
+    private static final int COLUMN_ALBUM_ARTIST = 12;
+    private static final int COLUMN_BOOKMARK = 13;
+
+    private static final ColumnIndexCache columnIndexCache = new ColumnIndexCache(
+            new String[] {
+                    MediaStore.Audio.Media._ID,
+                    MediaStore.Audio.Media.TITLE,
+                    MediaStore.Audio.Media.ARTIST_ID,
+                    MediaStore.Audio.Media.ARTIST,
+                    MediaStore.Audio.Media.ALBUM_ID,
+                    MediaStore.Audio.Media.ALBUM,
+                    MediaStore.Audio.Media.DURATION,
+                    MediaStore.Audio.Media.YEAR,
+                    MediaStore.Audio.Media.TRACK,
+                    MediaStore.Audio.Media.DATE_ADDED,
+                    MediaStore.Audio.Media.DATA,
+                    MediaStore.Audio.Media.IS_PODCAST
+            },
+            "album_artist",
+            MediaStore.Audio.Media.BOOKMARK
+    );
+
     public Song(Cursor cursor) {
 
-        id = cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID));
+        // Column indices are resolved once per cursor, and artist/album names (repeated across many rows) share an instance.
+        // The sort & artwork keys are computed on first use.
+        ColumnIndexCache.Columns columns = columnIndexCache.get(cursor);
 
-        name = cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE));
+        id = cursor.getLong(columns.index(COLUMN_ID));
 
-        artistId = cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST_ID));
+        name = cursor.getString(columns.index(COLUMN_TITLE));
 
-        artistName = cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST));
+        artistId = cursor.getLong(columns.index(COLUMN_ARTIST_ID));
 
-        albumId = cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM_ID));
+        artistName = columns.getPooledString(cursor, COLUMN_ARTIST);
 
-        albumName = cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM));
+        albumId = cursor.getLong(columns.index(COLUMN_ALBUM_ID));
 
-        duration = cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION));
+        albumName = columns.getPooledString(cursor, COLUMN_ALBUM);
 
-        year = cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.YEAR));
+        duration = cursor.getLong(columns.index(COLUMN_DURATION));
 
-        track = cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TRACK));
+        year = cursor.getInt(columns.index(COLUMN_YEAR));
+
+        track = cursor.getInt(columns.index(COLUMN_TRACK));
 
         if (track >= 1000) {
             discNumber = track / 1000;
             track = track % 1000;
         }
 
-        dateAdded = cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_ADDED));
+        dateAdded = cursor.getInt(columns.index(COLUMN_DATE_ADDED));
 
-        path = cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA));
+        path = cursor.getString(columns.index(COLUMN_DATA));
 
         albumArtistName = artistName;
-        if (cursor.getColumnIndex("album_artist") != -1) {
-            String albumArtist = cursor.getString(cursor.getColumnIndex("album_artist"));
-            if (albumArtist != null) {
-                albumArtistName = albumArtist;
-            }
+        String albumArtist = columns.getPooledString(cursor, COLUMN_ALBUM_ARTIST);
+        if (albumArtist != null) {
+            albumArtistName = albumArtist;
         }
 
-        isPodcast = cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.IS_PODCAST)) == 1;
+        isPodcast = cursor.getInt(columns.index(COLUMN_IS_PODCAST)) == 1;
 
-        bookMark = cursor.getLong(cursor.getColumnIndex(MediaStore.Audio.Media.BOOKMARK));
-
-        //Populate the artwork key & sort key properties if null.
-        setSortKey();
-        setArtworkKey();
+        if (columns.index(COLUMN_BOOKMARK) != -1) {
+            bookMark = cursor.getLong(columns.index(COLUMN_BOOKMARK));
+        }
     }
 
     public Song() {
@@ -232,16 +271,34 @@ public class Song implements
         return tagInfo;
     }
 
+    /**
+     * @return the stream properties read from the file's headers, or null if they couldn't be read that way, in which case
+     * {@link #getTagInfo()} has them. Much cheaper than reading the tags.
+     */
+    @Nullable
+    private AudioHeaderReader.Header getAudioHeader() {
+        if (!audioHeaderRead) {
+            audioHeaderRead = true;
+            if (!TextUtils.isEmpty(path)) {
+                audioHeader = AudioHeaderReader.read(new File(path));
+            }
+        }
+        return audioHeader;
+    }
+
     public String getBitrateLabel(Context context) {
         if (bitrateLabel == null) {
-            bitrateLabel = getTagInfo().bitrate + context.getString(R.string.song_info_bitrate_suffix);
+            AudioHeaderReader.Header audioHeader = getAudioHeader();
+            String bitrate = audioHeader != null ? audioHeader.bitrate : getTagInfo().bitrate;
+            bitrateLabel = bitrate + context.getString(R.string.song_info_bitrate_suffix);
         }
         return bitrateLabel;
     }
 
     public String getSampleRateLabel(Context context) {
         if (sampleRateLabel == null) {
-            int sampleRate = getTagInfo().sampleRate;
+            AudioHeaderReader.Header audioHeader = getAudioHeader();
+            int sampleRate = audioHeader != null ? audioHeader.sampleRate : getTagInfo().sampleRate;
             if (sampleRate == -1) {
                 sampleRateLabel = "Unknown";
                 return sampleRateLabel;
@@ -253,7 +310,8 @@ public class Song implements
 
     public String getFormatLabel() {
         if (formatLabel == null) {
-            formatLabel = getTagInfo().format;
+            AudioHeaderReader.Header audioHeader = getAudioHeader();
+            formatLabel = audioHeader != null ? audioHeader.format : getTagInfo().format;
         }
         return formatLabel;
     }
@@ -352,7 +410,7 @@ public class Song implements
     }
 
     private void setArtworkKey() {
-        artworkKey = String.format("%s_%s", albumArtistName, albumName);
+        artworkKey = albumArtistName + "_" + albumName;
     }
 
     @Nullable
@@ -31,8 +31,27 @@ public class TagInfo implements Serializable {
     public String bitrate;
     public String format;
     public int sampleRate;
+    // In seconds, 0 if unknown
+    public int trackLength;
     public String genre;
 
+    // True while this is a stand-in for tags which are still being read
+    public boolean isPlaceholder;
+
+    public TagInfo() {
+
+    }
+
+    /**
+     * @return a stand-in for a file whose tags haven't been read yet, titled by its file name.
+     */
+    public static TagInfo placeholder(String fileName) {
+        TagInfo tagInfo = new TagInfo();
+        tagInfo.trackName = fileName;
+        tagInfo.isPlaceholder = true;
+        return tagInfo;
+    }
+
     public TagInfo(String filePath) {
         if (filePath != null) {
             File file = new File(filePath);
@@ -50,6 +69,7 @@ public class TagInfo implements Serializable {
                     this.bitrate = getBitrate(audioFile);
                     this.format = getFormat(audioFile);
                     this.sampleRate = getSampleRate(audioFile);
+                    this.trackLength = getTrackLength(audioFile);
                     this.genre = getTag(audioFile, FieldKey.GENRE);
                 } catch (CannotReadException | IOException | TagException | ReadOnlyFileException | InvalidAudioFrameException e) {
                     e.printStackTrace();
@@ -106,4 +126,15 @@ public class TagInfo implements Serializable {
         }
         return -1;
     }
+
+    public static int getTrackLength(AudioFile audioFile) {
+        try {
+            if (audioFile != null) {
+                AudioHeader audioHeader = audioFile.getAudioHeader();
+                return audioHeader.getTrackLength();
+            }
+        } catch (UnsupportedOperationException ignored) {
+        }
+        return 0;
+    }
 }
\ No newline at end of file
@@ -11,8 +11,8 @@ import com.bumptech.glide.load.resource.transcode.BitmapBytesTranscoder
 import com.bumptech.glide.request.animation.GlideAnimation
 import com.bumptech.glide.request.target.SimpleTarget
 import com.google.android.gms.cast.MediaInfo
-import com.google.android.gms.cast.MediaLoadOptions
 import com.google.android.gms.cast.MediaMetadata
+import com.google.android.gms.cast.MediaQueueItem
 import com.google.android.gms.cast.MediaStatus
 import com.google.android.gms.cast.framework.CastSession
 import com.google.android.gms.cast.framework.media.RemoteMediaClient
@@ -47,6 +47,19 @@ class CastPlayback(context: Context, castSession: CastSession) : Playback {
     // it really is playing, based on calls to play(), pause(), stop() and load()
     private var isMeantToBePlaying = false
 
+    private var upcomingSongs: List<Song> = emptyList()
+
+    // The id of the remote queue item currently playing on the receiver
+    private var currentItemId = MediaQueueItem.INVALID_ITEM_ID
+
+    // The ids of the remote queue items whose start has already been reported via onTrackEnded()
+    private val advancedItemIds = HashSet<Int>()
+
+    // Whether the receiver has accepted the queue sent by the latest load(). Until it has, its queue doesn't reflect that load
+    private var isQueueLoaded = false
+
+    private var isSyncingQueue = false
+
     init {
         remoteMediaClientCallback = CastMediaClientCallback()
     }
@@ -83,33 +96,37 @@ class CastPlayback(context: Context, castSession: CastSession) : Playback {
     override fun load(song: Song, playWhenReady: Boolean, seekPosition: Long, completion: ((Boolean) -> Unit)?) {
 
         HttpServer.getInstance().start()
-        HttpServer.getInstance().serveAudio(song.path)
-        HttpServer.getInstance().clearImage()
-
-        val metadata = MediaMetadata(MediaMetadata.MEDIA_TYPE_MUSIC_TRACK)
-        metadata.putString(MediaMetadata.KEY_ALBUM_ARTIST, song.albumArtistName)
-        metadata.putString(MediaMetadata.KEY_ALBUM_TITLE, song.albumName)
-        metadata.putString(MediaMetadata.KEY_TITLE, song.name)
-        metadata.addImage(WebImage(Uri.parse("http://" + ShuttleUtils.getIpAddr(applicationContext) + ":5000" + "/image/" + song.id)))
-
-        val mediaInfo = MediaInfo.Builder("http://" + ShuttleUtils.getIpAddr(applicationContext) + ":5000" + "/audio/" + song.id)
-            .setStreamType(MediaInfo.STREAM_TYPE_BUFFERED)
-            .setContentType("audio/*")
-            .setMetadata(metadata)
-            .build()
 
         currentSong = song
         currentPosition = seekPosition
 
-        fun performLoad() {
+        // The remote queue is rebuilt from scratch, and re-populated via setUpcomingSongs() once the load completes
+        upcomingSongs = emptyList()
+        currentItemId = MediaQueueItem.INVALID_ITEM_ID
+        advancedItemIds.clear()
+        isQueueLoaded = false
+
+        prepare(song) {
             remoteMediaClient.registerCallback(remoteMediaClientCallback)
 
-            remoteMediaClient.load(
-                mediaInfo, MediaLoadOptions.Builder()
-                    .setPlayPosition(seekPosition)
-                    .setAutoplay(playWhenReady)
-                    .build()
-            )
+            remoteMediaClient.queueLoad(
+                arrayOf(buildQueueItem(song, playWhenReady)),
+                0,
+                MediaStatus.REPEAT_MODE_REPEAT_OFF,
+                seekPosition,
+                null
+            ).setResultCallback { result ->
+                // Ignore the result of a load which has since been superseded
+                if (currentSong !== song) {
+                    return@setResultCallback
+                }
+                if (result.status.isSuccess) {
+                    isQueueLoaded = true
+                    syncRemoteQueue()
+                } else {
+                    Log.e(TAG, "Remote queue load failed: ${result.status}")
+                }
+            }
 
             if (playWhenReady) {
                 isMeantToBePlaying = true
@@ -119,6 +136,19 @@ class CastPlayback(context: Context, castSession: CastSession) : Playback {
 
             completion?.invoke(true)
         }
+    }
+
+    /**
+     * Registers the song's audio with the [HttpServer], and encodes its artwork (unless it has already been prefetched).
+     */
+    private fun prepare(song: Song, onPrepared: () -> Unit) {
+
+        HttpServer.getInstance().serveAudio(song.id, song.path)
+
+        if (HttpServer.getInstance().hasImage(song.id)) {
+            onPrepared()
+            return
+        }
 
         Glide.with(applicationContext).load(song)
             .asBitmap()
@@ -126,8 +156,8 @@ class CastPlayback(context: Context, castSession: CastSession) : Playback {
             .placeholder(R.drawable.ic_placeholder_dark_large)
             .into(object : SimpleTarget<ByteArray>() {
                 override fun onResourceReady(resource: ByteArray, glideAnimation: GlideAnimation<in ByteArray>?) {
-                    HttpServer.getInstance().serveImage(resource)
-                    performLoad()
+                    HttpServer.getInstance().serveImage(song.id, resource)
+                    onPrepared()
                 }
 
                 @SuppressLint("CheckResult")
@@ -139,24 +169,149 @@ class CastPlayback(context: Context, castSession: CastSession) : Playback {
                             val outputStream = ByteArrayOutputStream()
                             val bitmap = GlideUtils.drawableToBitmap(errorDrawable)
                             bitmap.compress(Bitmap.CompressFormat.JPEG, 80, outputStream)
-                            HttpServer.getInstance().serveImage(outputStream.toByteArray())
+                            HttpServer.getInstance().serveImage(song.id, outputStream.toByteArray())
                         }
                     }
                         .subscribeOn(Schedulers.io())
                         .observeOn(AndroidSchedulers.mainThread())
                         .subscribe({
-                            performLoad()
+                            onPrepared()
                         }, { error -> LogUtils.logException(TAG, "Failed to load error drawable", error) })
                 }
             })
     }
 
+    private fun getAudioUrl(song: Song): String {
+        val endpoint = if (HttpServer.getInstance().requiresTranscode(song.path)) "/transcode/" else "/audio/"
+        return "http://" + ShuttleUtils.getIpAddr(applicationContext) + ":" + HttpServer.PORT + endpoint + song.id
+    }
+
+    private fun buildQueueItem(song: Song, autoPlay: Boolean): MediaQueueItem {
+        val metadata = MediaMetadata(MediaMetadata.MEDIA_TYPE_MUSIC_TRACK)
+        metadata.putString(MediaMetadata.KEY_ALBUM_ARTIST, song.albumArtistName)
+        metadata.putString(MediaMetadata.KEY_ALBUM_TITLE, song.albumName)
+        metadata.putString(MediaMetadata.KEY_TITLE, song.name)
+        metadata.addImage(WebImage(Uri.parse("http://" + ShuttleUtils.getIpAddr(applicationContext) + ":" + HttpServer.PORT + "/image/" + song.id)))
+
+        val mediaInfo = MediaInfo.Builder(getAudioUrl(song))
+            .setStreamType(MediaInfo.STREAM_TYPE_BUFFERED)
+            .setContentType("audio/*")
+            .setMetadata(metadata)
+            .build()
+
+        return MediaQueueItem.Builder(mediaInfo)
+            .setAutoplay(autoPlay)
+            .setPreloadTime(PRELOAD_TIME_SECONDS)
+            .build()
+    }
+
+    override fun setUpcomingSongs(songs: List<Song>) {
+        upcomingSongs = songs
+
+        if (songs.isEmpty()) {
+            syncRemoteQueue()
+            return
+        }
+
+        var remaining = songs.size
+        songs.forEach { song ->
+            prepare(song) {
+                remaining--
+                // Only push the queue once all artwork is available, and only if it hasn't been superseded in the meantime
+                if (remaining == 0 && upcomingSongs === songs) {
+                    syncRemoteQueue()
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the remote queue hold the current item followed by [upcomingSongs], so the receiver can preload and transition to the next
+     * song on its own.
+     */
+    private fun syncRemoteQueue() {
+        if (!isQueueLoaded || isSyncingQueue) {
+            return
+        }
+
+        val mediaStatus = remoteMediaClient.mediaStatus ?: return
+        val queueItems = mediaStatus.queueItems
+        val currentIndex = queueItems.indexOfFirst { queueItem -> queueItem.itemId == mediaStatus.currentItemId }
+        if (currentIndex == -1) {
+            return
+        }
+
+        val queuedAfterCurrent = queueItems.subList(currentIndex + 1, queueItems.size)
+        if (queuedAfterCurrent.map { queueItem -> queueItem.media?.contentId } == upcomingSongs.map { song -> getAudioUrl(song) }) {
+            return
+        }
+
+        val staleItemIds = (queueItems.subList(0, currentIndex) + queuedAfterCurrent).map { queueItem -> queueItem.itemId }.toIntArray()
+        val songs = upcomingSongs
+
+        isSyncingQueue = true
+        val onComplete = {
+            isSyncingQueue = false
+            if (upcomingSongs !== songs) {
+                syncRemoteQueue()
+            }
+        }
+
+        fun insertUpcoming() {
+            if (songs.isEmpty()) {
+                onComplete()
+                return
+            }
+            remoteMediaClient.queueInsertItems(songs.map { song -> buildQueueItem(song, true) }.toTypedArray(), MediaQueueItem.INVALID_ITEM_ID, null)
+                .setResultCallback { onComplete() }
+        }
+
+        if (staleItemIds.isNotEmpty()) {
+            remoteMediaClient.queueRemoveItems(staleItemIds, null)
+                .setResultCallback { insertUpcoming() }
+        } else {
+            insertUpcoming()
+        }
+    }
+
+    /**
+     * Detects the receiver advancing to the next item in the remote queue, and reports it as a track change.
+     */
+    private fun updateCurrentItem() {
+        val mediaStatus = remoteMediaClient.mediaStatus ?: return
+        val itemId = mediaStatus.currentItemId
+        if (itemId == currentItemId) {
+            return
+        }
+
+        val previousItemId = currentItemId
+        currentItemId = itemId
+        if (previousItemId == MediaQueueItem.INVALID_ITEM_ID) {
+            return
+        }
+
+        // Status updates can report an item more than once, or briefly report a previous item again
+        if (itemId in advancedItemIds) {
+            return
+        }
+
+        val nextSong = upcomingSongs.firstOrNull() ?: return
+        if (mediaStatus.getQueueItemById(itemId)?.media?.contentId == getAudioUrl(nextSong)) {
+            advancedItemIds.add(itemId)
+            Log.d(TAG, "Remote queue advanced to ${nextSong.name}")
+            currentSong = nextSong
+            currentPosition = 0L
+            upcomingSongs = upcomingSongs.drop(1)
+            callbacks?.onTrackEnded(this, true)
+        }
+    }
+
     override fun willResumePlayback(): Boolean {
         return false
     }
 
     override fun setNextDataSource(path: String?) {
-        // Nothing to do
+        // Nothing to do. The remote queue is populated via setUpcomingSongs()
     }
 
     override fun release() {
@@ -212,6 +367,9 @@ class CastPlayback(context: Context, castSession: CastSession) : Playback {
     override fun start() {
         isMeantToBePlaying = true
 
+        // The server may have been stopped via stop(), while the receiver still holds items pointing at it
+        HttpServer.getInstance().start()
+
         if (remoteMediaClient.hasMediaSession() && !remoteMediaClient.isPlaying) {
             currentPosition = remoteMediaClient.approximateStreamPosition
             remoteMediaClient.play()
@@ -258,6 +416,9 @@ class CastPlayback(context: Context, castSession: CastSession) : Playback {
 
     companion object {
         const val TAG = "CastPlayback"
+
+        // How long before the end of the current item the receiver should start buffering the next one
+        const val PRELOAD_TIME_SECONDS = 20.0
     }
 
     private inner class CastMediaClientCallback : RemoteMediaClient.Callback() {
@@ -268,7 +429,13 @@ class CastPlayback(context: Context, castSession: CastSession) : Playback {
 
         override fun onStatusUpdated() {
             Log.d(TAG, "RemoteMediaClient.onStatusUpdated")
+            updateCurrentItem()
             updatePlaybackState()
         }
+
+        override fun onQueueStatusUpdated() {
+            Log.d(TAG, "RemoteMediaClient.onQueueStatusUpdated")
+            syncRemoteQueue()
+        }
     }
 }
\ No newline at end of file
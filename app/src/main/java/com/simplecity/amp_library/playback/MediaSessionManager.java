@@ -14,7 +14,6 @@ import android.support.v4.media.session.MediaSessionCompat;
 import android.support.v4.media.session.PlaybackStateCompat;
 import android.text.TextUtils;
 import android.util.Log;
-import com.annimon.stream.Stream;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.animation.GlideAnimation;
 import com.bumptech.glide.request.target.SimpleTarget;
@@ -41,6 +40,10 @@ class MediaSessionManager {
 
     private static final String TAG = "MediaSessionManager";
 
+    // The session queue is limited to a window around the current item, so a very large queue isn't copied on each update.
+    private static final int SESSION_QUEUE_ITEMS_BEFORE = 25;
+    private static final int SESSION_QUEUE_ITEMS_AFTER = 100;
+
     private Context context;
 
     private MediaSessionCompat mediaSession;
@@ -111,13 +114,14 @@ class MediaSessionManager {
             public void onSkipToQueueItem(long id) {
                 List<QueueItem> queueItems = queueManager.getCurrentPlaylist();
 
-                QueueItem queueItem = Stream.of(queueItems)
-                        .filter(aQueueItem -> (long) aQueueItem.hashCode() == id)
-                        .findFirst()
-                        .orElse(null);
-
-                if (queueItem != null) {
-                    playbackManager.setQueuePosition(queueItems.indexOf(queueItem));
+                // Only the session queue window can have been selected from
+                int from = getSessionQueueStart(queueItems.size());
+                int to = getSessionQueueEnd(queueItems.size());
+                for (int i = from; i < to; i++) {
+                    if ((long) queueItems.get(i).hashCode() == id) {
+                        playbackManager.setQueuePosition(i);
+                        return;
+                    }
                 }
             }
 
@@ -255,7 +259,9 @@ class MediaSessionManager {
 
                 mediaSession.setPlaybackState(playbackState);
 
-                mediaSession.setQueue(QueueItemKt.toMediaSessionQueueItems(queueManager.getCurrentPlaylist()));
+                List<QueueItem> queueItems = queueManager.getCurrentPlaylist();
+                mediaSession.setQueue(QueueItemKt.toMediaSessionQueueItems(
+                        queueItems.subList(getSessionQueueStart(queueItems.size()), getSessionQueueEnd(queueItems.size()))));
                 mediaSession.setQueueTitle(context.getString(R.string.menu_queue));
 
                 if (settingsManager.showLockscreenArtwork() || CarHelper.isCarUiMode(context)) {
@@ -267,6 +273,14 @@ class MediaSessionManager {
         }
     }
 
+    private int getSessionQueueStart(int queueSize) {
+        return Math.min(queueSize, Math.max(0, queueManager.queuePosition - SESSION_QUEUE_ITEMS_BEFORE));
+    }
+
+    private int getSessionQueueEnd(int queueSize) {
+        return Math.min(queueSize, Math.max(0, queueManager.queuePosition) + SESSION_QUEUE_ITEMS_AFTER + 1);
+    }
+
     private void updateMediaSessionArtwork(MediaMetadataCompat.Builder metaData) {
         QueueItem currentQueueItem = queueManager.getCurrentQueueItem();
         if (currentQueueItem != null) {
@@ -1143,7 +1143,10 @@ public class MusicService extends MediaBrowserServiceCompat {
         if (finishedSong != null) {
             if (finishedSong.hasPlayed()) {
                 disposables.add(
-                        Completable.fromAction(() -> ShuttleUtils.incrementPlayCount(this, finishedSong))
+                        Completable.fromAction(() -> {
+                            ShuttleUtils.incrementPlayCount(this, finishedSong);
+                            playbackManager.updatePlayStats();
+                        })
                                 .subscribeOn(Schedulers.io())
                                 .subscribe(() -> {
                                     // Nothing to do
@@ -24,6 +24,13 @@ interface Playback {
 
     fun setNextDataSource(path: String?)
 
+    /**
+     * Called with the songs due to play after the current one (in order), so they can be prepared ahead of time.
+     */
+    fun setUpcomingSongs(songs: List<Song>) {
+        // Nothing to do by default
+    }
+
     fun release()
 
     fun seekTo(position: Long)
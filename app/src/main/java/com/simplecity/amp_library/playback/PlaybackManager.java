@@ -10,22 +10,25 @@ import android.net.Uri;
 import android.provider.MediaStore;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 import android.support.v4.content.ContextCompat;
 import android.support.v4.media.session.MediaSessionCompat;
 import android.util.Log;
 import com.simplecity.amp_library.data.Repository;
 import com.simplecity.amp_library.model.Song;
 import com.simplecity.amp_library.playback.constants.InternalIntents;
+import com.simplecity.amp_library.playback.shuffle.PlayStats;
 import com.simplecity.amp_library.services.Equalizer;
 import com.simplecity.amp_library.ui.screens.queue.QueueItem;
-import com.simplecity.amp_library.ui.screens.queue.QueueItemKt;
 import com.simplecity.amp_library.utils.LogUtils;
 import com.simplecity.amp_library.utils.SettingsManager;
 import com.simplecity.amp_library.utils.SleepTimer;
+import io.reactivex.Completable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.schedulers.Schedulers;
 import java.util.List;
+import kotlin.Pair;
 import kotlin.Unit;
 import kotlin.jvm.functions.Function1;
 
@@ -33,6 +36,11 @@ public class PlaybackManager implements Playback.Callbacks {
 
     private static final String TAG = "PlaybackManager";
 
+    /**
+     * The number of songs after the current one which are handed to {@link Playback#setUpcomingSongs(List)}
+     */
+    private static final int UPCOMING_SONG_COUNT = 3;
+
     private Context context;
 
     private QueueManager queueManager;
@@ -141,6 +149,21 @@ public class PlaybackManager implements Playback.Callbacks {
                     return Unit.INSTANCE;
                 })
         );
+
+        disposables.add(Completable.fromAction(this::updatePlayStats)
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {
+                    // Nothing to do
+                }, error -> LogUtils.logException(TAG, "Error reading play stats", error)));
+    }
+
+    /**
+     * Re-reads the play counts used by the weighted shuffle strategies. Library songs don't carry them, so they're joined in by id
+     * when shuffling.
+     */
+    @WorkerThread
+    void updatePlayStats() {
+        queueManager.setPlayStats(PlayStats.query(context));
     }
 
     void removeQueueItems(List<QueueItem> queueItems) {
@@ -179,15 +202,16 @@ public class PlaybackManager implements Playback.Callbacks {
         if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_EXTERNAL_STORAGE) == PackageManager.PERMISSION_GRANTED) {
             disposables.add(songsRepository.getSongs((Function1<? super Song, Boolean>) null)
                     .firstOrError()
+                    // Build & shuffle the queue in the background, so a large library doesn't block the main thread
+                    .map(songs -> {
+                        updatePlayStats();
+                        List<QueueItem> playlist = new QueueList(songs);
+                        return new Pair<>(playlist, queueManager.shuffle(playlist, -1));
+                    })
                     .subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(songs -> {
-                        queueManager.playlist = QueueItemKt.toQueueItems(songs);
-                        queueManager.queuePosition = -1;
-                        queueManager.makeShuffleList();
-                        queueManager.setShuffleMode(QueueManager.ShuffleMode.ON);
-                        notifyChange(InternalIntents.QUEUE_CHANGED);
-                        queueManager.queuePosition = 0;
+                    .subscribe(queues -> {
+                        queueManager.loadShuffled(queues.first, queues.second);
                         load(true, true, 0);
                     }, error -> LogUtils.logException(TAG, "Error playing auto shuffle list", error)));
         } else {
@@ -359,11 +383,12 @@ public class PlaybackManager implements Playback.Callbacks {
         if (queueManager.nextPlayPos >= 0
                 && !queueManager.getCurrentPlaylist().isEmpty()
                 && queueManager.nextPlayPos < queueManager.getCurrentPlaylist().size()) {
-            final Song nextSong = queueManager.getCurrentPlaylist().get(queueManager.nextPlayPos).getSong();
+            final Song nextSong = QueueList.songAt(queueManager.getCurrentPlaylist(), queueManager.nextPlayPos);
             playback.setNextDataSource(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI + "/" + nextSong.id);
         } else {
             playback.setNextDataSource(null);
         }
+        playback.setUpcomingSongs(queueManager.getUpcomingSongs(UPCOMING_SONG_COUNT));
     }
 
     void enqueue(List<Song> songs, int action) {
@@ -0,0 +1,387 @@
+package com.simplecity.amp_library.playback;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import com.simplecity.amp_library.model.ColumnarSongList;
+import com.simplecity.amp_library.model.Song;
+import com.simplecity.amp_library.playback.shuffle.ShuffleOrder;
+import com.simplecity.amp_library.ui.screens.queue.QueueItem;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A queue which is described by its source (a list of songs, or another queue plus a lazily generated order over it), and which only
+ * creates {@link QueueItem}s, in fixed size windows, as they're accessed. Loading a very large list of songs is therefore cheap, as is
+ * looking up the current/next song via {@link #songAt(List, int)}.
+ * <p>
+ * The first structural modification (add, remove, move etc.) materialises the whole list, after which it behaves exactly like an
+ * {@link ArrayList}. Queue edits are rare, user-initiated operations, so the one-off cost is acceptable.
+ * <p>
+ * Like the rest of the queue, a QueueList belongs to the main thread. Other threads read it via {@link #snapshot(List)}.
+ */
+class QueueList extends AbstractList<QueueItem> implements RandomAccess {
+
+    private static final int WINDOW_SIZE = 256;
+
+    private final int initialSize;
+
+    // Set for a list backed by songs. Never modified, so it can be shared with snapshots
+    @Nullable
+    private List<Song> songs;
+    @Nullable
+    private QueueItem[][] windows;
+    @Nullable
+    private Occurrences occurrences;
+
+    // Set for a list which is an ordering of another queue
+    @Nullable
+    private List<QueueItem> base;
+    @Nullable
+    private Permutation permutation;
+
+    // Views which read from this list, and need to be materialised before it changes
+    @Nullable
+    private List<WeakReference<QueueList>> dependents;
+
+    // Set once the list has been materialised
+    @Nullable
+    private ArrayList<QueueItem> items;
+
+    /**
+     * Creates a queue of the passed in songs. The list is copied (by reference only), so later changes to it aren't reflected. A
+     * {@link ColumnarSongList} is read-only, so it's used as is.
+     */
+    QueueList(@NonNull List<Song> songs) {
+        this.songs = songs instanceof ColumnarSongList ? songs : new ArrayList<>(songs);
+        this.initialSize = songs.size();
+        this.windows = new QueueItem[(initialSize + WINDOW_SIZE - 1) / WINDOW_SIZE][];
+    }
+
+    /**
+     * Creates a queue which presents the items of {@code base} in the passed in order. The order must cover every index of base.
+     * <p>
+     * Items are shared with base rather than copied, as with a shuffled copy of an {@link ArrayList}.
+     */
+    QueueList(@NonNull List<QueueItem> base, @NonNull ShuffleOrder order) {
+        if (base instanceof QueueList && ((QueueList) base).items == null) {
+            QueueList baseQueue = (QueueList) base;
+            if (baseQueue.dependents == null) {
+                baseQueue.dependents = new ArrayList<>(1);
+            }
+            baseQueue.dependents.add(new WeakReference<>(this));
+            this.base = base;
+        } else {
+            // Not lazy, so a (reference only) snapshot is cheap, and protects us from later edits to the original
+            this.base = new ArrayList<>(base);
+        }
+        this.initialSize = base.size();
+        this.permutation = new Permutation(order, initialSize);
+    }
+
+    /**
+     * @return the song at the passed in position, without materialising a {@link QueueItem} if the list is lazy.
+     */
+    static Song songAt(@NonNull List<QueueItem> queue, int position) {
+        if (queue instanceof QueueList) {
+            return ((QueueList) queue).getSong(position);
+        }
+        return queue.get(position).getSong();
+    }
+
+    /**
+     * Captures the songs currently in the passed in queue, as a read-only list which isn't affected by later changes to the queue, and
+     * which is safe to read from any thread.
+     * <p>
+     * This is O(1) for a lazy {@link QueueList}, whose source is already immutable. Otherwise, the songs are copied (by reference).
+     */
+    @NonNull
+    static List<Song> snapshot(@NonNull List<QueueItem> queue) {
+        if (queue instanceof QueueList) {
+            QueueList queueList = (QueueList) queue;
+            if (queueList.items == null) {
+                if (queueList.permutation != null) {
+                    // The base is either a lazy QueueList, or a private copy which is never modified
+                    List<Song> baseSongs = queueList.base instanceof QueueList ? snapshot(queueList.base) : new ItemSongs(queueList.base);
+                    return new PermutedSongs(baseSongs, queueList.permutation);
+                }
+                return Collections.unmodifiableList(queueList.songs);
+            }
+        }
+        Song[] songs = new Song[queue.size()];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = queue.get(i).getSong();
+        }
+        return Collections.unmodifiableList(Arrays.asList(songs));
+    }
+
+    Song getSong(int position) {
+        if (items != null) {
+            return items.get(position).getSong();
+        }
+        checkIndex(position);
+        if (base != null) {
+            return songAt(base, permutation.get(position));
+        }
+        return songs.get(position);
+    }
+
+    @Override
+    public QueueItem get(int position) {
+        if (items != null) {
+            return items.get(position);
+        }
+        checkIndex(position);
+        if (base != null) {
+            return base.get(permutation.get(position));
+        }
+
+        QueueItem[] window = windows[position / WINDOW_SIZE];
+        if (window == null) {
+            window = new QueueItem[WINDOW_SIZE];
+            windows[position / WINDOW_SIZE] = window;
+        }
+        QueueItem queueItem = window[position % WINDOW_SIZE];
+        if (queueItem == null) {
+            if (occurrences == null) {
+                occurrences = new Occurrences(songs);
+            }
+            queueItem = new QueueItem(songs.get(position), occurrences.get(position));
+            window[position % WINDOW_SIZE] = queueItem;
+        }
+        return queueItem;
+    }
+
+    @Override
+    public int size() {
+        return items != null ? items.size() : initialSize;
+    }
+
+    private void checkIndex(int position) {
+        if (position < 0 || position >= initialSize) {
+            throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + initialSize);
+        }
+    }
+
+    private ArrayList<QueueItem> materialise() {
+        if (items == null) {
+            materialiseDependents();
+
+            ArrayList<QueueItem> materialised = new ArrayList<>(initialSize);
+            for (int i = 0; i < initialSize; i++) {
+                materialised.add(get(i));
+            }
+            items = materialised;
+
+            songs = null;
+            windows = null;
+            occurrences = null;
+            base = null;
+            permutation = null;
+        }
+        return items;
+    }
+
+    private void materialiseDependents() {
+        if (dependents != null) {
+            for (WeakReference<QueueList> reference : dependents) {
+                QueueList dependent = reference.get();
+                if (dependent != null) {
+                    dependent.materialise();
+                }
+            }
+            dependents = null;
+        }
+    }
+
+    @Override
+    public QueueItem set(int index, QueueItem element) {
+        return materialise().set(index, element);
+    }
+
+    @Override
+    public void add(int index, QueueItem element) {
+        materialise().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public QueueItem remove(int index) {
+        QueueItem removed = materialise().remove(index);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        boolean removed = materialise().remove(o);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends QueueItem> c) {
+        boolean changed = materialise().addAll(c);
+        modCount++;
+        return changed;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends QueueItem> c) {
+        boolean changed = materialise().addAll(index, c);
+        modCount++;
+        return changed;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        boolean changed = materialise().removeAll(c);
+        modCount++;
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        materialiseDependents();
+        items = new ArrayList<>();
+        songs = null;
+        windows = null;
+        occurrences = null;
+        base = null;
+        permutation = null;
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        materialise().subList(fromIndex, toIndex).clear();
+        modCount++;
+    }
+
+    /**
+     * The indices drawn so far from a {@link ShuffleOrder}. Shared with snapshots, which may draw further indices from another thread,
+     * so access is synchronized. Whichever thread draws an index, the permutation is the same.
+     */
+    private static final class Permutation {
+
+        private final ShuffleOrder order;
+        private final int size;
+
+        private int[] indices;
+        private int drawn;
+
+        Permutation(ShuffleOrder order, int size) {
+            this.order = order;
+            this.size = size;
+            this.indices = new int[Math.min(size, WINDOW_SIZE)];
+        }
+
+        synchronized int get(int position) {
+            while (drawn <= position) {
+                if (drawn == indices.length) {
+                    indices = Arrays.copyOf(indices, Math.min(size, indices.length * 2));
+                }
+                indices[drawn++] = order.nextIndex();
+            }
+            return indices[position];
+        }
+    }
+
+    private static final class PermutedSongs extends AbstractList<Song> implements RandomAccess {
+
+        private final List<Song> base;
+        private final Permutation permutation;
+
+        PermutedSongs(List<Song> base, Permutation permutation) {
+            this.base = base;
+            this.permutation = permutation;
+        }
+
+        @Override
+        public Song get(int index) {
+            return base.get(permutation.get(index));
+        }
+
+        @Override
+        public int size() {
+            return permutation.size;
+        }
+    }
+
+    private static final class ItemSongs extends AbstractList<Song> implements RandomAccess {
+
+        private final List<QueueItem> items;
+
+        ItemSongs(List<QueueItem> items) {
+            this.items = items;
+        }
+
+        @Override
+        public Song get(int index) {
+            return items.get(index).getSong();
+        }
+
+        @Override
+        public int size() {
+            return items.size();
+        }
+    }
+
+    /**
+     * Occurrences distinguish repeated songs (see {@link com.simplecity.amp_library.ui.screens.queue.QueueItemKt#updateOccurrence(List)}).
+     * <p>
+     * The occurrence of a song depends only on the songs before it, so they're counted incrementally, as far as the furthest position
+     * requested so far. Songs are counted by id, in an open addressing table, so nothing is boxed or retained per song.
+     */
+    private static final class Occurrences {
+
+        private final List<Song> songs;
+
+        private final int[] occurrences;
+        private int counted;
+
+        private long[] ids;
+        private int[] counts;
+
+        Occurrences(List<Song> songs) {
+            this.songs = songs;
+            this.occurrences = new int[songs.size()];
+            int capacity = Integer.highestOneBit(Math.max(4, songs.size() * 2 - 1)) << 1;
+            this.ids = new long[capacity];
+            this.counts = new int[capacity];
+        }
+
+        int get(int position) {
+            while (counted <= position) {
+                occurrences[counted] = increment(songs.get(counted).id);
+                counted++;
+            }
+            if (counted == occurrences.length) {
+                // Fully counted, so the table is no longer needed
+                ids = null;
+                counts = null;
+            }
+            return occurrences[position];
+        }
+
+        private int increment(long id) {
+            int mask = ids.length - 1;
+            int slot = hash(id) & mask;
+            while (counts[slot] != 0 && ids[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            ids[slot] = id;
+            return ++counts[slot];
+        }
+
+        private static int hash(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -6,20 +6,26 @@ import com.annimon.stream.Stream;
 import com.simplecity.amp_library.data.Repository;
 import com.simplecity.amp_library.model.Song;
 import com.simplecity.amp_library.playback.constants.InternalIntents;
+import com.simplecity.amp_library.playback.shuffle.PlayStats;
+import com.simplecity.amp_library.playback.shuffle.ShuffleOrder;
+import com.simplecity.amp_library.playback.shuffle.ShuffleStrategies;
+import com.simplecity.amp_library.playback.shuffle.ShuffleStrategy;
 import com.simplecity.amp_library.rx.UnsafeAction;
 import com.simplecity.amp_library.rx.UnsafeConsumer;
 import com.simplecity.amp_library.ui.screens.queue.QueueItem;
 import com.simplecity.amp_library.ui.screens.queue.QueueItemKt;
 import com.simplecity.amp_library.utils.LogUtils;
 import com.simplecity.amp_library.utils.SettingsManager;
+import io.reactivex.Completable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Random;
 import kotlin.Unit;
 import kotlin.jvm.functions.Function0;
 
@@ -72,6 +78,15 @@ public class QueueManager {
 
     private SettingsManager settingsManager;
 
+    private final Random random = new Random();
+
+    @Nullable
+    private Disposable saveDisposable;
+
+    // Read by the weighted shuffle strategies. Updated in the background, via setPlayStats()
+    @NonNull
+    private volatile PlayStats playStats = PlayStats.EMPTY;
+
     public QueueManager(
             MusicService.Callbacks musicServiceCallbacks,
             Repository.SongsRepository songsRepository,
@@ -118,14 +133,10 @@ public class QueueManager {
 
     public void load(@NonNull List<Song> songs, final int position, @NonNull UnsafeAction openCurrentAndNext) {
 
-        List<QueueItem> queueItems = QueueItemKt.toQueueItems(songs);
-
-        if (!playlist.equals(queueItems)) {
-            playlist.clear();
-            shuffleList.clear();
-
-            playlist.addAll(queueItems);
-            QueueItemKt.updateOccurrence(playlist);
+        if (!hasSongs(playlist, songs)) {
+            // QueueItems are created lazily, so 'play all' on a very large library doesn't stall here.
+            playlist = new QueueList(songs);
+            shuffleList = new ArrayList<>();
         }
 
         queuePosition = position;
@@ -212,12 +223,26 @@ public class QueueManager {
 
     @Nullable
     Song getCurrentSong() {
-        QueueItem currentQueueItem = getCurrentQueueItem();
-        if (currentQueueItem != null) {
-            return currentQueueItem.getSong();
-        } else {
-            return null;
+        if (queuePosition >= 0 && queuePosition < getCurrentPlaylist().size()) {
+            return QueueList.songAt(getCurrentPlaylist(), queuePosition);
         }
+
+        return null;
+    }
+
+    /**
+     * @return true if the queue items hold exactly the passed in songs, in order.
+     */
+    private static boolean hasSongs(List<QueueItem> queueItems, List<Song> songs) {
+        if (queueItems.size() != songs.size()) {
+            return false;
+        }
+        for (int i = 0, size = songs.size(); i < size; i++) {
+            if (!QueueList.songAt(queueItems, i).equals(songs.get(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -242,6 +267,35 @@ public class QueueManager {
         }
     }
 
+    /**
+     * @param count the maximum number of songs to return
+     * @return the songs due to play after the current one, in order, honouring the repeat mode.
+     */
+    @NonNull
+    List<Song> getUpcomingSongs(int count) {
+        List<Song> songs = new ArrayList<>(count);
+        List<QueueItem> currentPlaylist = getCurrentPlaylist();
+        if (repeatMode == RepeatMode.ONE || queuePosition < 0 || queuePosition >= currentPlaylist.size()) {
+            return songs;
+        }
+
+        int position = queuePosition;
+        while (songs.size() < count) {
+            position++;
+            if (position >= currentPlaylist.size()) {
+                if (repeatMode != RepeatMode.ALL) {
+                    break;
+                }
+                position = 0;
+            }
+            if (position == queuePosition) {
+                break;
+            }
+            songs.add(QueueList.songAt(currentPlaylist, position));
+        }
+        return songs;
+    }
+
     /**
      * Removes the first instance of the Song the playlist & shuffleList.
      */
@@ -380,10 +434,23 @@ public class QueueManager {
         }
 
         if (saveQueue) {
-            playbackSettingsManager.setQueueList(serializePlaylist(playlist));
-            if (shuffleMode == ShuffleMode.ON) {
-                playbackSettingsManager.setShuffleList(serializePlaylist(shuffleList));
+            // Serializing is O(n), and drains any lazily generated shuffle order, so it's done in the background, from snapshots which
+            // later queue changes don't affect. Saves run in order on a single thread, and a newer save supersedes a pending one.
+            List<Song> playlistSongs = QueueList.snapshot(playlist);
+            List<Song> shuffleSongs = shuffleMode == ShuffleMode.ON ? QueueList.snapshot(shuffleList) : null;
+            if (saveDisposable != null) {
+                saveDisposable.dispose();
             }
+            saveDisposable = Completable.fromAction(() -> {
+                playbackSettingsManager.setQueueList(serializePlaylist(playlistSongs));
+                if (shuffleSongs != null) {
+                    playbackSettingsManager.setShuffleList(serializePlaylist(shuffleSongs));
+                }
+            })
+                    .subscribeOn(Schedulers.single())
+                    .subscribe(() -> {
+                        // Nothing to do
+                    }, error -> LogUtils.logException(TAG, "Error saving queue", error));
         }
 
         playbackSettingsManager.setQueuePosition(queuePosition);
@@ -478,7 +545,7 @@ public class QueueManager {
     /**
      * Converts a playlist to a String which can be saved to SharedPrefs
      */
-    private String serializePlaylist(List<QueueItem> queueItems) {
+    private String serializePlaylist(List<Song> songs) {
 
         // The current playlist is saved as a list of "reverse hexadecimal"
         // numbers, which we can generate faster than normal decimal or
@@ -487,7 +554,6 @@ public class QueueManager {
 
         StringBuilder q = new StringBuilder();
 
-        List<Song> songs = Stream.of(queueItems).map(QueueItem::getSong).toList();
         int len = songs.size();
         for (int i = 0; i < len; i++) {
             long n = songs.get(i).id;
@@ -535,16 +601,28 @@ public class QueueManager {
             }
         }
 
-        Map<Integer, Song> map = new TreeMap<>();
+        // The position of the first occurrence of each id
+        Map<Long, Integer> positions = new HashMap<>(ids.size() * 2);
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            positions.put(ids.get(i), i);
+        }
 
-        Stream.of(queueItems).map(QueueItem::getSong).forEach(song -> {
-            int index = ids.indexOf(song.id);
-            if (index != -1) {
-                map.put(index, song);
+        Song[] songs = new Song[ids.size()];
+        for (int i = 0, size = queueItems.size(); i < size; i++) {
+            Song song = queueItems.get(i).getSong();
+            Integer position = positions.get(song.id);
+            if (position != null) {
+                songs[position] = song;
             }
-        });
+        }
 
-        return QueueItemKt.toQueueItems(new ArrayList<>(map.values()));
+        List<Song> playlistSongs = new ArrayList<>(songs.length);
+        for (Song song : songs) {
+            if (song != null) {
+                playlistSongs.add(song);
+            }
+        }
+        return QueueItemKt.toQueueItems(playlistSongs);
     }
 
     void makeShuffleList() {
@@ -552,19 +630,44 @@ public class QueueManager {
             return;
         }
 
-        shuffleList = new ArrayList<>(playlist);
-        QueueItem currentSong = null;
-        if (queuePosition >= 0 && queuePosition < shuffleList.size()) {
-            currentSong = shuffleList.remove(queuePosition);
-        }
+        int firstIndex = queuePosition >= 0 && queuePosition < playlist.size() ? queuePosition : -1;
+        shuffleList = shuffle(playlist, firstIndex);
+        queuePosition = 0;
+    }
 
-        Collections.shuffle(shuffleList);
+    void setPlayStats(@NonNull PlayStats playStats) {
+        this.playStats = playStats;
+    }
 
-        if (currentSong != null) {
-            shuffleList.add(0, currentSong);
-        }
+    /**
+     * Builds a shuffled view of the passed in queue items, using the {@link ShuffleStrategy} chosen in settings. The shuffle order is
+     * generated lazily, as items are accessed.
+     * <p>
+     * This doesn't touch the queue itself, so it's safe to call off the main thread.
+     *
+     * @param firstIndex the index of the item to place first, or -1
+     */
+    @NonNull
+    List<QueueItem> shuffle(@NonNull List<QueueItem> queueItems, int firstIndex) {
+        // Strategies may read songs as the order is drawn, which can happen on another thread (see saveQueue())
+        List<Song> songs = QueueList.snapshot(queueItems);
+
+        ShuffleOrder order = ShuffleStrategies.forType(settingsManager.getShuffleStrategy(), playStats)
+                .shuffle(songs, firstIndex, random);
+
+        return new QueueList(queueItems, order);
+    }
+
+    /**
+     * Replaces the queue with a playlist which has already been shuffled via {@link #shuffle(List, int)}, and turns shuffle on.
+     */
+    void loadShuffled(@NonNull List<QueueItem> playlist, @NonNull List<QueueItem> shuffleList) {
+        this.playlist = playlist;
+        this.shuffleList = shuffleList;
         queuePosition = 0;
+        shuffleMode = ShuffleMode.ON;
 
-        QueueItemKt.updateOccurrence(shuffleList);
+        notifyShuffleChanged();
+        notifyQueueChanged();
     }
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.simplecity.amp_library.playback.shuffle;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+import com.simplecity.amp_library.model.Query;
+import com.simplecity.amp_library.sql.SqlUtils;
+import com.simplecity.amp_library.sql.providers.PlayCountTable;
+import java.util.Arrays;
+
+/**
+ * A snapshot of the play count & last played time of every song in the {@link PlayCountTable}, for the weighted shuffle strategies.
+ * <p>
+ * Library songs don't carry these (they're only joined in for the 'most played' and 'recently played' playlists), so they're read in a
+ * single query, and looked up by song id via binary search over parallel arrays.
+ */
+public final class PlayStats {
+
+    public static final PlayStats EMPTY = new PlayStats(new long[0], new int[0], new long[0]);
+
+    private final long[] songIds;
+    private final int[] playCounts;
+    private final long[] lastPlayed;
+
+    /**
+     * @param songIds song ids, in ascending order
+     */
+    PlayStats(@NonNull long[] songIds, @NonNull int[] playCounts, @NonNull long[] lastPlayed) {
+        this.songIds = songIds;
+        this.playCounts = playCounts;
+        this.lastPlayed = lastPlayed;
+    }
+
+    @WorkerThread
+    @NonNull
+    public static PlayStats query(Context context) {
+        Query query = new Query.Builder()
+                .uri(PlayCountTable.URI)
+                .projection(new String[] { PlayCountTable.COLUMN_ID, PlayCountTable.COLUMN_PLAY_COUNT, PlayCountTable.COLUMN_TIME_PLAYED })
+                .sort(PlayCountTable.COLUMN_ID)
+                .build();
+
+        Cursor cursor = SqlUtils.createQuery(context, query);
+        if (cursor == null) {
+            return EMPTY;
+        }
+        try {
+            int count = cursor.getCount();
+            long[] songIds = new long[count];
+            int[] playCounts = new int[count];
+            long[] lastPlayed = new long[count];
+            int i = 0;
+            while (cursor.moveToNext() && i < count) {
+                songIds[i] = cursor.getLong(0);
+                playCounts[i] = cursor.getInt(1);
+                lastPlayed[i] = cursor.getLong(2);
+                i++;
+            }
+            return new PlayStats(songIds, playCounts, lastPlayed);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the number of times the song has been played, or 0 if it never has.
+     */
+    public int getPlayCount(long songId) {
+        int index = Arrays.binarySearch(songIds, songId);
+        return index >= 0 ? playCounts[index] : 0;
+    }
+
+    /**
+     * @return the time the song was last played, in millis, or 0 if it never has been.
+     */
+    public long getLastPlayed(long songId) {
+        int index = Arrays.binarySearch(songIds, songId);
+        return index >= 0 ? lastPlayed[index] : 0;
+    }
+}
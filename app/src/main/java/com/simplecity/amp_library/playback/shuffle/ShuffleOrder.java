@@ -0,0 +1,33 @@
+package com.simplecity.amp_library.playback.shuffle;
+
+/**
+ * A lazily generated permutation of the indices [0, size). Each index is produced exactly once, and only computed when it's requested,
+ * so the first few items of a large shuffle are available without shuffling the whole list.
+ */
+public abstract class ShuffleOrder {
+
+    public abstract boolean hasNext();
+
+    /**
+     * @return the next index in the shuffled order.
+     * @throws java.util.NoSuchElementException if there are no more indices.
+     */
+    public abstract int nextIndex();
+
+    /**
+     * @return up to the next {@code count} indices in the shuffled order.
+     */
+    public int[] next(int count) {
+        int[] indices = new int[count];
+        int i = 0;
+        while (i < count && hasNext()) {
+            indices[i++] = nextIndex();
+        }
+        if (i < count) {
+            int[] trimmed = new int[i];
+            System.arraycopy(indices, 0, trimmed, 0, i);
+            return trimmed;
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,32 @@
+package com.simplecity.amp_library.playback.shuffle;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+public final class ShuffleStrategies {
+
+    private ShuffleStrategies() {
+        //no instance
+    }
+
+    /**
+     * @param playStats the play counts used by the weighted strategies
+     */
+    @NonNull
+    public static ShuffleStrategy forType(@Nullable @ShuffleStrategy.Type String type, @NonNull PlayStats playStats) {
+        if (type == null) {
+            return new UniformShuffleStrategy();
+        }
+        switch (type) {
+            case ShuffleStrategy.Type.SPREAD:
+                return new SpreadShuffleStrategy();
+            case ShuffleStrategy.Type.PLAY_COUNT:
+                return WeightedShuffleStrategy.byPlayCount(playStats);
+            case ShuffleStrategy.Type.LEAST_RECENT:
+                return WeightedShuffleStrategy.byLeastRecentlyPlayed(playStats, System.currentTimeMillis());
+            case ShuffleStrategy.Type.UNIFORM:
+            default:
+                return new UniformShuffleStrategy();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.simplecity.amp_library.playback.shuffle;
+
+import android.support.annotation.NonNull;
+import com.simplecity.amp_library.model.Song;
+import java.util.List;
+import java.util.Random;
+
+public interface ShuffleStrategy {
+
+    @interface Type {
+        String UNIFORM = "uniform";
+        String SPREAD = "spread";
+        String PLAY_COUNT = "play_count";
+        String LEAST_RECENT = "least_recent";
+    }
+
+    /**
+     * @param songs the songs to shuffle. Not modified.
+     * @param firstIndex the index of the song to place first (usually the one currently playing), or -1
+     * @param random the source of randomness
+     * @return a lazily generated shuffled order of the indices of the passed in songs
+     */
+    @NonNull
+    ShuffleOrder shuffle(@NonNull List<Song> songs, int firstIndex, @NonNull Random random);
+}
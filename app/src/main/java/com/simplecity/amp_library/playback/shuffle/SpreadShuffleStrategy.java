@@ -0,0 +1,81 @@
+package com.simplecity.amp_library.playback.shuffle;
+
+import android.support.annotation.NonNull;
+import com.simplecity.amp_library.model.Song;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A uniform shuffle which avoids playing two songs from the same album, or by the same artist, back to back.
+ * <p>
+ * Rather than reordering the whole list, a small window of upcoming candidates is kept, and the first one which doesn't clash with the
+ * previous song is chosen. If every candidate clashes (say, the library is mostly one artist), the oldest candidate is used anyway.
+ */
+public class SpreadShuffleStrategy implements ShuffleStrategy {
+
+    private static final int LOOKAHEAD = 8;
+
+    @NonNull
+    @Override
+    public ShuffleOrder shuffle(@NonNull List<Song> songs, int firstIndex, @NonNull Random random) {
+        return new Order(songs, new UniformShuffleStrategy.Order(songs.size(), firstIndex, random));
+    }
+
+    private static class Order extends ShuffleOrder {
+
+        private final List<Song> songs;
+        private final ShuffleOrder source;
+
+        private final int[] candidates = new int[LOOKAHEAD];
+        private int candidateCount;
+
+        private Song previous;
+
+        Order(List<Song> songs, ShuffleOrder source) {
+            this.songs = songs;
+            this.source = source;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return candidateCount > 0 || source.hasNext();
+        }
+
+        @Override
+        public int nextIndex() {
+            // The first song (which may have been pinned) is always taken as-is
+            if (previous == null) {
+                int index = source.nextIndex();
+                previous = songs.get(index);
+                return index;
+            }
+
+            while (candidateCount < LOOKAHEAD && source.hasNext()) {
+                candidates[candidateCount++] = source.nextIndex();
+            }
+            if (candidateCount == 0) {
+                throw new NoSuchElementException();
+            }
+
+            int chosen = 0;
+            for (int i = 0; i < candidateCount; i++) {
+                if (!clashes(previous, songs.get(candidates[i]))) {
+                    chosen = i;
+                    break;
+                }
+            }
+
+            int index = candidates[chosen];
+            System.arraycopy(candidates, chosen + 1, candidates, chosen, candidateCount - chosen - 1);
+            candidateCount--;
+
+            previous = songs.get(index);
+            return index;
+        }
+
+        private static boolean clashes(Song a, Song b) {
+            return a.albumId == b.albumId || a.artistId == b.artistId;
+        }
+    }
+}
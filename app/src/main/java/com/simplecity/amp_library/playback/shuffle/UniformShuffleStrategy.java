@@ -0,0 +1,62 @@
+package com.simplecity.amp_library.playback.shuffle;
+
+import android.support.annotation.NonNull;
+import com.simplecity.amp_library.model.Song;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Every ordering is equally likely. Uses an incremental Fisher-Yates shuffle, so each index costs O(1) to produce.
+ */
+public class UniformShuffleStrategy implements ShuffleStrategy {
+
+    @NonNull
+    @Override
+    public ShuffleOrder shuffle(@NonNull List<Song> songs, int firstIndex, @NonNull Random random) {
+        return new Order(songs.size(), firstIndex, random);
+    }
+
+    static class Order extends ShuffleOrder {
+
+        private final int[] indices;
+        private final Random random;
+        private int position;
+
+        Order(int size, int firstIndex, Random random) {
+            this.random = random;
+            indices = new int[size];
+            for (int i = 0; i < size; i++) {
+                indices[i] = i;
+            }
+            if (firstIndex > 0 && firstIndex < size) {
+                indices[0] = firstIndex;
+                indices[firstIndex] = 0;
+            }
+            // The first index is already fixed, so skip the random draw for it
+            position = firstIndex >= 0 && firstIndex < size ? -1 : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return position < indices.length;
+        }
+
+        @Override
+        public int nextIndex() {
+            if (position == -1) {
+                position = 1;
+                return indices[0];
+            }
+            if (position >= indices.length) {
+                throw new NoSuchElementException();
+            }
+            int swapWith = position + random.nextInt(indices.length - position);
+            int index = indices[swapWith];
+            indices[swapWith] = indices[position];
+            indices[position] = index;
+            position++;
+            return index;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.simplecity.amp_library.playback.shuffle;
+
+import android.support.annotation.NonNull;
+import com.simplecity.amp_library.model.Song;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Shuffles so that songs with a higher weight tend to come up earlier.
+ * <p>
+ * Weights are held in a Fenwick tree, so building the order is O(n), and drawing each index (sampling without replacement) is O(log n).
+ */
+public class WeightedShuffleStrategy implements ShuffleStrategy {
+
+    public interface Weigher {
+        /**
+         * @return the relative weight of the song. Must be positive.
+         */
+        double weigh(Song song);
+    }
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    // Songs not played for this long (or never) all share the maximum weight
+    private static final int MAX_RECENCY_DAYS = 60;
+
+    /**
+     * Favours songs which have been played more often.
+     */
+    public static WeightedShuffleStrategy byPlayCount(@NonNull PlayStats playStats) {
+        return new WeightedShuffleStrategy(song -> 1 + Math.log1p(Math.max(0, playStats.getPlayCount(song.id))));
+    }
+
+    /**
+     * Favours songs which haven't been played for a while.
+     *
+     * @param now the current time, in millis
+     */
+    public static WeightedShuffleStrategy byLeastRecentlyPlayed(@NonNull PlayStats playStats, long now) {
+        return new WeightedShuffleStrategy(song -> {
+            long lastPlayed = playStats.getLastPlayed(song.id);
+            if (lastPlayed <= 0) {
+                return 1 + MAX_RECENCY_DAYS;
+            }
+            return 1 + Math.min(MAX_RECENCY_DAYS, Math.max(0, (now - lastPlayed) / DAY_MILLIS));
+        });
+    }
+
+    private final Weigher weigher;
+
+    public WeightedShuffleStrategy(Weigher weigher) {
+        this.weigher = weigher;
+    }
+
+    @NonNull
+    @Override
+    public ShuffleOrder shuffle(@NonNull List<Song> songs, int firstIndex, @NonNull Random random) {
+        double[] weights = new double[songs.size()];
+        for (int i = 0, size = songs.size(); i < size; i++) {
+            weights[i] = weigher.weigh(songs.get(i));
+        }
+        return new Order(weights, firstIndex, random);
+    }
+
+    private static class Order extends ShuffleOrder {
+
+        // 1-based Fenwick tree of weights
+        private final double[] tree;
+        private final boolean[] removed;
+        private final Random random;
+
+        private int remaining;
+        private int firstIndex;
+
+        Order(double[] weights, int firstIndex, Random random) {
+            this.random = random;
+            this.remaining = weights.length;
+            this.firstIndex = firstIndex >= 0 && firstIndex < weights.length ? firstIndex : -1;
+
+            int size = weights.length;
+            removed = new boolean[size];
+            tree = new double[size + 1];
+            for (int i = 1; i <= size; i++) {
+                tree[i] += weights[i - 1];
+                int parent = i + (i & -i);
+                if (parent <= size) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public int nextIndex() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+
+            int index;
+            if (firstIndex != -1) {
+                index = firstIndex;
+                firstIndex = -1;
+            } else {
+                index = find(random.nextDouble() * prefixSum(tree.length - 1));
+            }
+
+            remove(index);
+            removed[index] = true;
+            remaining--;
+            return index;
+        }
+
+        private double prefixSum(int i) {
+            double sum = 0;
+            for (; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        private double weightAt(int index) {
+            return prefixSum(index + 1) - prefixSum(index);
+        }
+
+        private void remove(int index) {
+            double weight = weightAt(index);
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] -= weight;
+            }
+        }
+
+        /**
+         * @return the 0-based index whose cumulative weight range contains the passed in value
+         */
+        private int find(double value) {
+            int position = 0;
+            int step = Integer.highestOneBit(tree.length - 1);
+            for (; step > 0; step >>= 1) {
+                int next = position + step;
+                if (next < tree.length && tree[next] <= value) {
+                    position = next;
+                    value -= tree[next];
+                }
+            }
+            // Guard against floating point drift landing past the end, or on an index which has already been removed
+            int size = removed.length;
+            if (position >= size) {
+                position = size - 1;
+            }
+            while (removed[position]) {
+                position = (position + 1) % size;
+            }
+            return position;
+        }
+    }
+}
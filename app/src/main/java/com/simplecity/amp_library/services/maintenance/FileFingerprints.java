@@ -0,0 +1,95 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import com.simplecity.amp_library.utils.LogUtils;
+import com.simplecity.amp_library.utils.LongHashSet;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Identifies a version of a file by its path, size & modification time, so files which haven't changed since they were last scanned can
+ * be skipped.
+ * <p>
+ * Sets of fingerprints are persisted as a count followed by a flat array of longs.
+ */
+final class FileFingerprints {
+
+    private static final String TAG = "FileFingerprints";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private FileFingerprints() {
+
+    }
+
+    static long of(File file) {
+        long hash = FNV_OFFSET_BASIS;
+        String path = file.getPath();
+        for (int i = 0, length = path.length(); i < length; i++) {
+            hash = (hash ^ path.charAt(i)) * FNV_PRIME;
+        }
+        hash = (hash ^ file.length()) * FNV_PRIME;
+        hash = (hash ^ file.lastModified()) * FNV_PRIME;
+        return hash;
+    }
+
+    /**
+     * @return the fingerprints stored in the file, or an empty set if it doesn't exist or can't be read.
+     */
+    static LongHashSet read(File file) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int count = input.readInt();
+            LongHashSet fingerprints = new LongHashSet(count);
+            for (int i = 0; i < count; i++) {
+                fingerprints.add(input.readLong());
+            }
+            return fingerprints;
+        } catch (FileNotFoundException ignored) {
+            // Nothing has been scanned yet
+        } catch (IOException e) {
+            LogUtils.logException(TAG, "Failed to read fingerprints", e);
+        }
+        return new LongHashSet();
+    }
+
+    /**
+     * Writes the union of the passed in sets. The file is replaced in one step, so a run which is killed part way through never leaves a
+     * truncated checkpoint behind.
+     */
+    static void write(File file, LongHashSet... sets) throws IOException {
+        LongHashSet union;
+        if (sets.length == 1) {
+            union = sets[0];
+        } else {
+            int size = 0;
+            for (LongHashSet set : sets) {
+                size += set.size();
+            }
+            union = new LongHashSet(size);
+            for (LongHashSet set : sets) {
+                for (long fingerprint : set.toArray()) {
+                    union.add(fingerprint);
+                }
+            }
+        }
+
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            long[] fingerprints = union.toArray();
+            output.writeInt(fingerprints.length);
+            for (long fingerprint : fingerprints) {
+                output.writeLong(fingerprint);
+            }
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import android.content.Context;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+import com.simplecity.amp_library.data.Repository;
+import com.simplecity.amp_library.model.Genre;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+
+/**
+ * Deletes genres which no longer have any songs.
+ * <p>
+ * Song counts come from the shared genre index, so this doesn't need a query per genre. They include blacklisted songs, so a genre whose
+ * songs are all blacklisted isn't deleted.
+ */
+public class GenreCleanupTask implements MaintenanceTask {
+
+    private final Context context;
+
+    private final Repository.GenresRepository genresRepository;
+
+    @Inject
+    public GenreCleanupTask(Context context, Repository.GenresRepository genresRepository) {
+        this.context = context;
+        this.genresRepository = genresRepository;
+    }
+
+    @Override
+    public String getName() {
+        return "genre_cleanup";
+    }
+
+    @Override
+    public int run(AtomicBoolean stopSignal) {
+        List<Genre> genres = genresRepository.getGenres().blockingFirst(Collections.emptyList());
+
+        List<Long> emptyGenreIds = new ArrayList<>();
+        for (Genre genre : genres) {
+            if (genre.numSongs == 0) {
+                emptyGenreIds.add(genre.id);
+            }
+        }
+
+        // Every genre being empty most likely means the membership query failed, or storage isn't mounted, rather than that every genre
+        // really has no songs left
+        if (!emptyGenreIds.isEmpty() && emptyGenreIds.size() < genres.size()) {
+            try {
+                context.getContentResolver().delete(MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI,
+                        MediaStore.Audio.Genres._ID + " IN (" + TextUtils.join(",", emptyGenreIds) + ")", null);
+            } catch (IllegalArgumentException | UnsupportedOperationException ignored) {
+                //Don't care if we couldn't delete these genres.
+            }
+        }
+
+        return genres.size();
+    }
+}
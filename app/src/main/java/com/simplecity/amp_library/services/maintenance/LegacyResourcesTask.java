@@ -0,0 +1,30 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import com.simplecity.amp_library.ShuttleApplication;
+import com.simplecity.amp_library.utils.LegacyUtils;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+
+/**
+ * Deletes artwork & caches left behind by older versions of the app.
+ */
+public class LegacyResourcesTask implements MaintenanceTask {
+
+    private final ShuttleApplication application;
+
+    @Inject
+    public LegacyResourcesTask(ShuttleApplication application) {
+        this.application = application;
+    }
+
+    @Override
+    public String getName() {
+        return "legacy_resources";
+    }
+
+    @Override
+    public int run(AtomicBoolean stopSignal) {
+        LegacyUtils.deleteOldResources(application).blockingAwait();
+        return 1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import com.simplecity.amp_library.utils.LogUtils;
+import dagger.android.AndroidInjection;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+
+/**
+ * Runs the {@link MaintenanceScheduler}'s tasks off the main thread, and signals them to stop when the job's constraints are no longer met.
+ */
+public class MaintenanceJobService extends JobService {
+
+    private static final String TAG = "MaintenanceJobService";
+
+    @Inject
+    MaintenanceScheduler maintenanceScheduler;
+
+    private AtomicBoolean stopSignal;
+
+    private Disposable disposable;
+
+    @Override
+    public void onCreate() {
+        AndroidInjection.inject(this);
+        super.onCreate();
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        AtomicBoolean stopSignal = new AtomicBoolean();
+        this.stopSignal = stopSignal;
+
+        disposable = Single.fromCallable(() -> maintenanceScheduler.runTasks(stopSignal))
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        completed -> jobFinished(params, false),
+                        error -> {
+                            LogUtils.logException(TAG, "Maintenance failed", error);
+                            jobFinished(params, false);
+                        });
+
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        if (stopSignal != null) {
+            stopSignal.set(true);
+        }
+
+        // Retry, so the stopped task resumes from its checkpoint
+        return true;
+    }
+
+    @Override
+    public void onDestroy() {
+        if (stopSignal != null) {
+            stopSignal.set(true);
+        }
+        if (disposable != null) {
+            disposable.dispose();
+        }
+        super.onDestroy();
+    }
+}
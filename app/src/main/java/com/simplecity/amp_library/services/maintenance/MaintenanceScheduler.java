@@ -0,0 +1,130 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import android.Manifest;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.support.annotation.WorkerThread;
+import android.support.v4.content.ContextCompat;
+import android.util.Log;
+import com.simplecity.amp_library.utils.LogUtils;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Runs the library maintenance tasks once a day, while the device is idle & charging.
+ * <p>
+ * The time each task last completed is checkpointed, so if the job is stopped part way through (because the device is no longer idle,
+ * for example), the tasks which already completed aren't run again when it resumes.
+ */
+@Singleton
+public class MaintenanceScheduler {
+
+    private static final String TAG = "MaintenanceScheduler";
+
+    private static final int JOB_ID = 300;
+
+    private static final long INTERVAL = TimeUnit.DAYS.toMillis(1);
+
+    private static final String PREFS_NAME = "maintenance";
+
+    private static final String KEY_COMPLETED_PREFIX = "completed_";
+
+    private final Context context;
+
+    private final SharedPreferences checkpoints;
+
+    private final List<MaintenanceTask> tasks;
+
+    @Inject
+    public MaintenanceScheduler(
+            Context context,
+            YearRepairTask yearRepairTask,
+            GenreCleanupTask genreCleanupTask,
+            PlayCountCleanupTask playCountCleanupTask,
+            LegacyResourcesTask legacyResourcesTask
+    ) {
+        this.context = context;
+        this.checkpoints = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.tasks = Arrays.asList(yearRepairTask, genreCleanupTask, playCountCleanupTask, legacyResourcesTask);
+    }
+
+    /**
+     * Schedules the maintenance job, unless it's already pending.
+     */
+    public void schedule() {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null) {
+            return;
+        }
+
+        // Rescheduling would reset the job's period
+        for (JobInfo jobInfo : jobScheduler.getAllPendingJobs()) {
+            if (jobInfo.getId() == JOB_ID) {
+                return;
+            }
+        }
+
+        jobScheduler.schedule(new JobInfo.Builder(JOB_ID, new ComponentName(context, MaintenanceJobService.class))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPeriodic(INTERVAL)
+                .build());
+    }
+
+    /**
+     * Runs each task which hasn't completed in the current period, in order.
+     *
+     * @return false if the tasks were stopped before they all completed.
+     */
+    @WorkerThread
+    boolean runTasks(AtomicBoolean stopSignal) {
+
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.READ_EXTERNAL_STORAGE) != PackageManager.PERMISSION_GRANTED) {
+            return true;
+        }
+
+        for (MaintenanceTask task : tasks) {
+            if (stopSignal.get()) {
+                return false;
+            }
+
+            String key = KEY_COMPLETED_PREFIX + task.getName();
+
+            // Periodic jobs can run early within their flex window, so allow some slack
+            if (System.currentTimeMillis() - checkpoints.getLong(key, 0) < INTERVAL / 2) {
+                continue;
+            }
+
+            long startTime = SystemClock.elapsedRealtime();
+            try {
+                int count = task.run(stopSignal);
+                long duration = Math.max(1, SystemClock.elapsedRealtime() - startTime);
+
+                Log.i(TAG, String.format(Locale.US, "%s %s: %d items in %dms (%.1f items/s)",
+                        task.getName(),
+                        stopSignal.get() ? "stopped" : "completed",
+                        count,
+                        duration,
+                        count * 1000f / duration));
+
+                if (!stopSignal.get()) {
+                    checkpoints.edit().putLong(key, System.currentTimeMillis()).apply();
+                }
+            } catch (Exception e) {
+                LogUtils.logException(TAG, "Maintenance task " + task.getName() + " failed", e);
+            }
+        }
+
+        return !stopSignal.get();
+    }
+}
@@ -0,0 +1,26 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import android.support.annotation.WorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A unit of library maintenance, run by the {@link MaintenanceScheduler} while the device is idle & charging.
+ */
+public interface MaintenanceTask {
+
+    /**
+     * @return a stable name for the task, used as the key for its checkpoint.
+     */
+    String getName();
+
+    /**
+     * Runs the task on the calling thread.
+     * <p>
+     * Long running tasks should check the stop signal regularly, and return once it's set. Any progress they've checkpointed is resumed on
+     * the next run.
+     *
+     * @return the number of items processed, for throughput reporting.
+     */
+    @WorkerThread
+    int run(AtomicBoolean stopSignal) throws Exception;
+}
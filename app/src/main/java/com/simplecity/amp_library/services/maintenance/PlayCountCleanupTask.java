@@ -0,0 +1,72 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import android.content.Context;
+import android.provider.MediaStore;
+import android.text.TextUtils;
+import com.simplecity.amp_library.model.Query;
+import com.simplecity.amp_library.sql.SqlUtils;
+import com.simplecity.amp_library.sql.providers.PlayCountTable;
+import com.simplecity.amp_library.utils.LongHashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+
+/**
+ * Check items in the Most Played playlist and ensure their ids exist in the MediaStore.
+ * <p>
+ * If they don't, remove them from the playlist.
+ */
+public class PlayCountCleanupTask implements MaintenanceTask {
+
+    private final Context context;
+
+    @Inject
+    public PlayCountCleanupTask(Context context) {
+        this.context = context;
+    }
+
+    @Override
+    public String getName() {
+        return "play_count_cleanup";
+    }
+
+    @Override
+    public int run(AtomicBoolean stopSignal) {
+        LongHashSet songIds = new LongHashSet();
+
+        Query query = new Query.Builder()
+                .uri(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI)
+                .projection(new String[] { MediaStore.Audio.Media._ID })
+                .build();
+
+        SqlUtils.createActionableQuery(context, cursor -> songIds.add(cursor.getLong(0)), query);
+
+        int[] playCounts = new int[1];
+        List<Long> staleIds = new ArrayList<>();
+
+        query = new Query.Builder()
+                .uri(PlayCountTable.URI)
+                .projection(new String[] { PlayCountTable.COLUMN_ID })
+                .build();
+
+        SqlUtils.createActionableQuery(context, cursor -> {
+            playCounts[0]++;
+            long playCountId = cursor.getLong(0);
+            if (!songIds.contains(playCountId)) {
+                staleIds.add(playCountId);
+            }
+        }, query);
+
+        // An empty MediaStore most likely means storage isn't mounted, rather than that every song has been removed
+        if (!staleIds.isEmpty() && songIds.size() > 0) {
+            try {
+                context.getContentResolver().delete(PlayCountTable.URI, PlayCountTable.COLUMN_ID + " IN (" + TextUtils.join(",", staleIds) + ")", null);
+            } catch (IllegalArgumentException ignored) {
+                // Exception intentionally ignored: safe to proceed if deletion fails
+            }
+        }
+
+        return playCounts[0];
+    }
+}
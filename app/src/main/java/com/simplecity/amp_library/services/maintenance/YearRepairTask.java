@@ -0,0 +1,188 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.provider.MediaStore;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import com.simplecity.amp_library.data.Repository;
+import com.simplecity.amp_library.model.Song;
+import com.simplecity.amp_library.utils.LogUtils;
+import com.simplecity.amp_library.utils.LongHashSet;
+import com.simplecity.amp_library.utils.StringUtils;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.audio.exceptions.CannotReadException;
+import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
+import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.Tag;
+import org.jaudiotagger.tag.TagException;
+
+/**
+ * Reads the year from the tags of songs the MediaStore has no year for, and writes it back to the MediaStore.
+ * <p>
+ * Files are read by a small pool of workers. The fingerprint of each file read successfully is checkpointed, so files which haven't
+ * changed aren't read again on the next run. Files which couldn't be read are tried again.
+ */
+public class YearRepairTask implements MaintenanceTask {
+
+    private static final String TAG = "YearRepairTask";
+
+    private static final String FINGERPRINTS_FILE = "year_repair_fingerprints";
+
+    // Each worker holds a file's tag in memory while reading it, so only a few run at once.
+    private static final int WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final int CHECKPOINT_INTERVAL = 10 * BATCH_SIZE;
+
+    // Don't bother checking files > 100mb, uses too much memory.
+    private static final long MAX_FILE_SIZE = 100 * 1024 * 1024;
+
+    private final Context context;
+
+    private final Repository.SongsRepository songsRepository;
+
+    @Inject
+    public YearRepairTask(Context context, Repository.SongsRepository songsRepository) {
+        this.context = context;
+        this.songsRepository = songsRepository;
+    }
+
+    @Override
+    public String getName() {
+        return "year_repair";
+    }
+
+    @Override
+    public int run(AtomicBoolean stopSignal) throws Exception {
+        File fingerprintsFile = new File(context.getFilesDir(), FINGERPRINTS_FILE);
+
+        // Only read by the workers, so it's safe to share between them
+        LongHashSet previouslyScanned = FileFingerprints.read(fingerprintsFile);
+        LongHashSet scanned = new LongHashSet(previouslyScanned.size());
+
+        List<Song> songs = songsRepository.getSongs(song -> song.year < 1).blockingFirst(Collections.emptyList());
+
+        int[] filesRead = new int[1];
+        int[] sinceCheckpoint = new int[1];
+
+        Observable.fromIterable(songs)
+                .takeWhile(song -> !stopSignal.get())
+                .flatMap(song -> Maybe.fromCallable(() -> scan(song, previouslyScanned)).subscribeOn(Schedulers.io()).toObservable(), WORKERS)
+                .buffer(BATCH_SIZE)
+                .blockingForEach(results -> {
+                    ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+                    for (ScanResult result : results) {
+                        if (result.read) {
+                            filesRead[0]++;
+                        }
+                        if (result.operation != null) {
+                            operations.add(result.operation);
+                        }
+                    }
+                    if (!operations.isEmpty()) {
+                        context.getContentResolver().applyBatch(MediaStore.AUTHORITY, operations);
+                    }
+                    // Only once the batch's years are saved, so a failed update doesn't leave its files marked as scanned
+                    for (ScanResult result : results) {
+                        if (!result.failed) {
+                            scanned.add(result.fingerprint);
+                        }
+                    }
+
+                    sinceCheckpoint[0] += results.size();
+                    if (sinceCheckpoint[0] >= CHECKPOINT_INTERVAL) {
+                        sinceCheckpoint[0] = 0;
+                        FileFingerprints.write(fingerprintsFile, previouslyScanned, scanned);
+                    }
+                });
+
+        if (stopSignal.get()) {
+            FileFingerprints.write(fingerprintsFile, previouslyScanned, scanned);
+        } else {
+            // Every song without a year has been visited, so fingerprints of files which have since been removed or repaired can be dropped.
+            FileFingerprints.write(fingerprintsFile, scanned);
+        }
+
+        return filesRead[0];
+    }
+
+    @Nullable
+    private ScanResult scan(Song song, LongHashSet previouslyScanned) {
+        if (TextUtils.isEmpty(song.path)) {
+            return null;
+        }
+        File file = new File(song.path);
+        if (!file.exists() || file.length() >= MAX_FILE_SIZE) {
+            return null;
+        }
+        long fingerprint = FileFingerprints.of(file);
+        if (previouslyScanned.contains(fingerprint)) {
+            return new ScanResult(fingerprint, false, false, null);
+        }
+        try {
+            return new ScanResult(fingerprint, true, false, getYearUpdateOperation(song, file));
+        } catch (CannotReadException | IOException | TagException | ReadOnlyFileException | InvalidAudioFrameException | RuntimeException | OutOfMemoryError e) {
+            LogUtils.logException(TAG, "Failed to repair media store year", e);
+            return new ScanResult(fingerprint, true, true, null);
+        }
+    }
+
+    @Nullable
+    private ContentProviderOperation getYearUpdateOperation(Song song, File file)
+            throws CannotReadException, IOException, TagException, ReadOnlyFileException, InvalidAudioFrameException {
+        AudioFile audioFile = AudioFileIO.read(file);
+        Tag tag = audioFile.getTag();
+        if (tag != null) {
+            String year = tag.getFirst(FieldKey.YEAR);
+            int yearInt = StringUtils.parseInt(year);
+            if (yearInt > 0) {
+                song.year = yearInt;
+                ContentValues contentValues = new ContentValues();
+                contentValues.put(MediaStore.Audio.Media.YEAR, yearInt);
+
+                return ContentProviderOperation
+                        .newUpdate(ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, song.id))
+                        .withValues(contentValues)
+                        .build();
+            }
+        }
+        return null;
+    }
+
+    private static final class ScanResult {
+
+        final long fingerprint;
+
+        // False if the file was skipped, because it hasn't changed since it was last read
+        final boolean read;
+
+        // True if the file couldn't be read, in which case it isn't fingerprinted, so it's read again on the next run
+        final boolean failed;
+
+        @Nullable
+        final ContentProviderOperation operation;
+
+        ScanResult(long fingerprint, boolean read, boolean failed, @Nullable ContentProviderOperation operation) {
+            this.fingerprint = fingerprint;
+            this.read = read;
+            this.failed = failed;
+            this.operation = operation;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.simplecity.amp_library.sql;
+
+import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves a fixed set of column indices once per {@link Cursor}, rather than once per row.
+ * <p>
+ * Cursor to model mappers (e.g. {@code Song(Cursor)}) are called for every row, so they hold one of these statically and call
+ * {@link #get(Cursor)} at the start of each row. Indices depend only on the cursor's columns, so they're keyed by its column names
+ * (which a cursor returns as the same array for every row), and reused by later cursors with the same columns. No reference to the
+ * cursor itself is kept. Each thread keeps its own entry, so concurrent queries on the io scheduler don't invalidate each other.
+ * <p>
+ * Each entry also holds a string pool, scoped to the cursor, so that values repeated across many rows (artist & album names) can share
+ * a single instance. The pool is released when the cursor is closed.
+ */
+public final class ColumnIndexCache {
+
+    private final String[] columns;
+    private final String[] optionalColumns;
+
+    private final ThreadLocal<Columns> current = new ThreadLocal<>();
+
+    /**
+     * @param columns         columns which must be present. Resolving them throws {@link IllegalArgumentException} otherwise.
+     * @param optionalColumns columns which may be absent, in which case their index is -1. Their indices follow those of {@code columns}.
+     */
+    public ColumnIndexCache(@NonNull String[] columns, @NonNull String... optionalColumns) {
+        this.columns = columns;
+        this.optionalColumns = optionalColumns;
+    }
+
+    /**
+     * @return the resolved columns for the passed in cursor.
+     */
+    @NonNull
+    public Columns get(@NonNull Cursor cursor) {
+        String[] columnNames = cursor.getColumnNames();
+        Columns columns = current.get();
+        if (columns != null && columns.columnNames == columnNames) {
+            return columns;
+        }
+
+        // A new cursor. Its indices only need resolving if its columns differ from the last one's
+        int[] indices = columns != null && Arrays.equals(columns.columnNames, columnNames) ? columns.indices : resolve(cursor);
+        columns = new Columns(columnNames, indices);
+        cursor.registerDataSetObserver(columns.closeObserver);
+        current.set(columns);
+        return columns;
+    }
+
+    private int[] resolve(Cursor cursor) {
+        int[] indices = new int[columns.length + optionalColumns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indices[i] = cursor.getColumnIndexOrThrow(columns[i]);
+        }
+        for (int i = 0; i < optionalColumns.length; i++) {
+            indices[columns.length + i] = cursor.getColumnIndex(optionalColumns[i]);
+        }
+        return indices;
+    }
+
+    public static final class Columns {
+
+        private final String[] columnNames;
+        private final int[] indices;
+
+        @Nullable
+        private Map<String, String> pool;
+
+        // Notified when the cursor is closed (or deactivated)
+        private final DataSetObserver closeObserver = new DataSetObserver() {
+            @Override
+            public void onInvalidated() {
+                pool = null;
+            }
+        };
+
+        Columns(String[] columnNames, int[] indices) {
+            this.columnNames = columnNames;
+            this.indices = indices;
+        }
+
+        /**
+         * @param column the position of the column in the array(s) passed to the {@link ColumnIndexCache}
+         * @return the column's index in the cursor, or -1 if it's an optional column which isn't present.
+         */
+        public int index(int column) {
+            return indices[column];
+        }
+
+        /**
+         * @return the value of the passed in column, or null if it's an optional column which isn't present.
+         */
+        @Nullable
+        public String getString(Cursor cursor, int column) {
+            int index = indices[column];
+            return index == -1 ? null : cursor.getString(index);
+        }
+
+        /**
+         * As {@link #getString(Cursor, int)}, but returns the same String instance for equal values across the cursor's rows.
+         */
+        @Nullable
+        public String getPooledString(Cursor cursor, int column) {
+            String value = getString(cursor, column);
+            if (value == null) {
+                return null;
+            }
+            if (pool == null) {
+                pool = new HashMap<>();
+            }
+            String pooled = pool.get(value);
+            if (pooled == null) {
+                pool.put(value, value);
+                return value;
+            }
+            return pooled;
+        }
+    }
+}
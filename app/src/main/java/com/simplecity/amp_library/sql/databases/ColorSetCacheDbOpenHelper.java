@@ -0,0 +1,44 @@
+package com.simplecity.amp_library.sql.databases;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+public class ColorSetCacheDbOpenHelper extends SQLiteOpenHelper {
+
+    private static final String TAG = "ColorSetCacheDbOpenHelper";
+
+    public static final String COLUMN_KEY = "_key";
+    public static final String COLUMN_FINGERPRINT = "fingerprint";
+    public static final String COLUMN_PRIMARY_COLOR = "primary_color";
+    public static final String COLUMN_ACCENT_COLOR = "accent_color";
+    public static final String COLUMN_TIMESTAMP = "timestamp";
+
+    private static final String DATABASE_NAME = "color_set_cache.db";
+    public static final String TABLE_NAME = "color_set_cache";
+
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String DATABASE_CREATE = "CREATE TABLE IF NOT EXISTS "
+            + TABLE_NAME + "("
+            + COLUMN_KEY + " TEXT PRIMARY KEY, "
+            + COLUMN_FINGERPRINT + " TEXT NOT NULL, "
+            + COLUMN_PRIMARY_COLOR + " INTEGER NOT NULL, "
+            + COLUMN_ACCENT_COLOR + " INTEGER NOT NULL, "
+            + COLUMN_TIMESTAMP + " INTEGER NOT NULL"
+            + ");";
+
+    public ColorSetCacheDbOpenHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase database) {
+        database.execSQL(DATABASE_CREATE);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+
+    }
+}
@@ -0,0 +1,73 @@
+package com.simplecity.amp_library.sql.databases;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+public class TagInfoCacheDbOpenHelper extends SQLiteOpenHelper {
+
+    public static final String COLUMN_PATH = "path";
+    public static final String COLUMN_PARENT = "parent";
+    public static final String COLUMN_SIZE = "size";
+    public static final String COLUMN_LAST_MODIFIED = "last_modified";
+    public static final String COLUMN_ARTIST_NAME = "artist_name";
+    public static final String COLUMN_ALBUM_ARTIST_NAME = "album_artist_name";
+    public static final String COLUMN_ALBUM_NAME = "album_name";
+    public static final String COLUMN_TRACK_NAME = "track_name";
+    public static final String COLUMN_TRACK_NUMBER = "track_number";
+    public static final String COLUMN_TRACK_TOTAL = "track_total";
+    public static final String COLUMN_DISC_NUMBER = "disc_number";
+    public static final String COLUMN_DISC_TOTAL = "disc_total";
+    public static final String COLUMN_BITRATE = "bitrate";
+    public static final String COLUMN_FORMAT = "format";
+    public static final String COLUMN_SAMPLE_RATE = "sample_rate";
+    public static final String COLUMN_TRACK_LENGTH = "track_length";
+    public static final String COLUMN_GENRE = "genre";
+    public static final String COLUMN_TIMESTAMP = "timestamp";
+
+    private static final String DATABASE_NAME = "tag_info_cache.db";
+    public static final String TABLE_NAME = "tag_info_cache";
+
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String DATABASE_CREATE = "CREATE TABLE IF NOT EXISTS "
+            + TABLE_NAME + "("
+            + COLUMN_PATH + " TEXT PRIMARY KEY, "
+            + COLUMN_PARENT + " TEXT NOT NULL, "
+            + COLUMN_SIZE + " INTEGER NOT NULL, "
+            + COLUMN_LAST_MODIFIED + " INTEGER NOT NULL, "
+            + COLUMN_ARTIST_NAME + " TEXT, "
+            + COLUMN_ALBUM_ARTIST_NAME + " TEXT, "
+            + COLUMN_ALBUM_NAME + " TEXT, "
+            + COLUMN_TRACK_NAME + " TEXT, "
+            + COLUMN_TRACK_NUMBER + " INTEGER, "
+            + COLUMN_TRACK_TOTAL + " INTEGER, "
+            + COLUMN_DISC_NUMBER + " INTEGER, "
+            + COLUMN_DISC_TOTAL + " INTEGER, "
+            + COLUMN_BITRATE + " TEXT, "
+            + COLUMN_FORMAT + " TEXT, "
+            + COLUMN_SAMPLE_RATE + " INTEGER, "
+            + COLUMN_TRACK_LENGTH + " INTEGER, "
+            + COLUMN_GENRE + " TEXT, "
+            + COLUMN_TIMESTAMP + " INTEGER NOT NULL"
+            + ");";
+
+    // Entries are looked up a directory at a time
+    private static final String INDEX_CREATE = "CREATE INDEX IF NOT EXISTS "
+            + TABLE_NAME + "_" + COLUMN_PARENT + " ON " + TABLE_NAME + "(" + COLUMN_PARENT + ");";
+
+    public TagInfoCacheDbOpenHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase database) {
+        database.execSQL(DATABASE_CREATE);
+        database.execSQL(INDEX_CREATE);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+
+    }
+}
@@ -0,0 +1,12 @@
+package com.simplecity.amp_library.ui.common;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Provides a {@link RecyclerView.RecycledViewPool} shared by the lists hosted in a container (e.g. the library tabs), so view holders
+ * created for one tab can be reused by another, rather than being inflated again.
+ */
+public interface RecycledViewPoolProvider {
+
+    RecyclerView.RecycledViewPool getRecycledViewPool();
+}
@@ -1,5 +1,7 @@
 package com.simplecity.amp_library.ui.modelviews;
 
+import android.content.Context;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.view.ViewCompat;
 import android.text.TextUtils;
@@ -11,17 +13,22 @@ import com.github.florent37.glidepalette.BitmapPalette;
 import com.github.florent37.glidepalette.GlidePalette;
 import com.simplecity.amp_library.R;
 import com.simplecity.amp_library.format.PrefixHighlighter;
+import com.simplecity.amp_library.glide.preloader.ArtworkPreloadItem;
 import com.simplecity.amp_library.model.AlbumArtist;
+import com.simplecity.amp_library.model.ArtworkProvider;
 import com.simplecity.amp_library.ui.adapters.ViewType;
 import com.simplecity.amp_library.utils.PlaceholderProvider;
 import com.simplecity.amp_library.utils.SettingsManager;
 import com.simplecity.amp_library.utils.StringUtils;
 import com.simplecity.amp_library.utils.sorting.SortManager;
+import com.simplecityapps.recycler_adapter.model.Preparable;
 import java.util.Arrays;
 import java.util.List;
 
 public class AlbumArtistView extends MultiItemView<AlbumArtistView.ViewHolder, AlbumArtist> implements
-        SectionedView {
+        SectionedView,
+        Preparable,
+        ArtworkPreloadItem {
 
     public interface ClickListener {
 
@@ -48,6 +55,25 @@ public class AlbumArtistView extends MultiItemView<AlbumArtistView.ViewHolder, A
 
     private char[] prefix;
 
+    /**
+     * The formatted text for this album artist's row. Immutable, so it can be prepared off the main thread.
+     */
+    static final class Labels {
+
+        final String trackCount;
+        final String albumCount;
+        final String overflowDescription;
+
+        Labels(Context context, AlbumArtist albumArtist) {
+            trackCount = String.valueOf(albumArtist.getNumSongs());
+            albumCount = String.valueOf(albumArtist.getNumAlbums());
+            overflowDescription = context.getString(R.string.btn_options, albumArtist.name);
+        }
+    }
+
+    @Nullable
+    private volatile Labels labels;
+
     @Nullable
     private ClickListener listener;
 
@@ -96,21 +122,43 @@ public class AlbumArtistView extends MultiItemView<AlbumArtistView.ViewHolder, A
         this.viewType = viewType;
     }
 
+    @Override
+    public void prepare(@NonNull Context context) {
+        getLabels(context);
+    }
+
+    Labels getLabels(Context context) {
+        Labels labels = this.labels;
+        if (labels == null) {
+            labels = new Labels(context, albumArtist);
+            this.labels = labels;
+        }
+        return labels;
+    }
+
+    @Nullable
+    @Override
+    public ArtworkProvider getPreloadArtwork() {
+        return albumArtist;
+    }
+
     @Override
     public void bindView(final ViewHolder holder) {
 
         super.bindView(holder);
 
+        Labels labels = getLabels(holder.itemView.getContext());
+
         holder.lineOne.setText(albumArtist.name);
 
         if (holder.trackCount != null) {
             holder.lineTwo.setVisibility(View.GONE);
             holder.trackCount.setVisibility(View.VISIBLE);
-            holder.trackCount.setText(String.valueOf(albumArtist.getNumSongs()));
+            holder.trackCount.setText(labels.trackCount);
         }
         if (holder.albumCount != null) {
             holder.albumCount.setVisibility(View.VISIBLE);
-            holder.albumCount.setText(String.valueOf(albumArtist.getNumAlbums()));
+            holder.albumCount.setText(labels.albumCount);
         }
 
         if (getViewType() == ViewType.ARTIST_PALETTE) {
@@ -129,7 +177,7 @@ public class AlbumArtistView extends MultiItemView<AlbumArtistView.ViewHolder, A
                 .placeholder(PlaceholderProvider.getInstance(holder.itemView.getContext()).getPlaceHolderDrawable(albumArtist.name, false, settingsManager))
                 .into(holder.imageOne);
 
-        holder.overflowButton.setContentDescription(holder.itemView.getResources().getString(R.string.btn_options, albumArtist.name));
+        holder.overflowButton.setContentDescription(labels.overflowDescription);
 
         if (prefixHighlighter != null) {
             prefixHighlighter.setText(holder.lineOne, prefix);
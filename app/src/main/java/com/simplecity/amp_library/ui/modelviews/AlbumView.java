@@ -1,5 +1,7 @@
 package com.simplecity.amp_library.ui.modelviews;
 
+import android.content.Context;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.view.ViewCompat;
 import android.text.TextUtils;
@@ -9,16 +11,29 @@ import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.github.florent37.glidepalette.GlidePalette;
 import com.simplecity.amp_library.format.PrefixHighlighter;
+import com.simplecity.amp_library.glide.preloader.ArtworkPreloadItem;
 import com.simplecity.amp_library.model.Album;
+import com.simplecity.amp_library.model.ArtworkProvider;
 import com.simplecity.amp_library.ui.adapters.ViewType;
 import com.simplecity.amp_library.utils.PlaceholderProvider;
 import com.simplecity.amp_library.utils.SettingsManager;
 import com.simplecity.amp_library.utils.StringUtils;
 import com.simplecity.amp_library.utils.sorting.SortManager;
+import com.simplecityapps.recycler_adapter.model.ChangePayloadProvider;
+import com.simplecityapps.recycler_adapter.model.Preparable;
+import com.simplecityapps.recycler_adapter.model.StableId;
 import java.util.Arrays;
 import java.util.List;
 
-public class AlbumView extends MultiItemView<AlbumView.ViewHolder, Album> implements SectionedView {
+public class AlbumView extends MultiItemView<AlbumView.ViewHolder, Album> implements
+        SectionedView,
+        StableId,
+        ChangePayloadProvider,
+        Preparable,
+        ArtworkPreloadItem {
+
+    // Only the search prefix has changed, so only the highlighting needs to be rebound
+    private static final String PAYLOAD_PREFIX = "prefix";
 
     public interface ClickListener {
 
@@ -47,6 +62,23 @@ public class AlbumView extends MultiItemView<AlbumView.ViewHolder, Album> implem
 
     private boolean showYear;
 
+    /**
+     * The formatted text for this album's row. Immutable, so it can be prepared off the main thread.
+     */
+    static final class Labels {
+
+        final String lineTwo;
+        final String overflowDescription;
+
+        Labels(Context context, Album album, boolean showYear) {
+            lineTwo = showYear ? StringUtils.makeYearLabel(context, album.year) : album.albumArtistName;
+            overflowDescription = context.getString(com.simplecity.amp_library.R.string.btn_options, album.name);
+        }
+    }
+
+    @Nullable
+    private volatile Labels labels;
+
     @Nullable
     private ClickListener listener;
 
@@ -88,6 +120,7 @@ public class AlbumView extends MultiItemView<AlbumView.ViewHolder, Album> implem
 
     public void showYear(boolean showYear) {
         this.showYear = showYear;
+        labels = null;
     }
 
     @Override
@@ -99,11 +132,33 @@ public class AlbumView extends MultiItemView<AlbumView.ViewHolder, Album> implem
         this.viewType = viewType;
     }
 
+    @Override
+    public void prepare(@NonNull Context context) {
+        getLabels(context);
+    }
+
+    Labels getLabels(Context context) {
+        Labels labels = this.labels;
+        if (labels == null) {
+            labels = new Labels(context, album, showYear);
+            this.labels = labels;
+        }
+        return labels;
+    }
+
+    @Nullable
+    @Override
+    public ArtworkProvider getPreloadArtwork() {
+        return album;
+    }
+
     @Override
     public void bindView(final ViewHolder holder) {
 
         super.bindView(holder);
 
+        Labels labels = getLabels(holder.itemView.getContext());
+
         holder.lineOne.setText(album.name);
 
         holder.lineTwo.setVisibility(View.VISIBLE);
@@ -115,11 +170,7 @@ public class AlbumView extends MultiItemView<AlbumView.ViewHolder, Album> implem
             holder.trackCount.setVisibility(View.GONE);
         }
 
-        if (showYear) {
-            holder.lineTwo.setText(StringUtils.makeYearLabel(holder.itemView.getContext(), album.year));
-        } else {
-            holder.lineTwo.setText(album.albumArtistName);
-        }
+        holder.lineTwo.setText(labels.lineTwo);
 
         if (getViewType() == ViewType.ALBUM_PALETTE) {
             if (holder.bottomContainer != null) {
@@ -137,7 +188,7 @@ public class AlbumView extends MultiItemView<AlbumView.ViewHolder, Album> implem
                 .placeholder(PlaceholderProvider.getInstance(holder.itemView.getContext()).getPlaceHolderDrawable(album.name, false, settingsManager))
                 .into(holder.imageOne);
 
-        holder.overflowButton.setContentDescription(holder.itemView.getResources().getString(com.simplecity.amp_library.R.string.btn_options, album.name));
+        holder.overflowButton.setContentDescription(labels.overflowDescription);
 
         if (prefixHighlighter != null) {
             prefixHighlighter.setText(holder.lineOne, prefix);
@@ -150,8 +201,7 @@ public class AlbumView extends MultiItemView<AlbumView.ViewHolder, Album> implem
     @Override
     public void bindView(ViewHolder holder, int position, List payloads) {
         super.bindView(holder, position, payloads);
-        //A partial bind. Due to the areContentsEqual implementation, the only reason this is called
-        //is because the prefix changed. Update accordingly.
+        //A partial bind. Either the selection state or (see getChangePayload) the prefix changed. Update accordingly.
         if (prefixHighlighter != null) {
             prefixHighlighter.setText(holder.lineOne, prefix);
             prefixHighlighter.setText(holder.lineTwo, prefix);
@@ -224,10 +274,21 @@ public class AlbumView extends MultiItemView<AlbumView.ViewHolder, Album> implem
         return result;
     }
 
+    @Override
+    public long getStableId() {
+        return album.id;
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(Object oldItem) {
+        return equals(oldItem) ? PAYLOAD_PREFIX : null;
+    }
+
     @Override
     public boolean areContentsEqual(Object other) {
         if (other instanceof AlbumView) {
-            return album.equals(((AlbumView) other).album) && Arrays.equals(prefix, ((AlbumView) other).prefix);
+            return equals(other) && Arrays.equals(prefix, ((AlbumView) other).prefix);
         }
         return false;
     }
@@ -21,6 +21,7 @@ import com.simplecity.amp_library.model.BaseFileObject;
 import com.simplecity.amp_library.model.FileObject;
 import com.simplecity.amp_library.model.FolderObject;
 import com.simplecity.amp_library.model.InclExclItem;
+import com.simplecity.amp_library.model.TagInfo;
 import com.simplecity.amp_library.ui.adapters.ViewType;
 import com.simplecity.amp_library.ui.views.CircleImageView;
 import com.simplecity.amp_library.utils.SettingsManager;
@@ -175,7 +176,13 @@ public class FolderView extends BaseSelectableViewModel<FolderView.ViewHolder> {
             case FileType.FOLDER:
                 holder.overflow.setVisibility(View.VISIBLE);
                 holder.imageView.setImageDrawable(holder.folderDrawable);
-                holder.lineTwo.setText(StringUtils.makeSubfoldersLabel(holder.itemView.getContext(), ((FolderObject) baseFileObject).folderCount, ((FolderObject) baseFileObject).fileCount));
+                FolderObject folderObject = (FolderObject) baseFileObject;
+                if (folderObject.countsLoaded) {
+                    holder.lineTwo.setText(StringUtils.makeSubfoldersLabel(holder.itemView.getContext(), folderObject.folderCount, folderObject.fileCount));
+                } else {
+                    // The row is bound again once the folder's been counted
+                    holder.lineTwo.setText(null);
+                }
                 holder.lineThree.setVisibility(View.GONE);
                 holder.lineOne.setText(baseFileObject.name);
                 break;
@@ -183,10 +190,17 @@ public class FolderView extends BaseSelectableViewModel<FolderView.ViewHolder> {
                 holder.overflow.setVisibility(View.VISIBLE);
                 holder.imageView.setImageDrawable(holder.fileDrawable);
                 holder.lineThree.setVisibility(View.VISIBLE);
-                holder.lineOne.setText(((FileObject) baseFileObject).tagInfo.trackName);
-                holder.lineTwo.setText(String.format("%s - %s", ((FileObject) baseFileObject).tagInfo.artistName, ((FileObject) baseFileObject).tagInfo.albumName));
-                DurationTask durationTask = new DurationTask(holder.lineThree, (FileObject) baseFileObject);
-                durationTask.execute();
+                TagInfo tagInfo = ((FileObject) baseFileObject).tagInfo;
+                holder.lineOne.setText(tagInfo.trackName);
+                if (tagInfo.isPlaceholder) {
+                    // As above, once the tags have been read. Until then, ignore any duration still loading for a previous binding.
+                    holder.lineTwo.setText(null);
+                    holder.lineThree.setTag(new WeakReference<DurationTask>(null));
+                } else {
+                    holder.lineTwo.setText(String.format("%s - %s", tagInfo.artistName, tagInfo.albumName));
+                    DurationTask durationTask = new DurationTask(holder.lineThree, (FileObject) baseFileObject);
+                    durationTask.execute();
+                }
                 break;
         }
 
@@ -1,5 +1,7 @@
 package com.simplecity.amp_library.ui.modelviews;
 
+import android.content.Context;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.view.MotionEvent;
@@ -14,6 +16,8 @@ import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.simplecity.amp_library.R;
 import com.simplecity.amp_library.format.PrefixHighlighter;
+import com.simplecity.amp_library.glide.preloader.ArtworkPreloadItem;
+import com.simplecity.amp_library.model.ArtworkProvider;
 import com.simplecity.amp_library.model.Song;
 import com.simplecity.amp_library.ui.adapters.ViewType;
 import com.simplecity.amp_library.ui.views.NonScrollImageButton;
@@ -22,11 +26,22 @@ import com.simplecity.amp_library.utils.PlaceholderProvider;
 import com.simplecity.amp_library.utils.SettingsManager;
 import com.simplecity.amp_library.utils.StringUtils;
 import com.simplecity.amp_library.utils.sorting.SortManager;
+import com.simplecityapps.recycler_adapter.model.ChangePayloadProvider;
+import com.simplecityapps.recycler_adapter.model.Preparable;
+import com.simplecityapps.recycler_adapter.model.StableId;
 import com.simplecityapps.recycler_adapter.recyclerview.BaseViewHolder;
 import java.util.Arrays;
 import java.util.List;
 
-public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> implements SectionedView {
+public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> implements
+        SectionedView,
+        StableId,
+        ChangePayloadProvider,
+        Preparable,
+        ArtworkPreloadItem {
+
+    // Only the search prefix has changed, so only the highlighting needs to be rebound
+    private static final String PAYLOAD_PREFIX = "prefix";
 
     public interface ClickListener {
 
@@ -65,6 +80,27 @@ public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> imple
 
     private boolean showAlbumName = true;
 
+    /**
+     * The formatted text for this song's row. Immutable, so it can be prepared off the main thread.
+     */
+    static final class Labels {
+
+        final String lineTwo;
+        final String duration;
+        final String trackNumber;
+        final String overflowDescription;
+
+        Labels(Context context, Song song, boolean showArtistName) {
+            lineTwo = showArtistName ? song.artistName + " - " + song.albumName : song.albumName;
+            duration = song.getDurationLabel(context);
+            trackNumber = String.valueOf(song.track);
+            overflowDescription = context.getString(R.string.btn_options, song.name);
+        }
+    }
+
+    @Nullable
+    private volatile Labels labels;
+
     @Nullable
     private ClickListener listener;
 
@@ -97,6 +133,7 @@ public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> imple
 
     public void showArtistName(boolean showArtistName) {
         this.showArtistName = showArtistName;
+        labels = null;
     }
 
     public void showAlbumName(boolean showAlbumName) {
@@ -147,10 +184,32 @@ public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> imple
         return editable ? R.layout.list_item_edit : R.layout.list_item_two_lines;
     }
 
+    @Override
+    public void prepare(@NonNull Context context) {
+        getLabels(context);
+    }
+
+    Labels getLabels(Context context) {
+        Labels labels = this.labels;
+        if (labels == null) {
+            labels = new Labels(context, song, showArtistName);
+            this.labels = labels;
+        }
+        return labels;
+    }
+
+    @Nullable
+    @Override
+    public ArtworkProvider getPreloadArtwork() {
+        return showAlbumArt && settingsManager.showArtworkInQueue() ? song : null;
+    }
+
     @Override
     public void bindView(ViewHolder holder) {
         super.bindView(holder);
 
+        Labels labels = getLabels(holder.itemView.getContext());
+
         holder.lineOne.setText(song.name);
 
         if (holder.playCount != null) {
@@ -162,17 +221,14 @@ public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> imple
             }
         }
 
-        if (showArtistName && showAlbumName) {
-            holder.lineTwo.setText(String.format("%s - %s", song.artistName, song.albumName));
-            holder.lineTwo.setVisibility(View.VISIBLE);
-        } else if (showAlbumName) {
-            holder.lineTwo.setText(song.albumName);
+        if (showAlbumName) {
+            holder.lineTwo.setText(labels.lineTwo);
             holder.lineTwo.setVisibility(View.VISIBLE);
         } else {
             holder.lineTwo.setVisibility(View.GONE);
         }
 
-        holder.lineThree.setText(song.getDurationLabel(holder.itemView.getContext()));
+        holder.lineThree.setText(labels.duration);
 
         if (holder.artwork != null) {
             if (showAlbumArt && settingsManager.showArtworkInQueue()) {
@@ -186,7 +242,7 @@ public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> imple
             }
         }
 
-        holder.overflowButton.setContentDescription(holder.itemView.getResources().getString(R.string.btn_options, song.name));
+        holder.overflowButton.setContentDescription(labels.overflowDescription);
 
         if (prefixHighlighter != null) {
             prefixHighlighter.setText(holder.lineOne, prefix);
@@ -196,7 +252,7 @@ public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> imple
         if (holder.trackNumber != null) {
             if (showTrackNumber) {
                 holder.trackNumber.setVisibility(View.VISIBLE);
-                holder.trackNumber.setText(String.valueOf(song.track));
+                holder.trackNumber.setText(labels.trackNumber);
             } else {
                 holder.trackNumber.setVisibility(View.GONE);
             }
@@ -207,8 +263,7 @@ public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> imple
     public void bindView(ViewHolder holder, int position, List payloads) {
         super.bindView(holder, position, payloads);
 
-        //A partial bind. Due to the areContentsEqual implementation, the only reason this is called
-        //is because the prefix changed. Update accordingly.
+        //A partial bind. Either the selection state or (see getChangePayload) the prefix changed. Update accordingly.
         if (prefixHighlighter != null) {
             prefixHighlighter.setText(holder.lineOne, prefix);
             prefixHighlighter.setText(holder.lineTwo, prefix);
@@ -266,10 +321,21 @@ public class SongView extends BaseSelectableViewModel<SongView.ViewHolder> imple
         return "";
     }
 
+    @Override
+    public long getStableId() {
+        return song.id;
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(Object oldItem) {
+        return equals(oldItem) ? PAYLOAD_PREFIX : null;
+    }
+
     @Override
     public boolean areContentsEqual(Object other) {
         if (other instanceof SongView) {
-            return this.song.equals(((SongView) other).song)
+            return equals(other)
                     && Arrays.equals(prefix, ((SongView) other).prefix);
         }
         return false;
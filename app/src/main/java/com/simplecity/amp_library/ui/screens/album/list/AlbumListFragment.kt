@@ -15,13 +15,17 @@ import com.bumptech.glide.RequestManager
 import com.simplecity.amp_library.R
 import com.simplecity.amp_library.R.string
 import com.simplecity.amp_library.data.Repository
+import com.simplecity.amp_library.glide.preloader.ArtworkPreloadProvider
+import com.simplecity.amp_library.glide.preloader.VelocityAwarePreloader
 import com.simplecity.amp_library.model.Album
+import com.simplecity.amp_library.model.ArtworkProvider
 import com.simplecity.amp_library.model.Playlist
 import com.simplecity.amp_library.model.Song
 import com.simplecity.amp_library.playback.QueueManager
 import com.simplecity.amp_library.ui.adapters.SectionedAdapter
 import com.simplecity.amp_library.ui.adapters.ViewType
 import com.simplecity.amp_library.ui.common.BaseFragment
+import com.simplecity.amp_library.ui.common.RecycledViewPoolProvider
 import com.simplecity.amp_library.ui.dialog.AlbumBiographyDialog
 import com.simplecity.amp_library.ui.dialog.DeleteDialog
 import com.simplecity.amp_library.ui.modelviews.AlbumView
@@ -75,6 +79,8 @@ class AlbumListFragment :
 
     private var setDataDisposable: Disposable? = null
 
+    private var preloader: VelocityAwarePreloader<ArtworkProvider>? = null
+
     @Inject lateinit var presenter: AlbumsPresenter
 
     @Inject lateinit var requestManager: RequestManager
@@ -124,11 +130,15 @@ class AlbumListFragment :
         spanSizeLookup.isSpanIndexCacheEnabled = true
         layoutManager.spanSizeLookup = spanSizeLookup
 
+        (parentFragment as? RecycledViewPoolProvider)?.let { recyclerView.setRecycledViewPool(it.recycledViewPool) }
         recyclerView.adapter = adapter
         recyclerView.layoutManager = layoutManager
         recyclerView.addItemDecoration(GridDividerDecoration(resources, 4, true))
         recyclerView.setRecyclerListener(RecyclerListener())
 
+        val preloadProvider = ArtworkPreloadProvider(requestManager, adapter, recyclerView)
+        preloader = VelocityAwarePreloader(preloadProvider, preloadProvider, ARTWORK_PRELOAD_COUNT).also { recyclerView.addOnScrollListener(it) }
+
         shuffleView = ShuffleView()
         shuffleView.setTitleResId(R.string.shuffle_albums)
         shuffleView.setClickListener(this)
@@ -155,6 +165,7 @@ class AlbumListFragment :
     }
 
     override fun onDestroyView() {
+        preloader?.cancelAll()
         presenter.unbindView(this)
         super.onDestroyView()
     }
@@ -297,7 +308,7 @@ class AlbumListFragment :
 
         mediaManager.playAll(songsRepository.getSongs(null as Function1<Song, Boolean>?)
             .firstOrError()
-            .map { songs -> Operators.albumShuffleSongs(songs, sortManager) }) {
+            .map { songs -> Operators.albumShuffleSongs(songs) }) {
             // Todo: Show playback failed toast
             Unit
         }
@@ -426,6 +437,8 @@ class AlbumListFragment :
 
         private const val TAG = "AlbumListFragment"
 
+        private const val ARTWORK_PRELOAD_COUNT = 12
+
         private const val ARG_TITLE = "title"
 
         private const val MENU_GRID_SIZE = 100
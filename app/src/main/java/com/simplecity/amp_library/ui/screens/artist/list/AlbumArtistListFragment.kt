@@ -14,12 +14,16 @@ import android.widget.Toast
 import com.bumptech.glide.RequestManager
 import com.simplecity.amp_library.R
 import com.simplecity.amp_library.R.string
+import com.simplecity.amp_library.glide.preloader.ArtworkPreloadProvider
+import com.simplecity.amp_library.glide.preloader.VelocityAwarePreloader
 import com.simplecity.amp_library.model.AlbumArtist
+import com.simplecity.amp_library.model.ArtworkProvider
 import com.simplecity.amp_library.model.Playlist
 import com.simplecity.amp_library.model.Song
 import com.simplecity.amp_library.ui.adapters.SectionedAdapter
 import com.simplecity.amp_library.ui.adapters.ViewType
 import com.simplecity.amp_library.ui.common.BaseFragment
+import com.simplecity.amp_library.ui.common.RecycledViewPoolProvider
 import com.simplecity.amp_library.ui.dialog.ArtistBiographyDialog
 import com.simplecity.amp_library.ui.dialog.DeleteDialog
 import com.simplecity.amp_library.ui.modelviews.AlbumArtistView
@@ -68,6 +72,8 @@ class AlbumArtistListFragment :
 
     private var setDataDisposable: Disposable? = null
 
+    private var preloader: VelocityAwarePreloader<ArtworkProvider>? = null
+
     @Inject lateinit var requestManager: RequestManager
 
     @Inject lateinit var presenter: AlbumArtistListPresenter
@@ -114,11 +120,15 @@ class AlbumArtistListFragment :
         spanSizeLookup.isSpanIndexCacheEnabled = true
         layoutManager.spanSizeLookup = spanSizeLookup
 
+        (parentFragment as? RecycledViewPoolProvider)?.let { recyclerView.setRecycledViewPool(it.recycledViewPool) }
         recyclerView.adapter = adapter
         recyclerView.layoutManager = layoutManager
         recyclerView.addItemDecoration(GridDividerDecoration(resources, 4, true))
         recyclerView.setRecyclerListener(RecyclerListener())
 
+        val preloadProvider = ArtworkPreloadProvider(requestManager, adapter, recyclerView)
+        preloader = VelocityAwarePreloader(preloadProvider, preloadProvider, ARTWORK_PRELOAD_COUNT).also { recyclerView.addOnScrollListener(it) }
+
         presenter.bindView(this)
     }
 
@@ -141,6 +151,7 @@ class AlbumArtistListFragment :
     }
 
     override fun onDestroyView() {
+        preloader?.cancelAll()
         presenter.unbindView(this)
         super.onDestroyView()
     }
@@ -395,6 +406,8 @@ class AlbumArtistListFragment :
 
         private const val TAG = "AlbumArtistListFragment"
 
+        private const val ARTWORK_PRELOAD_COUNT = 12
+
         private const val MENU_GRID_SIZE = 100
         private const val MENU_GROUP_GRID = 1
 
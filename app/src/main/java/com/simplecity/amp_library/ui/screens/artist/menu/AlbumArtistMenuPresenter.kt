@@ -15,7 +15,6 @@ import com.simplecity.amp_library.utils.LogUtils
 import com.simplecity.amp_library.utils.Operators
 import com.simplecity.amp_library.utils.extensions.getSongs
 import com.simplecity.amp_library.utils.playlists.PlaylistManager
-import com.simplecity.amp_library.utils.sorting.SortManager
 import io.reactivex.Single
 import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.schedulers.Schedulers
@@ -26,8 +25,7 @@ class AlbumArtistMenuPresenter @Inject constructor(
     private val songsRepository: Repository.SongsRepository,
     private val mediaManager: MediaManager,
     private val blacklistRepository: Repository.BlacklistRepository,
-    private val navigationEventRelay: NavigationEventRelay,
-    private val sortManager: SortManager
+    private val navigationEventRelay: NavigationEventRelay
 
 ) : Presenter<View>(), AlbumArtistMenuContract.Presenter {
 
@@ -91,7 +89,7 @@ class AlbumArtistMenuPresenter @Inject constructor(
 
     override fun albumShuffle(albumArtist: AlbumArtist) {
         mediaManager.playAll(albumArtist.getSongs(songsRepository)
-            .map { songs -> Operators.albumShuffleSongs(songs, sortManager) }) {
+            .map { songs -> Operators.albumShuffleSongs(songs) }) {
             view?.onPlaybackFailed()
             Unit
         }
@@ -30,6 +30,8 @@ import com.simplecity.amp_library.interfaces.Breadcrumb;
 import com.simplecity.amp_library.interfaces.BreadcrumbListener;
 import com.simplecity.amp_library.interfaces.FileType;
 import com.simplecity.amp_library.model.BaseFileObject;
+import com.simplecity.amp_library.model.FileObject;
+import com.simplecity.amp_library.model.FolderObject;
 import com.simplecity.amp_library.model.InclExclItem;
 import com.simplecity.amp_library.model.Song;
 import com.simplecity.amp_library.ui.common.BaseFragment;
@@ -49,6 +51,7 @@ import com.simplecity.amp_library.utils.FileHelper;
 import com.simplecity.amp_library.utils.LogUtils;
 import com.simplecity.amp_library.utils.RingtoneManager;
 import com.simplecity.amp_library.utils.SettingsManager;
+import com.simplecity.amp_library.utils.TagInfoCache;
 import com.simplecity.amp_library.utils.extensions.SongExtKt;
 import com.simplecity.amp_library.utils.menu.MenuUtils;
 import com.simplecity.amp_library.utils.menu.folder.FolderMenuUtils;
@@ -69,7 +72,11 @@ import io.reactivex.schedulers.Schedulers;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.inject.Inject;
 import kotlin.Unit;
 import org.jetbrains.annotations.NotNull;
@@ -138,6 +145,12 @@ public class FolderFragment extends BaseFragment implements
     @Nullable
     private Disposable setItemsDisposable;
 
+    @Nullable
+    private Disposable changeDirDisposable;
+
+    @Nullable
+    private Disposable loadDetailsDisposable;
+
     @Inject
     Repository.BlacklistRepository blacklistRepository;
 
@@ -165,6 +178,9 @@ public class FolderFragment extends BaseFragment implements
     @Inject
     PlaylistMenuHelper playlistMenuHelper;
 
+    @Inject
+    TagInfoCache tagInfoCache;
+
     public static FolderFragment newInstance(String title, boolean isDisplayedInTabs) {
         FolderFragment fragment = new FolderFragment();
         Bundle args = new Bundle();
@@ -182,7 +198,7 @@ public class FolderFragment extends BaseFragment implements
 
         adapter = new ViewModelAdapter();
 
-        fileBrowser = new FileBrowser(settingsManager);
+        fileBrowser = new FileBrowser(settingsManager, tagInfoCache);
 
         if (savedInstanceState != null) {
             currentDir = savedInstanceState.getString(ARG_CURRENT_DIR);
@@ -284,6 +300,9 @@ public class FolderFragment extends BaseFragment implements
         if (setItemsDisposable != null) {
             setItemsDisposable.dispose();
         }
+        if (loadDetailsDisposable != null) {
+            loadDetailsDisposable.dispose();
+        }
         unbinder.unbind();
         super.onDestroyView();
     }
@@ -366,7 +385,16 @@ public class FolderFragment extends BaseFragment implements
 
     @SuppressLint("CheckResult")
     public void changeDir(File newDir) {
-        disposables.add(Single.zip(
+        // Stop loading the previous directory, so neither its rows, nor its details (and the re-sort of its rows which follows them), can
+        // replace this directory's once they arrive
+        if (changeDirDisposable != null) {
+            changeDirDisposable.dispose();
+        }
+        if (loadDetailsDisposable != null) {
+            loadDetailsDisposable.dispose();
+        }
+
+        changeDirDisposable = Single.zip(
                 whitelistRepository.getWhitelistItems(songsRepository).first(Collections.emptyList()),
                 blacklistRepository.getBlacklistItems(songsRepository).first(Collections.emptyList()),
                 Single.fromCallable(() -> {
@@ -378,14 +406,18 @@ public class FolderFragment extends BaseFragment implements
                     return fileBrowser.loadDir(new File(path));
                 }),
                 (Function3<List<InclExclItem>, List<InclExclItem>, List<BaseFileObject>, List<ViewModel>>) (whitelist, blacklist, baseFileObjects) -> {
+                    // Existing FolderViews, by the BaseFileObject they wrap. We'll reuse them where we can.
+                    Map<BaseFileObject, FolderView> existingFolderViews = new HashMap<>();
+                    for (ViewModel viewModel : adapter.items) {
+                        if (viewModel instanceof FolderView && !existingFolderViews.containsKey(((FolderView) viewModel).baseFileObject)) {
+                            existingFolderViews.put(((FolderView) viewModel).baseFileObject, (FolderView) viewModel);
+                        }
+                    }
+
                     List<ViewModel> items = Stream.of(baseFileObjects)
                             .map(baseFileObject -> {
 
-                                // Look for an existing FolderView wrapping the BaseFileObject, we'll reuse it if it exists.
-                                FolderView folderView = (FolderView) Stream.of(adapter.items)
-                                        .filter(viewModel -> viewModel instanceof FolderView && (((FolderView) viewModel).baseFileObject.equals(baseFileObject)))
-                                        .findFirst()
-                                        .orElse(null);
+                                FolderView folderView = existingFolderViews.get(baseFileObject);
 
                                 if (folderView == null) {
                                     folderView = new FolderView(baseFileObject, whitelistRepository, blacklistRepository, settingsManager,
@@ -412,7 +444,11 @@ public class FolderFragment extends BaseFragment implements
                         adaptableItems -> {
                             if (adapter != null) {
                                 analyticsManagerFolder.dropBreadcrumb(TAG, "setItems()");
+                                if (setItemsDisposable != null) {
+                                    setItemsDisposable.dispose();
+                                }
                                 setItemsDisposable = adapter.setItems(adaptableItems);
+                                loadDetails(adaptableItems);
                             }
                             if (breadcrumb != null) {
                                 breadcrumb.changeBreadcrumbPath(currentDir);
@@ -422,8 +458,84 @@ public class FolderFragment extends BaseFragment implements
                             }
                             updateMenuItems();
                         },
-                        error -> LogUtils.logException(TAG, "Error changing dir", error))
-        );
+                        error -> LogUtils.logException(TAG, "Error changing dir", error));
+        disposables.add(changeDirDisposable);
+    }
+
+    /**
+     * Loads the details {@link FileBrowser#loadDir(File)} skipped: subfolder counts, and the tags of files which weren't in the
+     * {@link TagInfoCache}. Rows are updated as they come in, then the list is re-sorted once they've all loaded, in case the sort order
+     * depends on them.
+     */
+    private void loadDetails(List<ViewModel> items) {
+        if (loadDetailsDisposable != null) {
+            loadDetailsDisposable.dispose();
+        }
+
+        List<BaseFileObject> baseFileObjects = new ArrayList<>();
+        for (ViewModel viewModel : items) {
+            if (viewModel instanceof FolderView) {
+                BaseFileObject baseFileObject = ((FolderView) viewModel).baseFileObject;
+                if ((baseFileObject.fileType == FileType.FOLDER && !((FolderObject) baseFileObject).countsLoaded)
+                        || (baseFileObject.fileType == FileType.FILE && ((FileObject) baseFileObject).tagInfo.isPlaceholder)) {
+                    baseFileObjects.add(baseFileObject);
+                }
+            }
+        }
+        if (baseFileObjects.isEmpty()) {
+            return;
+        }
+
+        loadDetailsDisposable = fileBrowser.loadDetails(baseFileObjects)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        batch -> {
+                            if (adapter != null) {
+                                Set<BaseFileObject> loaded = Collections.newSetFromMap(new IdentityHashMap<>());
+                                loaded.addAll(batch);
+                                for (int i = 0, size = adapter.items.size(); i < size; i++) {
+                                    ViewModel viewModel = adapter.items.get(i);
+                                    if (viewModel instanceof FolderView && loaded.contains(((FolderView) viewModel).baseFileObject)) {
+                                        adapter.notifyItemChanged(i);
+                                    }
+                                }
+                            }
+                        },
+                        error -> LogUtils.logException(TAG, "Error loading folder details", error),
+                        () -> sortItems(items));
+        disposables.add(loadDetailsDisposable);
+    }
+
+    private void sortItems(List<ViewModel> currentItems) {
+        if (adapter == null) {
+            return;
+        }
+
+        List<ViewModel> items = new ArrayList<>();
+        List<BaseFileObject> baseFileObjects = new ArrayList<>();
+        Map<BaseFileObject, ViewModel> folderViews = new IdentityHashMap<>();
+        for (ViewModel viewModel : currentItems) {
+            if (viewModel instanceof FolderView) {
+                // Folders which turned out to be empty are removed
+                if (((FolderView) viewModel).baseFileObject instanceof FolderObject && ((FolderObject) ((FolderView) viewModel).baseFileObject).isEmpty()) {
+                    continue;
+                }
+                baseFileObjects.add(((FolderView) viewModel).baseFileObject);
+                folderViews.put(((FolderView) viewModel).baseFileObject, viewModel);
+            } else {
+                items.add(viewModel);
+            }
+        }
+
+        fileBrowser.sort(baseFileObjects);
+        for (BaseFileObject baseFileObject : baseFileObjects) {
+            items.add(folderViews.get(baseFileObject));
+        }
+
+        if (setItemsDisposable != null) {
+            setItemsDisposable.dispose();
+        }
+        setItemsDisposable = adapter.setItems(items);
     }
 
     public void reload() {
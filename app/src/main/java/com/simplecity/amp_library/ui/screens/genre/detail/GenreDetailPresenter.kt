@@ -1,7 +1,7 @@
 package com.simplecity.amp_library.ui.screens.genre.detail
 
-import android.content.Context
 import android.support.v4.util.Pair
+import com.simplecity.amp_library.data.Repository
 import com.simplecity.amp_library.model.Album
 import com.simplecity.amp_library.model.Genre
 import com.simplecity.amp_library.model.Song
@@ -16,7 +16,7 @@ import com.simplecity.amp_library.ui.screens.songs.menu.SongMenuPresenter
 import com.simplecity.amp_library.utils.LogUtils
 import com.simplecity.amp_library.utils.Operators
 import com.simplecity.amp_library.utils.PermissionUtils
-import com.simplecity.amp_library.utils.extensions.getSongsObservable
+import com.simplecity.amp_library.utils.extensions.getSongs
 import com.simplecity.amp_library.utils.sorting.SortManager
 import com.squareup.inject.assisted.Assisted
 import com.squareup.inject.assisted.AssistedInject
@@ -29,7 +29,7 @@ import java.util.Random
 import java.util.concurrent.TimeUnit
 
 class GenreDetailPresenter @AssistedInject constructor(
-    private val context: Context,
+    private val songsRepository: Repository.SongsRepository,
     private val mediaManager: MediaManager,
     private val sortManager: SortManager,
     private val genreMenuPresenter: GenreMenuPresenter,
@@ -94,9 +94,9 @@ class GenreDetailPresenter @AssistedInject constructor(
     fun loadData() {
         PermissionUtils.RequestStoragePermissions {
             addDisposable(
-                genre.getSongsObservable(context)
+                genre.getSongs(songsRepository)
                     .zipWith<MutableList<Album>, Pair<MutableList<Album>, MutableList<Song>>>(
-                        genre.getSongsObservable(context).map { songs -> Operators.songsToAlbums(songs) },
+                        genre.getSongs(songsRepository).map { songs -> Operators.songsToAlbums(songs) },
                         BiFunction { songs, albums -> Pair(albums, songs.toMutableList()) }).subscribeOn(Schedulers.io())
                     .doOnSuccess { pair ->
                         sortAlbums(pair.first!!)
@@ -113,7 +113,7 @@ class GenreDetailPresenter @AssistedInject constructor(
     }
 
     private fun startSlideShow() {
-        val albumsObservable: Observable<List<Album>> = genre.getSongsObservable(context).toObservable()
+        val albumsObservable: Observable<List<Album>> = genre.getSongs(songsRepository).toObservable()
             .map { songs -> Operators.songsToAlbums(songs) }
 
         val timer: Observable<Long> = io.reactivex.Observable.interval(8, TimeUnit.SECONDS)
@@ -14,6 +14,7 @@ import com.simplecity.amp_library.model.Playlist
 import com.simplecity.amp_library.model.Song
 import com.simplecity.amp_library.ui.adapters.SectionedAdapter
 import com.simplecity.amp_library.ui.common.BaseFragment
+import com.simplecity.amp_library.ui.common.RecycledViewPoolProvider
 import com.simplecity.amp_library.ui.modelviews.EmptyView
 import com.simplecity.amp_library.ui.modelviews.GenreView
 import com.simplecity.amp_library.ui.screens.playlist.dialog.CreatePlaylistDialog
@@ -76,6 +77,7 @@ class GenreListFragment :
 
         recyclerView.layoutManager = LinearLayoutManager(context)
         recyclerView.setRecyclerListener(RecyclerListener())
+        (parentFragment as? RecycledViewPoolProvider)?.let { recyclerView.setRecycledViewPool(it.recycledViewPool) }
         recyclerView.adapter = adapter
 
         presenter.bindView(this)
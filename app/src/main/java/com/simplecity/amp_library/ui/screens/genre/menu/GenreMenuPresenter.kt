@@ -1,6 +1,6 @@
 package com.simplecity.amp_library.ui.screens.genre.menu
 
-import android.content.Context
+import com.simplecity.amp_library.data.Repository
 import com.simplecity.amp_library.model.Genre
 import com.simplecity.amp_library.model.Playlist
 import com.simplecity.amp_library.model.Song
@@ -15,7 +15,7 @@ import io.reactivex.schedulers.Schedulers
 import javax.inject.Inject
 
 class GenreMenuPresenter @Inject constructor(
-    private val context: Context,
+    private val songsRepository: Repository.SongsRepository,
     private val mediaManager: MediaManager,
     private val playlistManager: PlaylistManager
 ) : Presenter<GenreMenuContract.View>(), GenreMenuContract.Presenter {
@@ -42,7 +42,7 @@ class GenreMenuPresenter @Inject constructor(
     }
 
     override fun play(genre: Genre) {
-        mediaManager.playAll(genre.getSongs(context)) {
+        mediaManager.playAll(genre.getSongs(songsRepository)) {
             view?.onPlaybackFailed()
         }
     }
@@ -57,7 +57,7 @@ class GenreMenuPresenter @Inject constructor(
 
     private fun getSongs(genre: Genre, onSuccess: (songs: List<Song>) -> Unit) {
         addDisposable(
-            genre.getSongs(context)
+            genre.getSongs(songsRepository)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(
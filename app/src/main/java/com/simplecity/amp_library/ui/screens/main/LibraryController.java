@@ -13,6 +13,7 @@ import android.support.v4.util.Pair;
 import android.support.v4.view.ViewCompat;
 import android.support.v4.view.ViewPager;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.Toolbar;
 import android.transition.Transition;
 import android.transition.TransitionInflater;
@@ -38,7 +39,9 @@ import com.simplecity.amp_library.model.CategoryItem;
 import com.simplecity.amp_library.model.Genre;
 import com.simplecity.amp_library.model.Playlist;
 import com.simplecity.amp_library.ui.adapters.PagerAdapter;
+import com.simplecity.amp_library.ui.adapters.ViewType;
 import com.simplecity.amp_library.ui.common.BaseFragment;
+import com.simplecity.amp_library.ui.common.RecycledViewPoolProvider;
 import com.simplecity.amp_library.ui.common.ToolbarListener;
 import com.simplecity.amp_library.ui.screens.album.detail.AlbumDetailFragment;
 import com.simplecity.amp_library.ui.screens.album.list.AlbumListFragment;
@@ -77,12 +80,16 @@ public class LibraryController extends BaseFragment implements
         SuggestedFragment.SuggestedClickListener,
         PlaylistListFragment.PlaylistClickListener,
         GenreListFragment.GenreClickListener,
-        ContextualToolbarHost {
+        ContextualToolbarHost,
+        RecycledViewPoolProvider {
 
     private static final String TAG = "LibraryController";
 
     public static final String EVENT_TABS_CHANGED = "tabs_changed";
 
+    // The songs tab shows more rows per screen than the default pool size (5) allows for
+    private static final int MAX_RECYCLED_SONG_VIEWS = 20;
+
     @BindView(R.id.tabs)
     TabLayout slidingTabLayout;
 
@@ -120,6 +127,8 @@ public class LibraryController extends BaseFragment implements
 
     private PagerAdapter pagerAdapter;
 
+    private RecyclerView.RecycledViewPool recycledViewPool;
+
     public static FragmentInfo fragmentInfo() {
         return new FragmentInfo(LibraryController.class, null, "LibraryController");
     }
@@ -144,6 +153,9 @@ public class LibraryController extends BaseFragment implements
 
         unbinder = ButterKnife.bind(this, rootView);
 
+        recycledViewPool = new RecyclerView.RecycledViewPool();
+        recycledViewPool.setMaxRecycledViews(ViewType.SONG, MAX_RECYCLED_SONG_VIEWS);
+
         ((AppCompatActivity) getActivity()).setSupportActionBar(toolbar);
 
         setupViewPager();
@@ -312,4 +324,9 @@ public class LibraryController extends BaseFragment implements
     public ContextualToolbar getContextualToolbar() {
         return contextualToolbar;
     }
+
+    @Override
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return recycledViewPool;
+    }
 }
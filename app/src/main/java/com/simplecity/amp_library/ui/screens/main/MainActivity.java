@@ -1,6 +1,7 @@
 package com.simplecity.amp_library.ui.screens.main;
 
 import android.annotation.SuppressLint;
+import android.app.ProgressDialog;
 import android.content.ComponentName;
 import android.content.ContentUris;
 import android.content.Intent;
@@ -16,6 +17,7 @@ import android.support.v7.app.ActionBarDrawerToggle;
 import android.support.v7.widget.Toolbar;
 import android.util.Log;
 import android.view.View;
+import android.widget.Toast;
 import com.afollestad.aesthetic.Aesthetic;
 import com.greysonparrelli.permiso.Permiso;
 import com.simplecity.amp_library.BuildConfig;
@@ -37,10 +39,12 @@ import com.simplecity.amp_library.utils.MusicServiceConnectionUtils;
 import com.simplecity.amp_library.utils.SettingsManager;
 import com.simplecity.amp_library.utils.ThemeUtils;
 import com.simplecity.amp_library.utils.playlists.PlaylistManager;
+import com.simplecity.amp_library.utils.playlists.io.PlaylistFormat;
 import dagger.android.AndroidInjection;
 import io.reactivex.Single;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.schedulers.Schedulers;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -79,6 +83,9 @@ public class MainActivity extends BaseActivity implements
     @Inject
     SettingsManager settingsManagerMain;
 
+    @Inject
+    PlaylistManager playlistManager;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         AndroidInjection.inject(this);
@@ -92,6 +99,7 @@ public class MainActivity extends BaseActivity implements
             ThemeUtils.Theme theme = ThemeUtils.getRandom();
 
             Aesthetic.get(this)
+                    .beginTransaction()
                     .activityTheme(theme.isDark ? R.style.AppTheme : R.style.AppTheme_Light)
                     .isDark(theme.isDark)
                     .colorPrimaryRes(theme.primaryColor)
@@ -213,7 +221,11 @@ public class MainActivity extends BaseActivity implements
         final String mimeType = intent.getType();
 
         if (uri != null && uri.toString().length() > 0) {
-            mediaManager.playFile(uri);
+            if ("file".equals(uri.getScheme()) && uri.getPath() != null && PlaylistFormat.forFileName(uri.getPath()) != null) {
+                runOnUiThread(() -> importPlaylist(new File(uri.getPath())));
+            } else {
+                mediaManager.playFile(uri);
+            }
             // Make sure to process intent only once
             setIntent(new Intent());
         } else if (MediaStore.Audio.Playlists.CONTENT_TYPE.equals(mimeType)) {
@@ -242,6 +254,37 @@ public class MainActivity extends BaseActivity implements
         hasPendingPlaybackRequest = false;
     }
 
+    /**
+     * Creates a playlist from the playlist file, and shows it. Must be called on the main thread.
+     */
+    @SuppressLint("CheckResult")
+    private void importPlaylist(File file) {
+        ProgressDialog progressDialog = new ProgressDialog(this);
+        progressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        progressDialog.setMax(100);
+        progressDialog.setMessage(getString(R.string.playlist_importing));
+        progressDialog.setCancelable(false);
+        progressDialog.show();
+
+        playlistManager.importPlaylist(file, percent -> {
+            progressDialog.setProgress(percent);
+            return Unit.INSTANCE;
+        })
+                .subscribe(
+                        result -> {
+                            progressDialog.dismiss();
+                            Playlist playlist = result.getFirst();
+                            Toast.makeText(this, getString(R.string.playlist_imported, result.getSecond(), playlist.name), Toast.LENGTH_LONG).show();
+                            navigationEventRelay.sendEvent(new NavigationEventRelay.NavigationEvent(NavigationEventRelay.NavigationEvent.Type.PLAYLIST_SELECTED, playlist, true));
+                        },
+                        error -> {
+                            progressDialog.dismiss();
+                            LogUtils.logException(TAG, "Error importing playlist", error);
+                            Toast.makeText(this, R.string.playlist_import_failed, Toast.LENGTH_SHORT).show();
+                        }
+                );
+    }
+
     private long parseIdFromIntent(Intent intent, String longKey, String stringKey) {
         long id = intent.getLongExtra(longKey, -1);
         if (id < 0) {
@@ -18,6 +18,7 @@ import butterknife.BindView;
 import butterknife.ButterKnife;
 import com.cantrowitz.rxbroadcast.RxBroadcast;
 import com.simplecity.amp_library.R;
+import com.simplecity.amp_library.glide.palette.ColorSetCache;
 import com.simplecity.amp_library.model.Album;
 import com.simplecity.amp_library.model.AlbumArtist;
 import com.simplecity.amp_library.model.Genre;
@@ -83,6 +84,9 @@ public class MainController extends BaseNavigationController implements BackPres
     @Inject
     SettingsManager settingsManager;
 
+    @Inject
+    ColorSetCache colorSetCache;
+
     private Handler delayHandler;
 
     @BindView(R.id.multiSheetView)
@@ -131,7 +135,7 @@ public class MainController extends BaseNavigationController implements BackPres
         }
 
         ((ViewGroup) multiSheetView.findViewById(multiSheetView.getSheetPeekViewResId(MultiSheetView.Sheet.SECOND))).addView(
-                UpNextView.Companion.newInstance(getContext(), playerPresenter, settingsManager));
+                UpNextView.Companion.newInstance(getContext(), playerPresenter, settingsManager, colorSetCache));
 
         toggleBottomSheetVisibility(false, false);
 
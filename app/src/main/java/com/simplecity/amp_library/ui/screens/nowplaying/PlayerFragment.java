@@ -45,6 +45,7 @@ import com.simplecity.amp_library.R;
 import com.simplecity.amp_library.cast.CastManager;
 import com.simplecity.amp_library.data.Repository;
 import com.simplecity.amp_library.glide.palette.ColorSet;
+import com.simplecity.amp_library.glide.palette.ColorSetCache;
 import com.simplecity.amp_library.glide.palette.ColorSetTranscoder;
 import com.simplecity.amp_library.model.Playlist;
 import com.simplecity.amp_library.model.Song;
@@ -165,6 +166,9 @@ public class PlayerFragment extends BaseFragment implements
     @Inject
     SettingsManager settingsManager;
 
+    @Inject
+    ColorSetCache colorSetCache;
+
     private Unbinder unbinder;
 
     ColorSet colorSet = ColorSet.Companion.empty();
@@ -504,14 +508,20 @@ public class PlayerFragment extends BaseFragment implements
                 Glide.clear(paletteTarget);
             }
 
-            Glide.with(this)
-                    .load(song)
-                    .asBitmap()
-                    .transcode(new ColorSetTranscoder(getContext()), ColorSet.class)
-                    .override(250, 250)
-                    .priority(Priority.HIGH)
-                    .diskCacheStrategy(DiskCacheStrategy.ALL)
-                    .into(paletteTarget);
+            ColorSet cachedColorSet = colorSetCache.get(getContext(), song);
+            if (cachedColorSet != null) {
+                paletteTarget.onResourceReady(cachedColorSet, null);
+            } else {
+                Glide.with(this)
+                        .load(song)
+                        .asBitmap()
+                        .transcode(new ColorSetTranscoder(getContext()), ColorSet.class)
+                        .override(250, 250)
+                        .priority(Priority.HIGH)
+                        .diskCacheStrategy(DiskCacheStrategy.ALL)
+                        .listener(colorSetCache.getRequestListener())
+                        .into(paletteTarget);
+            }
         }
     }
 
@@ -674,6 +684,7 @@ public class PlayerFragment extends BaseFragment implements
                                 if (!isAdded() || getContext() == null) return;
 
                                 Aesthetic.get(getContext())
+                                        .beginTransaction()
                                         .colorPrimary(intermediateColorSet.getPrimaryColor())
                                         .colorAccent(intermediateColorSet.getAccentColor())
                                         .colorStatusBarAuto().apply();
@@ -17,6 +17,9 @@ import com.simplecity.amp_library.di.app.activity.fragment.FragmentScope
 import com.simplecity.amp_library.model.Playlist
 import com.simplecity.amp_library.model.Song
 import com.simplecity.amp_library.utils.LogUtils
+import com.simplecity.amp_library.utils.playlists.io.PlaylistEntry
+import com.simplecity.amp_library.utils.playlists.io.PlaylistFormat
+import com.simplecity.amp_library.utils.playlists.io.PlaylistWriter
 import dagger.Binds
 import dagger.Module
 import dagger.android.support.AndroidSupportInjection
@@ -25,7 +28,6 @@ import io.reactivex.disposables.Disposable
 import io.reactivex.functions.Function
 import io.reactivex.schedulers.Schedulers
 import java.io.File
-import java.io.FileWriter
 import java.io.IOException
 import javax.inject.Inject
 import javax.inject.Named
@@ -84,25 +86,11 @@ class M3uPlaylistDialog : DialogFragment() {
                         }
 
                         try {
-                            val fileWriter = FileWriter(playlistFile)
-                            val body = StringBuilder()
-                            body.append("#EXTM3U\n")
-
-                            for (song in songs) {
-                                body.append("#EXTINF:")
-                                    .append(song.duration / 1000)
-                                    .append(",")
-                                    .append(song.name)
-                                    .append(" - ")
-                                    .append(song.artistName)
-                                    .append("\n")
-                                    //Todo: Use relative paths instead of absolute
-                                    .append(song.path)
-                                    .append("\n")
+                            PlaylistWriter(playlistFile!!, PlaylistFormat.M3U, true).use { writer ->
+                                for (song in songs) {
+                                    writer.write(PlaylistEntry(song.path, song.name + " - " + song.artistName, song.duration / 1000))
+                                }
                             }
-                            fileWriter.append(body)
-                            fileWriter.flush()
-                            fileWriter.close()
                         } catch (e: IOException) {
                             Log.e(TAG, "Failed to write file: $e")
                         }
@@ -13,6 +13,7 @@ import com.simplecity.amp_library.R
 import com.simplecity.amp_library.data.Repository
 import com.simplecity.amp_library.model.Playlist
 import com.simplecity.amp_library.ui.common.BaseFragment
+import com.simplecity.amp_library.ui.common.RecycledViewPoolProvider
 import com.simplecity.amp_library.ui.dialog.WeekSelectorDialog
 import com.simplecity.amp_library.ui.modelviews.PlaylistView
 import com.simplecity.amp_library.ui.screens.playlist.dialog.DeletePlaylistConfirmationDialog
@@ -75,6 +76,7 @@ class PlaylistListFragment :
 
         (view as RecyclerView).layoutManager = LinearLayoutManager(context)
         view.setRecyclerListener(RecyclerListener())
+        (parentFragment as? RecycledViewPoolProvider)?.let { view.setRecycledViewPool(it.recycledViewPool) }
         view.adapter = adapter
 
         presenter.bindView(this)
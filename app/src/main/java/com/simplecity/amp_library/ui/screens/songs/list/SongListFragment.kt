@@ -13,10 +13,15 @@ import android.view.ViewGroup
 import android.widget.Toast
 import com.bumptech.glide.RequestManager
 import com.simplecity.amp_library.R
+import com.simplecity.amp_library.glide.preloader.ArtworkPreloadProvider
+import com.simplecity.amp_library.glide.preloader.VelocityAwarePreloader
+import com.simplecity.amp_library.model.ArtworkProvider
 import com.simplecity.amp_library.model.Playlist
 import com.simplecity.amp_library.model.Song
 import com.simplecity.amp_library.ui.adapters.SectionedAdapter
+import com.simplecity.amp_library.ui.adapters.ViewType
 import com.simplecity.amp_library.ui.common.BaseFragment
+import com.simplecity.amp_library.ui.common.RecycledViewPoolProvider
 import com.simplecity.amp_library.ui.dialog.DeleteDialog
 import com.simplecity.amp_library.ui.dialog.SongInfoDialog
 import com.simplecity.amp_library.ui.modelviews.EmptyView
@@ -62,6 +67,8 @@ class SongListFragment :
 
     private var setDataDisposable: Disposable? = null
 
+    private var preloader: VelocityAwarePreloader<ArtworkProvider>? = null
+
     private var playlistMenuDisposable: Disposable? = null
 
     private val menuDisposables = CompositeDisposable()
@@ -100,8 +107,12 @@ class SongListFragment :
 
         recyclerView.layoutManager = LinearLayoutManager(context)
         recyclerView.setRecyclerListener(RecyclerListener())
+        (parentFragment as? RecycledViewPoolProvider)?.let { recyclerView.setRecycledViewPool(it.recycledViewPool) }
         recyclerView.adapter = adapter
 
+        val preloadProvider = ArtworkPreloadProvider(requestManager, adapter, recyclerView)
+        preloader = VelocityAwarePreloader(preloadProvider, preloadProvider, ARTWORK_PRELOAD_COUNT).also { recyclerView.addOnScrollListener(it) }
+
         songsPresenter.bindView(this)
     }
 
@@ -127,6 +138,7 @@ class SongListFragment :
     }
 
     override fun onDestroyView() {
+        preloader?.cancelAll()
         songsPresenter.unbindView(this)
         super.onDestroyView()
     }
@@ -237,6 +249,7 @@ class SongListFragment :
                     if (scrollToTop) {
                         recyclerView.smoothScrollToPosition(0)
                     }
+                    adapter.prewarm(recyclerView, ViewType.SONG, PREWARM_SONG_VIEWS)
                 }
             })
         }
@@ -334,6 +347,11 @@ class SongListFragment :
 
         private const val TAG = "SongFragment"
 
+        // Song rows created ahead of time, while idle, so the first fling doesn't have to inflate them
+        private const val PREWARM_SONG_VIEWS = 10
+
+        private const val ARTWORK_PRELOAD_COUNT = 10
+
         private const val ARG_TITLE = "title"
 
         fun newInstance(title: String) = SongListFragment().withArgs {
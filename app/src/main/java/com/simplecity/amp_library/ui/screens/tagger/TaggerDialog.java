@@ -25,7 +25,6 @@ import com.simplecity.amp_library.R;
 import com.simplecity.amp_library.model.Album;
 import com.simplecity.amp_library.model.AlbumArtist;
 import com.simplecity.amp_library.model.Song;
-import com.simplecity.amp_library.utils.CustomMediaScanner;
 import com.simplecity.amp_library.utils.LogUtils;
 import com.simplecity.amp_library.utils.SettingsManager;
 import dagger.android.support.AndroidSupportInjection;
@@ -339,15 +338,14 @@ public class TaggerDialog extends DialogFragment {
                 saveProgressDialog.setMax(originalSongPaths.size());
                 saveProgressDialog.setIndeterminate(false);
                 saveProgressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
-                saveProgressDialog.setCancelable(false);
+                saveProgressDialog.setCancelable(true);
+                saveProgressDialog.setCanceledOnTouchOutside(false);
                 saveProgressDialog.show();
 
                 TaggerTask.TagCompletionListener listener = new TaggerTask.TagCompletionListener() {
                     @Override
                     public void onSuccess() {
 
-                        CustomMediaScanner.scanFiles(getContext(), originalSongPaths, null);
-
                         if (getContext() != null && isResumed()) {
                             saveProgressDialog.dismiss();
 
@@ -365,6 +363,14 @@ public class TaggerDialog extends DialogFragment {
                         }
                     }
 
+                    @Override
+                    public void onCancelled(int written) {
+
+                        if (getContext() != null && isResumed()) {
+                            Toast.makeText(getContext(), getString(R.string.tag_save_cancelled, written, originalSongPaths.size()), Toast.LENGTH_LONG).show();
+                        }
+                    }
+
                     @Override
                     public void onProgress(int progress) {
                         saveProgressDialog.setProgress(progress);
@@ -390,6 +396,7 @@ public class TaggerDialog extends DialogFragment {
                         .genre(genreEditText.getText().toString())
                         .listener(listener)
                         .build();
+                saveProgressDialog.setOnCancelListener(dialog -> taggerTask.cancel());
                 taggerTask.execute();
             } else {
                 TaggerUtils.showChooseDocumentDialog(getContext(), (dialog1, which1) -> {
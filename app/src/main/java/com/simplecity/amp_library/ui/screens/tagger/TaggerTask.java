@@ -1,16 +1,23 @@
 package com.simplecity.amp_library.ui.screens.tagger;
 
 import android.content.Context;
-import android.os.AsyncTask;
 import android.os.ParcelFileDescriptor;
 import android.support.v4.provider.DocumentFile;
+import android.support.v4.util.Pair;
 import com.simplecity.amp_library.model.TagUpdate;
-import io.reactivex.annotations.NonNull;
+import com.simplecity.amp_library.utils.CustomMediaScanner;
+import com.simplecity.amp_library.utils.LogUtils;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.jaudiotagger.audio.AudioFile;
 import org.jaudiotagger.audio.AudioFileIO;
 import org.jaudiotagger.audio.exceptions.CannotReadException;
@@ -20,16 +27,38 @@ import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
 import org.jaudiotagger.tag.Tag;
 import org.jaudiotagger.tag.TagException;
 
-public class TaggerTask extends AsyncTask<Object, Integer, Boolean> {
+/**
+ * Writes the edited tags to a batch of files, on a small pool of workers.
+ * <p>
+ * Whether the files need to be written through the document tree is worked out once for the whole batch. Files which have changed are
+ * rescanned together once the batch completes.
+ */
+public class TaggerTask {
+
+    private static final String TAG = "TaggerTask";
 
     public interface TagCompletionListener {
         void onSuccess();
 
         void onFailure();
 
+        /**
+         * Called instead of {@link #onSuccess()} or {@link #onFailure()} if the batch was cancelled before every file was written.
+         *
+         * @param written the number of files which were written before the batch stopped
+         */
+        void onCancelled(int written);
+
         void onProgress(int progress);
     }
 
+    // Each worker holds a file's tag in memory while writing it, so only a few run at once.
+    private static final int WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private enum Result {
+        WRITTEN, UNCHANGED, FAILED, CANCELLED
+    }
+
     private Context applicationContext;
 
     private TagCompletionListener tagCompletionListener;
@@ -39,7 +68,6 @@ public class TaggerTask extends AsyncTask<Object, Integer, Boolean> {
 
     private List<String> paths;
     private List<DocumentFile> documentFiles;
-    private List<File> tempFiles = new ArrayList<>();
 
     private String titleText;
     private String albumText;
@@ -54,6 +82,9 @@ public class TaggerTask extends AsyncTask<Object, Integer, Boolean> {
     private String commentText;
     private String genreText;
 
+    // Files which have already started are allowed to finish, so a cancelled write never leaves a file half copied.
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
     public TaggerTask(Context context) {
         this.applicationContext = context.getApplicationContext();
     }
@@ -85,118 +116,160 @@ public class TaggerTask extends AsyncTask<Object, Integer, Boolean> {
         this.tagCompletionListener = listener;
     }
 
-    @Override
-    protected Boolean doInBackground(Object... params) {
+    /**
+     * Starts writing the batch. The listener is called on the main thread.
+     * <p>
+     * Use {@link #cancel()} to stop the batch early; disposing interrupts the files being written.
+     */
+    public Disposable execute() {
+        List<String> writtenPaths = new ArrayList<>();
+        int[] completed = new int[1];
+        boolean[] success = new boolean[1];
+        boolean[] skipped = new boolean[1];
+
+        return Single.fromCallable(() -> TaggerUtils.requiresPermission(applicationContext, paths))
+                .flatMapObservable(requiresPermission -> Observable.range(0, paths.size())
+                        .flatMap(i -> Single.fromCallable(() -> Pair.create(i, writeTags(i, requiresPermission)))
+                                .subscribeOn(Schedulers.io())
+                                .toObservable(), WORKERS))
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                        result -> {
+                            if (result.second == Result.WRITTEN) {
+                                writtenPaths.add(paths.get(result.first));
+                            }
+                            if (result.second == Result.CANCELLED) {
+                                skipped[0] = true;
+                            } else if (result.second != Result.FAILED) {
+                                success[0] = true;
+                            }
+                            completed[0]++;
+                            if (tagCompletionListener != null) {
+                                tagCompletionListener.onProgress(completed[0]);
+                            }
+                        },
+                        error -> {
+                            LogUtils.logException(TAG, "Failed to write tags", error);
+                            onComplete(writtenPaths, false, false);
+                        },
+                        () -> onComplete(writtenPaths, success[0], skipped[0])
+                );
+    }
 
-        boolean success = false;
+    /**
+     * Stops the batch after the files which are currently being written. Those files are still rescanned, and the listener is notified
+     * via {@link TagCompletionListener#onCancelled(int)}.
+     */
+    public void cancel() {
+        cancelled.set(true);
+    }
 
-        boolean requiresPermission = TaggerUtils.requiresPermission(applicationContext, paths);
+    private void onComplete(List<String> writtenPaths, boolean success, boolean cancelled) {
+        if (!writtenPaths.isEmpty()) {
+            CustomMediaScanner.scanFiles(applicationContext, writtenPaths, null);
+        }
 
-        for (int i = 0; i < paths.size(); i++) {
-            final String path = paths.get(i);
-            try {
+        if (tagCompletionListener != null) {
+            if (cancelled) {
+                tagCompletionListener.onCancelled(writtenPaths.size());
+            } else if (success) {
+                tagCompletionListener.onSuccess();
+            } else {
+                tagCompletionListener.onFailure();
+            }
+        }
+    }
 
-                File orig = new File(path);
-                AudioFile audioFile = AudioFileIO.read(orig);
-                Tag tag = audioFile.getTag();
-                if (tag == null) {
-                    break;
-                }
+    private Result writeTags(int index, boolean requiresPermission) {
+        if (cancelled.get()) {
+            return Result.CANCELLED;
+        }
 
-                TagUpdate tagUpdate = new TagUpdate(tag);
+        File temp = null;
+        try {
+            File orig = new File(paths.get(index));
+            AudioFile audioFile = AudioFileIO.read(orig);
+            Tag tag = audioFile.getTag();
+            if (tag == null) {
+                return Result.FAILED;
+            }
 
-                tagUpdate.softSetArtist(artistText);
-                tagUpdate.softSetAlbumArtist(albumArtistText);
-                tagUpdate.softSetGenre(genreText);
-                tagUpdate.softSetYear(yearText);
+            TagUpdate tagUpdate = new TagUpdate(tag);
 
-                if (showAlbum) {
-                    tagUpdate.softSetAlbum(albumText);
-                    tagUpdate.softSetDiscTotal(discTotalText);
-                }
+            tagUpdate.softSetArtist(artistText);
+            tagUpdate.softSetAlbumArtist(albumArtistText);
+            tagUpdate.softSetGenre(genreText);
+            tagUpdate.softSetYear(yearText);
 
-                if (showTrack) {
-                    tagUpdate.softSetTitle(titleText);
-                    tagUpdate.softSetTrack(trackText);
-                    tagUpdate.softSetTrackTotal(trackTotalText);
-                    tagUpdate.softSetDisc(discText);
-                    tagUpdate.softSetLyrics(lyricsText);
-                    tagUpdate.softSetComment(commentText);
-                }
+            if (showAlbum) {
+                tagUpdate.softSetAlbum(albumText);
+                tagUpdate.softSetDiscTotal(discTotalText);
+            }
 
-                File temp = null;
-                if (tagUpdate.hasChanged()) {
-
-                    if (TaggerUtils.requiresPermission(applicationContext, paths)) {
-                        temp = new File(applicationContext.getFilesDir(), orig.getName());
-                        tempFiles.add(temp);
-                        TaggerUtils.copyFile(orig, temp);
-
-                        audioFile = AudioFileIO.read(temp);
-                        tag = audioFile.getTag();
-                        if (tag == null) {
-                            break;
-                        }
-                    }
-
-                    tagUpdate.updateTag(tag);
-                    AudioFileIO.write(audioFile);
-
-                    if (requiresPermission && temp != null) {
-                        DocumentFile documentFile = documentFiles.get(i);
-                        if (documentFile != null) {
-                            ParcelFileDescriptor pfd = applicationContext.getContentResolver().openFileDescriptor(documentFile.getUri(), "w");
-                            if (pfd != null) {
-                                FileOutputStream fileOutputStream = new FileOutputStream(pfd.getFileDescriptor());
-                                TaggerUtils.copyFile(temp, fileOutputStream);
-                                pfd.close();
-                            }
-                            if (temp.delete()) {
-                                if (tempFiles.contains(temp)) {
-                                    tempFiles.remove(temp);
-                                }
-                            }
-                        }
-                    }
-                }
+            if (showTrack) {
+                tagUpdate.softSetTitle(titleText);
+                tagUpdate.softSetTrack(trackText);
+                tagUpdate.softSetTrackTotal(trackTotalText);
+                tagUpdate.softSetDisc(discText);
+                tagUpdate.softSetLyrics(lyricsText);
+                tagUpdate.softSetComment(commentText);
+            }
 
-                publishProgress(i);
-                success = true;
-            } catch (CannotWriteException | IOException | CannotReadException | InvalidAudioFrameException | TagException | ReadOnlyFileException e) {
-                e.printStackTrace();
-            } finally {
-                //Try to clean up our temp files
-                if (tempFiles != null && tempFiles.size() != 0) {
-                    for (int j = tempFiles.size() - 1; j >= 0; j--) {
-                        File file = tempFiles.get(j);
-                        file.delete();
-                        tempFiles.remove(j);
-                    }
+            if (!tagUpdate.hasChanged()) {
+                return Result.UNCHANGED;
+            }
+
+            if (requiresPermission) {
+                // Files without direct write access are written to a temp copy, which is then streamed back through the document tree.
+                // Temp files are uniquely named, as files in the batch may share a name.
+                temp = File.createTempFile("tag", "." + getExtension(orig), applicationContext.getFilesDir());
+                TaggerUtils.copyFile(orig, temp);
+
+                audioFile = AudioFileIO.read(temp);
+                tag = audioFile.getTag();
+                if (tag == null) {
+                    return Result.FAILED;
                 }
             }
-        }
 
-        return success;
-    }
+            tagUpdate.updateTag(tag);
+            AudioFileIO.write(audioFile);
 
-    @Override
-    protected void onPostExecute(Boolean success) {
+            if (temp != null) {
+                DocumentFile documentFile = documentFiles.get(index);
+                if (documentFile == null) {
+                    return Result.FAILED;
+                }
+                ParcelFileDescriptor pfd = applicationContext.getContentResolver().openFileDescriptor(documentFile.getUri(), "w");
+                if (pfd == null) {
+                    return Result.FAILED;
+                }
+                try {
+                    TaggerUtils.copyFile(temp, new FileOutputStream(pfd.getFileDescriptor()));
+                } finally {
+                    pfd.close();
+                }
+            }
 
-        if (tagCompletionListener != null) {
-            if (success) {
-                tagCompletionListener.onSuccess();
-            } else {
-                tagCompletionListener.onFailure();
+            return Result.WRITTEN;
+        } catch (CannotWriteException | IOException | CannotReadException | InvalidAudioFrameException | TagException | ReadOnlyFileException
+                | RuntimeException e) {
+            // jaudiotagger throws runtime exceptions for some malformed files, which mustn't end the rest of the batch
+            LogUtils.logException(TAG, "Failed to write tags for " + paths.get(index), e);
+            return Result.FAILED;
+        } finally {
+            //Try to clean up our temp file
+            if (temp != null) {
+                temp.delete();
             }
         }
     }
 
-    @Override
-    protected void onProgressUpdate(Integer... object) {
-
-        if (tagCompletionListener != null) {
-            tagCompletionListener.onProgress(object[0] + 1);
-        }
+    private static String getExtension(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot == -1 ? "" : name.substring(dot + 1);
     }
 
     //Builders
@@ -182,7 +182,7 @@ public class TaggerUtils {
         try {
             source = new FileInputStream(sourceFile).getChannel();
             destination = new FileOutputStream(destFile).getChannel();
-            destination.transferFrom(source, 0, source.size());
+            transfer(source, destination);
         } finally {
             if (source != null) {
                 source.close();
@@ -201,7 +201,7 @@ public class TaggerUtils {
         try {
             source = new FileInputStream(sourceFile).getChannel();
             destination = outputStream.getChannel();
-            destination.transferFrom(source, 0, source.size());
+            transfer(source, destination);
         } finally {
             if (source != null) {
                 source.close();
@@ -212,6 +212,22 @@ public class TaggerUtils {
         }
     }
 
+    /**
+     * Streams the source channel into the destination. A single transferFrom() may copy less than requested, so it's called until the
+     * whole source has been copied.
+     */
+    private static void transfer(FileChannel source, FileChannel destination) throws IOException {
+        long size = source.size();
+        long position = 0;
+        while (position < size) {
+            long transferred = destination.transferFrom(source, position, size - position);
+            if (transferred <= 0) {
+                throw new IOException("Copy stopped at " + position + " of " + size + " bytes");
+            }
+            position += transferred;
+        }
+    }
+
     static void showChooseDocumentDialog(Context context, MaterialDialog.SingleButtonCallback listener, boolean hasChecked) {
         MaterialDialog.Builder builder = new MaterialDialog.Builder(context)
                 .title(R.string.edit_tags)
@@ -29,6 +29,7 @@ import com.jakewharton.rxbinding2.widget.SeekBarStopChangeEvent
 import com.simplecity.amp_library.R
 import com.simplecity.amp_library.ShuttleApplication
 import com.simplecity.amp_library.glide.palette.ColorSet
+import com.simplecity.amp_library.glide.palette.ColorSetCache
 import com.simplecity.amp_library.glide.palette.ColorSetTranscoder
 import com.simplecity.amp_library.model.Song
 import com.simplecity.amp_library.rx.UnsafeAction
@@ -65,6 +66,8 @@ class UpNextView constructor(context: Context, attrs: AttributeSet? = null, defS
 
     private lateinit var settingsManager: SettingsManager
 
+    private lateinit var colorSetCache: ColorSetCache
+
     private var isSeeking: Boolean = false
 
     private val arrowDrawable: Drawable
@@ -146,14 +149,20 @@ class UpNextView constructor(context: Context, attrs: AttributeSet? = null, defS
 
                     Glide.clear(paletteTarget)
 
-                    Glide.with(getContext())
-                        .load(song)
-                        .asBitmap()
-                        .transcode(ColorSetTranscoder(getContext()), ColorSet::class.java)
-                        .override(250, 250)
-                        .priority(Priority.HIGH)
-                        .diskCacheStrategy(DiskCacheStrategy.ALL)
-                        .into(paletteTarget)
+                    val cachedColorSet = song?.let { colorSetCache.get(getContext(), it) }
+                    if (cachedColorSet != null) {
+                        paletteTarget.onResourceReady(cachedColorSet, null)
+                    } else {
+                        Glide.with(getContext())
+                            .load(song)
+                            .asBitmap()
+                            .transcode(ColorSetTranscoder(getContext()), ColorSet::class.java)
+                            .override(250, 250)
+                            .priority(Priority.HIGH)
+                            .diskCacheStrategy(DiskCacheStrategy.ALL)
+                            .listener(colorSetCache.requestListener)
+                            .into(paletteTarget)
+                    }
                 }
             }
 
@@ -328,7 +337,7 @@ class UpNextView constructor(context: Context, attrs: AttributeSet? = null, defS
     }
 
     private val paletteTarget = object : SimpleTarget<ColorSet>() {
-        override fun onResourceReady(newColorSet: ColorSet, glideAnimation: GlideAnimation<in ColorSet>) {
+        override fun onResourceReady(newColorSet: ColorSet, glideAnimation: GlideAnimation<in ColorSet>?) {
 
             if (colorSet === newColorSet) {
                 return
@@ -357,6 +366,7 @@ class UpNextView constructor(context: Context, attrs: AttributeSet? = null, defS
 
                         animateColors(oldColorSet, newColorSet, 450, UnsafeConsumer { intermediateColorSet ->
                             val aesthetic = Aesthetic.get(getContext())
+                                .beginTransaction()
                                 .colorPrimary(intermediateColorSet.primaryColor)
                                 .colorAccent(intermediateColorSet.accentColor)
                                 .colorStatusBarAuto()
@@ -387,10 +397,11 @@ class UpNextView constructor(context: Context, attrs: AttributeSet? = null, defS
 
         private val TAG = "UpNextView"
 
-        fun newInstance(context: Context, playerPresenter: PlayerPresenter, settingsManager: SettingsManager): UpNextView {
+        fun newInstance(context: Context, playerPresenter: PlayerPresenter, settingsManager: SettingsManager, colorSetCache: ColorSetCache): UpNextView {
             val upNextView = UpNextView(context)
             upNextView.playerPresenter = playerPresenter
             upNextView.settingsManager = settingsManager
+            upNextView.colorSetCache = colorSetCache
             return upNextView
         }
     }
@@ -15,6 +15,7 @@ import com.bumptech.glide.Glide;
 import com.simplecity.amp_library.R;
 import com.simplecity.amp_library.ShuttleApplication;
 import com.simplecity.amp_library.billing.BillingManager;
+import com.simplecity.amp_library.glide.palette.ColorSetCache;
 import com.simplecity.amp_library.model.CategoryItem;
 import com.simplecity.amp_library.services.ArtworkDownloadService;
 import com.simplecity.amp_library.ui.common.PurchasePresenter;
@@ -33,13 +34,15 @@ public class SettingsPresenter extends PurchasePresenter<SettingsView> {
     private BillingManager billingManager;
     private AnalyticsManager analyticsManager;
     private SettingsManager settingsManager;
+    private ColorSetCache colorSetCache;
 
     @Inject
     public SettingsPresenter(
             ShuttleApplication application,
             BillingManager billingManager,
             AnalyticsManager analyticsManager,
-            SettingsManager settingsManager
+            SettingsManager settingsManager,
+            ColorSetCache colorSetCache
     ) {
 
         super();
@@ -48,6 +51,7 @@ public class SettingsPresenter extends PurchasePresenter<SettingsView> {
         this.billingManager = billingManager;
         this.analyticsManager = analyticsManager;
         this.settingsManager = settingsManager;
+        this.colorSetCache = colorSetCache;
     }
 
     // Support Preferences
@@ -139,6 +143,7 @@ public class SettingsPresenter extends PurchasePresenter<SettingsView> {
         }
 
         Aesthetic.get(context)
+                .beginTransaction()
                 .activityTheme(theme)
                 .isDark(isDark)
                 .apply();
@@ -160,6 +165,7 @@ public class SettingsPresenter extends PurchasePresenter<SettingsView> {
 
     public void changePrimaryColor(Context context, int color) {
         Aesthetic.get(context)
+                .beginTransaction()
                 .colorPrimary(color)
                 .colorStatusBarAuto()
                 .apply();
@@ -202,6 +208,7 @@ public class SettingsPresenter extends PurchasePresenter<SettingsView> {
             int storedAccentColor = settingsManager.getAccentColor();
 
             Aesthetic.get(context)
+                    .beginTransaction()
                     .colorPrimary(storedPrimaryColor == -1 ? ContextCompat.getColor(context, R.color.md_blue_500) : storedPrimaryColor)
                     .colorAccent(storedAccentColor == -1 ? ContextCompat.getColor(context, R.color.md_amber_300) : storedAccentColor)
                     .colorStatusBarAuto()
@@ -217,6 +224,7 @@ public class SettingsPresenter extends PurchasePresenter<SettingsView> {
             int storedAccentColor = settingsManager.getAccentColor();
 
             Aesthetic.get(context)
+                    .beginTransaction()
                     .colorPrimary(storedPrimaryColor == -1 ? ContextCompat.getColor(context, R.color.md_blue_500) : storedPrimaryColor)
                     .colorAccent(storedAccentColor == -1 ? ContextCompat.getColor(context, R.color.md_amber_300) : storedAccentColor)
                     .colorStatusBarAuto()
@@ -266,6 +274,9 @@ public class SettingsPresenter extends PurchasePresenter<SettingsView> {
 
         Glide.get(application).clearMemory();
 
+        // Colours extracted from the old artwork no longer apply
+        colorSetCache.clear();
+
         Completable.fromAction(() -> Glide.get(application).clearDiskCache())
                 .subscribeOn(Schedulers.io())
                 .subscribe();
@@ -2,28 +2,28 @@ package com.simplecity.amp_library.ui.views;
 
 import android.content.Context;
 import android.graphics.drawable.Drawable;
+import android.support.annotation.NonNull;
 import android.support.v4.graphics.drawable.DrawableCompat;
 import android.support.v7.widget.AppCompatTextView;
 import android.util.AttributeSet;
 import com.afollestad.aesthetic.Aesthetic;
-import com.afollestad.aesthetic.Rx;
+import com.afollestad.aesthetic.ThemeColor;
+import com.afollestad.aesthetic.ThemeListener;
+import com.afollestad.aesthetic.ThemeState;
 import com.afollestad.aesthetic.ViewUtil;
-import io.reactivex.Observable;
-import io.reactivex.disposables.Disposable;
 
-import static com.afollestad.aesthetic.Rx.onErrorLogAndRethrow;
 import static com.afollestad.aesthetic.Util.resolveResId;
 
-public class AestheticDrawableTextView extends AppCompatTextView {
+public class AestheticDrawableTextView extends AppCompatTextView implements ThemeListener {
 
     private static String IGNORE_TAG = ":aesthetic_ignore";
 
-    private Disposable subscription;
-
-    private int textColorResId;
+    @ThemeColor
+    private int textColor;
 
     public AestheticDrawableTextView(Context context) {
         super(context);
+        init(context, null);
     }
 
     public AestheticDrawableTextView(Context context, AttributeSet attrs) {
@@ -37,9 +37,15 @@ public class AestheticDrawableTextView extends AppCompatTextView {
     }
 
     private void init(Context context, AttributeSet attrs) {
+        int textColorResId = 0;
         if (attrs != null) {
             textColorResId = resolveResId(context, attrs, android.R.attr.textColor);
         }
+        textColor = ViewUtil.getThemeColorForResId(context, textColorResId, ThemeColor.TEXT_SECONDARY);
+
+        Aesthetic aesthetic = Aesthetic.get(context);
+        onThemeChanged(aesthetic.themeState());
+        aesthetic.addThemeListener(this);
     }
 
     void invalidateColors(int color) {
@@ -63,23 +69,14 @@ public class AestheticDrawableTextView extends AppCompatTextView {
 
         if (IGNORE_TAG.equals(getTag())) {
             invalidateColors(getCurrentTextColor());
-            return;
         }
-
-        Observable<Integer> obs =
-                ViewUtil.getObservableForResId(
-                        getContext(), textColorResId, Aesthetic.get(getContext()).textColorSecondary());
-        //noinspection ConstantConditions
-        subscription =
-                obs.compose(Rx.distinctToMainThread())
-                        .subscribe(this::invalidateColors, onErrorLogAndRethrow());
     }
 
     @Override
-    protected void onDetachedFromWindow() {
-        if (subscription != null) {
-            subscription.dispose();
+    public void onThemeChanged(@NonNull ThemeState state) {
+        if (IGNORE_TAG.equals(getTag())) {
+            return;
         }
-        super.onDetachedFromWindow();
+        invalidateColors(state.color(textColor));
     }
 }
@@ -3,16 +3,8 @@ package com.simplecity.amp_library.ui.views;
 import android.content.Context;
 import android.graphics.Color;
 import android.util.AttributeSet;
-import com.afollestad.aesthetic.Aesthetic;
 import com.afollestad.aesthetic.AestheticCheckBox;
 import com.afollestad.aesthetic.ColorIsDarkState;
-import com.afollestad.aesthetic.Rx;
-import com.afollestad.aesthetic.ViewTextColorAction;
-import com.afollestad.aesthetic.ViewUtil;
-import io.reactivex.Observable;
-import io.reactivex.disposables.CompositeDisposable;
-
-import static com.afollestad.aesthetic.Rx.onErrorLogAndRethrow;
 
 /**
  * A Custom AestheticCheckbox which sets its text color to black.
@@ -20,8 +12,6 @@ import static com.afollestad.aesthetic.Rx.onErrorLogAndRethrow;
  */
 public class CustomCheckbox extends AestheticCheckBox {
 
-    private CompositeDisposable subscriptions;
-
     public CustomCheckbox(Context context) {
         super(context);
     }
@@ -38,32 +28,7 @@ public class CustomCheckbox extends AestheticCheckBox {
     protected void invalidateColors(ColorIsDarkState state) {
         super.invalidateColors(state);
 
+        // Called after AestheticCheckBox applies the theme's text color, so this takes precedence
         setTextColor(Color.BLACK);
     }
-
-    @Override
-    protected void onAttachedToWindow() {
-        super.onAttachedToWindow();
-
-        subscriptions = new CompositeDisposable();
-        //noinspection ConstantConditions
-        subscriptions.add(
-                Observable.combineLatest(
-                        ViewUtil.getObservableForResId(
-                                getContext(), backgroundResId, Aesthetic.get(getContext()).colorAccent()),
-                        Aesthetic.get(getContext()).isDark(),
-                        ColorIsDarkState.creator())
-                        .compose(Rx.<ColorIsDarkState>distinctToMainThread())
-                        .subscribe(
-                                colorIsDarkState -> invalidateColors(colorIsDarkState),
-                                onErrorLogAndRethrow()));
-
-        ViewTextColorAction.create(this).accept(Color.BLACK);
-    }
-
-    @Override
-    protected void onDetachedFromWindow() {
-        subscriptions.clear();
-        super.onDetachedFromWindow();
-    }
 }
@@ -101,6 +101,7 @@ public abstract class BaseWidgetConfigureActivity extends BaseActivity implement
 
         if (Aesthetic.isFirstTime(this)) {
             Aesthetic.get(this)
+                    .beginTransaction()
                     .activityTheme(R.style.WallpaperTheme)
                     .isDark(false)
                     .colorPrimaryRes(R.color.md_blue_500)
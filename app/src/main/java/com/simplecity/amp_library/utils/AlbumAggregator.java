@@ -0,0 +1,183 @@
+package com.simplecity.amp_library.utils;
+
+import android.support.annotation.NonNull;
+import com.simplecity.amp_library.model.Album;
+import com.simplecity.amp_library.model.Artist;
+import com.simplecity.amp_library.model.Song;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups songs into albums.
+ * <p>
+ * Each album is fingerprinted from the songs which make it up. On subsequent calls, albums whose songs haven't changed are reused
+ * as-is, and only albums which have gained, lost or changed songs are rebuilt. So when the library emits a new song list, the cost of
+ * aggregation is dominated by what changed, rather than by the size of the library.
+ * <p>
+ * The fingerprint is only a quick rejection: a matching fingerprint is confirmed by comparing the album's songs with those it was built
+ * from, so a hash collision can't leave a stale album in place.
+ */
+public final class AlbumAggregator {
+
+    private static final class Entry {
+
+        long fingerprint;
+
+        // The positions of the album's songs, in the list passed to aggregate()
+        int[] rows = new int[4];
+        int count;
+
+        Album album;
+
+        // Only set while the album is being rebuilt
+        Set<Artist> artists;
+        Set<String> paths;
+
+        void add(int row) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+    }
+
+    private Map<Long, Entry> entries = new HashMap<>();
+
+    // The songs which entries were built from
+    private List<Song> songs = Collections.emptyList();
+
+    /**
+     * @return the albums which the passed in songs belong to. Albums are built the same way as {@link Operators#songsToAlbums(List)}.
+     */
+    @NonNull
+    public synchronized List<Album> aggregate(@NonNull List<Song> songs) {
+
+        Map<Long, Entry> newEntries = new LinkedHashMap<>();
+
+        // Fingerprint each album, from its songs, in order.
+        for (int i = 0, size = songs.size(); i < size; i++) {
+            Song song = songs.get(i);
+            Entry entry = newEntries.get(song.albumId);
+            if (entry == null) {
+                entry = new Entry();
+                newEntries.put(song.albumId, entry);
+            }
+            entry.fingerprint = 31 * entry.fingerprint + fingerprint(song);
+            entry.add(i);
+        }
+
+        // Reuse unchanged albums, and rebuild the rest from their songs
+        List<Album> albums = new ArrayList<>(newEntries.size());
+        for (Map.Entry<Long, Entry> mapEntry : newEntries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            Entry previous = entries.get(mapEntry.getKey());
+            if (previous != null && previous.fingerprint == entry.fingerprint && isSameSongs(this.songs, previous, songs, entry)) {
+                entry.album = previous.album;
+            } else {
+                build(entry, songs);
+            }
+            albums.add(entry.album);
+        }
+
+        entries = newEntries;
+        this.songs = songs;
+
+        return albums;
+    }
+
+    private static void build(Entry entry, List<Song> songs) {
+        entry.album = songs.get(entry.rows[0]).getAlbum();
+        entry.artists = new HashSet<>(entry.album.artists);
+        entry.paths = new HashSet<>(entry.album.paths);
+        for (int i = 1; i < entry.count; i++) {
+            merge(entry, songs.get(entry.rows[i]));
+        }
+        entry.artists = null;
+        entry.paths = null;
+    }
+
+    private static void merge(Entry entry, Song song) {
+        Album album = entry.album;
+
+        // Increment the number of songs
+        album.numSongs++;
+
+        // The number of discs is just the largest disc number for songs
+        album.numDiscs = Math.max(song.discNumber, album.numDiscs);
+
+        album.songPlayCount += song.playCount;
+
+        // Add any new artists
+        Artist artist = new Artist(song.artistId, song.artistName);
+        if (entry.artists.add(artist)) {
+            album.artists.add(artist);
+        }
+
+        // Add new paths
+        if (entry.paths.add(song.path)) {
+            album.paths.add(song.path);
+        }
+    }
+
+    /**
+     * @return a hash of the song properties which contribute to its album.
+     */
+    private static long fingerprint(Song song) {
+        long hash = song.id;
+        hash = 31 * hash + song.artistId;
+        hash = 31 * hash + hashCode(song.artistName);
+        hash = 31 * hash + hashCode(song.albumName);
+        hash = 31 * hash + hashCode(song.albumArtistName);
+        hash = 31 * hash + hashCode(song.path);
+        hash = 31 * hash + song.year;
+        hash = 31 * hash + song.discNumber;
+        hash = 31 * hash + song.playCount;
+        hash = 31 * hash + song.lastPlayed;
+        hash = 31 * hash + song.dateAdded;
+        return hash;
+    }
+
+    private static boolean isSameSongs(List<Song> previousSongs, Entry previous, List<Song> songs, Entry entry) {
+        if (previous.count != entry.count) {
+            return false;
+        }
+        for (int i = 0; i < entry.count; i++) {
+            if (!isSameSong(previousSongs.get(previous.rows[i]), songs.get(entry.rows[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the songs are equal in every property which {@link #fingerprint(Song)} covers.
+     */
+    private static boolean isSameSong(Song a, Song b) {
+        return a.id == b.id
+                && a.artistId == b.artistId
+                && equals(a.artistName, b.artistName)
+                && equals(a.albumName, b.albumName)
+                && equals(a.albumArtistName, b.albumArtistName)
+                && equals(a.path, b.path)
+                && a.year == b.year
+                && a.discNumber == b.discNumber
+                && a.playCount == b.playCount
+                && a.lastPlayed == b.lastPlayed
+                && a.dateAdded == b.dateAdded;
+    }
+
+    private static int hashCode(String string) {
+        return string == null ? 0 : string.hashCode();
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,69 @@
+package com.simplecity.amp_library.utils;
+
+import android.support.annotation.NonNull;
+import com.simplecity.amp_library.model.Album;
+import com.simplecity.amp_library.model.AlbumArtist;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups albums into album-artists.
+ * <p>
+ * Album-artists from the previous call are reused if they're made up of the same album instances, in the same order. Combined with
+ * {@link AlbumAggregator}, which reuses unchanged albums, only the album-artists affected by a library change are rebuilt.
+ */
+public final class AlbumArtistAggregator {
+
+    private Map<String, AlbumArtist> albumArtists = new HashMap<>();
+
+    /**
+     * @return the album-artists which the passed in albums belong to. Album-artists are built the same way as
+     * {@link Operators#albumsToAlbumArtists(List)}.
+     */
+    @NonNull
+    public synchronized List<AlbumArtist> aggregate(@NonNull List<Album> albums) {
+
+        Map<String, Set<Album>> albumArtistAlbums = new LinkedHashMap<>();
+        for (Album album : albums) {
+            Set<Album> albumSet = albumArtistAlbums.get(album.albumArtistName);
+            if (albumSet == null) {
+                albumSet = new LinkedHashSet<>();
+                albumArtistAlbums.put(album.albumArtistName, albumSet);
+            }
+            albumSet.add(album);
+        }
+
+        Map<String, AlbumArtist> newAlbumArtists = new HashMap<>(albumArtistAlbums.size());
+        List<AlbumArtist> result = new ArrayList<>(albumArtistAlbums.size());
+        for (Map.Entry<String, Set<Album>> entry : albumArtistAlbums.entrySet()) {
+            AlbumArtist albumArtist = albumArtists.get(entry.getKey());
+            if (albumArtist == null || !isSameAlbums(albumArtist.albums, entry.getValue())) {
+                albumArtist = new AlbumArtist(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+            newAlbumArtists.put(entry.getKey(), albumArtist);
+            result.add(albumArtist);
+        }
+
+        albumArtists = newAlbumArtists;
+
+        return result;
+    }
+
+    private static boolean isSameAlbums(List<Album> albums, Set<Album> albumSet) {
+        if (albums.size() != albumSet.size()) {
+            return false;
+        }
+        int i = 0;
+        for (Album album : albumSet) {
+            if (albums.get(i++) != album) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
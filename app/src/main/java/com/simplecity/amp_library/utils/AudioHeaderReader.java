@@ -0,0 +1,338 @@
+package com.simplecity.amp_library.utils;
+
+import android.support.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Reads the format, bitrate, sample rate & length of an audio file from its stream headers alone, without parsing its tags.
+ * <p>
+ * Only a few KB at the start of the file are read, compared to the whole tag (including any embedded artwork) for
+ * {@link org.jaudiotagger.audio.AudioFileIO#read(File)}. The values are derived the same way jaudiotagger derives them, so they can be
+ * used interchangeably.
+ * <p>
+ * Supports MP3, FLAC & WAV. Returns null for other formats, or if the headers can't be parsed, in which case the caller should fall back
+ * to a full read.
+ */
+public final class AudioHeaderReader {
+
+    private static final String TAG = "AudioHeaderReader";
+
+    // How far past the ID3 tag to look for the first MPEG frame
+    private static final int MPEG_SEARCH_LENGTH = 16 * 1024;
+
+    private static final int[] MPEG_SAMPLE_RATES = { 44100, 48000, 32000 };
+
+    private static final int[][] MPEG_BITRATES = {
+            // MPEG-1 Layer 1, 2, 3
+            { 0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448 },
+            { 0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384 },
+            { 0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320 },
+            // MPEG-2 & 2.5 Layer 1, 2 & 3
+            { 0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256 },
+            { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 }
+    };
+
+    private static final int MPEG_VERSION_2_5 = 0;
+    private static final int MPEG_VERSION_2 = 2;
+    private static final int MPEG_VERSION_1 = 3;
+
+    private static final int MPEG_CHANNEL_MODE_MONO = 3;
+
+    public static final class Header {
+
+        public final String format;
+
+        // In kbps, prefixed with '~' for variable bitrate MP3s, as per jaudiotagger
+        public final String bitrate;
+
+        public final int sampleRate;
+
+        // In seconds
+        public final int trackLength;
+
+        Header(String format, String bitrate, int sampleRate, int trackLength) {
+            this.format = format;
+            this.bitrate = bitrate;
+            this.sampleRate = sampleRate;
+            this.trackLength = trackLength;
+        }
+    }
+
+    private AudioHeaderReader() {
+
+    }
+
+    @Nullable
+    public static Header read(File file) {
+        String extension = FileHelper.getExtension(file.getName());
+        if (extension == null) {
+            return null;
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            switch (extension.toLowerCase()) {
+                case "mp3":
+                    return readMpeg(input);
+                case "flac":
+                    return readFlac(input);
+                case "wav":
+                    return readWav(input);
+            }
+        } catch (IOException e) {
+            LogUtils.logException(TAG, "Failed to read audio header for " + file, e);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Header readMpeg(RandomAccessFile input) throws IOException {
+        long fileLength = input.length();
+        long start = skipId3v2(input);
+        if (start + 4 > fileLength) {
+            return null;
+        }
+
+        byte[] buffer = new byte[(int) Math.min(MPEG_SEARCH_LENGTH, fileLength - start)];
+        input.seek(start);
+        input.readFully(buffer);
+
+        for (int i = 0; i + 4 <= buffer.length; i++) {
+            int frameLength = mpegFrameLength(buffer, i);
+            if (frameLength <= 0) {
+                continue;
+            }
+            // Guard against a false sync, by checking that the next frame follows on, where we can see it.
+            int next = i + frameLength;
+            if (next + 4 <= buffer.length && mpegFrameLength(buffer, next) <= 0) {
+                continue;
+            }
+            return readMpegFrame(buffer, i, fileLength - (start + i));
+        }
+        return null;
+    }
+
+    /**
+     * @return the length of the MPEG frame whose header starts at offset, or -1 if there isn't a valid header there.
+     */
+    private static int mpegFrameLength(byte[] buffer, int offset) {
+        if ((buffer[offset] & 0xFF) != 0xFF || (buffer[offset + 1] & 0xE0) != 0xE0) {
+            return -1;
+        }
+        int version = (buffer[offset + 1] >> 3) & 0x3;
+        int layer = 4 - ((buffer[offset + 1] >> 1) & 0x3);
+        int bitrateIndex = (buffer[offset + 2] >> 4) & 0xF;
+        int sampleRateIndex = (buffer[offset + 2] >> 2) & 0x3;
+        int padding = (buffer[offset + 2] >> 1) & 0x1;
+        if (version == 1 || layer == 4 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return -1;
+        }
+        int bitrate = mpegBitrate(version, layer, bitrateIndex) * 1000;
+        int sampleRate = mpegSampleRate(version, sampleRateIndex);
+        if (layer == 1) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        return mpegSamplesPerFrame(version, layer) / 8 * bitrate / sampleRate + padding;
+    }
+
+    private static Header readMpegFrame(byte[] buffer, int offset, long audioSize) {
+        int version = (buffer[offset + 1] >> 3) & 0x3;
+        int layer = 4 - ((buffer[offset + 1] >> 1) & 0x3);
+        int bitrate = mpegBitrate(version, layer, (buffer[offset + 2] >> 4) & 0xF);
+        int sampleRate = mpegSampleRate(version, (buffer[offset + 2] >> 2) & 0x3);
+        int channelMode = (buffer[offset + 3] >> 6) & 0x3;
+        double timePerFrame = (double) mpegSamplesPerFrame(version, layer) / sampleRate;
+
+        String format = (version == MPEG_VERSION_1 ? "MPEG-1" : version == MPEG_VERSION_2 ? "MPEG-2" : "MPEG-2.5") + " Layer " + layer;
+
+        // A Xing ('Xing' for VBR, 'Info' for CBR) or VBRI header in the first frame holds the real frame count, and for VBR, the audio size.
+        boolean isVbr = false;
+        long frameCount = -1;
+        int xingOffset = offset + 4 + (version == MPEG_VERSION_1
+                ? (channelMode == MPEG_CHANNEL_MODE_MONO ? 17 : 32)
+                : (channelMode == MPEG_CHANNEL_MODE_MONO ? 9 : 17));
+        int vbriOffset = offset + 4 + 32;
+        if (matches(buffer, xingOffset, "Xing") || matches(buffer, xingOffset, "Info")) {
+            isVbr = matches(buffer, xingOffset, "Xing");
+            int flags = readInt(buffer, xingOffset + 4);
+            int position = xingOffset + 8;
+            if ((flags & 0x1) != 0) {
+                frameCount = readInt(buffer, position) & 0xFFFFFFFFL;
+                position += 4;
+            }
+            if ((flags & 0x2) != 0) {
+                long size = readInt(buffer, position) & 0xFFFFFFFFL;
+                if (size > 0) {
+                    audioSize = size;
+                }
+            }
+        } else if (matches(buffer, vbriOffset, "VBRI")) {
+            isVbr = true;
+            long size = readInt(buffer, vbriOffset + 10) & 0xFFFFFFFFL;
+            if (size > 0) {
+                audioSize = size;
+            }
+            frameCount = readInt(buffer, vbriOffset + 14) & 0xFFFFFFFFL;
+        }
+
+        if (frameCount <= 0) {
+            int frameLength = mpegFrameLength(buffer, offset);
+            frameCount = audioSize / frameLength;
+        }
+
+        double trackLength = frameCount * timePerFrame;
+        if (isVbr && trackLength > 0) {
+            bitrate = (int) ((audioSize * 8) / (trackLength * 1000));
+        }
+
+        return new Header(format, (isVbr ? "~" : "") + bitrate, sampleRate, (int) trackLength);
+    }
+
+    private static int mpegBitrate(int version, int layer, int bitrateIndex) {
+        if (version == MPEG_VERSION_1) {
+            return MPEG_BITRATES[layer - 1][bitrateIndex];
+        }
+        return MPEG_BITRATES[layer == 1 ? 3 : 4][bitrateIndex];
+    }
+
+    private static int mpegSampleRate(int version, int sampleRateIndex) {
+        int sampleRate = MPEG_SAMPLE_RATES[sampleRateIndex];
+        if (version == MPEG_VERSION_2) {
+            return sampleRate / 2;
+        } else if (version == MPEG_VERSION_2_5) {
+            return sampleRate / 4;
+        }
+        return sampleRate;
+    }
+
+    private static int mpegSamplesPerFrame(int version, int layer) {
+        if (layer == 1) {
+            return 384;
+        } else if (layer == 3 && version != MPEG_VERSION_1) {
+            return 576;
+        }
+        return 1152;
+    }
+
+    @Nullable
+    private static Header readFlac(RandomAccessFile input) throws IOException {
+        long start = skipId3v2(input);
+        input.seek(start);
+
+        byte[] magic = new byte[4];
+        input.readFully(magic);
+        if (!matches(magic, 0, "fLaC")) {
+            return null;
+        }
+
+        int sampleRate = -1;
+        int bitsPerSample = 0;
+        long totalSamples = 0;
+
+        // Walk the metadata blocks to find STREAMINFO, and the start of the audio frames
+        boolean isLast = false;
+        while (!isLast) {
+            int blockHeader = input.readInt();
+            isLast = (blockHeader & 0x80000000) != 0;
+            int blockType = (blockHeader >>> 24) & 0x7F;
+            int blockLength = blockHeader & 0xFFFFFF;
+            if (blockType == 0) {
+                byte[] streamInfo = new byte[blockLength];
+                input.readFully(streamInfo);
+                long packed = readLong(streamInfo, 10);
+                sampleRate = (int) (packed >>> 44);
+                bitsPerSample = (int) ((packed >>> 36) & 0x1F) + 1;
+                totalSamples = packed & 0xFFFFFFFFFL;
+            } else {
+                input.seek(input.getFilePointer() + blockLength);
+            }
+        }
+
+        if (sampleRate <= 0) {
+            return null;
+        }
+
+        long audioSize = input.length() - input.getFilePointer();
+        double trackLength = (double) totalSamples / sampleRate;
+        int bitrate = trackLength > 0 ? (int) ((audioSize / 1000) * 8 / trackLength) : 0;
+
+        return new Header("FLAC " + bitsPerSample + " bits", String.valueOf(bitrate), sampleRate, (int) trackLength);
+    }
+
+    @Nullable
+    private static Header readWav(RandomAccessFile input) throws IOException {
+        byte[] riffHeader = new byte[12];
+        input.readFully(riffHeader);
+        if (!matches(riffHeader, 0, "RIFF") || !matches(riffHeader, 8, "WAVE")) {
+            return null;
+        }
+
+        int sampleRate = -1;
+        int byteRate = 0;
+        int bitsPerSample = 0;
+        long dataSize = -1;
+
+        byte[] chunkHeader = new byte[8];
+        while ((sampleRate == -1 || dataSize == -1) && input.getFilePointer() + 8 <= input.length()) {
+            input.readFully(chunkHeader);
+            long chunkSize = Integer.reverseBytes(readInt(chunkHeader, 4)) & 0xFFFFFFFFL;
+            long next = input.getFilePointer() + chunkSize + (chunkSize & 1);
+            if (matches(chunkHeader, 0, "fmt ")) {
+                byte[] fmt = new byte[16];
+                input.readFully(fmt);
+                sampleRate = Integer.reverseBytes(readInt(fmt, 4));
+                byteRate = Integer.reverseBytes(readInt(fmt, 8));
+                bitsPerSample = (fmt[14] & 0xFF) | (fmt[15] & 0xFF) << 8;
+            } else if (matches(chunkHeader, 0, "data")) {
+                dataSize = chunkSize;
+            }
+            input.seek(next);
+        }
+
+        if (sampleRate <= 0 || byteRate <= 0) {
+            return null;
+        }
+
+        int trackLength = dataSize > 0 ? (int) (dataSize / byteRate) : 0;
+
+        return new Header("WAV-RIFF " + bitsPerSample + " bits", String.valueOf(byteRate * 8 / 1000), sampleRate, trackLength);
+    }
+
+    /**
+     * @return the position of the first byte after the ID3v2 tag at the start of the file, or 0 if there isn't one.
+     */
+    private static long skipId3v2(RandomAccessFile input) throws IOException {
+        byte[] header = new byte[10];
+        input.seek(0);
+        if (input.read(header) < header.length || !matches(header, 0, "ID3")) {
+            return 0;
+        }
+        // Synchsafe, 7 bits per byte
+        int size = (header[6] & 0x7F) << 21 | (header[7] & 0x7F) << 14 | (header[8] & 0x7F) << 7 | (header[9] & 0x7F);
+        boolean hasFooter = (header[5] & 0x10) != 0;
+        return header.length + size + (hasFooter ? 10 : 0);
+    }
+
+    private static boolean matches(byte[] buffer, int offset, String id) {
+        if (offset < 0 || offset + id.length() > buffer.length) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (buffer[offset + i] != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        if (offset + 4 > buffer.length) {
+            return 0;
+        }
+        return (buffer[offset] & 0xFF) << 24 | (buffer[offset + 1] & 0xFF) << 16 | (buffer[offset + 2] & 0xFF) << 8 | (buffer[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] buffer, int offset) {
+        return (readInt(buffer, offset) & 0xFFFFFFFFL) << 32 | (readInt(buffer, offset + 4) & 0xFFFFFFFFL);
+    }
+}
@@ -3,6 +3,7 @@ package com.simplecity.amp_library.utils;
 import android.os.Environment;
 import android.support.annotation.Nullable;
 import android.support.annotation.WorkerThread;
+import android.support.v4.util.LruCache;
 import android.text.TextUtils;
 import com.simplecity.amp_library.R;
 import com.simplecity.amp_library.interfaces.FileType;
@@ -11,27 +12,73 @@ import com.simplecity.amp_library.model.FileObject;
 import com.simplecity.amp_library.model.FolderObject;
 import com.simplecity.amp_library.model.TagInfo;
 import com.simplecity.amp_library.utils.sorting.SortManager;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class FileBrowser {
 
     private static final String TAG = "FileBrowser";
 
+    // Each worker may hold a file's tag in memory, so only a few run at once.
+    private static final int WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    // How often entries whose details have been loaded are delivered, so the list updates in a few steps rather than once per entry.
+    private static final long BATCH_INTERVAL = 250;
+
+    // The number of directory snapshots kept, enough to cover navigating a few levels down & back up again.
+    private static final int MAX_SNAPSHOTS = 16;
+
+    // Some file systems only record modification times to the second (FAT to two seconds), so a directory modified more recently than this
+    // could change again without its modification time changing. It isn't snapshotted until it's had time to settle.
+    private static final long MODIFICATION_TIME_GRANULARITY = 2000;
+
+    /**
+     * The entries of a directory, as of its modification time. Adding, removing or renaming an entry changes the directory's modification
+     * time, which invalidates the snapshot.
+     */
+    private static final class DirectorySnapshot {
+
+        final long lastModified;
+
+        final List<BaseFileObject> entries;
+
+        DirectorySnapshot(long lastModified, List<BaseFileObject> entries) {
+            this.lastModified = lastModified;
+            this.entries = entries;
+        }
+    }
+
     @Nullable
     private File currentDir;
 
     private SettingsManager settingsManager;
 
-    public FileBrowser(SettingsManager settingsManager) {
+    private TagInfoCache tagInfoCache;
+
+    private final LruCache<String, DirectorySnapshot> snapshots = new LruCache<>(MAX_SNAPSHOTS);
+
+    public FileBrowser(SettingsManager settingsManager, TagInfoCache tagInfoCache) {
         this.settingsManager = settingsManager;
+        this.tagInfoCache = tagInfoCache;
     }
 
     /**
      * Loads the specified folder.
+     * <p>
+     * Only the folder itself is listed. Files are given their cached {@link TagInfo}, or a placeholder if they've changed or haven't been
+     * read before, and subfolders aren't counted until {@link #loadDetails(List)}. Folders which turned out to be empty are left out.
+     * <p>
+     * Returning to a folder which hasn't changed since it was last loaded reuses its entries, including any details loaded since.
      *
      * @param directory The file object to points to the directory to load.
      * @return An {@link List<BaseFileObject>} object that holds the data of the specified directory.
@@ -43,9 +90,91 @@ public class FileBrowser {
 
         currentDir = directory;
 
+        List<BaseFileObject> baseFileObjects = new ArrayList<>();
+        for (BaseFileObject baseFileObject : getEntries(directory)) {
+            if (baseFileObject instanceof FolderObject && ((FolderObject) baseFileObject).isEmpty()) {
+                continue;
+            }
+            baseFileObjects.add(baseFileObject);
+        }
+
+        if (!FileHelper.isRootDirectory(currentDir)) {
+            FolderObject parentObject = new FolderObject();
+            parentObject.fileType = FileType.PARENT;
+            parentObject.name = FileHelper.PARENT_DIRECTORY;
+            parentObject.path = FileHelper.getPath(currentDir) + "/" + FileHelper.PARENT_DIRECTORY;
+            baseFileObjects.add(parentObject);
+        }
+
+        sort(baseFileObjects);
+
+        return baseFileObjects;
+    }
+
+    /**
+     * Sorts the contents of a folder in place, as per the folder browser settings. The parent folder comes first, then folders, then files.
+     */
+    public void sort(List<BaseFileObject> baseFileObjects) {
+        List<BaseFileObject> parentObjects = new ArrayList<>();
         List<BaseFileObject> folderObjects = new ArrayList<>();
         List<BaseFileObject> fileObjects = new ArrayList<>();
 
+        for (BaseFileObject baseFileObject : baseFileObjects) {
+            switch (baseFileObject.fileType) {
+                case FileType.PARENT:
+                    parentObjects.add(baseFileObject);
+                    break;
+                case FileType.FOLDER:
+                    folderObjects.add(baseFileObject);
+                    break;
+                case FileType.FILE:
+                    fileObjects.add(baseFileObject);
+                    break;
+            }
+        }
+
+        sortFileObjects(fileObjects);
+        sortFolderObjects(folderObjects);
+
+        if (!settingsManager.getFolderBrowserFilesAscending()) {
+            Collections.reverse(fileObjects);
+        }
+
+        if (!settingsManager.getFolderBrowserFoldersAscending()) {
+            Collections.reverse(folderObjects);
+        }
+
+        baseFileObjects.clear();
+        baseFileObjects.addAll(parentObjects);
+        baseFileObjects.addAll(folderObjects);
+        baseFileObjects.addAll(fileObjects);
+    }
+
+    private List<BaseFileObject> getEntries(File directory) {
+        String key = directory.getAbsolutePath();
+        long lastModified = directory.lastModified();
+
+        List<BaseFileObject> entries;
+        DirectorySnapshot snapshot = snapshots.get(key);
+        if (snapshot != null && snapshot.lastModified == lastModified) {
+            entries = snapshot.entries;
+            revalidate(entries);
+        } else {
+            entries = listEntries(directory);
+            if (lastModified != 0 && System.currentTimeMillis() - lastModified > MODIFICATION_TIME_GRANULARITY) {
+                snapshots.put(key, new DirectorySnapshot(lastModified, entries));
+            } else {
+                snapshots.remove(key);
+            }
+        }
+        return entries;
+    }
+
+    private List<BaseFileObject> listEntries(File directory) {
+        Set<BaseFileObject> entries = new LinkedHashSet<>();
+
+        Map<String, TagInfo> cachedTagInfos = tagInfoCache.get(directory);
+
         //Grab a list of all files/subdirs within the specified directory.
         File[] files = directory.listFiles(FileHelper.getAudioFilter());
 
@@ -57,61 +186,104 @@ public class FileBrowser {
                     baseFileObject = new FolderObject();
                     baseFileObject.path = FileHelper.getPath(file);
                     baseFileObject.name = file.getName();
-                    File[] listOfFiles = file.listFiles(FileHelper.getAudioFilter());
-                    if (listOfFiles != null && listOfFiles.length > 0) {
-                        for (File listOfFile : listOfFiles) {
-                            if (listOfFile.isDirectory()) {
-                                ((FolderObject) baseFileObject).folderCount++;
-                            } else {
-                                ((FolderObject) baseFileObject).fileCount++;
-                            }
-                        }
-                    } else {
-                        continue;
-                    }
-                    if (!folderObjects.contains(baseFileObject)) {
-                        folderObjects.add(baseFileObject);
-                    }
                 } else {
                     baseFileObject = new FileObject();
                     baseFileObject.path = FileHelper.getPath(file);
                     baseFileObject.name = FileHelper.getName(file.getName());
                     baseFileObject.size = file.length();
+                    baseFileObject.lastModified = file.lastModified();
                     ((FileObject) baseFileObject).extension = FileHelper.getExtension(file.getName());
                     if (TextUtils.isEmpty(((FileObject) baseFileObject).extension)) {
                         continue;
                     }
-                    ((FileObject) baseFileObject).tagInfo = new TagInfo(baseFileObject.path);
-
-                    if (!fileObjects.contains(baseFileObject)) {
-                        fileObjects.add(baseFileObject);
-                    }
+                    TagInfo tagInfo = cachedTagInfos.get(baseFileObject.path);
+                    ((FileObject) baseFileObject).tagInfo = tagInfo != null ? tagInfo : TagInfo.placeholder(baseFileObject.name);
                 }
+
+                entries.add(baseFileObject);
             }
         }
 
-        sortFileObjects(fileObjects);
-        sortFolderObjects(folderObjects);
+        return new ArrayList<>(entries);
+    }
 
-        if (!settingsManager.getFolderBrowserFilesAscending()) {
-            Collections.reverse(fileObjects);
+    /**
+     * Entries can change without their directory's modification time changing, when a file is edited in place, or a subfolder's contents
+     * change. Their details are reloaded by the next {@link #loadDetails(List)}.
+     */
+    private void revalidate(List<BaseFileObject> entries) {
+        for (BaseFileObject baseFileObject : entries) {
+            File file = new File(baseFileObject.path);
+            if (baseFileObject instanceof FolderObject) {
+                FolderObject folderObject = (FolderObject) baseFileObject;
+                if (folderObject.countsLoaded && file.lastModified() != folderObject.lastModified) {
+                    folderObject.countsLoaded = false;
+                }
+            } else if (baseFileObject instanceof FileObject) {
+                FileObject fileObject = (FileObject) baseFileObject;
+                if (file.length() != fileObject.size || file.lastModified() != fileObject.lastModified) {
+                    fileObject.size = file.length();
+                    fileObject.lastModified = file.lastModified();
+                    fileObject.tagInfo = TagInfo.placeholder(fileObject.name);
+                }
+            }
         }
+    }
 
-        if (!settingsManager.getFolderBrowserFoldersAscending()) {
-            Collections.reverse(folderObjects);
-        }
+    /**
+     * Loads the details {@link #loadDir(File)} skipped: counts the contents of subfolders, and reads the tags of files which were given a
+     * placeholder {@link TagInfo}, caching them. A few entries are loaded at a time.
+     *
+     * @return the entries, in batches as their details are loaded.
+     */
+    public Observable<List<BaseFileObject>> loadDetails(List<BaseFileObject> baseFileObjects) {
+        return Observable.fromIterable(baseFileObjects)
+                .flatMap(baseFileObject -> Single.fromCallable(() -> {
+                    if (baseFileObject instanceof FolderObject) {
+                        countContents((FolderObject) baseFileObject);
+                    } else if (baseFileObject instanceof FileObject) {
+                        ((FileObject) baseFileObject).tagInfo = new TagInfo(baseFileObject.path);
+                    }
+                    return baseFileObject;
+                }).subscribeOn(Schedulers.io()).toObservable(), WORKERS)
+                .buffer(BATCH_INTERVAL, TimeUnit.MILLISECONDS)
+                .filter(batch -> !batch.isEmpty())
+                .doOnNext(batch -> {
+                    List<FileObject> fileObjects = new ArrayList<>();
+                    for (BaseFileObject baseFileObject : batch) {
+                        if (baseFileObject instanceof FileObject) {
+                            fileObjects.add((FileObject) baseFileObject);
+                        }
+                    }
+                    if (!fileObjects.isEmpty()) {
+                        tagInfoCache.put(fileObjects);
+                    }
+                });
+    }
 
-        folderObjects.addAll(fileObjects);
+    private void countContents(FolderObject folderObject) {
+        File directory = new File(folderObject.path);
 
-        if (!FileHelper.isRootDirectory(currentDir)) {
-            FolderObject parentObject = new FolderObject();
-            parentObject.fileType = FileType.PARENT;
-            parentObject.name = FileHelper.PARENT_DIRECTORY;
-            parentObject.path = FileHelper.getPath(currentDir) + "/" + FileHelper.PARENT_DIRECTORY;
-            folderObjects.add(0, parentObject);
+        // Read before listing, so a change made while listing invalidates the counts
+        long lastModified = directory.lastModified();
+
+        int folderCount = 0;
+        int fileCount = 0;
+        File[] files = directory.listFiles(FileHelper.getAudioFilter());
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    folderCount++;
+                } else {
+                    fileCount++;
+                }
+            }
         }
 
-        return folderObjects;
+        folderObject.folderCount = folderCount;
+        folderObject.fileCount = fileCount;
+        folderObject.lastModified = lastModified;
+        folderObject.countsLoaded = true;
     }
 
     @Nullable
@@ -0,0 +1,163 @@
+package com.simplecity.amp_library.utils;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs, using open addressing with linear probing, so lookups don't box the key or allocate.
+ * <p>
+ * Not thread safe.
+ */
+public final class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // 0 marks an empty slot, so it's tracked separately
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private boolean hasEmptyKey;
+    private int size;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        keys = new long[capacityFor(expectedSize)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return hasEmptyKey;
+        }
+        long[] keys = this.keys;
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            long existing = keys[i];
+            if (existing == key) {
+                return true;
+            } else if (existing == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return true if the key wasn't already in the set.
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (hasEmptyKey) {
+                return false;
+            }
+            hasEmptyKey = true;
+            size++;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        size++;
+        if (size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the key was in the set.
+     */
+    public boolean remove(long key) {
+        if (key == EMPTY) {
+            if (!hasEmptyKey) {
+                return false;
+            }
+            hasEmptyKey = false;
+            size--;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = EMPTY;
+        size--;
+
+        // Shift back any following keys which would no longer be reachable from their home slot
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = hash(keys[j]) & mask;
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                keys[j] = EMPTY;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the keys in the set, in no particular order.
+     */
+    public long[] toArray() {
+        long[] array = new long[size];
+        int i = 0;
+        if (hasEmptyKey) {
+            array[i++] = EMPTY;
+        }
+        for (long key : keys) {
+            if (key != EMPTY) {
+                array[i++] = key;
+            }
+        }
+        return array;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        hasEmptyKey = false;
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        keys = new long[capacity];
+        int mask = capacity - 1;
+        for (long key : oldKeys) {
+            if (key != EMPTY) {
+                int i = hash(key) & mask;
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long key) {
+        // Song ids are sequential, so spread them across the table
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
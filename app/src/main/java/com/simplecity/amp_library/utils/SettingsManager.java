@@ -6,6 +6,7 @@ import android.support.annotation.Nullable;
 import com.simplecity.amp_library.BuildConfig;
 import com.simplecity.amp_library.R;
 import com.simplecity.amp_library.model.CategoryItem;
+import com.simplecity.amp_library.playback.shuffle.ShuffleStrategy;
 import com.simplecity.amp_library.ui.adapters.ViewType;
 import com.simplecity.amp_library.utils.sorting.SortManager;
 import javax.inject.Inject;
@@ -55,6 +56,7 @@ public class SettingsManager extends BaseSettingsManager {
 
     // Playback
     public static String KEY_PREF_REMEMBER_SHUFFLE = "pref_remember_shuffle";
+    public static String KEY_PREF_SHUFFLE_STRATEGY = "pref_shuffle_strategy";
 
     // Upgrade
     public static String KEY_PREF_UPGRADE = "pref_upgrade";
@@ -435,6 +437,11 @@ public class SettingsManager extends BaseSettingsManager {
         setBool(KEY_PREF_REMEMBER_SHUFFLE, rememberShuffle);
     }
 
+    @ShuffleStrategy.Type
+    public String getShuffleStrategy() {
+        return getString(KEY_PREF_SHUFFLE_STRATEGY, ShuffleStrategy.Type.UNIFORM);
+    }
+
     // Library Controller
 
     private static final String KEY_DEFAULT_PAGE = "default_page";
@@ -15,9 +15,13 @@ import java.util.regex.Pattern;
 public class StringUtils {
 
 
-    private static StringBuilder sFormatBuilder = new StringBuilder();
-
-    private static Formatter sFormatter = new Formatter(sFormatBuilder, Locale.getDefault());
+    // Formatters aren't thread safe, and labels are formatted off the main thread, so each thread has its own
+    private static final ThreadLocal<Formatter> sFormatter = new ThreadLocal<Formatter>() {
+        @Override
+        protected Formatter initialValue() {
+            return new Formatter(new StringBuilder(), Locale.getDefault());
+        }
+    };
 
     private static Pattern pattern = Pattern.compile("^(?i)\\s*(?:the |an |a )|(?:, the|, an|, a)\\s*$|[\\[\\]()!?.,']");
 
@@ -34,7 +38,6 @@ public class StringUtils {
          * @return String
          */
     public static String makeTimeString(@NonNull Context context, long secs) {
-        sFormatBuilder.setLength(0);
         return Math.abs(secs) < 3600 ? makeShortTimeString(context, secs) : makeLongTimeString(context, secs);
     }
 
@@ -48,15 +51,20 @@ public class StringUtils {
 
     private static String makeTimeString(String formatString, long secs) {
         long absSeconds = Math.abs(secs);
-        sFormatBuilder.setLength(0);
-        return sFormatter.format(formatString,
+        return format(formatString,
                 secs < 0 ? "- " : "",
                 absSeconds / 3600,
                 absSeconds / 60,
                 absSeconds / 60 % 60,
                 absSeconds,
-                absSeconds % 60)
-                .toString();
+                absSeconds % 60);
+    }
+
+    private static String format(String formatString, Object... args) {
+        Formatter formatter = sFormatter.get();
+        StringBuilder builder = (StringBuilder) formatter.out();
+        builder.setLength(0);
+        return formatter.format(formatString, args).toString();
     }
 
     /**
@@ -79,9 +87,7 @@ public class StringUtils {
             } else {
                 final String f = r.getQuantityText(R.plurals.Nfolders, numSubfolders)
                         .toString();
-                sFormatBuilder.setLength(0);
-                sFormatter.format(f, numSubfolders);
-                string.append(sFormatBuilder);
+                string.append(format(f, numSubfolders));
             }
         }
 
@@ -94,9 +100,7 @@ public class StringUtils {
                 string.append(context.getString(R.string.onesong));
             } else {
                 final String f = r.getQuantityText(R.plurals.Nsongs, numSubfiles).toString();
-                sFormatBuilder.setLength(0);
-                sFormatter.format(f, numSubfiles);
-                string.append(sFormatBuilder);
+                string.append(format(f, numSubfiles));
             }
         }
 
@@ -115,9 +119,7 @@ public class StringUtils {
         String f;
         if (numalbums > 0) {
             f = r.getQuantityText(R.plurals.Nalbums, numalbums).toString();
-            sFormatBuilder.setLength(0);
-            sFormatter.format(f, numalbums);
-            stringBuilder.append(sFormatBuilder);
+            stringBuilder.append(format(f, numalbums));
         }
 
         if (numalbums > 0 && numsongs > 0) {
@@ -127,9 +129,7 @@ public class StringUtils {
             stringBuilder.append(context.getString(R.string.onesong));
         } else if (numsongs > 0) {
             f = r.getQuantityText(R.plurals.Nsongs, numsongs).toString();
-            sFormatBuilder.setLength(0);
-            sFormatter.format(f, numsongs);
-            stringBuilder.append(sFormatBuilder);
+            stringBuilder.append(format(f, numsongs));
         }
         return stringBuilder.toString();
     }
@@ -137,9 +137,7 @@ public class StringUtils {
     public static String makeAlbumsLabel(Context context, int numAlbums) {
         final StringBuilder stringBuilder = new StringBuilder();
         String formatString = context.getResources().getQuantityText(R.plurals.Nalbums, numAlbums).toString();
-        sFormatBuilder.setLength(0);
-        sFormatter.format(formatString, numAlbums);
-        stringBuilder.append(sFormatBuilder);
+        stringBuilder.append(format(formatString, numAlbums));
 
         return stringBuilder.toString();
     }
@@ -147,9 +145,7 @@ public class StringUtils {
     public static String makeSongsLabel(Context context, int numSongs) {
         final StringBuilder stringBuilder = new StringBuilder();
         String formatString = context.getResources().getQuantityText(R.plurals.Nsongs, numSongs).toString();
-        sFormatBuilder.setLength(0);
-        sFormatter.format(formatString, numSongs);
-        stringBuilder.append(sFormatBuilder);
+        stringBuilder.append(format(formatString, numSongs));
 
         return stringBuilder.toString();
     }
@@ -160,7 +156,7 @@ public class StringUtils {
             return context.getResources().getString(R.string.unknown_year);
         }
 
-        return String.format("%s", year);
+        return String.valueOf(year);
     }
 
     public static String makeSongsAndTimeLabel(Context context, int numSongs, long secs) {
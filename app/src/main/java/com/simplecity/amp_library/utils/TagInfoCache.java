@@ -0,0 +1,170 @@
+package com.simplecity.amp_library.utils;
+
+import android.annotation.SuppressLint;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.WorkerThread;
+import com.simplecity.amp_library.model.FileObject;
+import com.simplecity.amp_library.model.TagInfo;
+import com.simplecity.amp_library.sql.databases.TagInfoCacheDbOpenHelper;
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * A persistent cache of the {@link TagInfo} read from files in the folder browser.
+ * <p>
+ * Reading a file's tags means parsing the whole tag, including any embedded artwork, which adds up quickly for a folder of a few hundred
+ * files. Entries are keyed by path, and are only used while the file's size & modification time match those recorded with the entry, so
+ * a file which has been edited is read again.
+ * <p>
+ * Entries are looked up a directory at a time, with a single query. Writes happen in the background.
+ */
+@Singleton
+public class TagInfoCache {
+
+    private static final String TAG = "TagInfoCache";
+
+    // The number of entries kept on disk. The oldest are removed first.
+    static final int MAX_ENTRIES = 20000;
+
+    private static final String[] PROJECTION = new String[] {
+            TagInfoCacheDbOpenHelper.COLUMN_PATH,
+            TagInfoCacheDbOpenHelper.COLUMN_SIZE,
+            TagInfoCacheDbOpenHelper.COLUMN_LAST_MODIFIED,
+            TagInfoCacheDbOpenHelper.COLUMN_ARTIST_NAME,
+            TagInfoCacheDbOpenHelper.COLUMN_ALBUM_ARTIST_NAME,
+            TagInfoCacheDbOpenHelper.COLUMN_ALBUM_NAME,
+            TagInfoCacheDbOpenHelper.COLUMN_TRACK_NAME,
+            TagInfoCacheDbOpenHelper.COLUMN_TRACK_NUMBER,
+            TagInfoCacheDbOpenHelper.COLUMN_TRACK_TOTAL,
+            TagInfoCacheDbOpenHelper.COLUMN_DISC_NUMBER,
+            TagInfoCacheDbOpenHelper.COLUMN_DISC_TOTAL,
+            TagInfoCacheDbOpenHelper.COLUMN_BITRATE,
+            TagInfoCacheDbOpenHelper.COLUMN_FORMAT,
+            TagInfoCacheDbOpenHelper.COLUMN_SAMPLE_RATE,
+            TagInfoCacheDbOpenHelper.COLUMN_TRACK_LENGTH,
+            TagInfoCacheDbOpenHelper.COLUMN_GENRE
+    };
+
+    private final TagInfoCacheDbOpenHelper dbOpenHelper;
+
+    @SuppressLint("CheckResult")
+    @Inject
+    public TagInfoCache(Context context) {
+        dbOpenHelper = new TagInfoCacheDbOpenHelper(context.getApplicationContext());
+
+        Completable.fromAction(this::trim)
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {
+                }, error -> LogUtils.logException(TAG, "Failed to trim tag info cache", error));
+    }
+
+    /**
+     * @return the cached {@link TagInfo} for the files in the passed in directory, keyed by path. Entries for files which have changed
+     * since they were cached are left out.
+     */
+    @WorkerThread
+    public Map<String, TagInfo> get(File directory) {
+        Map<String, TagInfo> tagInfos = new HashMap<>();
+
+        Cursor cursor = dbOpenHelper.getReadableDatabase().query(TagInfoCacheDbOpenHelper.TABLE_NAME,
+                PROJECTION,
+                TagInfoCacheDbOpenHelper.COLUMN_PARENT + "=?",
+                new String[] { directory.getAbsolutePath() },
+                null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                String path = cursor.getString(0);
+                File file = new File(path);
+                if (file.length() != cursor.getLong(1) || file.lastModified() != cursor.getLong(2)) {
+                    continue;
+                }
+                TagInfo tagInfo = new TagInfo();
+                tagInfo.artistName = cursor.getString(3);
+                tagInfo.albumArtistName = cursor.getString(4);
+                tagInfo.albumName = cursor.getString(5);
+                tagInfo.trackName = cursor.getString(6);
+                tagInfo.trackNumber = cursor.getInt(7);
+                tagInfo.trackTotal = cursor.getInt(8);
+                tagInfo.discNumber = cursor.getInt(9);
+                tagInfo.discTotal = cursor.getInt(10);
+                tagInfo.bitrate = cursor.getString(11);
+                tagInfo.format = cursor.getString(12);
+                tagInfo.sampleRate = cursor.getInt(13);
+                tagInfo.trackLength = cursor.getInt(14);
+                tagInfo.genre = cursor.getString(15);
+                tagInfos.put(path, tagInfo);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return tagInfos;
+    }
+
+    /**
+     * Stores the {@link TagInfo} of the passed in files, in a single transaction.
+     */
+    @SuppressLint("CheckResult")
+    public void put(List<FileObject> fileObjects) {
+        Completable.fromAction(() -> write(fileObjects))
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> {
+                }, error -> LogUtils.logException(TAG, "Failed to write tag info cache entries", error));
+    }
+
+    private void write(List<FileObject> fileObjects) {
+        long timestamp = System.currentTimeMillis();
+
+        SQLiteDatabase database = dbOpenHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (FileObject fileObject : fileObjects) {
+                TagInfo tagInfo = fileObject.tagInfo;
+                File file = new File(fileObject.path);
+                if (tagInfo == null || tagInfo.isPlaceholder || !file.exists()) {
+                    continue;
+                }
+                values.clear();
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_PATH, fileObject.path);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_PARENT, file.getParent());
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_SIZE, file.length());
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_LAST_MODIFIED, file.lastModified());
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_ARTIST_NAME, tagInfo.artistName);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_ALBUM_ARTIST_NAME, tagInfo.albumArtistName);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_ALBUM_NAME, tagInfo.albumName);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_TRACK_NAME, tagInfo.trackName);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_TRACK_NUMBER, tagInfo.trackNumber);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_TRACK_TOTAL, tagInfo.trackTotal);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_DISC_NUMBER, tagInfo.discNumber);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_DISC_TOTAL, tagInfo.discTotal);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_BITRATE, tagInfo.bitrate);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_FORMAT, tagInfo.format);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_SAMPLE_RATE, tagInfo.sampleRate);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_TRACK_LENGTH, tagInfo.trackLength);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_GENRE, tagInfo.genre);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_TIMESTAMP, timestamp);
+                database.insertWithOnConflict(TagInfoCacheDbOpenHelper.TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private void trim() {
+        dbOpenHelper.getWritableDatabase().execSQL("DELETE FROM " + TagInfoCacheDbOpenHelper.TABLE_NAME
+                + " WHERE " + TagInfoCacheDbOpenHelper.COLUMN_PATH + " NOT IN ("
+                + "SELECT " + TagInfoCacheDbOpenHelper.COLUMN_PATH + " FROM " + TagInfoCacheDbOpenHelper.TABLE_NAME
+                + " ORDER BY " + TagInfoCacheDbOpenHelper.COLUMN_TIMESTAMP + " DESC LIMIT " + MAX_ENTRIES + ")");
+    }
+}
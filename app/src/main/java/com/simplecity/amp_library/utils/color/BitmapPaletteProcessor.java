@@ -17,13 +17,23 @@
 package com.simplecity.amp_library.utils.color;
 
 import android.graphics.Bitmap;
-import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pair;
-import android.support.v7.graphics.Palette;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.PriorityQueue;
 
 /**
  * A class the processes media notifications and extracts the right text and background colors.
+ * <p>
+ * The colour extraction follows {@link android.support.v7.graphics.Palette}: pixels are quantized into a 5-bit-per-channel histogram,
+ * reduced to at most 16 swatches by median cut, and scored against Palette's default targets. Unlike Palette, the histogram is built
+ * once per bitmap and reused by both the unfiltered and filtered passes, and the histogram & colour buffers are reused across calls.
+ * <p>
+ * The extraction itself ({@link #processPixels(int[], int)}) has no Android dependencies. Instances aren't thread safe, as the buffers
+ * are reused; use one per thread, or pool them.
  */
 public class BitmapPaletteProcessor {
 
@@ -56,9 +66,52 @@ public class BitmapPaletteProcessor {
     private static final float BLACK_MAX_LIGHTNESS = 0.08f;
     private static final float WHITE_MIN_LIGHTNESS = 0.90f;
     private static final int RESIZE_BITMAP_AREA = 150 * 150;
-    private float[] mFilteredBackgroundHsl = null;
-    private Palette.Filter mBlackWhiteFilter = (rgb, hsl) -> !isWhiteOrBlack(hsl);
 
+    /**
+     * The area bitmaps are scaled down to before quantizing. Palette's default.
+     */
+    private static final int QUANTIZE_BITMAP_AREA = 112 * 112;
+
+    /**
+     * The maximum number of swatches generated. Palette's default.
+     */
+    private static final int MAX_COLORS = 16;
+
+    private static final int QUANTIZE_WORD_WIDTH = 5;
+    private static final int QUANTIZE_WORD_MASK = (1 << QUANTIZE_WORD_WIDTH) - 1;
+
+    private static final int COMPONENT_RED = -3;
+    private static final int COMPONENT_GREEN = -2;
+    private static final int COMPONENT_BLUE = -1;
+
+    private static final int WHITE = 0xFFFFFFFF;
+    private static final int BLACK = 0xFF000000;
+
+    // Palette's default targets, in the order they're generated in. Earlier targets claim their swatch, so it can't be picked by later
+    // ones.
+    private static final Target LIGHT_VIBRANT = new Target(0.35f, 1f, 1f, 0.55f, 0.74f, 1f);
+    private static final Target VIBRANT = new Target(0.35f, 1f, 1f, 0.3f, 0.5f, 0.7f);
+    private static final Target DARK_VIBRANT = new Target(0.35f, 1f, 1f, 0f, 0.26f, 0.45f);
+    private static final Target LIGHT_MUTED = new Target(0f, 0.3f, 0.4f, 0.55f, 0.74f, 1f);
+    private static final Target MUTED = new Target(0f, 0.3f, 0.4f, 0.3f, 0.5f, 0.7f);
+    private static final Target DARK_MUTED = new Target(0f, 0.3f, 0.4f, 0f, 0.26f, 0.45f);
+
+    private static final Target[] TARGETS = { LIGHT_VIBRANT, VIBRANT, DARK_VIBRANT, LIGHT_MUTED, MUTED, DARK_MUTED };
+
+    // Population of each quantized colour
+    private final int[] histogram = new int[1 << (QUANTIZE_WORD_WIDTH * 3)];
+
+    // The distinct quantized colours which pass the current filter
+    private final int[] colors = new int[histogram.length];
+
+    private int[] pixels = new int[0];
+
+    private final float[] tempHsl = new float[3];
+
+    // The filters applied to the second pass. See isAllowed()
+    private boolean isFiltering;
+    @Nullable
+    private float[] mFilteredBackgroundHsl = null;
 
     /**
      * Processes a builder of a media notification and calculates the appropriate colors that should
@@ -69,75 +122,109 @@ public class BitmapPaletteProcessor {
      * returns a {@link Pair} of integers. The first is the background colour, second is foreground colour.
      */
     public Pair<Integer, Integer> processBitmap(Bitmap bitmap) {
-        int backgroundColor = 0;
-        Palette.Builder paletteBuilder = Palette.from(bitmap).clearFilters(); // we want all colors, red / white / black ones too!;
-        Palette palette = paletteBuilder.generate();
-        backgroundColor = findBackgroundColorAndFilter(palette);
-        if (mFilteredBackgroundHsl != null) {
-            paletteBuilder.addFilter((rgb, hsl) -> {
-                // at least 10 degrees hue difference
-                float diff = Math.abs(hsl[0] - mFilteredBackgroundHsl[0]);
-                return diff > 10 && diff < 350;
-            });
+        Bitmap scaledBitmap = scaleBitmapDown(bitmap);
+        int width = scaledBitmap.getWidth();
+        int height = scaledBitmap.getHeight();
+        if (pixels.length < width * height) {
+            pixels = new int[width * height];
+        }
+        scaledBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (scaledBitmap != bitmap) {
+            scaledBitmap.recycle();
+        }
+        return processPixels(pixels, width * height);
+    }
+
+    /**
+     * Calculates the background & foreground colours for the passed in pixels. Expects pixels from a bitmap which has already been
+     * scaled down, as {@link #processBitmap(Bitmap)} does.
+     *
+     * @param pixels ARGB pixels. The alpha channel is ignored.
+     * @param count the number of pixels to read from the start of the array.
+     * @return a {@link Pair} of integers. The first is the background colour, second is foreground colour.
+     */
+    @NonNull
+    public Pair<Integer, Integer> processPixels(@NonNull int[] pixels, int count) {
+        Arrays.fill(histogram, 0);
+        for (int i = 0; i < count; i++) {
+            histogram[quantizeFromRgb888(pixels[i])]++;
         }
-        paletteBuilder.addFilter(mBlackWhiteFilter);
-        palette = paletteBuilder.generate();
 
-        int foregroundColor = selectForegroundColor(backgroundColor, palette);
+        // We want all colors, red / white / black ones too!
+        isFiltering = false;
+        List<Swatch> swatches = quantize();
+        int backgroundColor = findBackgroundColorAndFilter(swatches, findDominantSwatch(swatches));
+
+        isFiltering = true;
+        swatches = quantize();
+        int foregroundColor = selectForegroundColor(backgroundColor, swatches);
 
         return new Pair<>(backgroundColor, foregroundColor);
     }
 
-    private int selectForegroundColor(int backgroundColor, Palette palette) {
+    private Bitmap scaleBitmapDown(Bitmap bitmap) {
+        int bitmapArea = bitmap.getWidth() * bitmap.getHeight();
+        if (bitmapArea <= QUANTIZE_BITMAP_AREA) {
+            return bitmap;
+        }
+        double scaleRatio = Math.sqrt(QUANTIZE_BITMAP_AREA / (double) bitmapArea);
+        return Bitmap.createScaledBitmap(bitmap,
+                (int) Math.ceil(bitmap.getWidth() * scaleRatio),
+                (int) Math.ceil(bitmap.getHeight() * scaleRatio),
+                false);
+    }
+
+    private int selectForegroundColor(int backgroundColor, List<Swatch> swatches) {
+        Swatch dominantSwatch = findDominantSwatch(swatches);
+        Swatch[] selectedSwatches = selectTargetSwatches(swatches, dominantSwatch);
         if (ColorHelper.isColorLight(backgroundColor)) {
-            return selectForegroundColorForSwatches(palette.getDarkVibrantSwatch(),
-                    palette.getVibrantSwatch(),
-                    palette.getDarkMutedSwatch(),
-                    palette.getMutedSwatch(),
-                    palette.getDominantSwatch(),
-                    Color.BLACK);
+            return selectForegroundColorForSwatches(selectedSwatches[2],
+                    selectedSwatches[1],
+                    selectedSwatches[5],
+                    selectedSwatches[4],
+                    dominantSwatch,
+                    BLACK);
         } else {
-            return selectForegroundColorForSwatches(palette.getLightVibrantSwatch(),
-                    palette.getVibrantSwatch(),
-                    palette.getLightMutedSwatch(),
-                    palette.getMutedSwatch(),
-                    palette.getDominantSwatch(),
-                    Color.WHITE);
+            return selectForegroundColorForSwatches(selectedSwatches[0],
+                    selectedSwatches[1],
+                    selectedSwatches[3],
+                    selectedSwatches[4],
+                    dominantSwatch,
+                    WHITE);
         }
     }
 
-    private int selectForegroundColorForSwatches(Palette.Swatch moreVibrant,
-            Palette.Swatch vibrant, Palette.Swatch moreMutedSwatch, Palette.Swatch mutedSwatch,
-            Palette.Swatch dominantSwatch, int fallbackColor) {
-        Palette.Swatch coloredCandidate = selectVibrantCandidate(moreVibrant, vibrant);
+    private int selectForegroundColorForSwatches(Swatch moreVibrant,
+            Swatch vibrant, Swatch moreMutedSwatch, Swatch mutedSwatch,
+            Swatch dominantSwatch, int fallbackColor) {
+        Swatch coloredCandidate = selectVibrantCandidate(moreVibrant, vibrant);
         if (coloredCandidate == null) {
             coloredCandidate = selectMutedCandidate(mutedSwatch, moreMutedSwatch);
         }
         if (coloredCandidate != null) {
             if (dominantSwatch == coloredCandidate) {
-                return coloredCandidate.getRgb();
-            } else if ((float) coloredCandidate.getPopulation() / dominantSwatch.getPopulation()
+                return coloredCandidate.rgb;
+            } else if ((float) coloredCandidate.population / dominantSwatch.population
                     < POPULATION_FRACTION_FOR_DOMINANT
-                    && dominantSwatch.getHsl()[1] > MIN_SATURATION_WHEN_DECIDING) {
-                return dominantSwatch.getRgb();
+                    && dominantSwatch.hsl[1] > MIN_SATURATION_WHEN_DECIDING) {
+                return dominantSwatch.rgb;
             } else {
-                return coloredCandidate.getRgb();
+                return coloredCandidate.rgb;
             }
         } else if (hasEnoughPopulation(dominantSwatch)) {
-            return dominantSwatch.getRgb();
+            return dominantSwatch.rgb;
         } else {
             return fallbackColor;
         }
     }
 
-    private Palette.Swatch selectMutedCandidate(Palette.Swatch first,
-            Palette.Swatch second) {
+    private Swatch selectMutedCandidate(Swatch first, Swatch second) {
         boolean firstValid = hasEnoughPopulation(first);
         boolean secondValid = hasEnoughPopulation(second);
         if (firstValid && secondValid) {
-            float firstSaturation = first.getHsl()[1];
-            float secondSaturation = second.getHsl()[1];
-            float populationFraction = first.getPopulation() / (float) second.getPopulation();
+            float firstSaturation = first.hsl[1];
+            float secondSaturation = second.hsl[1];
+            float populationFraction = first.population / (float) second.population;
             if (firstSaturation * populationFraction > secondSaturation) {
                 return first;
             } else {
@@ -151,12 +238,12 @@ public class BitmapPaletteProcessor {
         return null;
     }
 
-    private Palette.Swatch selectVibrantCandidate(Palette.Swatch first, Palette.Swatch second) {
+    private Swatch selectVibrantCandidate(Swatch first, Swatch second) {
         boolean firstValid = hasEnoughPopulation(first);
         boolean secondValid = hasEnoughPopulation(second);
         if (firstValid && secondValid) {
-            int firstPopulation = first.getPopulation();
-            int secondPopulation = second.getPopulation();
+            int firstPopulation = first.population;
+            int secondPopulation = second.population;
             if (firstPopulation / (float) secondPopulation
                     < POPULATION_FRACTION_FOR_MORE_VIBRANT) {
                 return second;
@@ -171,51 +258,49 @@ public class BitmapPaletteProcessor {
         return null;
     }
 
-    private boolean hasEnoughPopulation(Palette.Swatch swatch) {
+    private boolean hasEnoughPopulation(Swatch swatch) {
         // We want a fraction that is at least 1% of the image
         return swatch != null
-                && (swatch.getPopulation() / (float) RESIZE_BITMAP_AREA > MINIMUM_IMAGE_FRACTION);
+                && (swatch.population / (float) RESIZE_BITMAP_AREA > MINIMUM_IMAGE_FRACTION);
     }
 
-    private int findBackgroundColorAndFilter(Palette palette) {
+    private int findBackgroundColorAndFilter(List<Swatch> swatches, @Nullable Swatch dominantSwatch) {
         // by default we use the dominant palette
-        Palette.Swatch dominantSwatch = palette.getDominantSwatch();
         if (dominantSwatch == null) {
             // We're not filtering on white or black
             mFilteredBackgroundHsl = null;
-            return Color.WHITE;
+            return WHITE;
         }
 
-        if (!isWhiteOrBlack(dominantSwatch.getHsl())) {
-            mFilteredBackgroundHsl = dominantSwatch.getHsl();
-            return dominantSwatch.getRgb();
+        if (!isWhiteOrBlack(dominantSwatch.hsl)) {
+            mFilteredBackgroundHsl = dominantSwatch.hsl;
+            return dominantSwatch.rgb;
         }
         // Oh well, we selected black or white. Lets look at the second color!
-        List<Palette.Swatch> swatches = palette.getSwatches();
         float highestNonWhitePopulation = -1;
-        Palette.Swatch second = null;
-        for (Palette.Swatch swatch: swatches) {
+        Swatch second = null;
+        for (Swatch swatch : swatches) {
             if (swatch != dominantSwatch
-                    && swatch.getPopulation() > highestNonWhitePopulation
-                    && !isWhiteOrBlack(swatch.getHsl())) {
+                    && swatch.population > highestNonWhitePopulation
+                    && !isWhiteOrBlack(swatch.hsl)) {
                 second = swatch;
-                highestNonWhitePopulation = swatch.getPopulation();
+                highestNonWhitePopulation = swatch.population;
             }
         }
         if (second == null) {
             // We're not filtering on white or black
             mFilteredBackgroundHsl = null;
-            return dominantSwatch.getRgb();
+            return dominantSwatch.rgb;
         }
-        if (dominantSwatch.getPopulation() / highestNonWhitePopulation
+        if (dominantSwatch.population / highestNonWhitePopulation
                 > POPULATION_FRACTION_FOR_WHITE_OR_BLACK) {
             // The dominant swatch is very dominant, lets take it!
             // We're not filtering on white or black
             mFilteredBackgroundHsl = null;
-            return dominantSwatch.getRgb();
+            return dominantSwatch.rgb;
         } else {
-            mFilteredBackgroundHsl = second.getHsl();
-            return second.getRgb();
+            mFilteredBackgroundHsl = second.hsl;
+            return second.rgb;
         }
     }
 
@@ -238,4 +323,416 @@ public class BitmapPaletteProcessor {
         return hslColor[2] >= WHITE_MIN_LIGHTNESS;
     }
 
-}
\ No newline at end of file
+    /**
+     * @return false if the color should be excluded from the current pass.
+     */
+    private boolean isAllowed(float[] hsl) {
+        if (!isFiltering) {
+            return true;
+        }
+        if (mFilteredBackgroundHsl != null) {
+            // at least 10 degrees hue difference
+            float diff = Math.abs(hsl[0] - mFilteredBackgroundHsl[0]);
+            if (!(diff > 10 && diff < 350)) {
+                return false;
+            }
+        }
+        return !isWhiteOrBlack(hsl);
+    }
+
+    /**
+     * Reduces the histogram to at most {@link #MAX_COLORS} swatches, skipping colours which aren't allowed by the current filter. As
+     * Palette's ColorCutQuantizer.
+     */
+    private List<Swatch> quantize() {
+        int distinctColorCount = 0;
+        for (int color = 0; color < histogram.length; color++) {
+            if (histogram[color] > 0) {
+                rgbToHsl(approximateToRgb888(color), tempHsl);
+                if (isAllowed(tempHsl)) {
+                    colors[distinctColorCount++] = color;
+                }
+            }
+        }
+
+        if (distinctColorCount <= MAX_COLORS) {
+            // The image has fewer colors than the maximum requested, so just return the colors
+            List<Swatch> swatches = new ArrayList<>(distinctColorCount);
+            for (int i = 0; i < distinctColorCount; i++) {
+                swatches.add(new Swatch(approximateToRgb888(colors[i]), histogram[colors[i]]));
+            }
+            return swatches;
+        }
+
+        // Always split the largest box in the queue, until we have reached MAX_COLORS or there are no more boxes to split
+        PriorityQueue<Vbox> queue = new PriorityQueue<>(MAX_COLORS, (lhs, rhs) -> rhs.getVolume() - lhs.getVolume());
+        queue.offer(new Vbox(0, distinctColorCount - 1));
+        while (queue.size() < MAX_COLORS) {
+            Vbox vbox = queue.poll();
+            if (vbox != null && vbox.canSplit()) {
+                queue.offer(vbox.splitBox());
+                queue.offer(vbox);
+            } else {
+                break;
+            }
+        }
+
+        List<Swatch> swatches = new ArrayList<>(queue.size());
+        for (Vbox vbox : queue) {
+            Swatch swatch = vbox.getAverageColor();
+            // As we're averaging a color box, we can still get colors which we do not want, so we check again here
+            if (isAllowed(swatch.hsl)) {
+                swatches.add(swatch);
+            }
+        }
+        return swatches;
+    }
+
+    @Nullable
+    private static Swatch findDominantSwatch(List<Swatch> swatches) {
+        int maxPopulation = Integer.MIN_VALUE;
+        Swatch dominantSwatch = null;
+        for (int i = 0, count = swatches.size(); i < count; i++) {
+            Swatch swatch = swatches.get(i);
+            if (swatch.population > maxPopulation) {
+                dominantSwatch = swatch;
+                maxPopulation = swatch.population;
+            }
+        }
+        return dominantSwatch;
+    }
+
+    /**
+     * @return the swatch selected for each of {@link #TARGETS}, in the same order. Entries may be null.
+     */
+    private static Swatch[] selectTargetSwatches(List<Swatch> swatches, @Nullable Swatch dominantSwatch) {
+        int maxPopulation = dominantSwatch != null ? dominantSwatch.population : 1;
+        Swatch[] selectedSwatches = new Swatch[TARGETS.length];
+        List<Integer> usedColors = new ArrayList<>(TARGETS.length);
+        for (int t = 0; t < TARGETS.length; t++) {
+            Target target = TARGETS[t];
+            float maxScore = 0;
+            Swatch maxScoreSwatch = null;
+            for (int i = 0, count = swatches.size(); i < count; i++) {
+                Swatch swatch = swatches.get(i);
+                if (target.matches(swatch.hsl) && !usedColors.contains(swatch.rgb)) {
+                    float score = target.score(swatch, maxPopulation);
+                    if (maxScoreSwatch == null || score > maxScore) {
+                        maxScoreSwatch = swatch;
+                        maxScore = score;
+                    }
+                }
+            }
+            if (maxScoreSwatch != null) {
+                usedColors.add(maxScoreSwatch.rgb);
+            }
+            selectedSwatches[t] = maxScoreSwatch;
+        }
+        return selectedSwatches;
+    }
+
+    private static int quantizeFromRgb888(int color) {
+        int r = modifyWordWidth((color >> 16) & 0xFF, 8, QUANTIZE_WORD_WIDTH);
+        int g = modifyWordWidth((color >> 8) & 0xFF, 8, QUANTIZE_WORD_WIDTH);
+        int b = modifyWordWidth(color & 0xFF, 8, QUANTIZE_WORD_WIDTH);
+        return r << (QUANTIZE_WORD_WIDTH + QUANTIZE_WORD_WIDTH) | g << QUANTIZE_WORD_WIDTH | b;
+    }
+
+    private static int approximateToRgb888(int r, int g, int b) {
+        return BLACK
+                | modifyWordWidth(r, QUANTIZE_WORD_WIDTH, 8) << 16
+                | modifyWordWidth(g, QUANTIZE_WORD_WIDTH, 8) << 8
+                | modifyWordWidth(b, QUANTIZE_WORD_WIDTH, 8);
+    }
+
+    private static int approximateToRgb888(int color) {
+        return approximateToRgb888(quantizedRed(color), quantizedGreen(color), quantizedBlue(color));
+    }
+
+    private static int quantizedRed(int color) {
+        return (color >> (QUANTIZE_WORD_WIDTH + QUANTIZE_WORD_WIDTH)) & QUANTIZE_WORD_MASK;
+    }
+
+    private static int quantizedGreen(int color) {
+        return (color >> QUANTIZE_WORD_WIDTH) & QUANTIZE_WORD_MASK;
+    }
+
+    private static int quantizedBlue(int color) {
+        return color & QUANTIZE_WORD_MASK;
+    }
+
+    private static int modifyWordWidth(int value, int currentWidth, int targetWidth) {
+        int newValue;
+        if (targetWidth > currentWidth) {
+            // If we're approximating up in word width, we'll shift up
+            newValue = value << (targetWidth - currentWidth);
+        } else {
+            // Else, we will just shift and keep the MSB
+            newValue = value >> (currentWidth - targetWidth);
+        }
+        return newValue & ((1 << targetWidth) - 1);
+    }
+
+    /**
+     * As ColorUtils.RGBToHSL()
+     */
+    private static void rgbToHsl(int rgb, float[] outHsl) {
+        float rf = ((rgb >> 16) & 0xFF) / 255f;
+        float gf = ((rgb >> 8) & 0xFF) / 255f;
+        float bf = (rgb & 0xFF) / 255f;
+
+        float max = Math.max(rf, Math.max(gf, bf));
+        float min = Math.min(rf, Math.min(gf, bf));
+        float deltaMaxMin = max - min;
+
+        float h, s;
+        float l = (max + min) / 2f;
+
+        if (max == min) {
+            // Monochromatic
+            h = s = 0f;
+        } else {
+            if (max == rf) {
+                h = ((gf - bf) / deltaMaxMin) % 6f;
+            } else if (max == gf) {
+                h = ((bf - rf) / deltaMaxMin) + 2f;
+            } else {
+                h = ((rf - gf) / deltaMaxMin) + 4f;
+            }
+
+            s = deltaMaxMin / (1f - Math.abs(2f * l - 1f));
+        }
+
+        h = (h * 60f) % 360f;
+        if (h < 0) {
+            h += 360f;
+        }
+
+        outHsl[0] = Math.max(0f, Math.min(h, 360f));
+        outHsl[1] = Math.max(0f, Math.min(s, 1f));
+        outHsl[2] = Math.max(0f, Math.min(l, 1f));
+    }
+
+    private static final class Swatch {
+
+        final int rgb;
+        final int population;
+        final float[] hsl = new float[3];
+
+        Swatch(int rgb, int population) {
+            this.rgb = rgb;
+            this.population = population;
+            rgbToHsl(rgb, hsl);
+        }
+    }
+
+    /**
+     * A range of saturation & lightness, and the ideal values within it. As Palette's Target, with its default weights.
+     */
+    private static final class Target {
+
+        private static final float WEIGHT_SATURATION;
+        private static final float WEIGHT_LUMA;
+        private static final float WEIGHT_POPULATION;
+
+        static {
+            // Normalized as Target.normalizeWeights() does, so scores match to the bit
+            float sum = 0.24f + 0.52f + 0.24f;
+            WEIGHT_SATURATION = 0.24f / sum;
+            WEIGHT_LUMA = 0.52f / sum;
+            WEIGHT_POPULATION = 0.24f / sum;
+        }
+
+        final float minSaturation, targetSaturation, maxSaturation;
+        final float minLightness, targetLightness, maxLightness;
+
+        Target(float minSaturation, float targetSaturation, float maxSaturation, float minLightness, float targetLightness, float maxLightness) {
+            this.minSaturation = minSaturation;
+            this.targetSaturation = targetSaturation;
+            this.maxSaturation = maxSaturation;
+            this.minLightness = minLightness;
+            this.targetLightness = targetLightness;
+            this.maxLightness = maxLightness;
+        }
+
+        boolean matches(float[] hsl) {
+            return hsl[1] >= minSaturation && hsl[1] <= maxSaturation
+                    && hsl[2] >= minLightness && hsl[2] <= maxLightness;
+        }
+
+        float score(Swatch swatch, int maxPopulation) {
+            float saturationScore = WEIGHT_SATURATION * (1f - Math.abs(swatch.hsl[1] - targetSaturation));
+            float luminanceScore = WEIGHT_LUMA * (1f - Math.abs(swatch.hsl[2] - targetLightness));
+            float populationScore = WEIGHT_POPULATION * (swatch.population / (float) maxPopulation);
+            return saturationScore + luminanceScore + populationScore;
+        }
+    }
+
+    /**
+     * Represents a tightly fitting box around a range of {@link #colors}. As ColorCutQuantizer.Vbox.
+     */
+    private final class Vbox {
+
+        // lower and upper index are inclusive
+        private int lowerIndex;
+        private int upperIndex;
+
+        // Population of colors within this box
+        private int population;
+
+        private int minRed, maxRed;
+        private int minGreen, maxGreen;
+        private int minBlue, maxBlue;
+
+        Vbox(int lowerIndex, int upperIndex) {
+            this.lowerIndex = lowerIndex;
+            this.upperIndex = upperIndex;
+            fitBox();
+        }
+
+        int getVolume() {
+            return (maxRed - minRed + 1) * (maxGreen - minGreen + 1) * (maxBlue - minBlue + 1);
+        }
+
+        boolean canSplit() {
+            return 1 + upperIndex - lowerIndex > 1;
+        }
+
+        /**
+         * Recomputes the boundaries of this box to tightly fit the colors within the box.
+         */
+        void fitBox() {
+            minRed = minGreen = minBlue = Integer.MAX_VALUE;
+            maxRed = maxGreen = maxBlue = Integer.MIN_VALUE;
+            int count = 0;
+
+            for (int i = lowerIndex; i <= upperIndex; i++) {
+                int color = colors[i];
+                count += histogram[color];
+
+                int r = quantizedRed(color);
+                int g = quantizedGreen(color);
+                int b = quantizedBlue(color);
+                minRed = Math.min(minRed, r);
+                maxRed = Math.max(maxRed, r);
+                minGreen = Math.min(minGreen, g);
+                maxGreen = Math.max(maxGreen, g);
+                minBlue = Math.min(minBlue, b);
+                maxBlue = Math.max(maxBlue, b);
+            }
+
+            population = count;
+        }
+
+        /**
+         * Split this color box at the mid-point along its longest dimension
+         *
+         * @return the new ColorBox
+         */
+        Vbox splitBox() {
+            int splitPoint = findSplitPoint();
+
+            Vbox newBox = new Vbox(splitPoint + 1, upperIndex);
+
+            // Now change this box's upperIndex and recompute the color boundaries
+            upperIndex = splitPoint;
+            fitBox();
+
+            return newBox;
+        }
+
+        int getLongestColorDimension() {
+            int redLength = maxRed - minRed;
+            int greenLength = maxGreen - minGreen;
+            int blueLength = maxBlue - minBlue;
+
+            if (redLength >= greenLength && redLength >= blueLength) {
+                return COMPONENT_RED;
+            } else if (greenLength >= redLength && greenLength >= blueLength) {
+                return COMPONENT_GREEN;
+            } else {
+                return COMPONENT_BLUE;
+            }
+        }
+
+        /**
+         * @return the index of the last color in this box, once sorted along its longest dimension, which is at or below the median
+         * population.
+         */
+        int findSplitPoint() {
+            int longestDimension = getLongestColorDimension();
+
+            // Sort the colors in this box along the longest dimension, by temporarily making it the most significant component
+            modifySignificantOctet(colors, longestDimension, lowerIndex, upperIndex);
+            Arrays.sort(colors, lowerIndex, upperIndex + 1);
+            modifySignificantOctet(colors, longestDimension, lowerIndex, upperIndex);
+
+            int midPoint = population / 2;
+            for (int i = lowerIndex, count = 0; i <= upperIndex; i++) {
+                count += histogram[colors[i]];
+                if (count >= midPoint) {
+                    // we never want to split on the upperIndex, as this will result in the same box
+                    return Math.min(upperIndex - 1, i);
+                }
+            }
+
+            return lowerIndex;
+        }
+
+        /**
+         * @return the average color of this box.
+         */
+        Swatch getAverageColor() {
+            int redSum = 0;
+            int greenSum = 0;
+            int blueSum = 0;
+            int totalPopulation = 0;
+
+            for (int i = lowerIndex; i <= upperIndex; i++) {
+                int color = colors[i];
+                int colorPopulation = histogram[color];
+
+                totalPopulation += colorPopulation;
+                redSum += colorPopulation * quantizedRed(color);
+                greenSum += colorPopulation * quantizedGreen(color);
+                blueSum += colorPopulation * quantizedBlue(color);
+            }
+
+            int redMean = Math.round(redSum / (float) totalPopulation);
+            int greenMean = Math.round(greenSum / (float) totalPopulation);
+            int blueMean = Math.round(blueSum / (float) totalPopulation);
+
+            return new Swatch(approximateToRgb888(redMean, greenMean, blueMean), totalPopulation);
+        }
+    }
+
+    /**
+     * Modify the significant octet in a packed color int. Allows sorting based on the value of a single color component. This relies
+     * on all components being the same word size.
+     */
+    private static void modifySignificantOctet(int[] a, int dimension, int lower, int upper) {
+        switch (dimension) {
+            case COMPONENT_RED:
+                // Already in RGB, no need to do anything
+                break;
+            case COMPONENT_GREEN:
+                // We need to do a RGB to GRB swap, or vice-versa
+                for (int i = lower; i <= upper; i++) {
+                    int color = a[i];
+                    a[i] = quantizedGreen(color) << (QUANTIZE_WORD_WIDTH + QUANTIZE_WORD_WIDTH)
+                            | quantizedRed(color) << QUANTIZE_WORD_WIDTH
+                            | quantizedBlue(color);
+                }
+                break;
+            case COMPONENT_BLUE:
+                // We need to do a RGB to BGR swap, or vice-versa
+                for (int i = lower; i <= upper; i++) {
+                    int color = a[i];
+                    a[i] = quantizedBlue(color) << (QUANTIZE_WORD_WIDTH + QUANTIZE_WORD_WIDTH)
+                            | quantizedGreen(color) << QUANTIZE_WORD_WIDTH
+                            | quantizedRed(color);
+                }
+                break;
+        }
+    }
+}
@@ -345,7 +345,8 @@ public class ColorHelper {
          * @param outXyz 3-element array which holds the resulting LAB components
          */
         static void colorToXYZ(@ColorInt int color, @NonNull double[] outXyz) {
-            RGBToXYZ(Color.red(color), Color.green(color), Color.blue(color), outXyz);
+            // Unpacked directly, rather than via Color, so luminance can be calculated off-device
+            RGBToXYZ((color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF, outXyz);
         }
 
         /**
@@ -2,34 +2,80 @@ package com.simplecity.amp_library.utils.playlists
 
 import android.content.ContentValues
 import android.content.Context
+import android.database.ContentObserver
 import android.provider.MediaStore
-import android.support.v4.util.Pair
+import com.jakewharton.rxrelay2.BehaviorRelay
+import com.jakewharton.rxrelay2.PublishRelay
 import com.simplecity.amp_library.R
-import com.simplecity.amp_library.data.PlaylistsRepository
-import com.simplecity.amp_library.data.SongsRepository
+import com.simplecity.amp_library.data.Repository
 import com.simplecity.amp_library.model.Playlist
 import com.simplecity.amp_library.model.Playlist.Type
+import com.simplecity.amp_library.model.Query
 import com.simplecity.amp_library.model.Song
+import com.simplecity.amp_library.sql.SqlUtils
 import com.simplecity.amp_library.utils.LogUtils
+import com.simplecity.amp_library.utils.LongHashSet
 import io.reactivex.Completable
 import io.reactivex.Maybe
 import io.reactivex.Observable
 import io.reactivex.Single
 import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.disposables.Disposable
-import io.reactivex.functions.BiFunction
 import io.reactivex.schedulers.Schedulers
 import java.util.Collections
+import java.util.concurrent.Executors
 import java.util.concurrent.TimeUnit
 import javax.inject.Inject
+import javax.inject.Singleton
 
+/**
+ * Manages the favorites playlist.
+ *
+ * The ids of the favorite songs are held in memory, so [isFavorite] doesn't need to query the playlist. They're loaded once, updated as
+ * songs are added & removed here, and reloaded whenever a playlist or song changes in the MediaStore.
+ *
+ * Reloads & playlist writes run in order on a single thread, so the in-memory set always reflects the last write, however quickly
+ * favorites are toggled.
+ *
+ * If the favorites can't be loaded, the last set loaded is kept, or an empty set is published if none has been loaded yet.
+ */
+@Singleton
 class FavoritesPlaylistManager @Inject constructor(
     private val applicationContext: Context,
     private val playlistManager: PlaylistManager,
-    private val playlistsRepository: PlaylistsRepository,
-    private val songsRepository: SongsRepository
+    private val playlistsRepository: Repository.PlaylistsRepository
 ) {
 
+    // Guarded by 'lock'. Replaced, rather than modified, on reload.
+    private var favoriteSongIds = LongHashSet()
+    private val lock = Any()
+
+    // The play order for the next song added to favorites. Only accessed on 'scheduler'.
+    private var nextPlayOrder = 0L
+
+    // Emits each time favoriteSongIds changes, once it's been loaded (or failed to load)
+    private val favoritesChanged = BehaviorRelay.create<Unit>()
+
+    private val reloadRequests = PublishRelay.create<Unit>()
+
+    private val scheduler = Schedulers.from(Executors.newSingleThreadExecutor())
+
+    init {
+        val observer = object : ContentObserver(null) {
+            override fun onChange(selfChange: Boolean) {
+                reloadRequests.accept(Unit)
+            }
+        }
+        applicationContext.contentResolver.registerContentObserver(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, true, observer)
+        applicationContext.contentResolver.registerContentObserver(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, observer)
+
+        reloadRequests
+            .debounce(RELOAD_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)
+            .startWith(Unit)
+            .observeOn(scheduler)
+            .subscribe { reload() }
+    }
+
     fun getFavoritesPlaylist(): Single<Playlist?> {
         return playlistsRepository.getPlaylists()
             .first(Collections.emptyList())
@@ -43,9 +89,13 @@ class FavoritesPlaylistManager @Inject constructor(
     fun isFavorite(song: Song?): Observable<Boolean> {
         return if (song == null) {
             Observable.just(false)
-        } else getFavoritesPlaylist().flatMapObservable { playlist -> songsRepository.getSongs(playlist) }
-            .map { songs -> songs.contains(song) }
+        } else favoritesChanged
+            .map { containsSong(song.id) }
+            .distinctUntilChanged()
+    }
 
+    private fun containsSong(songId: Long): Boolean {
+        return synchronized(lock) { favoriteSongIds.contains(songId) }
     }
 
     fun createFavoritePlaylist(): Playlist? {
@@ -64,9 +114,11 @@ class FavoritesPlaylistManager @Inject constructor(
                 Completable.fromAction {
                     val uri = MediaStore.Audio.Playlists.Members.getContentUri("external", playlist.id)
                     applicationContext.contentResolver.delete(uri, null, null)
+                    synchronized(lock) { favoriteSongIds = LongHashSet() }
+                    favoritesChanged.accept(Unit)
                 }
             }
-            .subscribeOn(Schedulers.io())
+            .subscribeOn(scheduler)
             .subscribe(
                 { },
                 { throwable -> LogUtils.logException(TAG, "clearFavorites error", throwable) }
@@ -74,47 +126,23 @@ class FavoritesPlaylistManager @Inject constructor(
     }
 
     fun toggleFavorite(song: Song, isFavorite: (Boolean) -> Unit): Disposable {
-        return isFavorite(song)
-            .first(false)
-            .subscribeOn(Schedulers.io())
+        return favoritesChanged
+            .firstOrError()
+            .observeOn(scheduler)
+            .flatMapMaybe {
+                val favorite = !containsSong(song.id)
+                if (setFavorite(song, favorite)) Maybe.just(favorite) else Maybe.empty()
+            }
+            .observeOn(AndroidSchedulers.mainThread())
             .subscribe(
-                { favorite ->
-                    if (!favorite) {
-                        addToFavorites(song) { success ->
-                            if (success) {
-                                isFavorite.invoke(true)
-                            }
-                        }
-                    } else {
-                        removeFromFavorites(song) { success ->
-                            if (success) {
-                                isFavorite.invoke(false)
-                            }
-                        }
-                    }
-                },
+                { favorite -> isFavorite.invoke(favorite) },
                 { error -> LogUtils.logException(TAG, "PlaylistManager: Error toggling favorites", error) }
             )
     }
 
     fun addToFavorites(song: Song, success: (Boolean) -> Unit): Disposable {
-        return Single.zip<Playlist, Int, Pair<Playlist, Int>>(
-            getFavoritesPlaylist(),
-            getFavoritesPlaylist().flatMapObservable<List<Song>> { songsRepository.getSongs(it) }
-                .first(emptyList())
-                .map { it.size },
-            BiFunction { first, second -> Pair(first, second) })
-            .map { pair ->
-                val uri = MediaStore.Audio.Playlists.Members.getContentUri("external", pair.first!!.id)
-                val values = ContentValues()
-                values.put(MediaStore.Audio.Playlists.Members.AUDIO_ID, song.id)
-                values.put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, pair.second!! + 1)
-                val newUri = applicationContext.contentResolver.insert(uri, values)
-                applicationContext.contentResolver.notifyChange(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, null)
-                newUri != null
-            }
-            .delay(150, TimeUnit.MILLISECONDS)
-            .subscribeOn(Schedulers.io())
+        return Single.fromCallable { setFavorite(song, true) }
+            .subscribeOn(scheduler)
             .observeOn(AndroidSchedulers.mainThread())
             .subscribe(
                 { success.invoke(it) },
@@ -123,17 +151,103 @@ class FavoritesPlaylistManager @Inject constructor(
     }
 
     fun removeFromFavorites(song: Song, callback: (Boolean) -> Unit): Disposable {
-        return getFavoritesPlaylist()
-            .subscribeOn(Schedulers.io())
+        return Single.fromCallable { setFavorite(song, false) }
+            .subscribeOn(scheduler)
             .observeOn(AndroidSchedulers.mainThread())
             .subscribe(
-                { playlist -> playlist?.let { playlistManager.removeFromPlaylist(it, song, callback) } },
+                { callback.invoke(it) },
                 { error -> LogUtils.logException(TAG, "PlaylistManager: Error Removing from favorites", error) }
             )
     }
 
+    /**
+     * Adds the song to, or removes it from, the favorites playlist. The in-memory set is updated first, and restored if the write fails.
+     *
+     * Must be called on [scheduler].
+     *
+     * @return true if the playlist was changed.
+     */
+    private fun setFavorite(song: Song, favorite: Boolean): Boolean {
+        val playlist = getFavoritesPlaylist().blockingGet() ?: return false
+
+        val changed = updateFavoriteSongIds(song.id, favorite)
+
+        val success = if (favorite) {
+            val values = ContentValues()
+            values.put(MediaStore.Audio.Playlists.Members.AUDIO_ID, song.id)
+            values.put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, nextPlayOrder)
+            val uri = MediaStore.Audio.Playlists.Members.getContentUri("external", playlist.id)
+            val inserted = applicationContext.contentResolver.insert(uri, values) != null
+            if (inserted) {
+                nextPlayOrder++
+                applicationContext.contentResolver.notifyChange(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, null)
+            }
+            inserted
+        } else {
+            // Notifies the change itself
+            playlistManager.removeFromPlaylist(playlist, song) > 0
+        }
+
+        if (!success && changed) {
+            updateFavoriteSongIds(song.id, !favorite)
+        }
+        return success
+    }
+
+    /**
+     * @return true if the set of favorites changed.
+     */
+    private fun updateFavoriteSongIds(songId: Long, favorite: Boolean): Boolean {
+        val changed = synchronized(lock) {
+            if (favorite) favoriteSongIds.add(songId) else favoriteSongIds.remove(songId)
+        }
+        if (changed) {
+            favoritesChanged.accept(Unit)
+        }
+        return changed
+    }
+
+    /**
+     * Reloads the favorite song ids, and the next play order, from the favorites playlist. Must be called on [scheduler].
+     */
+    private fun reload() {
+        var songIds = LongHashSet()
+        var maxPlayOrder = 0L
+        try {
+            val playlist = getFavoritesPlaylist().blockingGet() ?: throw IllegalStateException("No favorites playlist")
+
+            val query = Query.Builder()
+                .uri(MediaStore.Audio.Playlists.Members.getContentUri("external", playlist.id))
+                .projection(arrayOf(MediaStore.Audio.Playlists.Members.AUDIO_ID, MediaStore.Audio.Playlists.Members.PLAY_ORDER))
+                .build()
+
+            SqlUtils.createQuery(applicationContext, query)?.use { cursor ->
+                while (cursor.moveToNext()) {
+                    songIds.add(cursor.getLong(0))
+                    maxPlayOrder = Math.max(maxPlayOrder, cursor.getLong(1))
+                }
+            }
+        } catch (e: Exception) {
+            LogUtils.logException(TAG, "Failed to load favorites", e)
+            if (favoritesChanged.hasValue()) {
+                // Keep the favorites from the last successful load
+                return
+            }
+            // Publish an empty set, rather than leaving isFavorite() & toggleFavorite() waiting for a load which may never succeed
+            songIds = LongHashSet()
+            maxPlayOrder = 0L
+        }
+
+        synchronized(lock) { favoriteSongIds = songIds }
+        nextPlayOrder = maxPlayOrder + 1
+        favoritesChanged.accept(Unit)
+    }
+
     companion object {
 
         private val TAG = "FavoritesPlaylistManage"
+
+        // Bulk changes to the MediaStore notify many times in quick succession
+        private const val RELOAD_DEBOUNCE_MILLIS = 500L
     }
 }
\ No newline at end of file
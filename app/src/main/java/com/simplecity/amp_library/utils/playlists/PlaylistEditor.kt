@@ -0,0 +1,161 @@
+package com.simplecity.amp_library.utils.playlists
+
+import android.content.ContentProviderOperation
+import android.content.ContentValues
+import android.content.Context
+import android.provider.MediaStore
+import com.simplecity.amp_library.model.Query
+import com.simplecity.amp_library.model.Song
+import com.simplecity.amp_library.sql.SqlUtils
+import com.simplecity.amp_library.utils.ThreadUtils
+import java.util.ArrayList
+
+/**
+ * Stages edits to a MediaStore playlist, and writes them together.
+ *
+ * Edits are applied in the order they're staged, so the positions passed to [move] refer to the playlist as it is after the edits staged
+ * before it. Added songs are appended to the end of the playlist.
+ *
+ * [commit] writes all the edits with a single [android.content.ContentResolver.applyBatch] (or a single
+ * [android.content.ContentResolver.bulkInsert], if songs are only being added), and then publishes a single change notification.
+ */
+class PlaylistEditor(
+    private val applicationContext: Context,
+    playlistId: Long
+) {
+
+    private sealed class Edit {
+        class Add(val songIds: LongArray) : Edit()
+        class Remove(val songId: Long) : Edit()
+        class Move(val from: Int, val to: Int) : Edit()
+        object Clear : Edit()
+    }
+
+    private val edits = ArrayList<Edit>()
+
+    private val uri = MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId)
+
+    fun add(songs: List<Song>): PlaylistEditor {
+        if (!songs.isEmpty()) {
+            edits.add(Edit.Add(LongArray(songs.size) { i -> songs[i].id }))
+        }
+        return this
+    }
+
+    fun add(songIds: LongArray): PlaylistEditor {
+        if (songIds.isNotEmpty()) {
+            edits.add(Edit.Add(songIds))
+        }
+        return this
+    }
+
+    /**
+     * Removes every occurrence of the song from the playlist.
+     */
+    fun remove(song: Song): PlaylistEditor {
+        edits.add(Edit.Remove(song.id))
+        return this
+    }
+
+    fun move(from: Int, to: Int): PlaylistEditor {
+        if (from != to) {
+            edits.add(Edit.Move(from, to))
+        }
+        return this
+    }
+
+    fun clear(): PlaylistEditor {
+        edits.add(Edit.Clear)
+        return this
+    }
+
+    /**
+     * Writes the staged edits. Must not be called on the main thread if any songs are being added, as the end of the playlist is queried.
+     *
+     * @return the number of playlist entries which were inserted, removed or moved.
+     */
+    fun commit(): Int {
+        if (edits.isEmpty()) {
+            return 0
+        }
+
+        var count = 0
+        val contentResolver = applicationContext.contentResolver
+
+        if (edits.all { edit -> edit is Edit.Add }) {
+            count = contentResolver.bulkInsert(uri, createAddValues(edits.flatMap { edit -> (edit as Edit.Add).songIds.asIterable() }))
+        } else {
+            var playOrder = if (edits.any { edit -> edit is Edit.Add }) getNextPlayOrder() else 0L
+
+            val operations = ArrayList<ContentProviderOperation>(edits.size)
+            for (edit in edits) {
+                when (edit) {
+                    is Edit.Add -> edit.songIds.forEach { songId ->
+                        operations.add(
+                            ContentProviderOperation.newInsert(uri)
+                                .withValue(MediaStore.Audio.Playlists.Members.AUDIO_ID, songId)
+                                .withValue(MediaStore.Audio.Playlists.Members.PLAY_ORDER, playOrder++)
+                                .build()
+                        )
+                    }
+                    is Edit.Remove -> operations.add(
+                        ContentProviderOperation.newDelete(uri)
+                            .withSelection(MediaStore.Audio.Playlists.Members.AUDIO_ID + "=?", arrayOf(edit.songId.toString()))
+                            .build()
+                    )
+                    is Edit.Move -> operations.add(
+                        // The same update MediaStore.Audio.Playlists.Members.moveItem() makes
+                        ContentProviderOperation.newUpdate(
+                            uri.buildUpon()
+                                .appendEncodedPath(edit.from.toString())
+                                .appendQueryParameter("move", "true")
+                                .build()
+                        )
+                            .withValue(MediaStore.Audio.Playlists.Members.PLAY_ORDER, edit.to)
+                            .build()
+                    )
+                    is Edit.Clear -> operations.add(ContentProviderOperation.newDelete(uri).build())
+                }
+            }
+
+            for (result in contentResolver.applyBatch(MediaStore.AUTHORITY, operations)) {
+                count += if (result.uri != null) 1 else result.count ?: 0
+            }
+        }
+
+        edits.clear()
+
+        if (count > 0) {
+            contentResolver.notifyChange(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI, null)
+        }
+
+        return count
+    }
+
+    private fun createAddValues(songIds: List<Long>): Array<ContentValues> {
+        var playOrder = getNextPlayOrder()
+        return Array(songIds.size) { i ->
+            val values = ContentValues(2)
+            values.put(MediaStore.Audio.Playlists.Members.AUDIO_ID, songIds[i])
+            values.put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, playOrder++)
+            values
+        }
+    }
+
+    /**
+     * @return the play order following the last entry in the playlist.
+     */
+    private fun getNextPlayOrder(): Long {
+        ThreadUtils.ensureNotOnMainThread()
+
+        val query = Query.Builder()
+            .uri(uri)
+            .projection(arrayOf(MediaStore.Audio.Playlists.Members.PLAY_ORDER))
+            .sort(MediaStore.Audio.Playlists.Members.PLAY_ORDER + " DESC")
+            .build()
+
+        return SqlUtils.createQuery(applicationContext, query)?.use { cursor ->
+            if (cursor.moveToFirst()) cursor.getLong(0) + 1 else 0L
+        } ?: 0L
+    }
+}
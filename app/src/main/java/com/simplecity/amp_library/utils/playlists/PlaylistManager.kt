@@ -5,6 +5,7 @@ import android.app.ProgressDialog
 import android.content.ContentValues
 import android.content.Context
 import android.provider.MediaStore
+import android.support.annotation.WorkerThread
 import android.text.Spannable
 import android.text.SpannableStringBuilder
 import android.text.TextUtils
@@ -25,12 +26,18 @@ import com.simplecity.amp_library.model.Song
 import com.simplecity.amp_library.sql.SqlUtils
 import com.simplecity.amp_library.sql.providers.PlayCountTable
 import com.simplecity.amp_library.utils.LogUtils
+import com.simplecity.amp_library.utils.LongHashSet
 import com.simplecity.amp_library.utils.SettingsManager
 import com.simplecity.amp_library.utils.ShuttleUtils
+import com.simplecity.amp_library.utils.playlists.io.PlaylistEntry
+import com.simplecity.amp_library.utils.playlists.io.PlaylistFormat
+import com.simplecity.amp_library.utils.playlists.io.PlaylistReader
+import com.simplecity.amp_library.utils.playlists.io.SongPathIndex
 import io.reactivex.Single
 import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.disposables.Disposable
 import io.reactivex.schedulers.Schedulers
+import java.io.File
 import java.util.ArrayList
 import java.util.concurrent.TimeUnit
 import javax.inject.Inject
@@ -61,104 +68,97 @@ class PlaylistManager @Inject constructor(
 
         val mutableSongList = ArrayList(songs)
 
+        if (settingsManager.ignoreDuplicates()) {
+            return insertPlaylistItems(playlist, mutableSongList, callback)
+        }
+
         return songsRepository.getSongs(playlist)
             .first(emptyList())
             .observeOn(AndroidSchedulers.mainThread())
             .subscribe(
                 { existingSongs ->
-                    if (!settingsManager.ignoreDuplicates()) {
-
-                        val duplicates = existingSongs
-                            .filter { mutableSongList.contains(it) }
-                            .distinct()
-                            .toMutableList()
-
-                        if (!duplicates.isEmpty()) {
-                            @SuppressLint("InflateParams")
-                            val customView = LayoutInflater.from(applicationContext).inflate(R.layout.dialog_playlist_duplicates, null)
-                            val messageText = customView.findViewById<TextView>(R.id.textView)
-                            val applyToAll = customView.findViewById<CheckBox>(R.id.applyToAll)
-                            val alwaysAdd = customView.findViewById<CheckBox>(R.id.alwaysAdd)
-
-                            if (duplicates.size <= 1) {
-                                applyToAll.visibility = View.GONE
-                                applyToAll.isChecked = false
-                            }
+                    val songIds = LongHashSet(mutableSongList.size)
+                    mutableSongList.forEach { song -> songIds.add(song.id) }
 
-                            messageText.text = getPlaylistRemoveString(duplicates[0])
-                            applyToAll.text = String.format(applicationContext.getString(R.string.dialog_checkbox_playlist_duplicate_apply_all), duplicates.size)
-
-                            // Fixme: Should not use application context to present dialog.
-                            MaterialDialog.Builder(applicationContext)
-                                .title(R.string.dialog_title_playlist_duplicates)
-                                .customView(customView, false)
-                                .positiveText(R.string.dialog_button_playlist_duplicate_add)
-                                .autoDismiss(false)
-                                .onPositive { dialog, which ->
-                                    //If we've only got one item, or we're applying it to all items
-                                    if (duplicates.size != 1 && !applyToAll.isChecked) {
-                                        //If we're 'adding' this song, we remove it from the 'duplicates' list
-                                        duplicates.removeAt(0)
-                                        messageText.text = getPlaylistRemoveString(duplicates[0])
-                                        applyToAll.text = String.format(applicationContext.getString(R.string.dialog_checkbox_playlist_duplicate_apply_all), duplicates.size)
-                                    } else {
-                                        //Add all songs to the playlist
-                                        insertPlaylistItems(playlist, mutableSongList, existingSongs.size, callback)
-                                        settingsManager.setIgnoreDuplicates(alwaysAdd.isChecked)
-                                        dialog.dismiss()
-                                    }
+                    val duplicates = existingSongs
+                        .filter { song -> songIds.remove(song.id) }
+                        .toMutableList()
+
+                    if (!duplicates.isEmpty()) {
+                        @SuppressLint("InflateParams")
+                        val customView = LayoutInflater.from(applicationContext).inflate(R.layout.dialog_playlist_duplicates, null)
+                        val messageText = customView.findViewById<TextView>(R.id.textView)
+                        val applyToAll = customView.findViewById<CheckBox>(R.id.applyToAll)
+                        val alwaysAdd = customView.findViewById<CheckBox>(R.id.alwaysAdd)
+
+                        if (duplicates.size <= 1) {
+                            applyToAll.visibility = View.GONE
+                            applyToAll.isChecked = false
+                        }
+
+                        messageText.text = getPlaylistRemoveString(duplicates[0])
+                        applyToAll.text = String.format(applicationContext.getString(R.string.dialog_checkbox_playlist_duplicate_apply_all), duplicates.size)
+
+                        // Fixme: Should not use application context to present dialog.
+                        MaterialDialog.Builder(applicationContext)
+                            .title(R.string.dialog_title_playlist_duplicates)
+                            .customView(customView, false)
+                            .positiveText(R.string.dialog_button_playlist_duplicate_add)
+                            .autoDismiss(false)
+                            .onPositive { dialog, which ->
+                                //If we've only got one item, or we're applying it to all items
+                                if (duplicates.size != 1 && !applyToAll.isChecked) {
+                                    //If we're 'adding' this song, we remove it from the 'duplicates' list
+                                    duplicates.removeAt(0)
+                                    messageText.text = getPlaylistRemoveString(duplicates[0])
+                                    applyToAll.text = String.format(applicationContext.getString(R.string.dialog_checkbox_playlist_duplicate_apply_all), duplicates.size)
+                                } else {
+                                    //Add all songs to the playlist
+                                    insertPlaylistItems(playlist, mutableSongList, callback)
+                                    settingsManager.setIgnoreDuplicates(alwaysAdd.isChecked)
+                                    dialog.dismiss()
                                 }
-                                .negativeText(R.string.dialog_button_playlist_duplicate_skip)
-                                .onNegative { dialog, which ->
-                                    //If we've only got one item, or we're applying it to all items
-                                    if (duplicates.size != 1 && !applyToAll.isChecked) {
-                                        //If we're 'skipping' this song, we remove it from the 'duplicates' list,
-                                        // and from the ids to be added
-                                        mutableSongList.remove(duplicates.removeAt(0))
-                                        messageText.text = getPlaylistRemoveString(duplicates[0])
-                                        applyToAll.text = String.format(applicationContext.getString(R.string.dialog_checkbox_playlist_duplicate_apply_all), duplicates.size)
-                                    } else {
-                                        //Remove duplicates from our set of ids
-                                        duplicates
-                                            .filter { mutableSongList.contains(it) }
-                                            .forEach { mutableSongList.remove(it) }
-                                        insertPlaylistItems(playlist, mutableSongList, existingSongs.size, callback)
-                                        settingsManager.setIgnoreDuplicates(alwaysAdd.isChecked)
-                                        dialog.dismiss()
-                                    }
+                            }
+                            .negativeText(R.string.dialog_button_playlist_duplicate_skip)
+                            .onNegative { dialog, which ->
+                                //If we've only got one item, or we're applying it to all items
+                                if (duplicates.size != 1 && !applyToAll.isChecked) {
+                                    //If we're 'skipping' this song, we remove it from the 'duplicates' list,
+                                    // and from the ids to be added
+                                    mutableSongList.remove(duplicates.removeAt(0))
+                                    messageText.text = getPlaylistRemoveString(duplicates[0])
+                                    applyToAll.text = String.format(applicationContext.getString(R.string.dialog_checkbox_playlist_duplicate_apply_all), duplicates.size)
+                                } else {
+                                    //Remove duplicates from our set of ids
+                                    val duplicateIds = LongHashSet(duplicates.size)
+                                    duplicates.forEach { song -> duplicateIds.add(song.id) }
+                                    mutableSongList.removeAll { song -> duplicateIds.contains(song.id) }
+                                    insertPlaylistItems(playlist, mutableSongList, callback)
+                                    settingsManager.setIgnoreDuplicates(alwaysAdd.isChecked)
+                                    dialog.dismiss()
                                 }
-                                .show()
-                        } else {
-                            insertPlaylistItems(playlist, mutableSongList, existingSongs.size, callback)
-                        }
+                            }
+                            .show()
                     } else {
-                        insertPlaylistItems(playlist, mutableSongList, existingSongs.size, callback)
+                        insertPlaylistItems(playlist, mutableSongList, callback)
                     }
                 },
                 { error -> LogUtils.logException(TAG, "PlaylistManager: Error determining existing songs", error) }
             )
     }
 
-    private fun insertPlaylistItems(playlist: Playlist, songs: List<Song>, songCount: Int, callback: ((Int) -> Unit)?) {
+    private fun insertPlaylistItems(playlist: Playlist, songs: List<Song>, callback: ((Int) -> Unit)?): Disposable? {
         if (songs.isEmpty()) {
-            return
-        }
-
-        val contentValues = arrayOfNulls<ContentValues>(songs.size)
-        var i = 0
-        val length = songs.size
-        while (i < length) {
-            contentValues[i] = ContentValues()
-            contentValues[i]!!.put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, songCount + i)
-            contentValues[i]!!.put(MediaStore.Audio.Playlists.Members.AUDIO_ID, songs[i].id)
-            i++
+            return null
         }
 
-        val uri = MediaStore.Audio.Playlists.Members.getContentUri("external", playlist.id)
-        if (uri != null) {
-            applicationContext.contentResolver.bulkInsert(uri, contentValues)
-            callback?.invoke(songs.size)
-        }
+        return Single.fromCallable { PlaylistEditor(applicationContext, playlist.id).add(songs).commit() }
+            .subscribeOn(Schedulers.io())
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(
+                { callback?.invoke(songs.size) },
+                { error -> LogUtils.logException(TAG, "PlaylistManager: Error inserting playlist items", error) }
+            )
     }
 
     private fun getPlaylistRemoveString(song: Song): SpannableStringBuilder {
@@ -169,8 +169,7 @@ class PlaylistManager @Inject constructor(
     }
 
     fun clearPlaylist(playlistId: Long) {
-        val uri = MediaStore.Audio.Playlists.Members.getContentUri("external", playlistId)
-        applicationContext.contentResolver.delete(uri, null, null)
+        PlaylistEditor(applicationContext, playlistId).clear().commit()
     }
 
     fun createPlaylist(name: String): Playlist? {
@@ -217,14 +216,7 @@ class PlaylistManager @Inject constructor(
     }
 
     fun removeFromPlaylist(playlist: Playlist, song: Song, callback: Function1<Boolean, Unit>?): Disposable {
-        return Single.fromCallable {
-            var numTracksRemoved = 0
-            if (playlist.id >= 0) {
-                val uri = MediaStore.Audio.Playlists.Members.getContentUri("external", playlist.id)
-                numTracksRemoved = applicationContext.contentResolver.delete(uri, MediaStore.Audio.Playlists.Members.AUDIO_ID + "=" + song.id, null)
-            }
-            numTracksRemoved
-        }
+        return Single.fromCallable { removeFromPlaylist(playlist, song) }
             .delay(150, TimeUnit.MILLISECONDS)
             .subscribeOn(Schedulers.io())
             .observeOn(AndroidSchedulers.mainThread())
@@ -234,6 +226,16 @@ class PlaylistManager @Inject constructor(
             )
     }
 
+    /**
+     * Removes every occurrence of the song from the playlist. Blocks, so must not be called on the main thread.
+     *
+     * @return the number of playlist entries removed.
+     */
+    @WorkerThread
+    fun removeFromPlaylist(playlist: Playlist, song: Song): Int {
+        return if (playlist.id >= 0) PlaylistEditor(applicationContext, playlist.id).remove(song).commit() else 0
+    }
+
     fun addFileObjectsToPlaylist(context: Context, playlist: Playlist, fileObjects: List<BaseFileObject>, callback: Function1<Int, Unit>): Disposable {
         val progressDialog = ProgressDialog.show(context, "", context.getString(R.string.gathering_songs), false)
 
@@ -258,6 +260,63 @@ class PlaylistManager @Inject constructor(
             )
     }
 
+    /**
+     * Creates a playlist from an M3U, M3U8 or PLS file, named after the file.
+     *
+     * The file is read line by line. Entries are matched to songs by path using an index of the MediaStore, built once per import, and
+     * entries which don't match a song are skipped. The matched songs are added with a single batch.
+     *
+     * @param progressCallback called on the main thread with the percentage of the file read so far.
+     * @return the new playlist, and the number of songs added to it.
+     */
+    fun importPlaylist(file: File, progressCallback: ((Int) -> Unit)?): Single<Pair<Playlist, Int>> {
+        return Single.fromCallable {
+            val format = PlaylistFormat.forFileName(file.name) ?: throw IllegalArgumentException("Unsupported playlist file: $file")
+
+            val songPathIndex = createSongPathIndex()
+
+            var songIds = LongArray(1024)
+            var count = 0
+            PlaylistReader.read(file, format, object : PlaylistReader.Callback {
+                override fun onEntry(entry: PlaylistEntry) {
+                    val songId = songPathIndex.find(entry.path)
+                    if (songId != SongPathIndex.NO_SONG) {
+                        if (count == songIds.size) {
+                            songIds = songIds.copyOf(count * 2)
+                        }
+                        songIds[count++] = songId
+                    }
+                }
+
+                override fun onProgress(percent: Int) {
+                    progressCallback?.let { callback -> AndroidSchedulers.mainThread().scheduleDirect { callback.invoke(percent) } }
+                }
+            })
+
+            val playlist = createPlaylist(file.nameWithoutExtension) ?: throw IllegalStateException("Failed to create playlist for $file")
+            PlaylistEditor(applicationContext, playlist.id).add(songIds.copyOf(count)).commit()
+
+            Pair(playlist, count)
+        }
+            .subscribeOn(Schedulers.io())
+            .observeOn(AndroidSchedulers.mainThread())
+    }
+
+    private fun createSongPathIndex(): SongPathIndex {
+        val query = Query.Builder()
+            .uri(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI)
+            .projection(arrayOf(MediaStore.Audio.Media._ID, MediaStore.Audio.Media.DATA))
+            .build()
+
+        return SqlUtils.createQuery(applicationContext, query)?.use { cursor ->
+            val songPathIndex = SongPathIndex(cursor.count)
+            while (cursor.moveToNext()) {
+                cursor.getString(1)?.let { path -> songPathIndex.put(path, cursor.getLong(0)) }
+            }
+            songPathIndex
+        } ?: SongPathIndex(0)
+    }
+
     companion object {
         private const val TAG = "PlaylistManager"
 
@@ -0,0 +1,39 @@
+package com.simplecity.amp_library.utils.playlists.io;
+
+/**
+ * A single entry in a playlist file.
+ */
+public final class PlaylistEntry {
+
+    public static final long UNKNOWN_DURATION = -1;
+
+    /**
+     * The absolute path of the entry, or its URL if it's a remote stream.
+     */
+    public final String path;
+
+    /**
+     * The display title of the entry, or null if the file doesn't have one.
+     */
+    public final String title;
+
+    /**
+     * The duration of the entry in seconds, or {@link #UNKNOWN_DURATION}.
+     */
+    public final long durationSeconds;
+
+    public PlaylistEntry(String path, String title, long durationSeconds) {
+        this.path = path;
+        this.title = title;
+        this.durationSeconds = durationSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "PlaylistEntry{" +
+                "path='" + path + '\'' +
+                ", title='" + title + '\'' +
+                ", durationSeconds=" + durationSeconds +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+package com.simplecity.amp_library.utils.playlists.io;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * The playlist file formats which can be read & written.
+ * <p>
+ * All formats are read & written as UTF-8. This is the encoding M3U8 requires, and the one Android (and so this app's previous M3U
+ * export) uses by default for M3U.
+ */
+public enum PlaylistFormat {
+
+    M3U("m3u"),
+    M3U8("m3u8"),
+    PLS("pls");
+
+    public final String extension;
+
+    PlaylistFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public Charset charset() {
+        return Charset.forName("UTF-8");
+    }
+
+    /**
+     * @return the format of the passed in file, based on its extension, or null if it isn't a supported playlist file.
+     */
+    public static PlaylistFormat forFileName(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot == -1) {
+            return null;
+        }
+        String extension = fileName.substring(dot + 1).toLowerCase(Locale.US);
+        for (PlaylistFormat format : values()) {
+            if (format.extension.equals(extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
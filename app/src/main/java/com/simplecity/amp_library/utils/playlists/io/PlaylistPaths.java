@@ -0,0 +1,173 @@
+package com.simplecity.amp_library.utils.playlists.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts between the paths written in playlist files, which may be relative to the playlist, and absolute paths.
+ * <p>
+ * Paths are handled as strings, with '/' separators, as java.nio.file isn't available before API 26.
+ */
+public final class PlaylistPaths {
+
+    private static final String FILE_SCHEME = "file://";
+
+    // The only host a file:// URL is expected to name
+    private static final String LOCALHOST = "localhost/";
+
+    private PlaylistPaths() {
+
+    }
+
+    /**
+     * @return true if the path is a URL, other than a file:// URL.
+     */
+    public static boolean isRemote(String path) {
+        return path.contains("://") && !path.startsWith(FILE_SCHEME);
+    }
+
+    /**
+     * Resolves a path read from a playlist file.
+     *
+     * @param baseDir the absolute path of the directory containing the playlist
+     * @param path    the path as written in the playlist. Windows separators & file:// URLs (which are percent-encoded) are accepted.
+     * @return the normalized absolute path, or the path unchanged if it's remote.
+     */
+    public static String resolve(String baseDir, String path) {
+        if (isRemote(path)) {
+            return path;
+        }
+        if (path.startsWith(FILE_SCHEME)) {
+            path = decodePercent(path.substring(FILE_SCHEME.length()));
+            if (path.startsWith(LOCALHOST)) {
+                path = path.substring(LOCALHOST.length() - 1);
+            }
+        }
+        path = path.replace('\\', '/');
+        if (path.startsWith("/") || isWindowsAbsolute(path)) {
+            return normalize(path);
+        }
+        return normalize(baseDir + "/" + path);
+    }
+
+    /**
+     * @param baseDir the absolute path of the directory containing the playlist
+     * @param path    an absolute path
+     * @return the path relative to baseDir, or the path unchanged if they don't share a top level directory.
+     */
+    public static String relativize(String baseDir, String path) {
+        if (isRemote(path) || !path.startsWith("/")) {
+            return path;
+        }
+        List<String> baseSegments = segments(normalize(baseDir));
+        List<String> pathSegments = segments(normalize(path));
+
+        int common = 0;
+        while (common < baseSegments.size() && common < pathSegments.size() - 1
+                && baseSegments.get(common).equals(pathSegments.get(common))) {
+            common++;
+        }
+        if (common == 0) {
+            return path;
+        }
+
+        StringBuilder relative = new StringBuilder();
+        for (int i = common; i < baseSegments.size(); i++) {
+            relative.append("../");
+        }
+        for (int i = common; i < pathSegments.size(); i++) {
+            if (i > common) {
+                relative.append('/');
+            }
+            relative.append(pathSegments.get(i));
+        }
+        return relative.toString();
+    }
+
+    /**
+     * @return the path, with duplicate separators, '.' and '..' segments removed.
+     */
+    public static String normalize(String path) {
+        boolean absolute = path.startsWith("/");
+        List<String> segments = segments(path);
+        StringBuilder normalized = new StringBuilder(path.length());
+        if (absolute) {
+            normalized.append('/');
+        }
+        for (int i = 0, size = segments.size(); i < size; i++) {
+            if (i > 0) {
+                normalized.append('/');
+            }
+            normalized.append(segments.get(i));
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Decodes the %XX escapes in a URL path, as UTF-8. Unlike {@link java.net.URLDecoder}, '+' is left alone, and malformed escapes are
+     * kept as they are rather than throwing.
+     */
+    static String decodePercent(String path) {
+        if (path.indexOf('%') == -1) {
+            return path;
+        }
+        StringBuilder decoded = new StringBuilder(path.length());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < path.length()) {
+            if (!isEscape(path, i)) {
+                decoded.append(path.charAt(i++));
+                continue;
+            }
+            // Collect consecutive escapes, as a multi-byte character is written as several
+            while (isEscape(path, i)) {
+                bytes.write(Character.digit(path.charAt(i + 1), 16) << 4 | Character.digit(path.charAt(i + 2), 16));
+                i += 3;
+            }
+            try {
+                decoded.append(bytes.toString("UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            bytes.reset();
+        }
+        return decoded.toString();
+    }
+
+    private static boolean isEscape(String path, int index) {
+        return index + 2 < path.length()
+                && path.charAt(index) == '%'
+                && Character.digit(path.charAt(index + 1), 16) != -1
+                && Character.digit(path.charAt(index + 2), 16) != -1;
+    }
+
+    private static boolean isWindowsAbsolute(String path) {
+        return path.length() >= 3 && Character.isLetter(path.charAt(0)) && path.charAt(1) == ':' && path.charAt(2) == '/';
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        int length = path.length();
+        while (start <= length) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = length;
+            }
+            String segment = path.substring(start, end);
+            if (segment.equals("..")) {
+                if (!segments.isEmpty() && !segments.get(segments.size() - 1).equals("..")) {
+                    segments.remove(segments.size() - 1);
+                } else if (!path.startsWith("/")) {
+                    segments.add(segment);
+                }
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.add(segment);
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,257 @@
+package com.simplecity.amp_library.utils.playlists.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Locale;
+
+/**
+ * Reads M3U, M3U8 & PLS playlist files line by line, so the whole file is never held in memory.
+ * <p>
+ * Relative entries are resolved against the directory containing the playlist.
+ * <p>
+ * PLS entries are expected to be grouped by number (File1, Title1, Length1, File2...), as every common writer does. A title or length
+ * which appears after a later entry has started is ignored.
+ */
+public final class PlaylistReader {
+
+    public interface Callback {
+
+        /**
+         * Called for each entry, in the order they appear in the file.
+         */
+        void onEntry(PlaylistEntry entry);
+
+        /**
+         * Called each time another percent of the file has been read.
+         *
+         * @param percent 0 - 100
+         */
+        void onProgress(int percent);
+    }
+
+    private static final String EXTINF = "#EXTINF:";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private PlaylistReader() {
+
+    }
+
+    /**
+     * @return the number of entries read.
+     */
+    public static int read(File file, PlaylistFormat format, Callback callback) throws IOException {
+        String baseDir = file.getAbsoluteFile().getParent();
+        if (baseDir == null) {
+            baseDir = "/";
+        }
+
+        CharsetDecoder decoder = format.charset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        try (FileChannel channel = new FileInputStream(file).getChannel();
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel, decoder, BUFFER_SIZE), BUFFER_SIZE)) {
+
+            Progress progress = new Progress(channel.size(), callback);
+            int count = format == PlaylistFormat.PLS
+                    ? readPls(reader, baseDir, callback, progress)
+                    : readM3u(reader, baseDir, callback, progress);
+            callback.onProgress(100);
+            return count;
+        }
+    }
+
+    private static int readM3u(BufferedReader reader, String baseDir, Callback callback, Progress progress) throws IOException {
+        int count = 0;
+        String title = null;
+        long duration = PlaylistEntry.UNKNOWN_DURATION;
+
+        String line;
+        boolean firstLine = true;
+        while ((line = reader.readLine()) != null) {
+            progress.onLine(line);
+            if (firstLine) {
+                line = stripBom(line);
+                firstLine = false;
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith(EXTINF)) {
+                // #EXTINF:<duration>[ <attributes>],<title>
+                int comma = line.indexOf(',');
+                String info = comma == -1 ? line.substring(EXTINF.length()) : line.substring(EXTINF.length(), comma);
+                int space = info.indexOf(' ');
+                duration = parseDuration(space == -1 ? info : info.substring(0, space));
+                title = comma == -1 ? null : line.substring(comma + 1).trim();
+            } else if (!line.startsWith("#")) {
+                callback.onEntry(new PlaylistEntry(PlaylistPaths.resolve(baseDir, line), title, duration));
+                count++;
+                title = null;
+                duration = PlaylistEntry.UNKNOWN_DURATION;
+            }
+        }
+        return count;
+    }
+
+    private static int readPls(BufferedReader reader, String baseDir, Callback callback, Progress progress) throws IOException {
+        int count = 0;
+        int index = -1;
+        String path = null;
+        String title = null;
+        long duration = PlaylistEntry.UNKNOWN_DURATION;
+
+        String line;
+        boolean firstLine = true;
+        while ((line = reader.readLine()) != null) {
+            progress.onLine(line);
+            if (firstLine) {
+                line = stripBom(line);
+                firstLine = false;
+            }
+            line = line.trim();
+            int equals = line.indexOf('=');
+            if (equals == -1) {
+                continue;
+            }
+            String key = line.substring(0, equals).trim().toLowerCase(Locale.US);
+            String value = line.substring(equals + 1).trim();
+
+            String name;
+            if (key.startsWith("file")) {
+                name = "file";
+            } else if (key.startsWith("title")) {
+                name = "title";
+            } else if (key.startsWith("length")) {
+                name = "length";
+            } else {
+                continue;
+            }
+
+            int keyIndex = (int) parseLong(key.substring(name.length()));
+            if (keyIndex < 0) {
+                continue;
+            }
+
+            if (keyIndex != index) {
+                if (path != null) {
+                    callback.onEntry(new PlaylistEntry(path, title, duration));
+                    count++;
+                }
+                index = keyIndex;
+                path = null;
+                title = null;
+                duration = PlaylistEntry.UNKNOWN_DURATION;
+            }
+
+            switch (name) {
+                case "file":
+                    path = PlaylistPaths.resolve(baseDir, value);
+                    break;
+                case "title":
+                    title = value;
+                    break;
+                case "length":
+                    duration = parseDuration(value);
+                    break;
+            }
+        }
+        if (path != null) {
+            callback.onEntry(new PlaylistEntry(path, title, duration));
+            count++;
+        }
+        return count;
+    }
+
+    private static String stripBom(String line) {
+        return !line.isEmpty() && line.charAt(0) == '\uFEFF' ? line.substring(1) : line;
+    }
+
+    /**
+     * @return the parsed value, or -1 if it isn't a number. Lengths of -1 are used for streams of unknown duration anyway.
+     */
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the duration in whole seconds, or {@link PlaylistEntry#UNKNOWN_DURATION}. Extended M3U allows fractional seconds (e.g.
+     * "213.5"), which are rounded.
+     */
+    static long parseDuration(String value) {
+        value = value.trim();
+        long duration = parseLong(value);
+        if (duration != -1 || value.indexOf('.') == -1) {
+            return duration;
+        }
+        try {
+            double seconds = Double.parseDouble(value);
+            return seconds >= 0 && !Double.isInfinite(seconds) ? Math.round(seconds) : PlaylistEntry.UNKNOWN_DURATION;
+        } catch (NumberFormatException e) {
+            return PlaylistEntry.UNKNOWN_DURATION;
+        }
+    }
+
+    /**
+     * Reports progress based on the number of bytes in the lines read so far.
+     * <p>
+     * The channel's position isn't used, as the decoder & reader buffer up to {@link #BUFFER_SIZE} bytes ahead of the lines actually
+     * handed out. Bytes are counted as UTF-8, with a single byte line terminator, so a file with CRLF line endings is slightly
+     * under-reported until the final 100%.
+     */
+    private static final class Progress {
+
+        private final long size;
+        private final Callback callback;
+
+        private long bytesRead;
+        private int lastPercent;
+
+        Progress(long size, Callback callback) {
+            this.size = size;
+            this.callback = callback;
+        }
+
+        void onLine(String line) {
+            bytesRead += utf8Length(line) + 1;
+            if (size == 0) {
+                return;
+            }
+            int percent = (int) Math.min(99, bytesRead * 100 / size);
+            if (percent > lastPercent) {
+                lastPercent = percent;
+                callback.onProgress(percent);
+            }
+        }
+
+        private static int utf8Length(String line) {
+            int length = line.length();
+            int bytes = length;
+            for (int i = 0; i < length; i++) {
+                char c = line.charAt(i);
+                if (c < 0x80) {
+                    continue;
+                }
+                if (c < 0x800 || Character.isSurrogate(c)) {
+                    // 2 bytes, or half of a 4 byte surrogate pair
+                    bytes += 1;
+                } else {
+                    bytes += 2;
+                }
+            }
+            return bytes;
+        }
+    }
+}
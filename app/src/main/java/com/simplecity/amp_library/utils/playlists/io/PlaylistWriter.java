@@ -0,0 +1,89 @@
+package com.simplecity.amp_library.utils.playlists.io;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+
+/**
+ * Writes M3U, M3U8 & PLS playlist files an entry at a time, so the whole playlist is never held in memory.
+ */
+public final class PlaylistWriter implements Closeable {
+
+    private static final String EXTINF = "#EXTINF:";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PlaylistFormat format;
+
+    private final Writer writer;
+
+    // The directory paths are made relative to, or null to write absolute paths
+    private final String baseDir;
+
+    private int count;
+
+    /**
+     * @param relativePaths whether to write the entries' paths relative to the playlist, where they share a top level directory.
+     */
+    public PlaylistWriter(File file, PlaylistFormat format, boolean relativePaths) throws IOException {
+        this.format = format;
+        String parent = file.getAbsoluteFile().getParent();
+        this.baseDir = relativePaths ? parent : null;
+        this.writer = new BufferedWriter(
+                Channels.newWriter(new FileOutputStream(file).getChannel(), format.charset().newEncoder(), BUFFER_SIZE),
+                BUFFER_SIZE
+        );
+
+        if (format == PlaylistFormat.PLS) {
+            writer.write("[playlist]\n");
+        } else {
+            writer.write("#EXTM3U\n");
+        }
+    }
+
+    public void write(PlaylistEntry entry) throws IOException {
+        String path = baseDir == null ? entry.path : PlaylistPaths.relativize(baseDir, entry.path);
+        count++;
+
+        if (format == PlaylistFormat.PLS) {
+            writer.write("File" + count + "=" + path + "\n");
+            if (entry.title != null) {
+                writer.write("Title" + count + "=" + entry.title + "\n");
+            }
+            writer.write("Length" + count + "=" + entry.durationSeconds + "\n");
+        } else {
+            writer.write(EXTINF);
+            writer.write(Long.toString(entry.durationSeconds));
+            writer.write(',');
+            if (entry.title != null) {
+                writer.write(entry.title);
+            }
+            writer.write('\n');
+            writer.write(path);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * @return the number of entries written so far.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (format == PlaylistFormat.PLS) {
+                writer.write("NumberOfEntries=" + count + "\n");
+                writer.write("Version=2\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.simplecity.amp_library.utils.playlists.io;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps song paths to song ids, so playlist entries can be resolved without a query per entry.
+ * <p>
+ * Entries are matched by exact path first, then ignoring case (shared storage is case insensitive), as long as only one song has that
+ * path ignoring case. Entries aren't matched by file name alone, as a playlist entry for a song which isn't in the library would then
+ * resolve to an unrelated song which happens to share its name.
+ */
+public final class SongPathIndex {
+
+    public static final long NO_SONG = -1;
+
+    // Marks a path shared, ignoring case, by more than one song
+    private static final long AMBIGUOUS = -2;
+
+    private final Map<String, Long> byPath;
+    private final Map<String, Long> byLowerCasePath;
+
+    public SongPathIndex(int expectedSize) {
+        byPath = new HashMap<>(expectedSize * 2);
+        byLowerCasePath = new HashMap<>(expectedSize * 2);
+    }
+
+    public void put(String path, long songId) {
+        path = PlaylistPaths.normalize(path);
+        byPath.put(path, songId);
+
+        String lowerCasePath = path.toLowerCase(Locale.US);
+        Long existing = byLowerCasePath.get(lowerCasePath);
+        byLowerCasePath.put(lowerCasePath, existing == null || existing == songId ? songId : AMBIGUOUS);
+    }
+
+    /**
+     * @param path an absolute, normalized path, as returned by {@link PlaylistPaths#resolve(String, String)}.
+     * @return the id of the song at the passed in path, or {@link #NO_SONG}.
+     */
+    public long find(String path) {
+        Long songId = byPath.get(path);
+        if (songId != null) {
+            return songId;
+        }
+
+        songId = byLowerCasePath.get(path.toLowerCase(Locale.US));
+        if (songId != null && songId != AMBIGUOUS) {
+            return songId;
+        }
+
+        return NO_SONG;
+    }
+}
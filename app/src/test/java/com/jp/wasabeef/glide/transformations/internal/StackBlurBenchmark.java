@@ -0,0 +1,64 @@
+package com.jp.wasabeef.glide.transformations.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+import static com.jp.wasabeef.glide.transformations.internal.StackBlurTest.pixels;
+import static com.jp.wasabeef.glide.transformations.internal.StackBlurTest.previousBlur;
+
+/**
+ * Times blurring a 1080x1080 image with the previous FastBlur loop, and with {@link StackBlur} on 1, 2 & 4 threads.
+ * <p>
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+public class StackBlurBenchmark {
+
+    private static final int SIZE = 1080;
+
+    private static final int WARM_UP_RUNS = 5;
+
+    private static final int RUNS = 20;
+
+    @Test
+    public void largeImage() {
+        int[] source = pixels(SIZE * SIZE, 0);
+        int[] pixels = new int[SIZE * SIZE];
+
+        for (int radius : new int[] { 10, 25 }) {
+            StringBuilder result = new StringBuilder();
+
+            result.append(String.format("r=%d: previous %.1fms", radius, time(source, pixels, () -> previousBlur(pixels, SIZE, SIZE, radius))));
+
+            for (int threads : new int[] { 1, 2, 4 }) {
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                try {
+                    StackBlur stackBlur = new StackBlur(executor, threads, 4 * SIZE * SIZE);
+                    result.append(String.format(", %d thread(s) %.1fms", threads, time(source, pixels, () -> stackBlur.blur(pixels, SIZE, SIZE, radius))));
+                } finally {
+                    executor.shutdown();
+                }
+            }
+
+            System.out.println(result);
+        }
+    }
+
+    /**
+     * @return the average time taken by {@code blur}, in milliseconds, after warming up.
+     */
+    private static double time(int[] source, int[] pixels, Runnable blur) {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            System.arraycopy(source, 0, pixels, 0, source.length);
+            blur.run();
+        }
+        long totalNanos = 0;
+        for (int i = 0; i < RUNS; i++) {
+            System.arraycopy(source, 0, pixels, 0, source.length);
+            long start = System.nanoTime();
+            blur.run();
+            totalNanos += System.nanoTime() - start;
+        }
+        return totalNanos / 1e6 / RUNS;
+    }
+}
@@ -0,0 +1,276 @@
+package com.jp.wasabeef.glide.transformations.internal;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StackBlurTest {
+
+    private static final int[][] SIZES = { { 1080, 1080 }, { 37, 500 }, { 500, 37 }, { 64, 64 }, { 3, 200 }, { 1, 1 } };
+
+    private static final int[] RADII = { 1, 10, 25, 40 };
+
+    @Test
+    public void matchesThePreviousBlur() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            StackBlur parallel = new StackBlur(executor, 4, 0);
+            StackBlur serial = new StackBlur(Runnable::run, 1, 0);
+            for (int[] size : SIZES) {
+                int w = size[0];
+                int h = size[1];
+                for (int radius : RADII) {
+                    int[] expected = pixels(w * h, radius);
+                    int[] serialPixels = expected.clone();
+                    int[] parallelPixels = expected.clone();
+
+                    previousBlur(expected, w, h, radius);
+                    serial.blur(serialPixels, w, h, radius);
+                    parallel.blur(parallelPixels, w, h, radius);
+
+                    assertThat(serialPixels).as("%dx%d, radius %d", w, h, radius).isEqualTo(expected);
+                    assertThat(parallelPixels).as("%dx%d, radius %d, in parallel", w, h, radius).isEqualTo(expected);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelBlurMatchesSingleThreaded() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            StackBlur parallel = new StackBlur(executor, 4, 0);
+            StackBlur serial = new StackBlur(Runnable::run, 1, 0);
+            for (int radius : new int[] { 1, 10, 25, 40 }) {
+                int[] pixels = pixels(300 * 200, radius);
+                int[] expected = pixels.clone();
+
+                parallel.blur(pixels, 300, 200, radius);
+                serial.blur(expected, 300, 200, radius);
+
+                assertThat(pixels).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void callerRunsBandsWhichExecutorNeverStarts() {
+        StackBlur stackBlur = new StackBlur(runnable -> {
+            // Never run
+        }, 4, 0);
+        int[] pixels = pixels(256 * 256, 5);
+        int[] expected = pixels.clone();
+
+        stackBlur.blur(pixels, 256, 256, 5);
+        new StackBlur(Runnable::run, 1, 0).blur(expected, 256, 256, 5);
+
+        assertThat(pixels).isEqualTo(expected);
+    }
+
+    @Test
+    public void poolIsBounded() {
+        StackBlur stackBlur = new StackBlur(Runnable::run, 1, 1000);
+
+        int[] first = stackBlur.acquire(600);
+        int[] second = stackBlur.acquire(600);
+        stackBlur.release(first);
+        stackBlur.release(second);
+
+        assertThat(stackBlur.getPooledPixels()).isEqualTo(600);
+        assertThat(stackBlur.acquire(500)).isSameAs(first);
+        assertThat(stackBlur.getPooledPixels()).isZero();
+    }
+
+    static int[] pixels(int count, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+
+    /**
+     * FastBlur's stack blur as it was before it was split into bands, with its buffers allocated per call.
+     */
+    static void previousBlur(int[] pix, int w, int h, int radius) {
+        int[] r = new int[w * h];
+        int[] g = new int[w * h];
+        int[] b = new int[w * h];
+
+        int div = radius + radius + 1;
+        int divsum = (div + 1) >> 1;
+        divsum *= divsum;
+        int[] dv = new int[256 * divsum];
+        for (int i = 0; i < dv.length; i++) {
+            dv[i] = (i / divsum);
+        }
+
+        int wm = w - 1;
+        int hm = h - 1;
+        int r1 = radius + 1;
+        int[][] stack = new int[div][3];
+        int[] vmin = new int[Math.max(w, h)];
+
+        int yi = 0, yw = 0;
+        for (int y = 0; y < h; y++) {
+            int rinsum = 0, ginsum = 0, binsum = 0;
+            int routsum = 0, goutsum = 0, boutsum = 0;
+            int rsum = 0, gsum = 0, bsum = 0;
+
+            for (int i = -radius; i <= radius; i++) {
+                int p = pix[yi + Math.min(wm, Math.max(i, 0))];
+                int[] sir = stack[i + radius];
+                sir[0] = (p & 0xff0000) >> 16;
+                sir[1] = (p & 0x00ff00) >> 8;
+                sir[2] = (p & 0x0000ff);
+                int rbs = r1 - Math.abs(i);
+                rsum += sir[0] * rbs;
+                gsum += sir[1] * rbs;
+                bsum += sir[2] * rbs;
+                if (i > 0) {
+                    rinsum += sir[0];
+                    ginsum += sir[1];
+                    binsum += sir[2];
+                } else {
+                    routsum += sir[0];
+                    goutsum += sir[1];
+                    boutsum += sir[2];
+                }
+            }
+            int stackpointer = radius;
+
+            for (int x = 0; x < w; x++) {
+                r[yi] = dv[rsum];
+                g[yi] = dv[gsum];
+                b[yi] = dv[bsum];
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                int stackstart = stackpointer - radius + div;
+                int[] sir = stack[stackstart % div];
+
+                routsum -= sir[0];
+                goutsum -= sir[1];
+                boutsum -= sir[2];
+
+                if (y == 0) {
+                    vmin[x] = Math.min(x + radius + 1, wm);
+                }
+                int p = pix[yw + vmin[x]];
+
+                sir[0] = (p & 0xff0000) >> 16;
+                sir[1] = (p & 0x00ff00) >> 8;
+                sir[2] = (p & 0x0000ff);
+
+                rinsum += sir[0];
+                ginsum += sir[1];
+                binsum += sir[2];
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                sir = stack[stackpointer % div];
+
+                routsum += sir[0];
+                goutsum += sir[1];
+                boutsum += sir[2];
+
+                rinsum -= sir[0];
+                ginsum -= sir[1];
+                binsum -= sir[2];
+
+                yi++;
+            }
+            yw += w;
+        }
+
+        for (int x = 0; x < w; x++) {
+            int rinsum = 0, ginsum = 0, binsum = 0;
+            int routsum = 0, goutsum = 0, boutsum = 0;
+            int rsum = 0, gsum = 0, bsum = 0;
+            int yp = -radius * w;
+
+            for (int i = -radius; i <= radius; i++) {
+                yi = Math.max(0, yp) + x;
+                int[] sir = stack[i + radius];
+                sir[0] = r[yi];
+                sir[1] = g[yi];
+                sir[2] = b[yi];
+                int rbs = r1 - Math.abs(i);
+                rsum += r[yi] * rbs;
+                gsum += g[yi] * rbs;
+                bsum += b[yi] * rbs;
+                if (i > 0) {
+                    rinsum += sir[0];
+                    ginsum += sir[1];
+                    binsum += sir[2];
+                } else {
+                    routsum += sir[0];
+                    goutsum += sir[1];
+                    boutsum += sir[2];
+                }
+                if (i < hm) {
+                    yp += w;
+                }
+            }
+            yi = x;
+            int stackpointer = radius;
+            for (int y = 0; y < h; y++) {
+                pix[yi] = (0xff000000 & pix[yi]) | (dv[rsum] << 16) | (dv[gsum] << 8) | dv[bsum];
+
+                rsum -= routsum;
+                gsum -= goutsum;
+                bsum -= boutsum;
+
+                int stackstart = stackpointer - radius + div;
+                int[] sir = stack[stackstart % div];
+
+                routsum -= sir[0];
+                goutsum -= sir[1];
+                boutsum -= sir[2];
+
+                if (x == 0) {
+                    vmin[y] = Math.min(y + r1, hm) * w;
+                }
+                int p = x + vmin[y];
+
+                sir[0] = r[p];
+                sir[1] = g[p];
+                sir[2] = b[p];
+
+                rinsum += sir[0];
+                ginsum += sir[1];
+                binsum += sir[2];
+
+                rsum += rinsum;
+                gsum += ginsum;
+                bsum += binsum;
+
+                stackpointer = (stackpointer + 1) % div;
+                sir = stack[stackpointer];
+
+                routsum += sir[0];
+                goutsum += sir[1];
+                boutsum += sir[2];
+
+                rinsum -= sir[0];
+                ginsum -= sir[1];
+                binsum -= sir[2];
+
+                yi += w;
+            }
+        }
+    }
+}
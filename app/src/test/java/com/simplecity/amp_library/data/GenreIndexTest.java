@@ -0,0 +1,161 @@
+package com.simplecity.amp_library.data;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.MediaStore;
+import com.simplecity.amp_library.model.Genre;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class GenreIndexTest {
+
+    private static final List<Genre> GENRES = Arrays.asList(new Genre(1, "Rock"), new Genre(2, "Jazz"), new Genre(3, "Empty"));
+
+    private MembersProvider membersProvider;
+
+    @Before
+    public void setUp() {
+        membersProvider = new MembersProvider();
+        membersProvider.members.put(1L, new long[] { 10, 11, 12 });
+        membersProvider.members.put(2L, new long[] { 20 });
+        membersProvider.members.put(3L, new long[0]);
+        ShadowContentResolver.registerProviderInternal(MediaStore.AUTHORITY, membersProvider);
+    }
+
+    @Test
+    public void buildsFromCombinedQuery() throws Exception {
+        GenreIndex genreIndex = build(GENRES);
+
+        assertIndex(genreIndex);
+        assertThat(membersProvider.perGenreQueries).isZero();
+    }
+
+    @Test
+    public void queriesEachGenreWhenCombinedQueryIsUnsupported() throws Exception {
+        membersProvider.combinedQuery = MembersProvider.CombinedQuery.UNSUPPORTED;
+
+        GenreIndex genreIndex = build(GENRES);
+
+        assertIndex(genreIndex);
+        assertThat(membersProvider.perGenreQueries).isEqualTo(GENRES.size());
+    }
+
+    @Test
+    public void queriesEachGenreWhenCombinedQueryIsEmpty() throws Exception {
+        membersProvider.combinedQuery = MembersProvider.CombinedQuery.EMPTY;
+
+        GenreIndex genreIndex = build(GENRES);
+
+        assertIndex(genreIndex);
+        assertThat(membersProvider.perGenreQueries).isEqualTo(GENRES.size());
+    }
+
+    private static void assertIndex(GenreIndex genreIndex) {
+        assertThat(genreIndex.getSongIds(1)).containsExactly(10, 11, 12);
+        assertThat(genreIndex.getSongCount(2)).isEqualTo(1);
+        assertThat(genreIndex.getSongCount(3)).isZero();
+        assertThat(genreIndex.getSongCount(4)).isZero();
+    }
+
+    /**
+     * Builds the index on a worker thread, as queries on the main thread are refused.
+     */
+    private static GenreIndex build(List<Genre> genres) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(() -> GenreIndex.Companion.build(RuntimeEnvironment.application, genres)).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Serves genre membership, as MediaStore would, from both the combined members table and the per genre tables.
+     */
+    private static class MembersProvider extends ContentProvider {
+
+        enum CombinedQuery {
+            SUPPORTED, UNSUPPORTED, EMPTY
+        }
+
+        final Map<Long, long[]> members = new LinkedHashMap<>();
+
+        volatile CombinedQuery combinedQuery = CombinedQuery.SUPPORTED;
+
+        volatile int perGenreQueries;
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            // external/audio/genres/<id or "all">/members
+            List<String> segments = uri.getPathSegments();
+            assertThat(segments).hasSize(5);
+            assertThat(segments.get(4)).isEqualTo("members");
+
+            MatrixCursor cursor = new MatrixCursor(projection);
+            if (segments.get(3).equals("all")) {
+                if (combinedQuery == CombinedQuery.UNSUPPORTED) {
+                    throw new IllegalArgumentException("Unknown URL " + uri);
+                }
+                if (combinedQuery == CombinedQuery.SUPPORTED) {
+                    for (Map.Entry<Long, long[]> entry : members.entrySet()) {
+                        for (long songId : entry.getValue()) {
+                            cursor.addRow(new Object[] { entry.getKey(), songId });
+                        }
+                    }
+                }
+            } else {
+                perGenreQueries++;
+                long[] songIds = members.get(Long.parseLong(segments.get(3)));
+                if (songIds != null) {
+                    for (long songId : songIds) {
+                        cursor.addRow(new Object[] { songId });
+                    }
+                }
+            }
+            return cursor;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.simplecity.amp_library.glide.palette;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.graphics.Color;
+import com.simplecity.amp_library.sql.databases.ColorSetCacheDbOpenHelper;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.TestScheduler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class ColorSetCacheTest {
+
+    // Loads & writes run on the io scheduler, so the tests decide when
+    private TestScheduler ioScheduler;
+
+    private ColorSetCacheDbOpenHelper dbOpenHelper;
+
+    @Before
+    public void setUp() {
+        ioScheduler = new TestScheduler();
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> ioScheduler);
+
+        dbOpenHelper = new ColorSetCacheDbOpenHelper(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        dbOpenHelper.close();
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void changedFingerprintInvalidatesTheEntry() {
+        ColorSetCache colorSetCache = loadedCache();
+
+        colorSetCache.put("album", "album", Color.RED, Color.BLUE);
+
+        assertEntry(colorSetCache.get("album", "album"), Color.RED, Color.BLUE);
+        // User selected artwork
+        assertThat(colorSetCache.get("album", "album_1_/artwork.jpg")).isNull();
+
+        // And after a restart
+        ioScheduler.triggerActions();
+        colorSetCache = loadedCache();
+        assertEntry(colorSetCache.get("album", "album"), Color.RED, Color.BLUE);
+        assertThat(colorSetCache.get("album", "album_1_/artwork.jpg")).isNull();
+    }
+
+    @Test
+    public void putWhileLoadingIsNotOverwrittenByTheLoad() {
+        insert("album", "album", Color.GREEN, Color.YELLOW, 1);
+        insert("other album", "other album", Color.CYAN, Color.MAGENTA, 2);
+
+        ColorSetCache colorSetCache = new ColorSetCache(RuntimeEnvironment.application);
+        // Queued behind the load
+        colorSetCache.put("album", "album", Color.RED, Color.BLUE);
+        ioScheduler.triggerActions();
+
+        assertEntry(colorSetCache.get("album", "album"), Color.RED, Color.BLUE);
+        assertEntry(colorSetCache.get("other album", "other album"), Color.CYAN, Color.MAGENTA);
+
+        colorSetCache = loadedCache();
+        assertEntry(colorSetCache.get("album", "album"), Color.RED, Color.BLUE);
+    }
+
+    @Test
+    public void loadTrimsTheOldestEntries() {
+        int count = ColorSetCache.MAX_ENTRIES + 5;
+        SQLiteDatabase database = dbOpenHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (int i = 0; i < count; i++) {
+                insert("album " + i, "album " + i, Color.RED, Color.BLUE, i);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        ColorSetCache colorSetCache = loadedCache();
+
+        assertThat(DatabaseUtils.queryNumEntries(database, ColorSetCacheDbOpenHelper.TABLE_NAME)).isEqualTo(ColorSetCache.MAX_ENTRIES);
+        for (int i = 0; i < 5; i++) {
+            assertThat(colorSetCache.get("album " + i, "album " + i)).isNull();
+        }
+        assertEntry(colorSetCache.get("album 5", "album 5"), Color.RED, Color.BLUE);
+        assertEntry(colorSetCache.get("album " + (count - 1), "album " + (count - 1)), Color.RED, Color.BLUE);
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        ColorSetCache colorSetCache = loadedCache();
+        colorSetCache.put("album", "album", Color.RED, Color.BLUE);
+        ioScheduler.triggerActions();
+
+        colorSetCache.clear();
+
+        assertThat(colorSetCache.get("album", "album")).isNull();
+        ioScheduler.triggerActions();
+        assertThat(loadedCache().get("album", "album")).isNull();
+    }
+
+    private ColorSetCache loadedCache() {
+        ColorSetCache colorSetCache = new ColorSetCache(RuntimeEnvironment.application);
+        ioScheduler.triggerActions();
+        return colorSetCache;
+    }
+
+    private void insert(String key, String fingerprint, int primaryColor, int accentColor, long timestamp) {
+        ContentValues values = new ContentValues();
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_KEY, key);
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_FINGERPRINT, fingerprint);
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_PRIMARY_COLOR, primaryColor);
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_ACCENT_COLOR, accentColor);
+        values.put(ColorSetCacheDbOpenHelper.COLUMN_TIMESTAMP, timestamp);
+        dbOpenHelper.getWritableDatabase().insertOrThrow(ColorSetCacheDbOpenHelper.TABLE_NAME, null, values);
+    }
+
+    private static void assertEntry(ColorSetCache.Entry entry, int primaryColor, int accentColor) {
+        assertThat(entry).isNotNull();
+        assertThat(entry.primaryColor).isEqualTo(primaryColor);
+        assertThat(entry.accentColor).isEqualTo(accentColor);
+    }
+}
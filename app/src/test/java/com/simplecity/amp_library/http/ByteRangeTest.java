@@ -0,0 +1,108 @@
+package com.simplecity.amp_library.http;
+
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ByteRangeTest {
+
+    private static final long FILE_LENGTH = 1000;
+
+    @Test
+    public void parsesClosedRange() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=100-199", FILE_LENGTH);
+
+        assertThat(ranges).hasSize(1);
+        assertRange(ranges.get(0), 100, 199);
+        assertThat(ranges.get(0).length()).isEqualTo(100);
+        assertThat(ranges.get(0).toContentRange(FILE_LENGTH)).isEqualTo("bytes 100-199/1000");
+    }
+
+    @Test
+    public void parsesOpenEndedRange() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=900-", FILE_LENGTH);
+
+        assertThat(ranges).hasSize(1);
+        assertRange(ranges.get(0), 900, 999);
+    }
+
+    @Test
+    public void parsesSuffixRange() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=-100", FILE_LENGTH);
+
+        assertThat(ranges).hasSize(1);
+        assertRange(ranges.get(0), 900, 999);
+    }
+
+    @Test
+    public void suffixLongerThanFileCoversWholeFile() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=-5000", FILE_LENGTH);
+
+        assertThat(ranges).hasSize(1);
+        assertRange(ranges.get(0), 0, 999);
+    }
+
+    @Test
+    public void clampsEndToFileLength() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=500-5000", FILE_LENGTH);
+
+        assertThat(ranges).hasSize(1);
+        assertRange(ranges.get(0), 500, 999);
+    }
+
+    @Test
+    public void parsesMultipleRanges() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-9, 20-29,-10", FILE_LENGTH);
+
+        assertThat(ranges).hasSize(3);
+        assertRange(ranges.get(0), 0, 9);
+        assertRange(ranges.get(1), 20, 29);
+        assertRange(ranges.get(2), 990, 999);
+    }
+
+    @Test
+    public void reversedRangeIsIgnored() {
+        assertThat(ByteRange.parse("bytes=500-100", FILE_LENGTH)).isNull();
+        assertThat(ByteRange.parse("bytes=0-9,500-100", FILE_LENGTH)).isNull();
+    }
+
+    @Test
+    public void reversedRangeBeyondFileIsIgnored() {
+        // Invalid regardless of the file length, so this isn't a 416
+        assertThat(ByteRange.parse("bytes=5000-2000", FILE_LENGTH)).isNull();
+    }
+
+    @Test
+    public void rangeStartingBeyondFileIsUnsatisfiable() {
+        assertThat(ByteRange.parse("bytes=1000-", FILE_LENGTH)).isEmpty();
+        assertThat(ByteRange.parse("bytes=2000-3000", FILE_LENGTH)).isEmpty();
+    }
+
+    @Test
+    public void unsatisfiableRangesAreDropped() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=2000-3000,0-9", FILE_LENGTH);
+
+        assertThat(ranges).hasSize(1);
+        assertRange(ranges.get(0), 0, 9);
+    }
+
+    @Test
+    public void nothingIsSatisfiableForEmptyFile() {
+        assertThat(ByteRange.parse("bytes=0-", 0)).isEmpty();
+        assertThat(ByteRange.parse("bytes=-100", 0)).isEmpty();
+    }
+
+    @Test
+    public void malformedHeadersAreIgnored() {
+        assertThat(ByteRange.parse("items=0-9", FILE_LENGTH)).isNull();
+        assertThat(ByteRange.parse("bytes=10", FILE_LENGTH)).isNull();
+        assertThat(ByteRange.parse("bytes=a-b", FILE_LENGTH)).isNull();
+        assertThat(ByteRange.parse("bytes=-", FILE_LENGTH)).isNull();
+    }
+
+    private static void assertRange(ByteRange range, long start, long end) {
+        assertThat(range.start).isEqualTo(start);
+        assertThat(range.end).isEqualTo(end);
+    }
+}
@@ -0,0 +1,120 @@
+package com.simplecity.amp_library.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileRangeInputStreamTest {
+
+    // Larger than the 1MB mapping window, so reads cross window boundaries
+    private static final int FILE_LENGTH = 3 * 1024 * 1024 + 123;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private byte[] contents;
+    private FileChannel channel;
+
+    @Before
+    public void setUp() throws IOException {
+        contents = new byte[FILE_LENGTH];
+        new Random(42).nextBytes(contents);
+
+        File file = temporaryFolder.newFile("audio.bin");
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(contents);
+        }
+        channel = new RandomAccessFile(file, "r").getChannel();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        channel.close();
+    }
+
+    @Test
+    public void readsWholeFile() throws IOException {
+        assertThat(read(new FileRangeInputStream(channel, 0, FILE_LENGTH, false))).isEqualTo(contents);
+    }
+
+    @Test
+    public void readsRangeAcrossWindows() throws IOException {
+        int start = 1024 * 1024 - 10;
+        int length = 1024 * 1024 + 20;
+
+        byte[] bytes = read(new FileRangeInputStream(channel, start, length, false));
+
+        assertThat(bytes).isEqualTo(Arrays.copyOfRange(contents, start, start + length));
+    }
+
+    @Test
+    public void emptyRangeIsEndOfStream() throws IOException {
+        InputStream inputStream = new FileRangeInputStream(channel, 0, 0, false);
+
+        assertThat(inputStream.read()).isEqualTo(-1);
+        assertThat(inputStream.available()).isZero();
+    }
+
+    @Test
+    public void closesChannelWhenOwned() throws IOException {
+        new FileRangeInputStream(channel, 0, 10, true).close();
+
+        assertThat(channel.isOpen()).isFalse();
+    }
+
+    /**
+     * Simulates a receiver issuing many overlapping range requests at once, all served from one shared channel.
+     */
+    @Test
+    public void concurrentRangeReadsShareChannel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            Random random = new Random(7);
+            for (int i = 0; i < 200; i++) {
+                int start = random.nextInt(FILE_LENGTH);
+                int length = random.nextInt(FILE_LENGTH - start) + 1;
+                results.add(executor.submit((Callable<Boolean>) () -> {
+                    byte[] bytes = read(new FileRangeInputStream(channel, start, length, false));
+                    return Arrays.equals(bytes, Arrays.copyOfRange(contents, start, start + length));
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS)).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, count);
+        }
+        inputStream.close();
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,71 @@
+package com.simplecity.amp_library.http;
+
+import android.media.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PcmConverterTest {
+
+    @Test
+    public void copies16BitSamples() {
+        ByteBuffer input = buffer(4);
+        input.putShort((short) 0x1234).putShort((short) -2).flip();
+
+        assertThat(convert(input, AudioFormat.ENCODING_PCM_16BIT)).containsExactly(0x34, 0x12, 0xFE, 0xFF);
+    }
+
+    @Test
+    public void widens8BitSamples() {
+        ByteBuffer input = buffer(3);
+        input.put((byte) 0).put((byte) 128).put((byte) 255).flip();
+
+        assertThat(convert(input, AudioFormat.ENCODING_PCM_8BIT)).containsExactly(0x00, 0x80, 0x00, 0x00, 0x00, 0x7F);
+    }
+
+    @Test
+    public void scalesAndClampsFloatSamples() {
+        ByteBuffer input = buffer(20);
+        input.putFloat(0f).putFloat(1f).putFloat(-1f).putFloat(2f).putFloat(0.5f).flip();
+
+        byte[] output = convert(input, AudioFormat.ENCODING_PCM_FLOAT);
+
+        assertThat(samples(output)).containsExactly((short) 0, Short.MAX_VALUE, (short) -Short.MAX_VALUE, Short.MAX_VALUE, (short) 16384);
+    }
+
+    @Test
+    public void convertsOnlyTheBufferWindow() {
+        ByteBuffer input = buffer(8);
+        input.putShort((short) 1).putShort((short) 2).putShort((short) 3).putShort((short) 4);
+        input.limit(6).position(2);
+
+        assertThat(samples(convert(input, AudioFormat.ENCODING_PCM_16BIT))).containsExactly((short) 2, (short) 3);
+    }
+
+    @Test
+    public void supportsOnlyPcmEncodings() {
+        assertThat(PcmConverter.isSupported(AudioFormat.ENCODING_PCM_16BIT)).isTrue();
+        assertThat(PcmConverter.isSupported(AudioFormat.ENCODING_PCM_8BIT)).isTrue();
+        assertThat(PcmConverter.isSupported(AudioFormat.ENCODING_PCM_FLOAT)).isTrue();
+        assertThat(PcmConverter.isSupported(AudioFormat.ENCODING_AC3)).isFalse();
+    }
+
+    private static ByteBuffer buffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    private static byte[] convert(ByteBuffer input, int encoding) {
+        byte[] output = new byte[PcmConverter.outputLength(encoding, input.remaining())];
+        int count = PcmConverter.convert(input, encoding, output);
+        assertThat(count).isEqualTo(output.length);
+        return output;
+    }
+
+    private static short[] samples(byte[] output) {
+        short[] samples = new short[output.length / 2];
+        ByteBuffer.wrap(output).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+        return samples;
+    }
+}
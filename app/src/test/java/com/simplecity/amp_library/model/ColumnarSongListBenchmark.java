@@ -0,0 +1,53 @@
+package com.simplecity.amp_library.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static com.simplecity.amp_library.model.ColumnarSongListTest.songs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+public class ColumnarSongListBenchmark {
+
+    /**
+     * Compares the heap retained by a 100k song library emitted as a {@link ColumnarSongList}, with that retained by a copy of it as an
+     * {@link ArrayList} of songs (as each getSongs() emission used to make).
+     */
+    @Test
+    public void retainedHeap() {
+        int count = 100000;
+        List<Song> source = songs(count);
+
+        long baseline = usedHeap();
+        ColumnarSongList columnar = ColumnarSongList.of(source);
+        long columnarBytes = usedHeap() - baseline;
+        source = null;
+
+        baseline = usedHeap();
+        List<Song> copy = new ArrayList<>(columnar);
+        long copyBytes = usedHeap() - baseline;
+        assertThat(copy).hasSize(count);
+        copy = null;
+
+        baseline = usedHeap();
+        List<Song> view = ColumnarSongList.filter(columnar, song -> !song.isPodcast);
+        long viewBytes = usedHeap() - baseline;
+        assertThat(view).hasSize(count);
+
+        System.out.println(String.format("Retained heap, %d songs: columns %.1fMB, ArrayList copy %.1fMB, filtered view %.1fMB",
+                count, columnarBytes / 1048576f, copyBytes / 1048576f, viewBytes / 1048576f));
+
+        assertThat(viewBytes).isLessThan(copyBytes / 10);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
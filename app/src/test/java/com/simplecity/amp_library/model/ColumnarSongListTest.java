@@ -0,0 +1,78 @@
+package com.simplecity.amp_library.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarSongListTest {
+
+    @Test
+    public void songsMatchSource() {
+        List<Song> songs = songs(1000);
+        ColumnarSongList columnar = ColumnarSongList.of(songs);
+
+        assertThat(columnar).hasSameSizeAs(songs);
+        for (int i = 0; i < songs.size(); i++) {
+            Song expected = songs.get(i);
+            Song actual = columnar.get(i);
+            assertThat(actual).isNotSameAs(expected);
+            assertThat(actual.id).isEqualTo(expected.id);
+            assertThat(actual.name).isEqualTo(expected.name);
+            assertThat(actual.artistId).isEqualTo(expected.artistId);
+            assertThat(actual.artistName).isEqualTo(expected.artistName);
+            assertThat(actual.albumId).isEqualTo(expected.albumId);
+            assertThat(actual.albumName).isEqualTo(expected.albumName);
+            assertThat(actual.albumArtistName).isEqualTo(expected.albumArtistName);
+            assertThat(actual.duration).isEqualTo(expected.duration);
+            assertThat(actual.year).isEqualTo(expected.year);
+            assertThat(actual.track).isEqualTo(expected.track);
+            assertThat(actual.discNumber).isEqualTo(expected.discNumber);
+            assertThat(actual.dateAdded).isEqualTo(expected.dateAdded);
+            assertThat(actual.isPodcast).isEqualTo(expected.isPodcast);
+            assertThat(actual.path).isEqualTo(expected.path);
+            assertThat(actual.bookMark).isEqualTo(expected.bookMark);
+        }
+    }
+
+    @Test
+    public void filterIsViewOfSameRows() {
+        List<Song> songs = songs(1000);
+        List<Song> filtered = ColumnarSongList.filter(ColumnarSongList.of(songs), song -> song.id % 3 == 0);
+        List<Song> filteredAgain = ColumnarSongList.filter(filtered, song -> song.id % 2 == 0);
+
+        assertThat(filtered).isInstanceOf(ColumnarSongList.class).hasSize(334);
+        assertThat(filteredAgain).isInstanceOf(ColumnarSongList.class).hasSize(167);
+        for (int i = 0; i < filteredAgain.size(); i++) {
+            assertThat(filteredAgain.get(i).id).isEqualTo(i * 6L);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void isReadOnly() {
+        ColumnarSongList.of(songs(10)).set(0, new Song());
+    }
+
+    static List<Song> songs(int count) {
+        List<Song> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Song song = new Song();
+            song.id = i;
+            song.name = "Song " + i;
+            song.artistId = i / 100;
+            song.artistName = "Artist " + (i / 100);
+            song.albumId = i / 10;
+            song.albumName = "Album " + (i / 10);
+            song.albumArtistName = "Artist " + (i / 100);
+            song.duration = 180000 + i;
+            song.year = 1970 + i % 50;
+            song.track = i % 10 + 1;
+            song.discNumber = 1;
+            song.dateAdded = 1500000000 + i;
+            song.path = "/storage/emulated/0/Music/" + i + ".mp3";
+            songs.add(song);
+        }
+        return songs;
+    }
+}
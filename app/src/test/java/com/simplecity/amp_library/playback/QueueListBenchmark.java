@@ -0,0 +1,61 @@
+package com.simplecity.amp_library.playback;
+
+import com.simplecity.amp_library.model.Song;
+import com.simplecity.amp_library.ui.screens.queue.QueueItem;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static com.simplecity.amp_library.playback.QueueListTest.order;
+import static com.simplecity.amp_library.playback.QueueListTest.songs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+public class QueueListBenchmark {
+
+    /**
+     * Compares loading a large queue eagerly (as before QueueList) with loading it lazily, and the main thread cost of saving it, which
+     * is now just a snapshot.
+     */
+    @Test
+    public void largeQueue() {
+        int size = 100000;
+        List<Song> songs = songs(size);
+
+        long eagerNanos = Long.MAX_VALUE;
+        long lazyNanos = Long.MAX_VALUE;
+        long snapshotNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 10; run++) {
+            long start = System.nanoTime();
+            List<QueueItem> eager = new ArrayList<>(size);
+            Map<Song, Integer> counts = new HashMap<>();
+            for (Song song : songs) {
+                Integer count = counts.get(song);
+                count = count == null ? 1 : count + 1;
+                counts.put(song, count);
+                eager.add(new QueueItem(song, count));
+            }
+            eagerNanos = Math.min(eagerNanos, System.nanoTime() - start);
+            assertThat(eager).hasSize(size);
+
+            start = System.nanoTime();
+            QueueList queueList = new QueueList(songs);
+            QueueItem current = queueList.get(1000);
+            lazyNanos = Math.min(lazyNanos, System.nanoTime() - start);
+            assertThat(current.getSong()).isSameAs(songs.get(1000));
+
+            QueueList shuffleList = new QueueList(queueList, order(songs, run));
+            start = System.nanoTime();
+            QueueList.snapshot(queueList);
+            QueueList.snapshot(shuffleList);
+            snapshotNanos = Math.min(snapshotNanos, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format("Queue of %d songs: eager load %.2fms, lazy load + item 1000 %.2fms, save snapshots %.3fms",
+                size, eagerNanos / 1e6, lazyNanos / 1e6, snapshotNanos / 1e6));
+    }
+}
@@ -0,0 +1,139 @@
+package com.simplecity.amp_library.playback;
+
+import com.simplecity.amp_library.model.Song;
+import com.simplecity.amp_library.playback.shuffle.ShuffleOrder;
+import com.simplecity.amp_library.playback.shuffle.UniformShuffleStrategy;
+import com.simplecity.amp_library.ui.screens.queue.QueueItem;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QueueListTest {
+
+    @Test
+    public void lazyItemsMatchEagerOccurrences() {
+        // Every 7th song is repeated further along the list
+        List<Song> songs = songs(2000);
+        for (int i = 0; i < 2000; i += 7) {
+            songs.add(songs.get(i));
+        }
+        QueueList queueList = new QueueList(songs);
+
+        // Read back to front, so occurrences are counted in one go, and then from the cache
+        Map<Long, Integer> counts = new HashMap<>();
+        int[] expected = new int[songs.size()];
+        for (int i = 0; i < songs.size(); i++) {
+            Integer count = counts.get(songs.get(i).id);
+            expected[i] = count == null ? 1 : count + 1;
+            counts.put(songs.get(i).id, expected[i]);
+        }
+        for (int i = songs.size() - 1; i >= 0; i--) {
+            QueueItem queueItem = queueList.get(i);
+            assertThat(queueItem.getSong()).isSameAs(songs.get(i));
+            assertThat(queueItem.getOccurrence()).isEqualTo(expected[i]);
+        }
+    }
+
+    @Test
+    public void itemsAreCreatedOnce() {
+        QueueList queueList = new QueueList(songs(1000));
+
+        assertThat(queueList.get(700)).isSameAs(queueList.get(700));
+    }
+
+    @Test
+    public void snapshotIsUnaffectedByLaterEdits() {
+        List<Song> songs = songs(1000);
+        QueueList queueList = new QueueList(songs);
+
+        List<Song> snapshot = QueueList.snapshot(queueList);
+        queueList.remove(0);
+        queueList.add(0, queueList.get(500));
+
+        assertThat(snapshot).containsExactlyElementsOf(songs);
+        assertThat(QueueList.snapshot(queueList)).hasSize(1000).startsWith(songs.get(501));
+    }
+
+    @Test
+    public void shuffledSnapshotFollowsQueueOrder() {
+        List<Song> songs = songs(5000);
+        QueueList playlist = new QueueList(songs);
+        QueueList shuffleList = new QueueList(playlist, order(songs, 3));
+
+        // Part of the order is drawn before the snapshot, the rest after
+        Song first = shuffleList.getSong(0);
+        List<Song> snapshot = QueueList.snapshot(shuffleList);
+
+        assertThat(snapshot.get(0)).isSameAs(first);
+        for (int i = 0; i < songs.size(); i++) {
+            assertThat(snapshot.get(i)).isSameAs(shuffleList.getSong(i));
+        }
+        assertThat(snapshot).containsOnlyElementsOf(songs).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void shuffledSnapshotSurvivesBaseEdits() {
+        List<Song> songs = songs(5000);
+        QueueList playlist = new QueueList(songs);
+        QueueList shuffleList = new QueueList(playlist, order(songs, 5));
+
+        List<Song> snapshot = QueueList.snapshot(shuffleList);
+        List<Song> expected = new ArrayList<>();
+        for (int i = 0; i < songs.size(); i++) {
+            expected.add(shuffleList.getSong(i));
+        }
+
+        // Materialises the shuffle list first, as it's a view of the playlist
+        playlist.remove(0);
+
+        assertThat(shuffleList).hasSize(5000);
+        assertThat(snapshot).containsExactlyElementsOf(expected);
+    }
+
+    /**
+     * The queue is saved from a snapshot on a background thread, while the main thread keeps reading the (lazily drawn) shuffle order.
+     */
+    @Test
+    public void snapshotDrawsConsistentlyWithQueueOnAnotherThread() throws Exception {
+        List<Song> songs = songs(50000);
+        QueueList playlist = new QueueList(songs);
+        QueueList shuffleList = new QueueList(playlist, order(songs, 11));
+        List<Song> snapshot = QueueList.snapshot(shuffleList);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Song>> drained = executor.submit(() -> new ArrayList<>(snapshot));
+            List<Song> read = new ArrayList<>();
+            for (int i = 0; i < songs.size(); i++) {
+                read.add(shuffleList.getSong(i));
+            }
+
+            assertThat(drained.get(30, TimeUnit.SECONDS)).containsExactlyElementsOf(read);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static List<Song> songs(int count) {
+        List<Song> songs = new ArrayList<>(count + count / 7 + 1);
+        for (int i = 0; i < count; i++) {
+            Song song = new Song();
+            song.id = i + 1;
+            songs.add(song);
+        }
+        return songs;
+    }
+
+    static ShuffleOrder order(List<Song> songs, long seed) {
+        return new UniformShuffleStrategy().shuffle(songs, -1, new Random(seed));
+    }
+}
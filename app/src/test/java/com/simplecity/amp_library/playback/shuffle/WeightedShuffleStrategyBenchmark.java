@@ -0,0 +1,43 @@
+package com.simplecity.amp_library.playback.shuffle;
+
+import com.simplecity.amp_library.model.Song;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static com.simplecity.amp_library.playback.shuffle.WeightedShuffleStrategyTest.assertPermutation;
+import static com.simplecity.amp_library.playback.shuffle.WeightedShuffleStrategyTest.playStats;
+import static com.simplecity.amp_library.playback.shuffle.WeightedShuffleStrategyTest.songs;
+
+/**
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+public class WeightedShuffleStrategyBenchmark {
+
+    /**
+     * Times building the order & drawing the first index, as happens when shuffle is turned on, and then draining the whole order, over
+     * a large library with play stats for a fifth of it.
+     */
+    @Test
+    public void largeLibrary() {
+        int size = 100000;
+        List<Song> songs = songs(size);
+        PlayStats playStats = playStats(songs, 5, 0);
+        WeightedShuffleStrategy strategy = WeightedShuffleStrategy.byPlayCount(playStats);
+
+        // Warm up
+        for (int i = 0; i < 5; i++) {
+            assertPermutation(strategy.shuffle(songs, -1, new Random(i)), size, 0);
+        }
+
+        long start = System.nanoTime();
+        ShuffleOrder order = strategy.shuffle(songs, -1, new Random(42));
+        order.nextIndex();
+        long firstIndexNanos = System.nanoTime() - start;
+        assertPermutation(order, size, 1);
+        long drainNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Weighted shuffle of %d songs: first index %.1fms, full order %.1fms",
+                size, firstIndexNanos / 1e6, drainNanos / 1e6));
+    }
+}
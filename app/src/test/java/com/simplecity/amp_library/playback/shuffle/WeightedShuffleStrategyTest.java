@@ -0,0 +1,125 @@
+package com.simplecity.amp_library.playback.shuffle;
+
+import com.simplecity.amp_library.model.Song;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WeightedShuffleStrategyTest {
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void playStatsLookUpBySongId() {
+        PlayStats playStats = new PlayStats(new long[] { 3, 7, 42 }, new int[] { 1, 5, 9 }, new long[] { 100, 700, 4200 });
+
+        assertThat(playStats.getPlayCount(7)).isEqualTo(5);
+        assertThat(playStats.getLastPlayed(42)).isEqualTo(4200);
+        assertThat(playStats.getPlayCount(8)).isZero();
+        assertThat(playStats.getLastPlayed(1)).isZero();
+        assertThat(PlayStats.EMPTY.getPlayCount(3)).isZero();
+    }
+
+    @Test
+    public void producesPermutationWithFirstIndexPinned() {
+        List<Song> songs = songs(1000);
+        PlayStats playStats = playStats(songs, 10, 0);
+
+        ShuffleOrder order = WeightedShuffleStrategy.byPlayCount(playStats).shuffle(songs, 500, new Random(1));
+
+        assertThat(order.nextIndex()).isEqualTo(500);
+        assertPermutation(order, songs.size(), 1);
+    }
+
+    @Test
+    public void favoursMostPlayedSongs() {
+        List<Song> songs = songs(2000);
+        // Every 10th song has been played 1000 times, the rest never
+        PlayStats playStats = playStats(songs, 10, 0);
+
+        double[] meanPositions = meanPositions(WeightedShuffleStrategy.byPlayCount(playStats), songs, 10);
+
+        assertThat(meanPositions[0]).isLessThan(meanPositions[1] * 0.75);
+    }
+
+    @Test
+    public void favoursLeastRecentlyPlayedSongs() {
+        List<Song> songs = songs(2000);
+        long now = 100 * DAY_MILLIS;
+        // Every 10th song was played just now, the rest never
+        PlayStats playStats = playStats(songs, 10, now);
+
+        double[] meanPositions = meanPositions(WeightedShuffleStrategy.byLeastRecentlyPlayed(playStats, now), songs, 10);
+
+        assertThat(meanPositions[0]).isGreaterThan(meanPositions[1] * 1.25);
+    }
+
+    @Test
+    public void withoutPlayStatsAllSongsWeighEqually() {
+        List<Song> songs = songs(2000);
+
+        double[] meanPositions = meanPositions(WeightedShuffleStrategy.byPlayCount(PlayStats.EMPTY), songs, 10);
+
+        assertThat(meanPositions[0]).isBetween(meanPositions[1] * 0.9, meanPositions[1] * 1.1);
+    }
+
+    static List<Song> songs(int count) {
+        List<Song> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Song song = new Song();
+            song.id = i * 3 + 1;
+            songs.add(song);
+        }
+        return songs;
+    }
+
+    /**
+     * @return play stats for every {@code interval}th song: played 1000 times, last at {@code lastPlayed}
+     */
+    static PlayStats playStats(List<Song> songs, int interval, long lastPlayed) {
+        int count = (songs.size() + interval - 1) / interval;
+        long[] songIds = new long[count];
+        int[] playCounts = new int[count];
+        long[] lastPlayedTimes = new long[count];
+        for (int i = 0; i < count; i++) {
+            songIds[i] = songs.get(i * interval).id;
+            playCounts[i] = 1000;
+            lastPlayedTimes[i] = lastPlayed;
+        }
+        return new PlayStats(songIds, playCounts, lastPlayedTimes);
+    }
+
+    /**
+     * @return the mean position of the songs with play stats, and of those without, over several shuffles
+     */
+    private static double[] meanPositions(ShuffleStrategy strategy, List<Song> songs, int interval) {
+        double[] sums = new double[2];
+        long[] counts = new long[2];
+        for (int run = 0; run < 20; run++) {
+            ShuffleOrder order = strategy.shuffle(songs, -1, new Random(run));
+            int position = 0;
+            while (order.hasNext()) {
+                int group = order.nextIndex() % interval == 0 ? 0 : 1;
+                sums[group] += position++;
+                counts[group]++;
+            }
+        }
+        return new double[] { sums[0] / counts[0], sums[1] / counts[1] };
+    }
+
+    static void assertPermutation(ShuffleOrder order, int size, int alreadyDrawn) {
+        BitSet seen = new BitSet(size);
+        int count = alreadyDrawn;
+        while (order.hasNext()) {
+            int index = order.nextIndex();
+            assertThat(seen.get(index)).isFalse();
+            seen.set(index);
+            count++;
+        }
+        assertThat(count).isEqualTo(size);
+    }
+}
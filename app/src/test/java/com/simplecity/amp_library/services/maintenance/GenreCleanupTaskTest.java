@@ -0,0 +1,105 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.MediaStore;
+import com.simplecity.amp_library.data.Repository;
+import com.simplecity.amp_library.model.Genre;
+import io.reactivex.Observable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class GenreCleanupTaskTest {
+
+    private GenresProvider genresProvider;
+    private Repository.GenresRepository genresRepository;
+
+    @Before
+    public void setUp() {
+        genresProvider = new GenresProvider();
+        ShadowContentResolver.registerProviderInternal(MediaStore.AUTHORITY, genresProvider);
+        genresRepository = mock(Repository.GenresRepository.class);
+    }
+
+    @Test
+    public void deletesEmptyGenres() {
+        when(genresRepository.getGenres()).thenReturn(Observable.just(Arrays.asList(genre(1, 3), genre(2, 0), genre(3, 0))));
+
+        int count = new GenreCleanupTask(RuntimeEnvironment.application, genresRepository).run(new AtomicBoolean());
+
+        assertThat(count).isEqualTo(3);
+        assertThat(genresProvider.deletions).containsExactly(MediaStore.Audio.Genres._ID + " IN (2,3)");
+    }
+
+    @Test
+    public void keepsGenresWhenEveryGenreIsEmpty() {
+        when(genresRepository.getGenres()).thenReturn(Observable.just(Arrays.asList(genre(1, 0), genre(2, 0))));
+
+        new GenreCleanupTask(RuntimeEnvironment.application, genresRepository).run(new AtomicBoolean());
+
+        assertThat(genresProvider.deletions).isEmpty();
+    }
+
+    private static Genre genre(long id, int numSongs) {
+        Genre genre = new Genre(id, "Genre " + id);
+        genre.numSongs = numSongs;
+        return genre;
+    }
+
+    /**
+     * Records the genre deletions made through MediaStore.
+     */
+    private static class GenresProvider extends ContentProvider {
+
+        final List<String> deletions = new ArrayList<>();
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public Uri insert(Uri uri, ContentValues values) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int delete(Uri uri, String selection, String[] selectionArgs) {
+            assertThat(uri).isEqualTo(MediaStore.Audio.Genres.EXTERNAL_CONTENT_URI);
+            deletions.add(selection);
+            return 0;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.simplecity.amp_library.services.maintenance;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentUris;
+import android.provider.MediaStore;
+import com.simplecity.amp_library.data.Repository;
+import com.simplecity.amp_library.model.Song;
+import io.reactivex.Observable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import kotlin.jvm.functions.Function1;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class YearRepairTaskTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File taggedFile;
+    private File corruptFile;
+
+    private YearRepairTask yearRepairTask;
+
+    @Before
+    public void setUp() throws IOException {
+        taggedFile = temporaryFolder.newFile("year.mp3");
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("audio/year.mp3")) {
+            Files.copy(inputStream, taggedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        corruptFile = temporaryFolder.newFile("corrupt.mp3");
+        try (FileOutputStream outputStream = new FileOutputStream(corruptFile)) {
+            outputStream.write(new byte[4096]);
+        }
+
+        List<Song> songs = Arrays.asList(song(1, taggedFile), song(2, corruptFile));
+        Repository.SongsRepository songsRepository = mock(Repository.SongsRepository.class);
+        when(songsRepository.getSongs(any(Function1.class))).thenAnswer(invocation -> Observable.just(songs));
+
+        yearRepairTask = new YearRepairTask(RuntimeEnvironment.application, songsRepository);
+    }
+
+    @Test
+    public void repairsYearsAndFingerprintsOnlyFilesReadSuccessfully() throws Exception {
+        assertThat(yearRepairTask.run(new AtomicBoolean())).isEqualTo(2);
+
+        List<ContentProviderOperation> operations = shadowOf(RuntimeEnvironment.application.getContentResolver())
+                .getContentProviderOperations(MediaStore.AUTHORITY);
+        assertThat(operations).hasSize(1);
+        assertThat(operations.get(0).getUri()).isEqualTo(ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, 1));
+
+        File fingerprintsFile = new File(RuntimeEnvironment.application.getFilesDir(), "year_repair_fingerprints");
+        assertThat(FileFingerprints.read(fingerprintsFile).toArray()).containsExactly(FileFingerprints.of(taggedFile));
+    }
+
+    @Test
+    public void retriesFilesWhichCouldNotBeRead() throws Exception {
+        yearRepairTask.run(new AtomicBoolean());
+
+        // The tagged file is unchanged, so only the corrupt one is read again
+        assertThat(yearRepairTask.run(new AtomicBoolean())).isEqualTo(1);
+    }
+
+    private static Song song(long id, File file) {
+        Song song = new Song();
+        song.id = id;
+        song.path = file.getPath();
+        return song;
+    }
+}
@@ -0,0 +1,94 @@
+package com.simplecity.amp_library.sql;
+
+import android.database.MatrixCursor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class ColumnIndexCacheTest {
+
+    private final ColumnIndexCache cache = new ColumnIndexCache(new String[] { "_id", "name" }, "optional");
+
+    @Test
+    public void resolvesIndicesOncePerCursor() {
+        CountingCursor cursor = cursor(new String[] { "name", "_id" });
+        cursor.addRow(new Object[] { "a", 1 });
+        cursor.addRow(new Object[] { "b", 2 });
+
+        while (cursor.moveToNext()) {
+            ColumnIndexCache.Columns columns = cache.get(cursor);
+            assertThat(columns.index(0)).isEqualTo(1);
+            assertThat(columns.index(1)).isEqualTo(0);
+            assertThat(columns.index(2)).isEqualTo(-1);
+        }
+
+        assertThat(cursor.resolveCount).isEqualTo(2);
+    }
+
+    @Test
+    public void reusesIndicesForCursorWithSameColumns() {
+        CountingCursor first = cursor(new String[] { "_id", "name" });
+        CountingCursor second = cursor(new String[] { "_id", "name" });
+
+        cache.get(first);
+        ColumnIndexCache.Columns columns = cache.get(second);
+
+        assertThat(second.resolveCount).isZero();
+        assertThat(columns.index(1)).isEqualTo(1);
+    }
+
+    @Test
+    public void resolvesAgainForCursorWithDifferentColumns() {
+        cache.get(cursor(new String[] { "_id", "name" }));
+        ColumnIndexCache.Columns columns = cache.get(cursor(new String[] { "optional", "name", "_id" }));
+
+        assertThat(columns.index(0)).isEqualTo(2);
+        assertThat(columns.index(1)).isEqualTo(1);
+        assertThat(columns.index(2)).isEqualTo(0);
+    }
+
+    @Test
+    public void poolsStringsUntilCursorIsClosed() {
+        String[] columnNames = { "_id", "name" };
+        MatrixCursor first = cursor(columnNames);
+        first.addRow(new Object[] { 1, new String("artist") });
+        first.addRow(new Object[] { 2, new String("artist") });
+
+        first.moveToNext();
+        String pooled = cache.get(first).getPooledString(first, 1);
+        first.moveToNext();
+        assertThat(cache.get(first).getPooledString(first, 1)).isSameAs(pooled);
+
+        first.close();
+
+        // Shares the column names array, so it's treated as the same cursor, but the closed cursor's pool is gone
+        MatrixCursor second = cursor(columnNames);
+        second.addRow(new Object[] { 3, new String("artist") });
+        second.moveToNext();
+        assertThat(cache.get(second).getPooledString(second, 1)).isEqualTo("artist").isNotSameAs(pooled);
+    }
+
+    private static CountingCursor cursor(String[] columnNames) {
+        return new CountingCursor(columnNames);
+    }
+
+    private static class CountingCursor extends MatrixCursor {
+
+        int resolveCount;
+
+        CountingCursor(String[] columnNames) {
+            super(columnNames);
+        }
+
+        @Override
+        public int getColumnIndexOrThrow(String columnName) {
+            resolveCount++;
+            return super.getColumnIndexOrThrow(columnName);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.simplecity.amp_library.ui.modelviews;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Resources;
+import com.simplecity.amp_library.R;
+import com.simplecity.amp_library.model.Album;
+import com.simplecity.amp_library.model.AlbumArtist;
+import com.simplecity.amp_library.model.Song;
+import com.simplecity.amp_library.ui.adapters.ViewType;
+import com.simplecityapps.recycler_adapter.model.Preparable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class ModelViewLabelsTest {
+
+    private Context context;
+
+    // The context rows are bound with. Prepared labels don't need its resources.
+    private Context bindContext;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        Resources resources = mock(Resources.class);
+        when(resources.getString(R.string.durationformatshort)).thenReturn("%1$s%3$d:%6$02d");
+        when(resources.getString(R.string.unknown_year)).thenReturn("Year unknown");
+        when(resources.getString(eq(R.string.btn_options), any())).thenAnswer(invocation -> invocation.getArgument(1) + " options");
+        context = new ContextWrapper(RuntimeEnvironment.application) {
+            @Override
+            public Resources getResources() {
+                return resources;
+            }
+        };
+
+        bindContext = new ContextWrapper(RuntimeEnvironment.application) {
+            @Override
+            public Resources getResources() {
+                throw new AssertionError("Labels were built at bind time");
+            }
+        };
+
+        // As ViewModelAdapter prepares items, on its diff thread
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void songLabelsArePreparedBeforeBinding() throws Exception {
+        SongView songView = new SongView(song(), null, null, null);
+        prepare(songView);
+
+        SongView.Labels labels = songView.getLabels(bindContext);
+
+        assertThat(labels.lineTwo).isEqualTo("Artist - Album");
+        assertThat(labels.duration).isEqualTo("3:25");
+        assertThat(labels.trackNumber).isEqualTo("7");
+        assertThat(labels.overflowDescription).isEqualTo("Song options");
+        assertThat(songView.getLabels(bindContext)).isSameAs(labels);
+    }
+
+    @Test
+    public void songLabelsAreBuiltOnFirstBindWhenNotPrepared() {
+        SongView songView = new SongView(song(), null, null, null);
+
+        SongView.Labels labels = songView.getLabels(context);
+
+        assertThat(labels.lineTwo).isEqualTo("Artist - Album");
+        assertThat(songView.getLabels(bindContext)).isSameAs(labels);
+    }
+
+    @Test
+    public void showArtistNameRebuildsSongLabels() {
+        SongView songView = new SongView(song(), null, null, null);
+        songView.prepare(context);
+
+        songView.showArtistName(false);
+
+        assertThat(songView.getLabels(context).lineTwo).isEqualTo("Album");
+
+        songView.showArtistName(true);
+
+        assertThat(songView.getLabels(context).lineTwo).isEqualTo("Artist - Album");
+    }
+
+    @Test
+    public void albumLabelsArePreparedBeforeBinding() throws Exception {
+        AlbumView albumView = new AlbumView(album(2001), ViewType.ALBUM_LIST, null, null, null);
+        prepare(albumView);
+
+        AlbumView.Labels labels = albumView.getLabels(bindContext);
+
+        assertThat(labels.lineTwo).isEqualTo("Album Artist");
+        assertThat(labels.overflowDescription).isEqualTo("Album options");
+    }
+
+    @Test
+    public void showYearRebuildsAlbumLabels() {
+        AlbumView albumView = new AlbumView(album(2001), ViewType.ALBUM_LIST, null, null, null);
+        albumView.prepare(context);
+
+        albumView.showYear(true);
+
+        assertThat(albumView.getLabels(context).lineTwo).isEqualTo("2001");
+
+        AlbumView unknownYear = new AlbumView(album(0), ViewType.ALBUM_LIST, null, null, null);
+        unknownYear.showYear(true);
+
+        assertThat(unknownYear.getLabels(context).lineTwo).isEqualTo("Year unknown");
+    }
+
+    @Test
+    public void albumArtistLabelsArePreparedBeforeBinding() throws Exception {
+        AlbumArtist albumArtist = new AlbumArtist("Album Artist", Arrays.asList(album(2001), album(2003)));
+        AlbumArtistView albumArtistView = new AlbumArtistView(albumArtist, ViewType.ARTIST_LIST, null, null, null);
+        prepare(albumArtistView);
+
+        AlbumArtistView.Labels labels = albumArtistView.getLabels(bindContext);
+
+        assertThat(labels.trackCount).isEqualTo("20");
+        assertThat(labels.albumCount).isEqualTo("2");
+        assertThat(labels.overflowDescription).isEqualTo("Album Artist options");
+    }
+
+    private void prepare(Preparable item) throws Exception {
+        executor.submit(() -> item.prepare(context)).get(10, TimeUnit.SECONDS);
+    }
+
+    private static Song song() {
+        Song song = new Song();
+        song.name = "Song";
+        song.artistName = "Artist";
+        song.albumName = "Album";
+        song.duration = 205 * 1000;
+        song.track = 7;
+        return song;
+    }
+
+    private static Album album(int year) {
+        return new Album(1, "Album", Collections.emptyList(), "Album Artist", 10, 1, year, 0, 0, Collections.emptyList(), 0);
+    }
+}
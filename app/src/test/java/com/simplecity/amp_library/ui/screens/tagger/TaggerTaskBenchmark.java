@@ -0,0 +1,78 @@
+package com.simplecity.amp_library.ui.screens.tagger;
+
+import com.simplecity.amp_library.ui.screens.tagger.TaggerTaskTest.RecordingListener;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.schedulers.Schedulers;
+import java.io.File;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.tag.FieldKey;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.simplecity.amp_library.ui.screens.tagger.TaggerTaskTest.FRAME_LENGTH;
+import static com.simplecity.amp_library.ui.screens.tagger.TaggerTaskTest.createFiles;
+import static com.simplecity.amp_library.ui.screens.tagger.TaggerTaskTest.createTask;
+import static com.simplecity.amp_library.ui.screens.tagger.TaggerTaskTest.execute;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares writing a batch of files one after another with writing them with {@link TaggerTask}. The copies of the MP3 in
+ * resources/audio are padded out with extra audio frames to a realistic size, about 300MB in all.
+ * <p>
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class TaggerTaskBenchmark {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+    }
+
+    @After
+    public void tearDown() {
+        RxAndroidPlugins.reset();
+    }
+
+    @Test
+    public void batch() throws Exception {
+        int count = 30;
+        // Roughly 5MB per file
+        int frames = 5 * 1024 * 1024 / FRAME_LENGTH;
+
+        List<String> serialPaths = createFiles(temporaryFolder.newFolder(), count, frames);
+        long start = System.nanoTime();
+        for (String path : serialPaths) {
+            AudioFile audioFile = AudioFileIO.read(new File(path));
+            audioFile.getTag().setField(FieldKey.YEAR, "2001");
+            AudioFileIO.write(audioFile);
+        }
+        long serialNanos = System.nanoTime() - start;
+
+        List<String> paths = createFiles(temporaryFolder.newFolder(), count, frames);
+        RecordingListener listener = new RecordingListener();
+        TaggerTask taggerTask = createTask(paths, listener);
+        start = System.nanoTime();
+        execute(taggerTask, listener);
+        long taskNanos = System.nanoTime() - start;
+
+        assertThat(listener.outcome).isEqualTo("success");
+        System.out.println(String.format("Tag writes for %d files: %.1fms per file serially, %.1fms per file with TaggerTask",
+                count, serialNanos / 1e6 / count, taskNanos / 1e6 / count));
+    }
+}
@@ -0,0 +1,200 @@
+package com.simplecity.amp_library.ui.screens.tagger;
+
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.schedulers.Schedulers;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.tag.FieldKey;
+import org.jaudiotagger.tag.Tag;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes tags to copies of the MP3s in resources/audio.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class TaggerTaskTest {
+
+    // A silent MPEG-1 Layer 3 frame, 128kbps at 44.1kHz
+    static final int FRAME_LENGTH = 417;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+    }
+
+    @After
+    public void tearDown() {
+        RxAndroidPlugins.reset();
+    }
+
+    @Test
+    public void writesEveryFile() throws Exception {
+        List<String> paths = createFiles(temporaryFolder.newFolder(), 6, 0);
+
+        RecordingListener listener = new RecordingListener();
+        execute(createTask(paths, listener), listener);
+
+        assertThat(listener.outcome).isEqualTo("success");
+        assertThat(listener.progress).containsExactly(1, 2, 3, 4, 5, 6);
+        for (String path : paths) {
+            assertThat(readYear(path)).isEqualTo("2001");
+        }
+    }
+
+    @Test
+    public void failureOfOneFileDoesNotEndTheBatch() throws Exception {
+        File dir = temporaryFolder.newFolder();
+        List<String> paths = createFiles(dir, 4, 0);
+        // Cut off part way through its first audio frame, so jaudiotagger can't read it
+        String truncatedPath = copyFixture("audio/truncated.mp3", new File(dir, "Truncated.mp3"));
+        paths.add(2, truncatedPath);
+
+        RecordingListener listener = new RecordingListener();
+        execute(createTask(paths, listener), listener);
+
+        assertThat(listener.outcome).isEqualTo("success");
+        assertThat(listener.progress).containsExactly(1, 2, 3, 4, 5);
+        for (String path : paths) {
+            if (!path.equals(truncatedPath)) {
+                assertThat(readYear(path)).isEqualTo("2001");
+            }
+        }
+    }
+
+    @Test
+    public void cancelledBatchIsNotReportedAsSaved() throws Exception {
+        List<String> paths = createFiles(temporaryFolder.newFolder(), 4, 0);
+        RecordingListener listener = new RecordingListener();
+        TaggerTask taggerTask = createTask(paths, listener);
+
+        taggerTask.cancel();
+        execute(taggerTask, listener);
+
+        assertThat(listener.outcome).isEqualTo("cancelled 0");
+        for (String path : paths) {
+            assertThat(readYear(path)).isEqualTo("1999");
+        }
+    }
+
+    static TaggerTask createTask(List<String> paths, RecordingListener listener) {
+        return new TaggerTask(RuntimeEnvironment.application)
+                .setPaths(paths)
+                .setDocumentfiles(new ArrayList<>(Collections.nCopies(paths.size(), null)))
+                .showAlbum(true)
+                .showTrack(true)
+                .year("2001")
+                .listener(listener)
+                .build();
+    }
+
+    static void execute(TaggerTask taggerTask, RecordingListener listener) throws InterruptedException {
+        taggerTask.execute();
+        assertThat(listener.completed.await(60, TimeUnit.SECONDS)).isTrue();
+    }
+
+    /**
+     * @param extraFrames the number of silent frames to append to each copy of the fixture
+     */
+    static List<String> createFiles(File dir, int count, int extraFrames) throws IOException {
+        byte[] fixture = readFixture("audio/year.mp3");
+        byte[] frame = new byte[FRAME_LENGTH];
+        System.arraycopy(fixture, fixture.length - FRAME_LENGTH, frame, 0, FRAME_LENGTH);
+
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File file = new File(dir, "Track " + i + ".mp3");
+            try (FileOutputStream outputStream = new FileOutputStream(file)) {
+                outputStream.write(fixture);
+                for (int j = 0; j < extraFrames; j++) {
+                    outputStream.write(frame);
+                }
+            }
+            paths.add(file.getPath());
+        }
+        return paths;
+    }
+
+    private static String copyFixture(String name, File file) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(readFixture(name));
+        }
+        return file.getPath();
+    }
+
+    private static byte[] readFixture(String name) throws IOException {
+        try (InputStream inputStream = TaggerTaskTest.class.getClassLoader().getResourceAsStream(name)) {
+            return readFully(inputStream);
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static String readYear(String path) throws Exception {
+        Tag tag = AudioFileIO.read(new File(path)).getTag();
+        return tag.getFirst(FieldKey.YEAR);
+    }
+
+    static class RecordingListener implements TaggerTask.TagCompletionListener {
+
+        final CountDownLatch completed = new CountDownLatch(1);
+        final List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+        volatile String outcome;
+
+        @Override
+        public void onSuccess() {
+            outcome = "success";
+            completed.countDown();
+        }
+
+        @Override
+        public void onFailure() {
+            outcome = "failure";
+            completed.countDown();
+        }
+
+        @Override
+        public void onCancelled(int written) {
+            outcome = "cancelled " + written;
+            completed.countDown();
+        }
+
+        @Override
+        public void onProgress(int progress) {
+            this.progress.add(progress);
+        }
+    }
+}
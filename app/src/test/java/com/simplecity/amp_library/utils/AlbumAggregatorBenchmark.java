@@ -0,0 +1,53 @@
+package com.simplecity.amp_library.utils;
+
+import com.simplecity.amp_library.model.Album;
+import com.simplecity.amp_library.model.Song;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static com.simplecity.amp_library.utils.AlbumAggregatorTest.legacySongsToAlbums;
+import static com.simplecity.amp_library.utils.AlbumAggregatorTest.song;
+import static com.simplecity.amp_library.utils.AlbumAggregatorTest.songs;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+public class AlbumAggregatorBenchmark {
+
+    /**
+     * Times grouping a large library into albums the old way, with a fresh aggregator, and again after one song has changed.
+     */
+    @Test
+    public void largeLibrary() {
+        int size = 100000;
+        Random random = new Random(6);
+        List<Song> songs = songs(size, random);
+        List<Song> changedSongs = new ArrayList<>(songs);
+        changedSongs.set(size / 2, song(size + 1, random));
+
+        long legacyNanos = Long.MAX_VALUE;
+        long firstNanos = Long.MAX_VALUE;
+        long incrementalNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            List<Album> legacy = legacySongsToAlbums(songs);
+            legacyNanos = Math.min(legacyNanos, System.nanoTime() - start);
+
+            AlbumAggregator aggregator = new AlbumAggregator();
+            start = System.nanoTime();
+            List<Album> albums = aggregator.aggregate(songs);
+            firstNanos = Math.min(firstNanos, System.nanoTime() - start);
+            assertThat(albums).hasSameSizeAs(legacy);
+
+            start = System.nanoTime();
+            aggregator.aggregate(changedSongs);
+            incrementalNanos = Math.min(incrementalNanos, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format("Albums from %d songs: legacy operator %.1fms, aggregator %.1fms, after one change %.1fms",
+                size, legacyNanos / 1e6, firstNanos / 1e6, incrementalNanos / 1e6));
+    }
+}
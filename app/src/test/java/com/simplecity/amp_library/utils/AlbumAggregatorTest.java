@@ -0,0 +1,226 @@
+package com.simplecity.amp_library.utils;
+
+import com.simplecity.amp_library.model.Album;
+import com.simplecity.amp_library.model.AlbumArtist;
+import com.simplecity.amp_library.model.Artist;
+import com.simplecity.amp_library.model.Song;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AlbumAggregatorTest {
+
+    @Test
+    public void albumsMatchLegacyOperator() {
+        List<Song> songs = songs(5000, new Random(1));
+
+        assertSameAlbums(new AlbumAggregator().aggregate(songs), legacySongsToAlbums(songs));
+    }
+
+    @Test
+    public void incrementalAlbumsMatchLegacyOperator() {
+        Random random = new Random(2);
+        List<Song> songs = songs(5000, random);
+        AlbumAggregator aggregator = new AlbumAggregator();
+        aggregator.aggregate(songs);
+
+        for (int run = 0; run < 10; run++) {
+            songs = new ArrayList<>(songs);
+            // Remove a few songs, change a few, add a few
+            for (int i = 0; i < 20; i++) {
+                songs.remove(random.nextInt(songs.size()));
+                songs.set(random.nextInt(songs.size()), song(random.nextInt(100000), random));
+                songs.add(song(100000 + run * 100 + i, random));
+            }
+
+            assertSameAlbums(aggregator.aggregate(songs), legacySongsToAlbums(songs));
+        }
+    }
+
+    @Test
+    public void albumArtistsMatchLegacyOperator() {
+        Random random = new Random(3);
+        List<Song> songs = songs(5000, random);
+        AlbumAggregator albumAggregator = new AlbumAggregator();
+        AlbumArtistAggregator albumArtistAggregator = new AlbumArtistAggregator();
+        albumArtistAggregator.aggregate(albumAggregator.aggregate(songs));
+
+        songs = new ArrayList<>(songs);
+        songs.set(10, song(200000, random));
+        List<Album> albums = albumAggregator.aggregate(songs);
+
+        Map<String, AlbumArtist> expected = new HashMap<>();
+        for (AlbumArtist albumArtist : legacyAlbumsToAlbumArtists(albums)) {
+            expected.put(albumArtist.name, albumArtist);
+        }
+        List<AlbumArtist> albumArtists = albumArtistAggregator.aggregate(albums);
+        assertThat(albumArtists).hasSameSizeAs(expected.values());
+        for (AlbumArtist albumArtist : albumArtists) {
+            assertThat(albumArtist.albums).containsExactlyInAnyOrderElementsOf(expected.get(albumArtist.name).albums);
+        }
+    }
+
+    @Test
+    public void reusesUnchangedAlbums() {
+        Random random = new Random(4);
+        List<Song> songs = songs(1000, random);
+        AlbumAggregator aggregator = new AlbumAggregator();
+        Map<Long, Album> before = byId(aggregator.aggregate(songs));
+
+        songs = new ArrayList<>(songs);
+        Song changed = copy(songs.get(0));
+        changed.playCount++;
+        songs.set(0, changed);
+        Map<Long, Album> after = byId(aggregator.aggregate(songs));
+
+        for (Album album : after.values()) {
+            if (album.id == changed.albumId) {
+                assertThat(album).isNotSameAs(before.get(album.id));
+            } else {
+                assertThat(album).isSameAs(before.get(album.id));
+            }
+        }
+    }
+
+    @Test
+    public void rebuildsAlbumWhenFingerprintCollides() {
+        Song song = song(1, new Random(5));
+        song.artistName = "Aa";
+        AlbumAggregator aggregator = new AlbumAggregator();
+        Album before = aggregator.aggregate(Collections.singletonList(copy(song))).get(0);
+
+        // "Aa" & "BB" have the same hash code, so the album's fingerprint is unchanged
+        song.artistName = "BB";
+        Album after = aggregator.aggregate(Collections.singletonList(copy(song))).get(0);
+
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.artists.get(0).name).isEqualTo("BB");
+    }
+
+    private static void assertSameAlbums(List<Album> actual, List<Album> expected) {
+        Map<Long, Album> expectedById = byId(expected);
+        assertThat(actual).hasSameSizeAs(expected);
+        for (Album album : actual) {
+            Album expectedAlbum = expectedById.get(album.id);
+            assertThat(expectedAlbum).isNotNull();
+            assertThat(album.name).isEqualTo(expectedAlbum.name);
+            assertThat(album.albumArtistName).isEqualTo(expectedAlbum.albumArtistName);
+            assertThat(album.artists).containsExactlyElementsOf(expectedAlbum.artists);
+            assertThat(album.paths).containsExactlyElementsOf(expectedAlbum.paths);
+            assertThat(album.year).isEqualTo(expectedAlbum.year);
+            assertThat(album.numSongs).isEqualTo(expectedAlbum.numSongs);
+            assertThat(album.numDiscs).isEqualTo(expectedAlbum.numDiscs);
+            assertThat(album.lastPlayed).isEqualTo(expectedAlbum.lastPlayed);
+            assertThat(album.dateAdded).isEqualTo(expectedAlbum.dateAdded);
+            assertThat(album.songPlayCount).isEqualTo(expectedAlbum.songPlayCount);
+        }
+    }
+
+    private static Map<Long, Album> byId(List<Album> albums) {
+        Map<Long, Album> albumsById = new HashMap<>();
+        for (Album album : albums) {
+            albumsById.put(album.id, album);
+        }
+        return albumsById;
+    }
+
+    private static Song copy(Song song) {
+        Song copy = new Song();
+        copy.id = song.id;
+        copy.name = song.name;
+        copy.albumId = song.albumId;
+        copy.albumName = song.albumName;
+        copy.albumArtistName = song.albumArtistName;
+        copy.artistId = song.artistId;
+        copy.artistName = song.artistName;
+        copy.path = song.path;
+        copy.year = song.year;
+        copy.discNumber = song.discNumber;
+        copy.playCount = song.playCount;
+        copy.lastPlayed = song.lastPlayed;
+        copy.dateAdded = song.dateAdded;
+        return copy;
+    }
+
+    static List<Song> songs(int count, Random random) {
+        List<Song> songs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            songs.add(song(i, random));
+        }
+        return songs;
+    }
+
+    static Song song(long id, Random random) {
+        // Roughly 10 songs per album, 10 albums per album artist, with some compilations & shared folders
+        int album = random.nextInt(10000);
+        Song song = new Song();
+        song.id = id;
+        song.name = "Song " + id;
+        song.albumId = album;
+        song.albumName = "Album " + album;
+        song.albumArtistName = "Album Artist " + album / 10;
+        song.artistId = random.nextInt(4) == 0 ? random.nextInt(1000) : album / 10;
+        song.artistName = "Artist " + song.artistId;
+        song.path = "/storage/emulated/0/Music/" + album + "/" + random.nextInt(2) + "/" + id + ".mp3";
+        song.year = 1970 + album % 50;
+        song.discNumber = random.nextInt(3);
+        song.playCount = random.nextInt(5);
+        song.lastPlayed = random.nextInt(1000);
+        song.dateAdded = 1500000000 + random.nextInt(1000);
+        return song;
+    }
+
+    /**
+     * Operators.songsToAlbums, as it was before {@link AlbumAggregator}.
+     */
+    static List<Album> legacySongsToAlbums(List<Song> songs) {
+        HashMap<Long, Album> albumMap = new HashMap<>();
+        for (Song song : songs) {
+            Album album = song.getAlbum();
+            Album oldAlbum = albumMap.get(album.id);
+            if (oldAlbum != null) {
+                oldAlbum.numSongs++;
+                oldAlbum.numDiscs = Math.max(song.discNumber, oldAlbum.numDiscs);
+                oldAlbum.songPlayCount += song.playCount;
+                for (Artist artist : album.artists) {
+                    if (!oldAlbum.artists.contains(artist)) {
+                        oldAlbum.artists.add(artist);
+                    }
+                }
+                for (String path : album.paths) {
+                    if (!oldAlbum.paths.contains(path)) {
+                        oldAlbum.paths.add(path);
+                    }
+                }
+            } else {
+                albumMap.put(album.id, album);
+            }
+        }
+        return new ArrayList<>(albumMap.values());
+    }
+
+    /**
+     * Operators.albumsToAlbumArtists, as it was before {@link AlbumArtistAggregator}.
+     */
+    private static List<AlbumArtist> legacyAlbumsToAlbumArtists(List<Album> albums) {
+        HashMap<String, AlbumArtist> albumArtistMap = new HashMap<>();
+        for (Album album : albums) {
+            AlbumArtist albumArtist = album.getAlbumArtist();
+            AlbumArtist oldAlbumArtist = albumArtistMap.get(albumArtist.name);
+            if (oldAlbumArtist != null) {
+                if (!oldAlbumArtist.albums.contains(album)) {
+                    oldAlbumArtist.albums.add(album);
+                }
+            } else {
+                albumArtistMap.put(albumArtist.name, albumArtist);
+            }
+        }
+        return new ArrayList<>(albumArtistMap.values());
+    }
+}
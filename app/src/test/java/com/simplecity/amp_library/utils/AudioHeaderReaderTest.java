@@ -0,0 +1,80 @@
+package com.simplecity.amp_library.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jaudiotagger.audio.AudioFileIO;
+import org.jaudiotagger.audio.AudioHeader;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the headers of the files in resources/audio against those jaudiotagger reads from the same files.
+ */
+public class AudioHeaderReaderTest {
+
+    private static final String[] FIXTURES = {
+            "year.mp3",
+            "cbr.mp3",
+            "mpeg2_mono.mp3",
+            "info.mp3",
+            "xing_mono.mp3",
+            "vbri.mp3",
+            "list_chunk.wav",
+            "padding.flac"
+    };
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void setUpClass() {
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+    }
+
+    @Test
+    public void headersMatchJaudiotagger() throws Exception {
+        for (String name : FIXTURES) {
+            File file = fixture(name);
+            AudioHeader expected = AudioFileIO.read(file).getAudioHeader();
+
+            AudioHeaderReader.Header header = AudioHeaderReader.read(file);
+
+            assertThat(header).as(name).isNotNull();
+            assertThat(header.format).as(name + " format").isEqualTo(expected.getFormat());
+            assertThat(header.bitrate).as(name + " bitrate").isEqualTo(expected.getBitRate());
+            assertThat(header.sampleRate).as(name + " sample rate").isEqualTo(expected.getSampleRateAsNumber());
+            assertThat(header.trackLength).as(name + " track length").isEqualTo(expected.getTrackLength());
+        }
+    }
+
+    @Test
+    public void variableBitrateIsMarked() throws Exception {
+        assertThat(AudioHeaderReader.read(fixture("cbr.mp3")).bitrate).isEqualTo("32");
+        assertThat(AudioHeaderReader.read(fixture("xing_mono.mp3")).bitrate).startsWith("~");
+        assertThat(AudioHeaderReader.read(fixture("vbri.mp3")).bitrate).startsWith("~");
+    }
+
+    @Test
+    public void unreadableFilesReturnNull() throws IOException {
+        File noFrames = temporaryFolder.newFile("silence.mp3");
+        try (FileOutputStream outputStream = new FileOutputStream(noFrames)) {
+            outputStream.write(new byte[8192]);
+        }
+
+        assertThat(AudioHeaderReader.read(noFrames)).isNull();
+        assertThat(AudioHeaderReader.read(temporaryFolder.newFile("track.ogg"))).isNull();
+        assertThat(AudioHeaderReader.read(temporaryFolder.newFile("track"))).isNull();
+    }
+
+    private static File fixture(String name) throws URISyntaxException {
+        return new File(AudioHeaderReaderTest.class.getClassLoader().getResource("audio/" + name).toURI());
+    }
+}
@@ -0,0 +1,184 @@
+package com.simplecity.amp_library.utils;
+
+import android.text.TextUtils;
+import com.simplecity.amp_library.model.BaseFileObject;
+import com.simplecity.amp_library.model.FileObject;
+import com.simplecity.amp_library.model.FolderObject;
+import com.simplecity.amp_library.model.TagInfo;
+import com.simplecity.amp_library.utils.sorting.SortManager;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Times loading a folder of 5,000 subfolders, each holding 4 files, and navigating back to it from one of the subfolders. The previous
+ * implementation, which counted every subfolder before showing any of them, is timed alongside.
+ * <p>
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class FileBrowserBenchmark {
+
+    private static final int FOLDERS = 5000;
+
+    private static final int FILES_PER_FOLDER = 4;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ExecutorService executor;
+
+    private SettingsManager settingsManager;
+
+    @Before
+    public void setUp() {
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+
+        // loadDir() refuses to run on the main thread
+        executor = Executors.newSingleThreadExecutor();
+
+        settingsManager = mock(SettingsManager.class);
+        when(settingsManager.getFolderBrowserFilesSortOrder()).thenReturn(SortManager.SortFiles.FILE_NAME);
+        when(settingsManager.getFolderBrowserFilesAscending()).thenReturn(true);
+        when(settingsManager.getFolderBrowserFoldersSortOrder()).thenReturn(SortManager.SortFolders.DEFAULT);
+        when(settingsManager.getFolderBrowserFoldersAscending()).thenReturn(true);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void largeFolder() throws Exception {
+        File root = temporaryFolder.getRoot();
+        for (int i = 0; i < FOLDERS; i++) {
+            File folder = new File(root, String.format("Folder %04d", i));
+            assertThat(folder.mkdir()).isTrue();
+            for (int j = 0; j < FILES_PER_FOLDER; j++) {
+                assertThat(new File(folder, "Track " + j + ".mp3").createNewFile()).isTrue();
+            }
+        }
+        // Old enough to be snapshotted
+        assertThat(root.setLastModified(System.currentTimeMillis() - 60 * 1000)).isTrue();
+        File child = new File(root, "Folder 0042");
+
+        TagInfoCache tagInfoCache = new TagInfoCache(RuntimeEnvironment.application);
+
+        long legacyFirstNanos = Long.MAX_VALUE;
+        long legacyBackNanos = Long.MAX_VALUE;
+        long firstNanos = Long.MAX_VALUE;
+        long detailsNanos = Long.MAX_VALUE;
+        long backNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            FileBrowser fileBrowser = new FileBrowser(settingsManager, tagInfoCache);
+
+            long start = System.nanoTime();
+            List<BaseFileObject> legacy = run(() -> legacyLoadDir(fileBrowser, root));
+            legacyFirstNanos = Math.min(legacyFirstNanos, System.nanoTime() - start);
+            assertThat(legacy).hasSize(FOLDERS);
+
+            run(() -> legacyLoadDir(fileBrowser, child));
+            start = System.nanoTime();
+            run(() -> legacyLoadDir(fileBrowser, root));
+            legacyBackNanos = Math.min(legacyBackNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            List<BaseFileObject> entries = run(() -> fileBrowser.loadDir(root));
+            firstNanos = Math.min(firstNanos, System.nanoTime() - start);
+            // Plus the parent folder
+            assertThat(entries).hasSize(FOLDERS + 1);
+
+            start = System.nanoTime();
+            fileBrowser.loadDetails(entries).blockingSubscribe();
+            detailsNanos = Math.min(detailsNanos, System.nanoTime() - start);
+
+            run(() -> fileBrowser.loadDir(child));
+            start = System.nanoTime();
+            run(() -> fileBrowser.loadDir(root));
+            backNanos = Math.min(backNanos, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format("%d folders: first row %.1fms before, %.1fms after (then %.1fms to count them). "
+                        + "Back navigation %.1fms before, %.1fms after",
+                FOLDERS, legacyFirstNanos / 1e6, firstNanos / 1e6, detailsNanos / 1e6, legacyBackNanos / 1e6, backNanos / 1e6));
+    }
+
+    private <T> T run(Callable<T> callable) throws Exception {
+        return executor.submit(callable).get(5, TimeUnit.MINUTES);
+    }
+
+    /**
+     * FileBrowser.loadDir(), as it was before folders were counted lazily & snapshotted.
+     */
+    private static List<BaseFileObject> legacyLoadDir(FileBrowser fileBrowser, File directory) {
+        List<BaseFileObject> folderObjects = new ArrayList<>();
+        List<BaseFileObject> fileObjects = new ArrayList<>();
+
+        File[] files = directory.listFiles(FileHelper.getAudioFilter());
+        if (files != null) {
+            for (File file : files) {
+                BaseFileObject baseFileObject;
+                if (file.isDirectory()) {
+                    baseFileObject = new FolderObject();
+                    baseFileObject.path = FileHelper.getPath(file);
+                    baseFileObject.name = file.getName();
+                    File[] listOfFiles = file.listFiles(FileHelper.getAudioFilter());
+                    if (listOfFiles != null && listOfFiles.length > 0) {
+                        for (File listOfFile : listOfFiles) {
+                            if (listOfFile.isDirectory()) {
+                                ((FolderObject) baseFileObject).folderCount++;
+                            } else {
+                                ((FolderObject) baseFileObject).fileCount++;
+                            }
+                        }
+                    } else {
+                        continue;
+                    }
+                    if (!folderObjects.contains(baseFileObject)) {
+                        folderObjects.add(baseFileObject);
+                    }
+                } else {
+                    baseFileObject = new FileObject();
+                    baseFileObject.path = FileHelper.getPath(file);
+                    baseFileObject.name = FileHelper.getName(file.getName());
+                    baseFileObject.size = file.length();
+                    ((FileObject) baseFileObject).extension = FileHelper.getExtension(file.getName());
+                    if (TextUtils.isEmpty(((FileObject) baseFileObject).extension)) {
+                        continue;
+                    }
+                    ((FileObject) baseFileObject).tagInfo = new TagInfo(baseFileObject.path);
+                    if (!fileObjects.contains(baseFileObject)) {
+                        fileObjects.add(baseFileObject);
+                    }
+                }
+            }
+        }
+
+        fileBrowser.sortFileObjects(fileObjects);
+        fileBrowser.sortFolderObjects(folderObjects);
+        folderObjects.addAll(fileObjects);
+        return folderObjects;
+    }
+}
@@ -0,0 +1,340 @@
+package com.simplecity.amp_library.utils;
+
+import com.simplecity.amp_library.interfaces.FileType;
+import com.simplecity.amp_library.model.BaseFileObject;
+import com.simplecity.amp_library.model.FileObject;
+import com.simplecity.amp_library.model.FolderObject;
+import com.simplecity.amp_library.utils.sorting.SortManager;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Loads folders of copies of the MP3 in resources/audio. Folders are backdated once they've been filled, as directories modified in the
+ * last couple of seconds aren't snapshotted.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class FileBrowserTest {
+
+    // Well past FileBrowser's modification time granularity
+    private static final long SETTLED = 60 * 1000;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ExecutorService executor;
+
+    private FileBrowser fileBrowser;
+
+    @Before
+    public void setUp() {
+        // Details are loaded & cached in the background; run them straight away
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+        Logger.getLogger("org.jaudiotagger").setLevel(Level.OFF);
+
+        // loadDir() refuses to run on the main thread
+        executor = Executors.newSingleThreadExecutor();
+
+        fileBrowser = createFileBrowser();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void countsFoldersAndReadsTagsAfterListing() throws Exception {
+        File root = temporaryFolder.getRoot();
+        File album = folder(root, "Album");
+        file(album, "01.mp3");
+        file(album, "02.mp3");
+        folder(root, "Empty");
+        folder(folder(root, "Nested"), "Inner");
+        settle(root, SETTLED);
+
+        List<BaseFileObject> entries = loadDir(root);
+
+        assertThat(entries.get(0).fileType).isEqualTo(FileType.PARENT);
+        assertThat(names(entries)).containsExactly("Album", "Empty", "Nested");
+        for (BaseFileObject entry : withoutParent(entries)) {
+            assertThat(((FolderObject) entry).countsLoaded).isFalse();
+        }
+
+        loadDetails(entries);
+
+        assertCounts(find(entries, "Album"), 0, 2);
+        assertCounts(find(entries, "Empty"), 0, 0);
+        assertCounts(find(entries, "Nested"), 1, 0);
+
+        List<BaseFileObject> albumEntries = loadDir(album);
+        assertThat(names(albumEntries)).containsExactly("01", "02");
+        for (BaseFileObject entry : withoutParent(albumEntries)) {
+            assertThat(((FileObject) entry).tagInfo.isPlaceholder).isTrue();
+        }
+
+        loadDetails(albumEntries);
+
+        for (BaseFileObject entry : withoutParent(albumEntries)) {
+            assertThat(((FileObject) entry).tagInfo.isPlaceholder).isFalse();
+            assertThat(((FileObject) entry).tagInfo.trackName).isEqualTo("Tagged");
+        }
+    }
+
+    @Test
+    public void dropsFoldersWhichTurnOutToBeEmpty() throws Exception {
+        File root = temporaryFolder.getRoot();
+        file(folder(root, "Album"), "01.mp3");
+        folder(root, "Empty");
+        settle(root, SETTLED);
+
+        List<BaseFileObject> entries = loadDir(root);
+        assertThat(names(entries)).containsExactly("Album", "Empty");
+
+        loadDetails(entries);
+
+        assertThat(names(loadDir(root))).containsExactly("Album");
+    }
+
+    @Test
+    public void reusesTheSnapshotOfAnUnchangedFolder() throws Exception {
+        File album = folder(temporaryFolder.getRoot(), "Album");
+        file(album, "01.mp3");
+        file(album, "02.mp3");
+        settle(album, SETTLED);
+
+        List<BaseFileObject> first = loadDir(album);
+        loadDetails(first);
+        List<BaseFileObject> second = loadDir(album);
+
+        assertSameEntries(second, first);
+        for (BaseFileObject entry : withoutParent(second)) {
+            assertThat(((FileObject) entry).tagInfo.isPlaceholder).isFalse();
+        }
+    }
+
+    @Test
+    public void addingAFileInvalidatesTheSnapshot() throws Exception {
+        File album = folder(temporaryFolder.getRoot(), "Album");
+        file(album, "01.mp3");
+        settle(album, SETTLED);
+
+        List<BaseFileObject> first = loadDir(album);
+
+        file(album, "02.mp3");
+        settle(album, SETTLED / 2);
+
+        List<BaseFileObject> second = loadDir(album);
+
+        assertThat(names(second)).containsExactly("01", "02");
+        assertThat(find(second, "01")).isNotSameAs(find(first, "01"));
+    }
+
+    @Test
+    public void fileEditedInPlaceIsReadAgain() throws Exception {
+        File album = folder(temporaryFolder.getRoot(), "Album");
+        File edited = file(album, "01.mp3");
+        file(album, "02.mp3");
+        settle(album, SETTLED);
+
+        List<BaseFileObject> first = loadDir(album);
+        loadDetails(first);
+
+        // Rewriting a file doesn't change its directory's modification time
+        long albumLastModified = album.lastModified();
+        try (FileOutputStream outputStream = new FileOutputStream(edited, true)) {
+            outputStream.write(new byte[16]);
+        }
+        assertThat(album.lastModified()).isEqualTo(albumLastModified);
+
+        List<BaseFileObject> second = loadDir(album);
+
+        assertSameEntries(second, first);
+        FileObject editedEntry = (FileObject) find(second, "01");
+        assertThat(editedEntry.tagInfo.isPlaceholder).isTrue();
+        assertThat(editedEntry.size).isEqualTo(edited.length());
+        assertThat(((FileObject) find(second, "02")).tagInfo.isPlaceholder).isFalse();
+
+        loadDetails(second);
+
+        assertThat(editedEntry.tagInfo.isPlaceholder).isFalse();
+    }
+
+    @Test
+    public void recountsSubfoldersWhichHaveChanged() throws Exception {
+        File root = temporaryFolder.getRoot();
+        File album = folder(root, "Album");
+        file(album, "01.mp3");
+        settle(album, SETTLED);
+        settle(root, SETTLED);
+
+        List<BaseFileObject> first = loadDir(root);
+        loadDetails(first);
+        FolderObject albumEntry = (FolderObject) find(first, "Album");
+        assertCounts(albumEntry, 0, 1);
+
+        file(album, "02.mp3");
+
+        List<BaseFileObject> second = loadDir(root);
+
+        assertThat(find(second, "Album")).isSameAs(albumEntry);
+        assertThat(albumEntry.countsLoaded).isFalse();
+
+        loadDetails(second);
+
+        assertCounts(albumEntry, 0, 2);
+    }
+
+    @Test
+    public void doesNotSnapshotRecentlyModifiedFolders() throws Exception {
+        File album = folder(temporaryFolder.getRoot(), "Album");
+        file(album, "01.mp3");
+
+        List<BaseFileObject> first = loadDir(album);
+        List<BaseFileObject> second = loadDir(album);
+
+        assertThat(find(second, "01")).isNotSameAs(find(first, "01"));
+
+        settle(album, SETTLED);
+        List<BaseFileObject> third = loadDir(album);
+        List<BaseFileObject> fourth = loadDir(album);
+
+        assertSameEntries(fourth, third);
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedSnapshot() throws Exception {
+        List<File> folders = new ArrayList<>();
+        for (int i = 0; i <= 16; i++) {
+            File folder = folder(temporaryFolder.getRoot(), String.format("%02d", i));
+            file(folder, "01.mp3");
+            settle(folder, SETTLED);
+            folders.add(folder);
+        }
+
+        List<List<BaseFileObject>> loaded = new ArrayList<>();
+        for (File folder : folders.subList(0, 16)) {
+            loaded.add(loadDir(folder));
+        }
+        // Using the first snapshot again leaves the second as the least recently used
+        assertSameEntries(loadDir(folders.get(0)), loaded.get(0));
+        loadDir(folders.get(16));
+
+        assertSameEntries(loadDir(folders.get(0)), loaded.get(0));
+        assertThat(find(loadDir(folders.get(1)), "01")).isNotSameAs(find(loaded.get(1), "01"));
+    }
+
+    private FileBrowser createFileBrowser() {
+        SettingsManager settingsManager = mock(SettingsManager.class);
+        when(settingsManager.getFolderBrowserFilesSortOrder()).thenReturn(SortManager.SortFiles.FILE_NAME);
+        when(settingsManager.getFolderBrowserFilesAscending()).thenReturn(true);
+        when(settingsManager.getFolderBrowserFoldersSortOrder()).thenReturn(SortManager.SortFolders.DEFAULT);
+        when(settingsManager.getFolderBrowserFoldersAscending()).thenReturn(true);
+        return new FileBrowser(settingsManager, new TagInfoCache(RuntimeEnvironment.application));
+    }
+
+    private List<BaseFileObject> loadDir(File directory) throws Exception {
+        return executor.submit(() -> fileBrowser.loadDir(directory)).get(30, TimeUnit.SECONDS);
+    }
+
+    private void loadDetails(List<BaseFileObject> entries) {
+        fileBrowser.loadDetails(entries).blockingSubscribe();
+    }
+
+    private static File folder(File parent, String name) {
+        File folder = new File(parent, name);
+        assertThat(folder.mkdir()).isTrue();
+        return folder;
+    }
+
+    private static File file(File parent, String name) throws IOException {
+        File file = new File(parent, name);
+        try (InputStream inputStream = FileBrowserTest.class.getClassLoader().getResourceAsStream("audio/year.mp3");
+                FileOutputStream outputStream = new FileOutputStream(file)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] bytes = new byte[8192];
+            int read;
+            while ((read = inputStream.read(bytes)) != -1) {
+                buffer.write(bytes, 0, read);
+            }
+            outputStream.write(buffer.toByteArray());
+        }
+        return file;
+    }
+
+    /**
+     * Backdates the folder's modification time, as if it had last changed {@code age} milliseconds ago.
+     */
+    private static void settle(File folder, long age) {
+        assertThat(folder.setLastModified(System.currentTimeMillis() - age)).isTrue();
+    }
+
+    private static List<BaseFileObject> withoutParent(List<BaseFileObject> entries) {
+        List<BaseFileObject> withoutParent = new ArrayList<>();
+        for (BaseFileObject entry : entries) {
+            if (entry.fileType != FileType.PARENT) {
+                withoutParent.add(entry);
+            }
+        }
+        return withoutParent;
+    }
+
+    private static List<String> names(List<BaseFileObject> entries) {
+        List<String> names = new ArrayList<>();
+        for (BaseFileObject entry : withoutParent(entries)) {
+            names.add(entry.name);
+        }
+        return names;
+    }
+
+    private static BaseFileObject find(List<BaseFileObject> entries, String name) {
+        for (BaseFileObject entry : withoutParent(entries)) {
+            if (entry.name.equals(name)) {
+                return entry;
+            }
+        }
+        throw new AssertionError("No entry named " + name);
+    }
+
+    private static void assertSameEntries(List<BaseFileObject> actual, List<BaseFileObject> expected) {
+        List<BaseFileObject> actualEntries = withoutParent(actual);
+        List<BaseFileObject> expectedEntries = withoutParent(expected);
+        assertThat(actualEntries).hasSameSizeAs(expectedEntries);
+        for (int i = 0; i < actualEntries.size(); i++) {
+            assertThat(actualEntries.get(i)).isSameAs(expectedEntries.get(i));
+        }
+    }
+
+    private static void assertCounts(BaseFileObject entry, int folderCount, int fileCount) {
+        FolderObject folderObject = (FolderObject) entry;
+        assertThat(folderObject.countsLoaded).isTrue();
+        assertThat(folderObject.folderCount).isEqualTo(folderCount);
+        assertThat(folderObject.fileCount).isEqualTo(fileCount);
+    }
+}
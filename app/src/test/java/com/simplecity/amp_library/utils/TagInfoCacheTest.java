@@ -0,0 +1,202 @@
+package com.simplecity.amp_library.utils;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import com.simplecity.amp_library.model.FileObject;
+import com.simplecity.amp_library.model.TagInfo;
+import com.simplecity.amp_library.sql.databases.TagInfoCacheDbOpenHelper;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.Schedulers;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class TagInfoCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private TagInfoCache tagInfoCache;
+
+    @Before
+    public void setUp() {
+        // Writes & trims happen in the background; run them straight away
+        RxJavaPlugins.setIoSchedulerHandler(scheduler -> Schedulers.trampoline());
+
+        tagInfoCache = new TagInfoCache(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() {
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void returnsTheEntriesOfADirectory() throws IOException {
+        File directory = temporaryFolder.newFolder("Album");
+        FileObject first = fileObject(directory, "01.mp3", 1);
+        FileObject second = fileObject(directory, "02.mp3", 2);
+        FileObject other = fileObject(temporaryFolder.newFolder("Other"), "01.mp3", 3);
+
+        tagInfoCache.put(Arrays.asList(first, second, other));
+
+        Map<String, TagInfo> tagInfos = tagInfoCache.get(directory);
+        assertThat(tagInfos).containsOnlyKeys(first.path, second.path);
+        assertTagInfo(tagInfos.get(first.path), first.tagInfo);
+        assertTagInfo(tagInfos.get(second.path), second.tagInfo);
+    }
+
+    @Test
+    public void leavesOutFilesChangedSinceTheyWereCached() throws IOException {
+        File directory = temporaryFolder.newFolder("Album");
+        FileObject unchanged = fileObject(directory, "01.mp3", 1);
+        FileObject resized = fileObject(directory, "02.mp3", 2);
+        FileObject touched = fileObject(directory, "03.mp3", 3);
+
+        tagInfoCache.put(Arrays.asList(unchanged, resized, touched));
+
+        try (FileOutputStream outputStream = new FileOutputStream(resized.path, true)) {
+            outputStream.write(new byte[16]);
+        }
+        // Changed in size only
+        assertThat(new File(resized.path).setLastModified(resized.lastModified)).isTrue();
+        File touchedFile = new File(touched.path);
+        assertThat(touchedFile.setLastModified(touchedFile.lastModified() - 60 * 1000)).isTrue();
+
+        assertThat(tagInfoCache.get(directory)).containsOnlyKeys(unchanged.path);
+
+        // Once the changed files have been read again, they're cached again
+        tagInfoCache.put(Arrays.asList(resized, touched));
+
+        assertThat(tagInfoCache.get(directory)).containsOnlyKeys(unchanged.path, resized.path, touched.path);
+    }
+
+    @Test
+    public void skipsPlaceholdersAndMissingFiles() throws IOException {
+        File directory = temporaryFolder.newFolder("Album");
+        FileObject read = fileObject(directory, "01.mp3", 1);
+        FileObject placeholder = fileObject(directory, "02.mp3", 2);
+        placeholder.tagInfo = TagInfo.placeholder(placeholder.name);
+        FileObject unread = fileObject(directory, "03.mp3", 3);
+        unread.tagInfo = null;
+        FileObject deleted = fileObject(directory, "04.mp3", 4);
+        assertThat(new File(deleted.path).delete()).isTrue();
+
+        tagInfoCache.put(Arrays.asList(read, placeholder, unread, deleted));
+
+        assertThat(tagInfoCache.get(directory)).containsOnlyKeys(read.path);
+        assertThat(count()).isEqualTo(1);
+    }
+
+    @Test
+    public void writesAWholeBatchAndReplacesExistingEntries() throws IOException {
+        File directory = temporaryFolder.newFolder("Album");
+        List<FileObject> fileObjects = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            fileObjects.add(fileObject(directory, String.format("%03d.mp3", i), i));
+        }
+
+        tagInfoCache.put(fileObjects);
+
+        assertThat(tagInfoCache.get(directory)).hasSize(500);
+
+        FileObject retagged = fileObjects.get(0);
+        retagged.tagInfo.trackName = "Retagged";
+        tagInfoCache.put(Collections.singletonList(retagged));
+
+        Map<String, TagInfo> tagInfos = tagInfoCache.get(directory);
+        assertThat(tagInfos).hasSize(500);
+        assertThat(tagInfos.get(retagged.path).trackName).isEqualTo("Retagged");
+        assertThat(count()).isEqualTo(500);
+    }
+
+    @Test
+    public void trimsTheOldestEntries() {
+        int extra = 10;
+        SQLiteDatabase database = new TagInfoCacheDbOpenHelper(RuntimeEnvironment.application).getWritableDatabase();
+        database.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < TagInfoCache.MAX_ENTRIES + extra; i++) {
+                values.clear();
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_PATH, "/Music/" + i + ".mp3");
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_PARENT, "/Music");
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_SIZE, 0);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_LAST_MODIFIED, 0);
+                values.put(TagInfoCacheDbOpenHelper.COLUMN_TIMESTAMP, i);
+                database.insert(TagInfoCacheDbOpenHelper.TABLE_NAME, null, values);
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+
+        // The cache trims itself when it's created
+        new TagInfoCache(RuntimeEnvironment.application);
+
+        assertThat(count()).isEqualTo(TagInfoCache.MAX_ENTRIES);
+        long oldest = DatabaseUtils.longForQuery(database,
+                "SELECT MIN(" + TagInfoCacheDbOpenHelper.COLUMN_TIMESTAMP + ") FROM " + TagInfoCacheDbOpenHelper.TABLE_NAME, null);
+        assertThat(oldest).isEqualTo(extra);
+    }
+
+    private long count() {
+        SQLiteDatabase database = new TagInfoCacheDbOpenHelper(RuntimeEnvironment.application).getReadableDatabase();
+        return DatabaseUtils.queryNumEntries(database, TagInfoCacheDbOpenHelper.TABLE_NAME);
+    }
+
+    private static FileObject fileObject(File directory, String name, int trackNumber) throws IOException {
+        File file = new File(directory, name);
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(new byte[trackNumber * 100]);
+        }
+
+        FileObject fileObject = new FileObject();
+        fileObject.path = file.getPath();
+        fileObject.name = name;
+        fileObject.size = file.length();
+        fileObject.lastModified = file.lastModified();
+
+        TagInfo tagInfo = new TagInfo();
+        tagInfo.artistName = "Artist";
+        tagInfo.albumArtistName = "Album Artist";
+        tagInfo.albumName = directory.getName();
+        tagInfo.trackName = "Track " + trackNumber;
+        tagInfo.trackNumber = trackNumber;
+        tagInfo.trackTotal = 12;
+        tagInfo.discNumber = 1;
+        tagInfo.discTotal = 2;
+        tagInfo.bitrate = "320 kbps";
+        tagInfo.format = "MP3";
+        tagInfo.sampleRate = 44100;
+        tagInfo.trackLength = 180 + trackNumber;
+        tagInfo.genre = "Genre";
+        fileObject.tagInfo = tagInfo;
+
+        return fileObject;
+    }
+
+    private static void assertTagInfo(TagInfo actual, TagInfo expected) {
+        assertThat(actual).isEqualToIgnoringGivenFields(expected, "isPlaceholder");
+        assertThat(actual.isPlaceholder).isFalse();
+    }
+}
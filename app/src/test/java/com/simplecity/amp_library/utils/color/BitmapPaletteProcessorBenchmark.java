@@ -0,0 +1,35 @@
+package com.simplecity.amp_library.utils.color;
+
+import com.simplecity.amp_library.utils.color.BitmapPaletteProcessorTest.Reference;
+import java.io.IOException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static com.simplecity.amp_library.utils.color.BitmapPaletteProcessorTest.references;
+
+/**
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+public class BitmapPaletteProcessorBenchmark {
+
+    @BeforeClass
+    public static void loadReferences() throws IOException {
+        BitmapPaletteProcessorTest.loadReferences();
+    }
+
+    @Test
+    public void referenceImages() {
+        BitmapPaletteProcessor processor = new BitmapPaletteProcessor();
+        long bestNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 20; run++) {
+            long start = System.nanoTime();
+            for (Reference reference : references) {
+                processor.processPixels(reference.pixels, reference.pixels.length);
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format("Palette colours for %d reference images: %.3fms per image",
+                references.size(), bestNanos / 1e6 / references.size()));
+    }
+}
@@ -0,0 +1,117 @@
+package com.simplecity.amp_library.utils.color;
+
+import android.support.v4.util.Pair;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.imageio.ImageIO;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks colours against the reference images in resources/palette. The expected colours in palette/expected.txt were produced by the
+ * previous implementation, which ran Palette twice per bitmap.
+ */
+public class BitmapPaletteProcessorTest {
+
+    static final List<Reference> references = new ArrayList<>();
+
+    @BeforeClass
+    public static void loadReferences() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource("expected.txt"), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(" ");
+                references.add(new Reference(fields[0], pixels(fields[0]), (int) Long.parseLong(fields[1], 16), (int) Long.parseLong(fields[2], 16)));
+            }
+        }
+        assertThat(references).isNotEmpty();
+    }
+
+    @Test
+    public void colorsMatchReferenceImages() {
+        BitmapPaletteProcessor processor = new BitmapPaletteProcessor();
+        for (Reference reference : references) {
+            assertColors(reference, processor.processPixels(reference.pixels.clone(), reference.pixels.length));
+        }
+    }
+
+    @Test
+    public void reusedProcessorMatchesFreshProcessor() {
+        BitmapPaletteProcessor processor = new BitmapPaletteProcessor();
+        // Process in reverse, so each image follows a different one than in colorsMatchReferenceImages()
+        for (int i = references.size() - 1; i >= 0; i--) {
+            Reference reference = references.get(i);
+            assertColors(reference, processor.processPixels(reference.pixels.clone(), reference.pixels.length));
+            assertColors(reference, new BitmapPaletteProcessor().processPixels(reference.pixels.clone(), reference.pixels.length));
+        }
+    }
+
+    @Test
+    public void processorsCanRunConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    BitmapPaletteProcessor processor = new BitmapPaletteProcessor();
+                    for (int run = 0; run < 10; run++) {
+                        for (Reference reference : references) {
+                            assertColors(reference, processor.processPixels(reference.pixels, reference.pixels.length));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertColors(Reference reference, Pair<Integer, Integer> colors) {
+        assertThat(String.format("%08X", colors.first)).as(reference.name + " background").isEqualTo(String.format("%08X", reference.background));
+        assertThat(String.format("%08X", colors.second)).as(reference.name + " foreground").isEqualTo(String.format("%08X", reference.foreground));
+    }
+
+    private static int[] pixels(String name) throws IOException {
+        try (InputStream inputStream = resource(name)) {
+            BufferedImage image = ImageIO.read(inputStream);
+            return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        }
+    }
+
+    private static InputStream resource(String name) {
+        InputStream inputStream = BitmapPaletteProcessorTest.class.getClassLoader().getResourceAsStream("palette/" + name);
+        assertThat(inputStream).as(name).isNotNull();
+        return inputStream;
+    }
+
+    static class Reference {
+
+        final String name;
+        final int[] pixels;
+        final int background;
+        final int foreground;
+
+        Reference(String name, int[] pixels, int background, int foreground) {
+            this.name = name;
+            this.pixels = pixels;
+            this.background = background;
+            this.foreground = foreground;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.simplecity.amp_library.utils.playlists;
+
+import android.content.ContentProvider;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.MediaStore;
+import com.simplecity.amp_library.data.Repository;
+import com.simplecity.amp_library.data.SongsRepository;
+import com.simplecity.amp_library.model.Playlist;
+import com.simplecity.amp_library.model.Song;
+import com.simplecity.amp_library.utils.SettingsManager;
+import io.reactivex.Observable;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.schedulers.Schedulers;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import kotlin.Unit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class FavoritesPlaylistManagerTest {
+
+    private static final long FAVORITES_PLAYLIST_ID = 1;
+
+    private MembersProvider membersProvider;
+    private Repository.PlaylistsRepository playlistsRepository;
+
+    @Before
+    public void setUp() {
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+
+        membersProvider = new MembersProvider();
+        ShadowContentResolver.registerProviderInternal(MediaStore.AUTHORITY, membersProvider);
+
+        Playlist favorites = new Playlist(Playlist.Type.FAVORITES, FAVORITES_PLAYLIST_ID, "Favorites", true, true, false, false, true);
+        playlistsRepository = mock(Repository.PlaylistsRepository.class);
+        when(playlistsRepository.getPlaylists()).thenReturn(Observable.just(Collections.singletonList(favorites)));
+    }
+
+    @After
+    public void tearDown() {
+        RxAndroidPlugins.reset();
+    }
+
+    @Test
+    public void concurrentTogglesApplyInOrder() throws InterruptedException {
+        int songCount = 20;
+        int threadCount = 7;
+        int rounds = 3;
+
+        // The first half of the songs start out as favorites
+        for (int i = 0; i < songCount / 2; i++) {
+            membersProvider.add(i, i);
+        }
+        FavoritesPlaylistManager favoritesPlaylistManager = createFavoritesPlaylistManager();
+        assertThat(isFavorite(favoritesPlaylistManager, song(0))).isTrue();
+
+        // Each song is toggled an odd number of times in total, from several threads at once
+        Map<Long, List<Boolean>> results = new HashMap<>();
+        CountDownLatch toggled = new CountDownLatch(songCount * threadCount * rounds);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        for (int thread = 0; thread < threadCount; thread++) {
+            Random random = new Random(thread);
+            executor.execute(() -> {
+                List<Song> songs = new ArrayList<>();
+                for (int round = 0; round < rounds; round++) {
+                    for (int i = 0; i < songCount; i++) {
+                        songs.add(song(i));
+                    }
+                }
+                Collections.shuffle(songs, random);
+                for (Song song : songs) {
+                    favoritesPlaylistManager.toggleFavorite(song, favorite -> {
+                        synchronized (results) {
+                            List<Boolean> songResults = results.get(song.id);
+                            if (songResults == null) {
+                                songResults = new ArrayList<>();
+                                results.put(song.id, songResults);
+                            }
+                            songResults.add(favorite);
+                        }
+                        toggled.countDown();
+                        return Unit.INSTANCE;
+                    });
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(toggled.await(30, TimeUnit.SECONDS)).isTrue();
+
+        for (long songId = 0; songId < songCount; songId++) {
+            boolean initiallyFavorite = songId < songCount / 2;
+
+            // Each toggle reports the opposite of the one before it
+            List<Boolean> songResults = results.get(songId);
+            assertThat(songResults).hasSize(threadCount * rounds);
+            for (int i = 0; i < songResults.size(); i++) {
+                assertThat(songResults.get(i)).isEqualTo(i % 2 == 0 ? !initiallyFavorite : initiallyFavorite);
+            }
+
+            assertThat(isFavorite(favoritesPlaylistManager, song(songId))).isEqualTo(!initiallyFavorite);
+            assertThat(membersProvider.count(songId)).isEqualTo(initiallyFavorite ? 0 : 1);
+        }
+    }
+
+    @Test
+    public void removeFromFavoritesRemovesEveryEntry() throws InterruptedException {
+        membersProvider.add(5, 0);
+        membersProvider.add(5, 1);
+        FavoritesPlaylistManager favoritesPlaylistManager = createFavoritesPlaylistManager();
+        assertThat(isFavorite(favoritesPlaylistManager, song(5))).isTrue();
+
+        CountDownLatch removed = new CountDownLatch(1);
+        favoritesPlaylistManager.removeFromFavorites(song(5), success -> {
+            assertThat(success).isTrue();
+            removed.countDown();
+            return Unit.INSTANCE;
+        });
+
+        assertThat(removed.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(membersProvider.count(5)).isZero();
+        assertThat(isFavorite(favoritesPlaylistManager, song(5))).isFalse();
+    }
+
+    @Test
+    public void failedLoadPublishesNoFavorites() {
+        when(playlistsRepository.getPlaylists()).thenReturn(Observable.error(new IllegalStateException("Query failed")));
+        membersProvider.add(5, 0);
+
+        FavoritesPlaylistManager favoritesPlaylistManager = createFavoritesPlaylistManager();
+
+        assertThat(isFavorite(favoritesPlaylistManager, song(5))).isFalse();
+    }
+
+    private FavoritesPlaylistManager createFavoritesPlaylistManager() {
+        PlaylistManager playlistManager = new PlaylistManager(RuntimeEnvironment.application, mock(SongsRepository.class), mock(SettingsManager.class));
+        return new FavoritesPlaylistManager(RuntimeEnvironment.application, playlistManager, playlistsRepository);
+    }
+
+    private static boolean isFavorite(FavoritesPlaylistManager favoritesPlaylistManager, Song song) {
+        return favoritesPlaylistManager.isFavorite(song).timeout(10, TimeUnit.SECONDS).blockingFirst();
+    }
+
+    private static Song song(long id) {
+        Song song = new Song();
+        song.id = id;
+        return song;
+    }
+
+    /**
+     * Holds the members of the favorites playlist, as MediaStore would.
+     */
+    private static class MembersProvider extends ContentProvider {
+
+        private final Uri membersUri = MediaStore.Audio.Playlists.Members.getContentUri("external", FAVORITES_PLAYLIST_ID);
+
+        // Audio id & play order of each member
+        private final List<long[]> members = new ArrayList<>();
+
+        synchronized void add(long songId, long playOrder) {
+            members.add(new long[] { songId, playOrder });
+        }
+
+        synchronized int count(long songId) {
+            int count = 0;
+            for (long[] member : members) {
+                if (member[0] == songId) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public synchronized Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            assertThat(uri).isEqualTo(membersUri);
+            MatrixCursor cursor = new MatrixCursor(projection);
+            for (long[] member : members) {
+                Object[] row = new Object[projection.length];
+                for (int i = 0; i < projection.length; i++) {
+                    row[i] = projection[i].equals(MediaStore.Audio.Playlists.Members.AUDIO_ID) ? member[0] : member[1];
+                }
+                cursor.addRow(row);
+            }
+            return cursor;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public synchronized Uri insert(Uri uri, ContentValues values) {
+            assertThat(uri).isEqualTo(membersUri);
+            add(values.getAsLong(MediaStore.Audio.Playlists.Members.AUDIO_ID), values.getAsLong(MediaStore.Audio.Playlists.Members.PLAY_ORDER));
+            return ContentUris.withAppendedId(uri, members.size());
+        }
+
+        @Override
+        public synchronized int delete(Uri uri, String selection, String[] selectionArgs) {
+            assertThat(uri).isEqualTo(membersUri);
+            if (selection == null) {
+                int count = members.size();
+                members.clear();
+                return count;
+            }
+            assertThat(selection).isEqualTo(MediaStore.Audio.Playlists.Members.AUDIO_ID + "=?");
+            long songId = Long.parseLong(selectionArgs[0]);
+            int count = 0;
+            for (int i = members.size() - 1; i >= 0; i--) {
+                if (members.get(i)[0] == songId) {
+                    members.remove(i);
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.simplecity.amp_library.utils.playlists;
+
+import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.MediaStore;
+import com.simplecity.amp_library.model.Song;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class PlaylistEditorTest {
+
+    static final long PLAYLIST_ID = 1;
+
+    private MembersProvider membersProvider;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        membersProvider = new MembersProvider();
+        ShadowContentResolver.registerProviderInternal(MediaStore.AUTHORITY, membersProvider);
+
+        // Adding songs queries the end of the playlist, which isn't allowed on the main thread
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void addsWithASingleBulkInsert() throws Exception {
+        membersProvider.add(1, 0);
+        membersProvider.add(2, 1);
+        membersProvider.add(3, 5);
+
+        int count = commit(editor().add(Arrays.asList(song(10), song(11))).add(new long[] { 12, 13 }));
+
+        assertThat(count).isEqualTo(4);
+        assertThat(membersProvider.songIds()).containsExactly(1L, 2L, 3L, 10L, 11L, 12L, 13L);
+        // Following on from the last entry
+        assertThat(membersProvider.playOrders()).containsExactly(0L, 1L, 5L, 6L, 7L, 8L, 9L);
+        assertThat(membersProvider.bulkInserts).isEqualTo(1);
+        assertThat(membersProvider.batches).isZero();
+        assertNotifiedOnce();
+    }
+
+    @Test
+    public void addsToAnEmptyPlaylistFromTheStart() throws Exception {
+        int count = commit(editor().add(new long[] { 10, 11 }));
+
+        assertThat(count).isEqualTo(2);
+        assertThat(membersProvider.songIds()).containsExactly(10L, 11L);
+        assertThat(membersProvider.playOrders()).containsExactly(0L, 1L);
+    }
+
+    @Test
+    public void appliesOtherEditsInStagedOrderWithASingleBatch() throws Exception {
+        for (int i = 1; i <= 4; i++) {
+            membersProvider.add(i, i - 1);
+        }
+
+        // [1, 2, 3, 4] -> [1, 3, 4] -> [3, 4, 1] -> [3, 4, 1, 5, 6]
+        int count = commit(editor().remove(song(2)).move(0, 2).add(new long[] { 5, 6 }));
+
+        assertThat(count).isEqualTo(4);
+        assertThat(membersProvider.songIds()).containsExactly(3L, 4L, 1L, 5L, 6L);
+        assertThat(membersProvider.playOrders()).containsExactly(0L, 2L, 3L, 4L, 5L);
+        assertThat(membersProvider.batches).isEqualTo(1);
+        assertThat(membersProvider.bulkInserts).isZero();
+        assertNotifiedOnce();
+    }
+
+    @Test
+    public void movesRelativeToEarlierEdits() throws Exception {
+        for (int i = 1; i <= 4; i++) {
+            membersProvider.add(i, i - 1);
+        }
+
+        // [1, 2, 3, 4] -> [2, 3, 4, 1] -> [2, 1, 3, 4]
+        commit(editor().move(0, 3).move(3, 1));
+
+        assertThat(membersProvider.songIds()).containsExactly(2L, 1L, 3L, 4L);
+        assertThat(membersProvider.batches).isEqualTo(1);
+    }
+
+    @Test
+    public void clearsInStagedOrder() throws Exception {
+        membersProvider.add(1, 0);
+        membersProvider.add(2, 1);
+
+        commit(editor().clear().add(new long[] { 3 }));
+        assertThat(membersProvider.songIds()).containsExactly(3L);
+
+        commit(editor().add(new long[] { 4 }).clear());
+        assertThat(membersProvider.songIds()).isEmpty();
+    }
+
+    @Test
+    public void removesEveryOccurrence() throws Exception {
+        membersProvider.add(1, 0);
+        membersProvider.add(2, 1);
+        membersProvider.add(1, 2);
+
+        int count = commit(editor().remove(song(1)));
+
+        assertThat(count).isEqualTo(2);
+        assertThat(membersProvider.songIds()).containsExactly(2L);
+        assertNotifiedOnce();
+    }
+
+    @Test
+    public void writesNothingWhenNothingChanges() throws Exception {
+        membersProvider.add(1, 0);
+
+        assertThat(commit(editor())).isZero();
+        assertThat(commit(editor().add(Collections.emptyList()).add(new long[0]).move(0, 0))).isZero();
+        assertThat(membersProvider.bulkInserts).isZero();
+        assertThat(membersProvider.batches).isZero();
+
+        // Nothing to remove, so nothing to notify
+        assertThat(commit(editor().remove(song(2)))).isZero();
+        assertThat(shadowOf(RuntimeEnvironment.application.getContentResolver()).getNotifiedUris()).isEmpty();
+    }
+
+    @Test
+    public void commitClearsTheStagedEdits() throws Exception {
+        PlaylistEditor editor = editor().add(new long[] { 1 });
+        commit(editor);
+
+        assertThat(commit(editor)).isZero();
+        assertThat(membersProvider.songIds()).containsExactly(1L);
+    }
+
+    private static PlaylistEditor editor() {
+        return new PlaylistEditor(RuntimeEnvironment.application, PLAYLIST_ID);
+    }
+
+    private int commit(PlaylistEditor editor) throws Exception {
+        return run(executor, editor::commit);
+    }
+
+    static void assertNotifiedOnce() {
+        List<ShadowContentResolver.NotifiedUri> notifiedUris = shadowOf(RuntimeEnvironment.application.getContentResolver()).getNotifiedUris();
+        assertThat(notifiedUris).hasSize(1);
+        assertThat(notifiedUris.get(0).uri).isEqualTo(MediaStore.Audio.Playlists.EXTERNAL_CONTENT_URI);
+    }
+
+    static <T> T run(ExecutorService executor, Callable<T> callable) throws Exception {
+        return executor.submit(callable).get(30, TimeUnit.SECONDS);
+    }
+
+    static Song song(long id) {
+        Song song = new Song();
+        song.id = id;
+        return song;
+    }
+
+    /**
+     * Holds the members of a single playlist, as MediaStore would, and counts the bulk inserts and batches it's sent.
+     */
+    static class MembersProvider extends ContentProvider {
+
+        private final Uri membersUri = MediaStore.Audio.Playlists.Members.getContentUri("external", PLAYLIST_ID);
+
+        // Audio id & play order of each member, in play order
+        private final List<long[]> members = new ArrayList<>();
+
+        int bulkInserts;
+        int batches;
+
+        synchronized void add(long songId, long playOrder) {
+            int index = members.size();
+            while (index > 0 && members.get(index - 1)[1] > playOrder) {
+                index--;
+            }
+            members.add(index, new long[] { songId, playOrder });
+        }
+
+        synchronized List<Long> songIds() {
+            List<Long> songIds = new ArrayList<>();
+            for (long[] member : members) {
+                songIds.add(member[0]);
+            }
+            return songIds;
+        }
+
+        synchronized List<Long> playOrders() {
+            List<Long> playOrders = new ArrayList<>();
+            for (long[] member : members) {
+                playOrders.add(member[1]);
+            }
+            return playOrders;
+        }
+
+        @Override
+        public boolean onCreate() {
+            return true;
+        }
+
+        @Override
+        public synchronized Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+            assertThat(uri).isEqualTo(membersUri);
+            List<long[]> rows = new ArrayList<>(members);
+            if (sortOrder != null && sortOrder.endsWith(" DESC")) {
+                Collections.reverse(rows);
+            }
+            MatrixCursor cursor = new MatrixCursor(projection);
+            for (long[] member : rows) {
+                Object[] row = new Object[projection.length];
+                for (int i = 0; i < projection.length; i++) {
+                    row[i] = projection[i].equals(MediaStore.Audio.Playlists.Members.AUDIO_ID) ? member[0] : member[1];
+                }
+                cursor.addRow(row);
+            }
+            return cursor;
+        }
+
+        @Override
+        public String getType(Uri uri) {
+            return null;
+        }
+
+        @Override
+        public synchronized Uri insert(Uri uri, ContentValues values) {
+            assertThat(uri).isEqualTo(membersUri);
+            add(values.getAsLong(MediaStore.Audio.Playlists.Members.AUDIO_ID), values.getAsLong(MediaStore.Audio.Playlists.Members.PLAY_ORDER));
+            return ContentUris.withAppendedId(uri, members.size());
+        }
+
+        @Override
+        public synchronized int bulkInsert(Uri uri, ContentValues[] values) {
+            bulkInserts++;
+            return super.bulkInsert(uri, values);
+        }
+
+        @Override
+        public synchronized ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
+            batches++;
+            return super.applyBatch(operations);
+        }
+
+        @Override
+        public synchronized int delete(Uri uri, String selection, String[] selectionArgs) {
+            assertThat(uri).isEqualTo(membersUri);
+            if (selection == null) {
+                int count = members.size();
+                members.clear();
+                return count;
+            }
+            assertThat(selection).isEqualTo(MediaStore.Audio.Playlists.Members.AUDIO_ID + "=?");
+            long songId = Long.parseLong(selectionArgs[0]);
+            int count = 0;
+            for (int i = members.size() - 1; i >= 0; i--) {
+                if (members.get(i)[0] == songId) {
+                    members.remove(i);
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Moves the member at the position in the uri to the position given as its play order, the way MediaStore handles
+         * {@link MediaStore.Audio.Playlists.Members#moveItem}. The members keep the play orders of the positions they move into.
+         */
+        @Override
+        public synchronized int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+            assertThat(uri.getQueryParameter("move")).isEqualTo("true");
+            assertThat(uri.getPath()).isEqualTo(membersUri.getPath() + "/" + uri.getLastPathSegment());
+            int from = Integer.parseInt(uri.getLastPathSegment());
+            int to = values.getAsInteger(MediaStore.Audio.Playlists.Members.PLAY_ORDER);
+
+            List<Long> playOrders = playOrders();
+            members.add(to, members.remove(from));
+            for (int i = 0; i < members.size(); i++) {
+                members.get(i)[1] = playOrders.get(i);
+            }
+            return 1;
+        }
+    }
+}
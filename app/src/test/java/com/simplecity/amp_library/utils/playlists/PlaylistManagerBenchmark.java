@@ -0,0 +1,146 @@
+package com.simplecity.amp_library.utils.playlists;
+
+import android.content.ContentValues;
+import android.provider.MediaStore;
+import com.simplecity.amp_library.data.SongsRepository;
+import com.simplecity.amp_library.model.Playlist;
+import com.simplecity.amp_library.model.Song;
+import com.simplecity.amp_library.utils.SettingsManager;
+import com.simplecity.amp_library.utils.playlists.PlaylistEditorTest.MembersProvider;
+import io.reactivex.Observable;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.schedulers.Schedulers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import kotlin.Unit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static com.simplecity.amp_library.utils.playlists.PlaylistEditorTest.PLAYLIST_ID;
+import static com.simplecity.amp_library.utils.playlists.PlaylistEditorTest.song;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Times adding 5,000 songs to a playlist of 5,000 songs through {@link PlaylistManager#addToPlaylist}, against the previous duplicate
+ * check & insert. The playlist is held by a fake MediaStore, so this measures the work done in the app rather than the MediaStore's.
+ * <p>
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class PlaylistManagerBenchmark {
+
+    private static final int SONGS = 5000;
+
+    private static final int RUNS = 5;
+
+    private Playlist playlist;
+
+    private List<Song> existingSongs;
+
+    private List<Song> addedSongs;
+
+    @Before
+    public void setUp() {
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+
+        playlist = new Playlist(Playlist.Type.USER_CREATED, PLAYLIST_ID, "Playlist", true, false, true, true, true);
+
+        existingSongs = new ArrayList<>();
+        addedSongs = new ArrayList<>();
+        for (int i = 0; i < SONGS; i++) {
+            existingSongs.add(song(i));
+            addedSongs.add(song(SONGS + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        RxAndroidPlugins.reset();
+    }
+
+    @Test
+    public void largePlaylist() throws InterruptedException {
+        long previousNanos = Long.MAX_VALUE;
+        long checkingNanos = Long.MAX_VALUE;
+        long ignoringNanos = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            MembersProvider membersProvider = createMembersProvider();
+            long start = System.nanoTime();
+            previousAddToPlaylist();
+            previousNanos = Math.min(previousNanos, System.nanoTime() - start);
+            assertThat(membersProvider.songIds()).hasSize(SONGS * 2);
+
+            membersProvider = createMembersProvider();
+            start = System.nanoTime();
+            addToPlaylist(false);
+            checkingNanos = Math.min(checkingNanos, System.nanoTime() - start);
+            assertThat(membersProvider.songIds()).hasSize(SONGS * 2);
+
+            membersProvider = createMembersProvider();
+            start = System.nanoTime();
+            addToPlaylist(true);
+            ignoringNanos = Math.min(ignoringNanos, System.nanoTime() - start);
+            assertThat(membersProvider.songIds()).hasSize(SONGS * 2);
+        }
+
+        System.out.println(String.format("%d songs into %d: previous %.1fms, now %.1fms checking for duplicates, %.1fms ignoring them",
+                SONGS, SONGS, previousNanos / 1e6, checkingNanos / 1e6, ignoringNanos / 1e6));
+    }
+
+    private MembersProvider createMembersProvider() {
+        MembersProvider membersProvider = new MembersProvider();
+        for (int i = 0; i < SONGS; i++) {
+            membersProvider.add(i, i);
+        }
+        ShadowContentResolver.registerProviderInternal(MediaStore.AUTHORITY, membersProvider);
+        return membersProvider;
+    }
+
+    private void addToPlaylist(boolean ignoreDuplicates) throws InterruptedException {
+        SongsRepository songsRepository = mock(SongsRepository.class);
+        when(songsRepository.getSongs(playlist)).thenReturn(Observable.just(existingSongs));
+        SettingsManager settingsManager = mock(SettingsManager.class);
+        when(settingsManager.ignoreDuplicates()).thenReturn(ignoreDuplicates);
+
+        CountDownLatch added = new CountDownLatch(1);
+        new PlaylistManager(RuntimeEnvironment.application, songsRepository, settingsManager).addToPlaylist(playlist, addedSongs, count -> {
+            added.countDown();
+            return Unit.INSTANCE;
+        });
+        assertThat(added.await(1, TimeUnit.MINUTES)).isTrue();
+    }
+
+    /**
+     * PlaylistManager.addToPlaylist(), as it was before it went through {@link PlaylistEditor}, where none of the songs are duplicates.
+     */
+    private void previousAddToPlaylist() {
+        List<Song> mutableSongList = new ArrayList<>(addedSongs);
+
+        List<Song> duplicates = new ArrayList<>();
+        for (Song song : existingSongs) {
+            if (mutableSongList.contains(song) && !duplicates.contains(song)) {
+                duplicates.add(song);
+            }
+        }
+        assertThat(duplicates).isEmpty();
+
+        ContentValues[] contentValues = new ContentValues[mutableSongList.size()];
+        for (int i = 0; i < mutableSongList.size(); i++) {
+            contentValues[i] = new ContentValues();
+            contentValues[i].put(MediaStore.Audio.Playlists.Members.PLAY_ORDER, existingSongs.size() + i);
+            contentValues[i].put(MediaStore.Audio.Playlists.Members.AUDIO_ID, mutableSongList.get(i).id);
+        }
+        RuntimeEnvironment.application.getContentResolver().bulkInsert(MediaStore.Audio.Playlists.Members.getContentUri("external", PLAYLIST_ID), contentValues);
+    }
+}
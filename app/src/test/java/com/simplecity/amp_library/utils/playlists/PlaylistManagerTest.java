@@ -0,0 +1,158 @@
+package com.simplecity.amp_library.utils.playlists;
+
+import android.provider.MediaStore;
+import com.simplecity.amp_library.data.SongsRepository;
+import com.simplecity.amp_library.model.Playlist;
+import com.simplecity.amp_library.model.Song;
+import com.simplecity.amp_library.utils.SettingsManager;
+import com.simplecity.amp_library.utils.playlists.PlaylistEditorTest.MembersProvider;
+import io.reactivex.Observable;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.schedulers.Schedulers;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import kotlin.Unit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import static com.simplecity.amp_library.utils.playlists.PlaylistEditorTest.PLAYLIST_ID;
+import static com.simplecity.amp_library.utils.playlists.PlaylistEditorTest.assertNotifiedOnce;
+import static com.simplecity.amp_library.utils.playlists.PlaylistEditorTest.run;
+import static com.simplecity.amp_library.utils.playlists.PlaylistEditorTest.song;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class PlaylistManagerTest {
+
+    private MembersProvider membersProvider;
+
+    private SongsRepository songsRepository;
+
+    private SettingsManager settingsManager;
+
+    private PlaylistManager playlistManager;
+
+    private Playlist playlist;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+
+        membersProvider = new MembersProvider();
+        ShadowContentResolver.registerProviderInternal(MediaStore.AUTHORITY, membersProvider);
+
+        songsRepository = mock(SongsRepository.class);
+        settingsManager = mock(SettingsManager.class);
+        playlistManager = new PlaylistManager(RuntimeEnvironment.application, songsRepository, settingsManager);
+        playlist = new Playlist(Playlist.Type.USER_CREATED, PLAYLIST_ID, "Playlist", true, false, true, true, true);
+
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+        RxAndroidPlugins.reset();
+    }
+
+    @Test
+    public void addToPlaylistDoesNotLoadThePlaylistWhenIgnoringDuplicates() throws InterruptedException {
+        when(settingsManager.ignoreDuplicates()).thenReturn(true);
+        membersProvider.add(1, 0);
+        membersProvider.add(2, 1);
+
+        // Already in the playlist, but added again
+        assertThat(addToPlaylist(Arrays.asList(song(2), song(3)))).isEqualTo(2);
+
+        verifyZeroInteractions(songsRepository);
+        assertThat(membersProvider.songIds()).containsExactly(1L, 2L, 2L, 3L);
+        assertThat(membersProvider.playOrders()).containsExactly(0L, 1L, 2L, 3L);
+        assertThat(membersProvider.bulkInserts).isEqualTo(1);
+        assertNotifiedOnce();
+    }
+
+    @Test
+    public void addToPlaylistAddsSongsWhichAreNotDuplicates() throws InterruptedException {
+        List<Song> existingSongs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            membersProvider.add(i, i * 2);
+            existingSongs.add(song(i));
+        }
+        when(songsRepository.getSongs(playlist)).thenReturn(Observable.just(existingSongs));
+
+        assertThat(addToPlaylist(Arrays.asList(song(10), song(11)))).isEqualTo(2);
+
+        assertThat(membersProvider.songIds()).containsExactly(0L, 1L, 2L, 10L, 11L);
+        // After the last entry, rather than the number of entries
+        assertThat(membersProvider.playOrders()).containsExactly(0L, 2L, 4L, 5L, 6L);
+        assertNotifiedOnce();
+    }
+
+    @Test
+    public void removeFromPlaylistRemovesEveryOccurrence() throws Exception {
+        membersProvider.add(1, 0);
+        membersProvider.add(2, 1);
+        membersProvider.add(1, 2);
+
+        assertThat(run(executor, () -> playlistManager.removeFromPlaylist(playlist, song(1)))).isEqualTo(2);
+
+        assertThat(membersProvider.songIds()).containsExactly(2L);
+        assertNotifiedOnce();
+    }
+
+    @Test
+    public void removeFromPlaylistIgnoresSmartPlaylists() throws Exception {
+        Playlist recentlyAdded = new Playlist(Playlist.Type.RECENTLY_ADDED, PlaylistManager.PlaylistIds.RECENTLY_ADDED_PLAYLIST, "Recently added", false, false,
+                false, false, false);
+
+        assertThat(run(executor, () -> playlistManager.removeFromPlaylist(recentlyAdded, song(1)))).isZero();
+
+        assertThat(shadowOf(RuntimeEnvironment.application.getContentResolver()).getNotifiedUris()).isEmpty();
+    }
+
+    @Test
+    public void clearPlaylistRemovesEverything() {
+        membersProvider.add(1, 0);
+        membersProvider.add(2, 1);
+
+        playlistManager.clearPlaylist(PLAYLIST_ID);
+
+        assertThat(membersProvider.songIds()).isEmpty();
+        assertThat(membersProvider.batches).isEqualTo(1);
+        assertNotifiedOnce();
+    }
+
+    /**
+     * @return the number of songs reported as added.
+     */
+    private int addToPlaylist(List<Song> songs) throws InterruptedException {
+        CountDownLatch added = new CountDownLatch(1);
+        AtomicInteger count = new AtomicInteger();
+        playlistManager.addToPlaylist(playlist, songs, addedCount -> {
+            count.set(addedCount);
+            added.countDown();
+            return Unit.INSTANCE;
+        });
+        assertThat(added.await(10, TimeUnit.SECONDS)).isTrue();
+        return count.get();
+    }
+}
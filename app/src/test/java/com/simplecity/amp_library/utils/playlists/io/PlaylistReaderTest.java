@@ -0,0 +1,185 @@
+package com.simplecity.amp_library.utils.playlists.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PlaylistReaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void readsM3u() throws Exception {
+        File file = fixture("mixed.m3u");
+        String baseDir = file.getParent();
+
+        List<PlaylistEntry> entries = read(file, PlaylistFormat.M3U).entries;
+
+        assertThat(entries).hasSize(6);
+        assertEntry(entries.get(0), "/storage/emulated/0/Music/Artist/Absolute.mp3", "Artist - Absolute", 213);
+        assertEntry(entries.get(1), baseDir + "/Relative/Fractional.mp3", "Artist - Fractional", 188);
+        assertEntry(entries.get(2), "http://example.com/stream.mp3", "Stream", PlaylistEntry.UNKNOWN_DURATION);
+        assertEntry(entries.get(3), "/storage/emulated/0/Music/My Band/Café + Bar.flac", null, PlaylistEntry.UNKNOWN_DURATION);
+        assertEntry(entries.get(4), file.getParentFile().getParent() + "/Windows/Backslash.mp3", "Attributes", 97);
+        assertEntry(entries.get(5), "/storage/emulated/0/Music/Bad.mp3", "Bad duration", PlaylistEntry.UNKNOWN_DURATION);
+    }
+
+    @Test
+    public void readsM3u8WithByteOrderMark() throws Exception {
+        File file = fixture("unicode.m3u8");
+
+        List<PlaylistEntry> entries = read(file, PlaylistFormat.M3U8).entries;
+
+        assertThat(entries).hasSize(2);
+        assertEntry(entries.get(0), "/storage/emulated/0/Music/Sigur Rós/Hoppípolla.flac", "Sigur Rós - Hoppípolla", 301);
+        assertEntry(entries.get(1), file.getParent() + "/坂本龍一/Merry Christmas Mr. Lawrence.mp3", "坂本龍一 - Merry Christmas Mr. Lawrence", 245);
+    }
+
+    @Test
+    public void readsPls() throws Exception {
+        File file = fixture("stations.pls");
+
+        List<PlaylistEntry> entries = read(file, PlaylistFormat.PLS).entries;
+
+        assertThat(entries).hasSize(3);
+        assertEntry(entries.get(0), "/storage/emulated/0/Music/One.mp3", "One", 200);
+        assertEntry(entries.get(1), file.getParent() + "/Two.mp3", "Two", 95);
+        assertEntry(entries.get(2), "http://example.com/radio", "Radio", PlaylistEntry.UNKNOWN_DURATION);
+    }
+
+    @Test
+    public void roundTripsThroughWriter() throws IOException {
+        File musicDir = temporaryFolder.newFolder("Music");
+        List<PlaylistEntry> entries = new ArrayList<>();
+        entries.add(new PlaylistEntry(musicDir.getPath() + "/Artist/Album/01 Song.mp3", "Artist - Song", 180));
+        entries.add(new PlaylistEntry(temporaryFolder.getRoot().getPath() + "/Other/Song.flac", "Other", PlaylistEntry.UNKNOWN_DURATION));
+        entries.add(new PlaylistEntry("http://example.com/stream", null, PlaylistEntry.UNKNOWN_DURATION));
+
+        for (PlaylistFormat format : PlaylistFormat.values()) {
+            File file = new File(musicDir, "playlist." + format.extension);
+            try (PlaylistWriter writer = new PlaylistWriter(file, format, true)) {
+                for (PlaylistEntry entry : entries) {
+                    writer.write(entry);
+                }
+            }
+
+            List<PlaylistEntry> readEntries = read(file, format).entries;
+
+            assertThat(readEntries).hasSameSizeAs(entries);
+            for (int i = 0; i < entries.size(); i++) {
+                PlaylistEntry entry = entries.get(i);
+                assertEntry(readEntries.get(i), entry.path, format == PlaylistFormat.PLS || entry.title != null ? entry.title : "", entry.durationSeconds);
+            }
+        }
+    }
+
+    /**
+     * Progress must never report more of the file than has actually been handed to the callback, however far the reader has buffered
+     * ahead.
+     */
+    @Test
+    public void progressDoesNotRunAheadOfEntries() throws IOException {
+        int count = 50000;
+        File file = temporaryFolder.newFile("large.m3u");
+        // The end offset of each entry's line, in bytes
+        long[] entryEnds = new long[count];
+        long offset = 0;
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+            String header = "#EXTM3U\n";
+            writer.write(header);
+            offset += header.length();
+            for (int i = 0; i < count; i++) {
+                String lines = "#EXTINF:" + (120 + i % 200) + ",Artist " + i % 100 + " - Sóng " + i + "\n"
+                        + "/storage/emulated/0/Music/Artist " + i % 100 + "/Sóng " + i + ".mp3\n";
+                writer.write(lines);
+                offset += lines.getBytes("UTF-8").length;
+                entryEnds[i] = offset;
+            }
+        }
+        long size = file.length();
+        assertThat(size).isEqualTo(offset);
+
+        RecordingCallback callback = read(file, PlaylistFormat.M3U);
+
+        assertThat(callback.entries).hasSize(count);
+        assertThat(callback.progress).isSorted().endsWith(100);
+        assertThat(callback.progress.size()).isGreaterThan(90);
+        for (int i = 0; i < callback.progress.size() - 1; i++) {
+            int entries = callback.entriesAtProgress.get(i);
+            // The lines following the last entry (up to the next one's path) may have been read too
+            long readUpTo = entries < count ? entryEnds[entries] : size;
+            assertThat((long) callback.progress.get(i)).isLessThanOrEqualTo(readUpTo * 100 / size);
+        }
+    }
+
+    @Test
+    public void parsesDurations() {
+        assertThat(PlaylistReader.parseDuration("213")).isEqualTo(213);
+        assertThat(PlaylistReader.parseDuration(" 213.4 ")).isEqualTo(213);
+        assertThat(PlaylistReader.parseDuration("213.5")).isEqualTo(214);
+        assertThat(PlaylistReader.parseDuration("0.0")).isEqualTo(0);
+        assertThat(PlaylistReader.parseDuration("-1")).isEqualTo(PlaylistEntry.UNKNOWN_DURATION);
+        assertThat(PlaylistReader.parseDuration("-1.0")).isEqualTo(PlaylistEntry.UNKNOWN_DURATION);
+        assertThat(PlaylistReader.parseDuration("")).isEqualTo(PlaylistEntry.UNKNOWN_DURATION);
+        assertThat(PlaylistReader.parseDuration("1.2.3")).isEqualTo(PlaylistEntry.UNKNOWN_DURATION);
+    }
+
+    @Test
+    public void decodesFileUrls() {
+        assertThat(PlaylistPaths.resolve("/base", "file:///a%20b/c%2Bd+e.mp3")).isEqualTo("/a b/c+d+e.mp3");
+        assertThat(PlaylistPaths.resolve("/base", "file://localhost/a/b.mp3")).isEqualTo("/a/b.mp3");
+        assertThat(PlaylistPaths.resolve("/base", "file:///%E2%82%AC%F0%9F%8E%B5.mp3")).isEqualTo("/€🎵.mp3");
+        // Malformed escapes are left alone
+        assertThat(PlaylistPaths.resolve("/base", "file:///100%.mp3")).isEqualTo("/100%.mp3");
+        assertThat(PlaylistPaths.resolve("/base", "file:///%zz/%4")).isEqualTo("/%zz/%4");
+        // Only URLs are decoded
+        assertThat(PlaylistPaths.resolve("/base", "/a%20b.mp3")).isEqualTo("/a%20b.mp3");
+    }
+
+    private static void assertEntry(PlaylistEntry entry, String path, String title, long durationSeconds) {
+        assertThat(entry.path).isEqualTo(path);
+        assertThat(entry.title).isEqualTo(title);
+        assertThat(entry.durationSeconds).isEqualTo(durationSeconds);
+    }
+
+    private static RecordingCallback read(File file, PlaylistFormat format) throws IOException {
+        RecordingCallback callback = new RecordingCallback();
+        int count = PlaylistReader.read(file, format, callback);
+        assertThat(count).isEqualTo(callback.entries.size());
+        return callback;
+    }
+
+    private static File fixture(String name) throws URISyntaxException {
+        return new File(PlaylistReaderTest.class.getClassLoader().getResource("playlists/" + name).toURI());
+    }
+
+    private static class RecordingCallback implements PlaylistReader.Callback {
+
+        final List<PlaylistEntry> entries = new ArrayList<>();
+        final List<Integer> progress = new ArrayList<>();
+        // The number of entries read when each progress update was made
+        final List<Integer> entriesAtProgress = new ArrayList<>();
+
+        @Override
+        public void onEntry(PlaylistEntry entry) {
+            entries.add(entry);
+        }
+
+        @Override
+        public void onProgress(int percent) {
+            progress.add(percent);
+            entriesAtProgress.add(entries.size());
+        }
+    }
+}
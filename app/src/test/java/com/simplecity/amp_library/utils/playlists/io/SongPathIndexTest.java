@@ -0,0 +1,51 @@
+package com.simplecity.amp_library.utils.playlists.io;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SongPathIndexTest {
+
+    @Test
+    public void findsExactPath() {
+        SongPathIndex index = new SongPathIndex(2);
+        index.put("/storage/emulated/0/Music/Song.mp3", 1);
+        index.put("/storage/emulated/0/Music/song.mp3", 2);
+
+        assertThat(index.find("/storage/emulated/0/Music/Song.mp3")).isEqualTo(1);
+        assertThat(index.find("/storage/emulated/0/Music/song.mp3")).isEqualTo(2);
+    }
+
+    @Test
+    public void findsPathIgnoringCaseWhenUnique() {
+        SongPathIndex index = new SongPathIndex(1);
+        index.put("/storage/emulated/0/Music/Artist/Song.mp3", 1);
+
+        assertThat(index.find("/storage/emulated/0/music/ARTIST/song.MP3")).isEqualTo(1);
+    }
+
+    @Test
+    public void ambiguousPathIgnoringCaseIsNotFound() {
+        SongPathIndex index = new SongPathIndex(2);
+        index.put("/storage/emulated/0/Music/Song.mp3", 1);
+        index.put("/storage/emulated/0/Music/song.mp3", 2);
+
+        assertThat(index.find("/storage/emulated/0/Music/SONG.mp3")).isEqualTo(SongPathIndex.NO_SONG);
+    }
+
+    @Test
+    public void sameFileNameInAnotherDirectoryIsNotFound() {
+        SongPathIndex index = new SongPathIndex(1);
+        index.put("/storage/emulated/0/Music/Artist/Song.mp3", 1);
+
+        assertThat(index.find("/storage/emulated/0/Download/Song.mp3")).isEqualTo(SongPathIndex.NO_SONG);
+    }
+
+    @Test
+    public void normalizesIndexedPaths() {
+        SongPathIndex index = new SongPathIndex(1);
+        index.put("/storage/emulated/0/Music/./Artist/../Song.mp3", 1);
+
+        assertThat(index.find(PlaylistPaths.resolve("/storage/emulated/0/Music", "Song.mp3"))).isEqualTo(1);
+    }
+}
@@ -5,6 +5,8 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.CheckResult;
 import android.support.annotation.ColorInt;
 import android.support.annotation.ColorRes;
@@ -29,6 +31,10 @@ import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import io.reactivex.functions.Predicate;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 import static com.afollestad.aesthetic.Rx.onErrorLogAndRethrow;
 import static com.afollestad.aesthetic.Util.isColorLight;
 import static com.afollestad.aesthetic.Util.resolveColor;
@@ -69,6 +75,7 @@ public class Aesthetic {
   private static Aesthetic instance;
 
   private final ArrayMap<String, Integer> lastActivityThemes;
+  private final ArrayMap<String, Keys> keysCache = new ArrayMap<>(1);
 
   private CompositeDisposable subs;
   private Context context;
@@ -76,6 +83,51 @@ public class Aesthetic {
   private SharedPreferences.Editor editor;
   private RxSharedPreferences rxPrefs;
 
+  // Views listening for theme changes. Held weakly, so views don't need to unregister.
+  private final Set<ThemeListener> themeListeners =
+      Collections.newSetFromMap(new WeakHashMap<ThemeListener, Boolean>());
+
+  @Nullable private ThemeState themeState;
+
+  // See beginTransaction(). Ints written during a transaction are also held here, so the 'auto'
+  // properties can read back the primary colour before it's committed. Only touched on the main
+  // thread.
+  private boolean isInTransaction;
+  private final ArrayMap<String, Integer> pendingInts = new ArrayMap<>(1);
+
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+  private boolean isPublishPending;
+
+  // Closes a transaction which was never applied, for example because the chain that began it
+  // threw, so it can't hold back later writes.
+  private final Runnable applyRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          if (isInTransaction) {
+            apply();
+          }
+        }
+      };
+
+  private final Runnable publishRunnable =
+      new Runnable() {
+        @Override
+        public void run() {
+          isPublishPending = false;
+          publishThemeState();
+        }
+      };
+
+  // Held here, as SharedPreferences only holds its listeners weakly
+  private final SharedPreferences.OnSharedPreferenceChangeListener prefsListener =
+      new SharedPreferences.OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+          schedulePublish();
+        }
+      };
+
   @SuppressLint("CommitPrefEdits")
   private Aesthetic(Context context) {
     this.context = context;
@@ -83,6 +135,44 @@ public class Aesthetic {
     editor = prefs.edit();
     rxPrefs = RxSharedPreferences.create(prefs);
     lastActivityThemes = new ArrayMap<>(2);
+    prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+  }
+
+  /** The preference keys which depend on the {@link AestheticKeyProvider} key. */
+  private static final class Keys {
+
+    final String firstTime;
+    final String activityTheme;
+    final String isDark;
+    final String primaryColor;
+    final String accentColor;
+    final String windowBgColor;
+    final String statusBarColor;
+    final String navBarColor;
+
+    Keys(String key) {
+      firstTime = String.format(KEY_FIRST_TIME, key);
+      activityTheme = String.format(KEY_ACTIVITY_THEME, key);
+      isDark = String.format(KEY_IS_DARK, key);
+      primaryColor = String.format(KEY_PRIMARY_COLOR, key);
+      accentColor = String.format(KEY_ACCENT_COLOR, key);
+      windowBgColor = String.format(KEY_WINDOW_BG_COLOR, key);
+      statusBarColor = String.format(KEY_STATUS_BAR_COLOR, key);
+      navBarColor = String.format(KEY_NAV_BAR_COLOR, key);
+    }
+  }
+
+  /** @return the preference keys for the passed in context, built once per provider key. */
+  private Keys keys(@Nullable Context context) {
+    String key = key(context);
+    synchronized (keysCache) {
+      Keys keys = keysCache.get(key);
+      if (keys == null) {
+        keys = new Keys(key);
+        keysCache.put(key, keys);
+      }
+      return keys;
+    }
   }
 
   private static String key(@Nullable Context context) {
@@ -105,7 +195,7 @@ public class Aesthetic {
     LayoutInflater li = activity.getLayoutInflater();
     Util.setInflaterFactory(li);
 
-    String activityThemeKey = String.format(KEY_ACTIVITY_THEME, key(activity));
+    String activityThemeKey = instance.keys(activity).activityTheme;
     int latestActivityTheme = instance.prefs.getInt(activityThemeKey, 0);
     instance.lastActivityThemes.put(activity.getClass().getName(), latestActivityTheme);
     if (latestActivityTheme != 0) {
@@ -158,7 +248,10 @@ public class Aesthetic {
       return;
     }
     instance.context = activity;
-    
+
+    // Theme defaults are resolved against the current activity
+    instance.schedulePublish();
+
     if (instance.subs != null) {
       instance.subs.clear();
     }
@@ -243,14 +336,14 @@ public class Aesthetic {
 
   /** Returns true if this method has never been called before. */
   public static boolean isFirstTime(AppCompatActivity appCompatActivity) {
-    String key = String.format(KEY_FIRST_TIME, key(appCompatActivity));
+    String key = instance.keys(appCompatActivity).firstTime;
     boolean firstTime = instance.prefs.getBoolean(key, true);
     instance.editor.putBoolean(key, false).commit();
     return firstTime;
   }
 
   private void invalidateStatusBar(AppCompatActivity activity) {
-    String key = String.format(KEY_STATUS_BAR_COLOR, key(activity));
+    String key = keys(activity).statusBarColor;
     final int color = prefs.getInt(key, resolveColor(activity, R.attr.colorPrimaryDark));
 
     ViewGroup rootView = Util.getRootView(activity);
@@ -278,20 +371,118 @@ public class Aesthetic {
     }
   }
 
+  //
+  /////// THEME STATE
+  //
+
+  /**
+   * Returns the current theme colours. Views can read these synchronously when they're created, and
+   * register with {@link #addThemeListener(ThemeListener)} to be notified of changes, instead of
+   * each subscribing to the individual theme properties. Must be called on the main thread.
+   */
+  @NonNull
+  public ThemeState themeState() {
+    if (themeState == null) {
+      themeState = buildThemeState(0);
+    }
+    return themeState;
+  }
+
+  /**
+   * Registers a listener to be notified, on the main thread, each time the {@link ThemeState}
+   * changes. Listeners are held weakly. Must be called on the main thread.
+   */
+  public void addThemeListener(@NonNull ThemeListener listener) {
+    themeListeners.add(listener);
+  }
+
+  public void removeThemeListener(@NonNull ThemeListener listener) {
+    themeListeners.remove(listener);
+  }
+
+  /**
+   * Rebuilds the theme state on the next main thread loop. Preferences are written key by key, so
+   * this coalesces a batch of writes into a single update.
+   */
+  private void schedulePublish() {
+    if (!isPublishPending) {
+      isPublishPending = true;
+      mainHandler.post(publishRunnable);
+    }
+  }
+
+  private void publishThemeState() {
+    ThemeState previous = themeState;
+    if (previous == null) {
+      // Nobody has read the state yet, so there's nobody to notify
+      return;
+    }
+
+    ThemeState state = buildThemeState(previous.version() + 1);
+    if (state.isSameTheme(previous)) {
+      return;
+    }
+    themeState = state;
+
+    ThemeListener[] listeners = themeListeners.toArray(new ThemeListener[themeListeners.size()]);
+    for (ThemeListener listener : listeners) {
+      listener.onThemeChanged(state);
+    }
+  }
+
+  /** Reads the theme properties, with the same defaults as their observables. */
+  private ThemeState buildThemeState(int version) {
+    Keys keys = keys(context);
+
+    int[] colors = new int[ThemeState.COLOR_COUNT];
+    colors[ThemeColor.PRIMARY] =
+        prefs.getInt(
+            keys.primaryColor, resolveColor(context, R.attr.colorPrimary));
+    colors[ThemeColor.PRIMARY_DARK] =
+        prefs.getInt(KEY_PRIMARY_DARK_COLOR, resolveColor(context, R.attr.colorPrimaryDark));
+    colors[ThemeColor.STATUS_BAR] =
+        prefs.getInt(keys.statusBarColor, colors[ThemeColor.PRIMARY_DARK]);
+    colors[ThemeColor.ACCENT] =
+        prefs.getInt(
+            keys.accentColor, resolveColor(context, R.attr.colorAccent));
+    colors[ThemeColor.WINDOW_BACKGROUND] =
+        prefs.getInt(
+            keys.windowBgColor,
+            resolveColor(context, android.R.attr.windowBackground));
+    colors[ThemeColor.TEXT_PRIMARY] =
+        prefs.getInt(
+            KEY_PRIMARY_TEXT_COLOR, resolveColor(context, android.R.attr.textColorPrimary));
+    colors[ThemeColor.TEXT_PRIMARY_INVERSE] =
+        prefs.getInt(
+            KEY_PRIMARY_TEXT_INVERSE_COLOR,
+            resolveColor(context, android.R.attr.textColorPrimaryInverse));
+    colors[ThemeColor.TEXT_SECONDARY] =
+        prefs.getInt(
+            KEY_SECONDARY_TEXT_COLOR, resolveColor(context, android.R.attr.textColorSecondary));
+    colors[ThemeColor.TEXT_SECONDARY_INVERSE] =
+        prefs.getInt(
+            KEY_SECONDARY_TEXT_INVERSE_COLOR,
+            resolveColor(context, android.R.attr.textColorSecondaryInverse));
+
+    boolean isDark = prefs.getBoolean(keys.isDark, false);
+
+    return new ThemeState(version, isDark, colors);
+  }
+
   //
   /////// GETTERS AND SETTERS OF THEME PROPERTIES
   //
 
   @CheckResult
   public Aesthetic activityTheme(@StyleRes int theme) {
-    String key = String.format(KEY_ACTIVITY_THEME, key(context));
+    String key = keys(context).activityTheme;
     editor.putInt(key, theme);
     return this;
   }
 
   @CheckResult
   public Observable<Integer> activityTheme() {
-    String key = String.format(KEY_ACTIVITY_THEME, key(context));
+    String key = keys(context).activityTheme;
     return rxPrefs
         .getInteger(key, 0)
         .asObservable()
@@ -306,22 +497,24 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic isDark(boolean isDark) {
-    String key = String.format(KEY_IS_DARK, key(context));
-    editor.putBoolean(key, isDark).commit();
+    String key = keys(context).isDark;
+    editor.putBoolean(key, isDark);
+    commitUnlessInTransaction();
     return this;
   }
 
   @CheckResult
   public Observable<Boolean> isDark() {
-    String key = String.format(KEY_IS_DARK, key(context));
+    String key = keys(context).isDark;
     return rxPrefs.getBoolean(key, false).asObservable();
   }
 
   @CheckResult
   public Aesthetic colorPrimary(@ColorInt int color) {
     // needs to be committed immediately so that for statusBarColorAuto() and other auto methods
-    String key = String.format(KEY_PRIMARY_COLOR, key(context));
-    editor.putInt(key, color).commit();
+    String key = keys(context).primaryColor;
+    putInt(key, color);
+    commitUnlessInTransaction();
     return this;
   }
 
@@ -332,7 +525,7 @@ public class Aesthetic {
 
   @CheckResult
   public Observable<Integer> colorPrimary() {
-    String key = String.format(KEY_PRIMARY_COLOR, key(context));
+    String key = keys(context).primaryColor;
     return rxPrefs
         .getInteger(key, resolveColor(context, R.attr.colorPrimary))
         .asObservable();
@@ -341,7 +534,8 @@ public class Aesthetic {
   @CheckResult
   public Aesthetic colorPrimaryDark(@ColorInt int color) {
     // needs to be committed immediately so that for statusBarColorAuto() and other auto methods
-    editor.putInt(KEY_PRIMARY_DARK_COLOR, color).commit();
+    editor.putInt(KEY_PRIMARY_DARK_COLOR, color);
+    commitUnlessInTransaction();
     return this;
   }
 
@@ -359,8 +553,9 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic colorAccent(@ColorInt int color) {
-    String key = String.format(KEY_ACCENT_COLOR, key(context));
-    editor.putInt(key, color).commit();
+    String key = keys(context).accentColor;
+    editor.putInt(key, color);
+    commitUnlessInTransaction();
     return this;
   }
 
@@ -371,7 +566,7 @@ public class Aesthetic {
 
   @CheckResult
   public Observable<Integer> colorAccent() {
-    String key = String.format(KEY_ACCENT_COLOR, key(context));
+    String key = keys(context).accentColor;
     return rxPrefs
         .getInteger(key, resolveColor(context, R.attr.colorAccent))
         .asObservable();
@@ -456,8 +651,9 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic colorWindowBackground(@ColorInt int color) {
-    String key = String.format(KEY_WINDOW_BG_COLOR, key(context));
-    editor.putInt(key, color).commit();
+    String key = keys(context).windowBgColor;
+    editor.putInt(key, color);
+    commitUnlessInTransaction();
     return this;
   }
 
@@ -468,7 +664,7 @@ public class Aesthetic {
 
   @CheckResult
   public Observable<Integer> colorWindowBackground() {
-    String key = String.format(KEY_WINDOW_BG_COLOR, key(context));
+    String key = keys(context).windowBgColor;
     return rxPrefs
         .getInteger(key, resolveColor(context, android.R.attr.windowBackground))
         .asObservable();
@@ -476,7 +672,7 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic colorStatusBar(@ColorInt int color) {
-    String key = String.format(KEY_STATUS_BAR_COLOR, key(context));
+    String key = keys(context).statusBarColor;
     editor.putInt(key, color);
     return this;
   }
@@ -488,12 +684,12 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic colorStatusBarAuto() {
-    String statusBarKey = String.format(KEY_STATUS_BAR_COLOR, key(context));
-    String primaryColorKey = String.format(KEY_PRIMARY_COLOR, key(context));
+    String statusBarKey = keys(context).statusBarColor;
+    String primaryColorKey = keys(context).primaryColor;
     editor.putInt(
         statusBarKey,
         Util.darkenColor(
-            prefs.getInt(primaryColorKey, resolveColor(context, R.attr.colorPrimary))));
+            getInt(primaryColorKey, resolveColor(context, R.attr.colorPrimary))));
     return this;
   }
 
@@ -505,7 +701,7 @@ public class Aesthetic {
               @Override
               public ObservableSource<Integer> apply(
                   @io.reactivex.annotations.NonNull Integer primaryDarkColor) throws Exception {
-                String key = String.format(KEY_STATUS_BAR_COLOR, key(context));
+                String key = keys(context).statusBarColor;
                 return rxPrefs.getInteger(key, primaryDarkColor).asObservable();
               }
             });
@@ -513,7 +709,7 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic colorNavigationBar(@ColorInt int color) {
-    String key = String.format(KEY_NAV_BAR_COLOR, key(context));
+    String key = keys(context).navBarColor;
     editor.putInt(key, color);
     return this;
   }
@@ -525,10 +721,10 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic colorNavigationBarAuto(boolean auto) {
-    String navBarKey = String.format(KEY_NAV_BAR_COLOR, key(context));
-    String primaryColorKey = String.format(KEY_PRIMARY_COLOR, key(context));
+    String navBarKey = keys(context).navBarColor;
+    String primaryColorKey = keys(context).primaryColor;
       if (auto) {
-      int color = prefs.getInt(primaryColorKey, resolveColor(context, R.attr.colorPrimary));
+      int color = getInt(primaryColorKey, resolveColor(context, R.attr.colorPrimary));
       editor.putInt(navBarKey, isColorLight(color) ? Color.BLACK : color);
     } else {
       editor.remove(navBarKey);
@@ -538,7 +734,7 @@ public class Aesthetic {
 
   @CheckResult
   public Observable<Integer> colorNavigationBar() {
-    String key = String.format(KEY_NAV_BAR_COLOR, key(context));
+    String key = keys(context).navBarColor;
     return rxPrefs.getInteger(key, Color.BLACK).asObservable();
   }
 
@@ -555,7 +751,8 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic tabLayoutIndicatorMode(@TabLayoutIndicatorMode int mode) {
-    editor.putInt(KEY_TAB_LAYOUT_INDICATOR_MODE, mode).commit();
+    editor.putInt(KEY_TAB_LAYOUT_INDICATOR_MODE, mode);
+    commitUnlessInTransaction();
     return this;
   }
 
@@ -568,7 +765,8 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic tabLayoutBackgroundMode(@TabLayoutBgMode int mode) {
-    editor.putInt(KEY_TAB_LAYOUT_BG_MODE, mode).commit();
+    editor.putInt(KEY_TAB_LAYOUT_BG_MODE, mode);
+    commitUnlessInTransaction();
     return this;
   }
 
@@ -579,7 +777,8 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic navigationViewMode(@NavigationViewMode int mode) {
-    editor.putInt(KEY_NAV_VIEW_MODE, mode).commit();
+    editor.putInt(KEY_NAV_VIEW_MODE, mode);
+    commitUnlessInTransaction();
     return this;
   }
 
@@ -592,7 +791,8 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic bottomNavigationBackgroundMode(@BottomNavBgMode int mode) {
-    editor.putInt(KEY_BOTTOM_NAV_BG_MODE, mode).commit();
+    editor.putInt(KEY_BOTTOM_NAV_BG_MODE, mode);
+    commitUnlessInTransaction();
     return this;
   }
 
@@ -605,7 +805,8 @@ public class Aesthetic {
 
   @CheckResult
   public Aesthetic bottomNavigationIconTextMode(@BottomNavIconTextMode int mode) {
-    editor.putInt(KEY_BOTTOM_NAV_ICONTEXT_MODE, mode).commit();
+    editor.putInt(KEY_BOTTOM_NAV_ICONTEXT_MODE, mode);
+    commitUnlessInTransaction();
     return this;
   }
 
@@ -768,8 +969,68 @@ public class Aesthetic {
     return colorCardViewBackground(ContextCompat.getColor(context, color));
   }
 
-  /** Notifies all listening views that theme properties have been updated. */
+  //
+  /////// TRANSACTIONS
+  //
+
+  /**
+   * Opens a transaction. Until {@link #apply()}, theme properties which would otherwise be committed
+   * immediately are held in the editor, so a full palette change is written in one go, and views
+   * are notified of it with a single {@link ThemeState} change.
+   *
+   * <p>Must be called on the main thread, and applied before returning to the main loop. A
+   * transaction which is still open when the loop comes round again is applied then.
+   */
+  @CheckResult
+  public Aesthetic beginTransaction() {
+    if (Looper.myLooper() != Looper.getMainLooper()) {
+      throw new IllegalStateException("Aesthetic transactions must be made on the main thread");
+    }
+    if (!isInTransaction) {
+      isInTransaction = true;
+      mainHandler.post(applyRunnable);
+    }
+    return this;
+  }
+
+  /**
+   * Notifies all listening views that theme properties have been updated. On the main thread, they
+   * are notified before this returns. Otherwise, they're notified on the next main thread loop.
+   */
   public void apply() {
-    editor.commit();
+    if (isInTransaction) {
+      isInTransaction = false;
+      mainHandler.removeCallbacks(applyRunnable);
+      pendingInts.clear();
+      // In memory values (and so listeners) are updated immediately. The disk write is async.
+      editor.apply();
+    } else {
+      editor.commit();
+    }
+
+    // Publish the combined change now, rather than on the next loop, so it lands in this frame
+    if (isPublishPending && Looper.myLooper() == Looper.getMainLooper()) {
+      mainHandler.removeCallbacks(publishRunnable);
+      isPublishPending = false;
+      publishThemeState();
+    }
+  }
+
+  private void commitUnlessInTransaction() {
+    if (!isInTransaction) {
+      editor.commit();
+    }
+  }
+
+  private void putInt(String key, int value) {
+    editor.putInt(key, value);
+    if (isInTransaction) {
+      pendingInts.put(key, value);
+    }
+  }
+
+  private int getInt(String key, int defValue) {
+    Integer pending = pendingInts.get(key);
+    return pending != null ? pending : prefs.getInt(key, defValue);
   }
 }
@@ -1,25 +1,20 @@
 package com.afollestad.aesthetic;
 
+import static com.afollestad.aesthetic.Util.resolveResId;
+
 import android.content.Context;
+import android.support.annotation.NonNull;
 import android.support.v7.widget.AppCompatCheckBox;
 import android.util.AttributeSet;
 
-import io.reactivex.Observable;
-import io.reactivex.annotations.NonNull;
-import io.reactivex.disposables.CompositeDisposable;
-import io.reactivex.functions.Consumer;
-
-import static com.afollestad.aesthetic.Rx.onErrorLogAndRethrow;
-import static com.afollestad.aesthetic.Util.resolveResId;
-
 /** @author Aidan Follestad (afollestad) */
-public class AestheticCheckBox extends AppCompatCheckBox {
+public class AestheticCheckBox extends AppCompatCheckBox implements ThemeListener {
 
-  private CompositeDisposable subscriptions;
-  protected int backgroundResId;
+  @ThemeColor private int tintColor;
 
   public AestheticCheckBox(Context context) {
     super(context);
+    init(context, null);
   }
 
   public AestheticCheckBox(Context context, AttributeSet attrs) {
@@ -33,9 +28,15 @@ public class AestheticCheckBox extends AppCompatCheckBox {
   }
 
   private void init(Context context, AttributeSet attrs) {
+    int backgroundResId = 0;
     if (attrs != null) {
       backgroundResId = resolveResId(context, attrs, android.R.attr.background);
     }
+    tintColor = ViewUtil.getThemeColorForResId(context, backgroundResId, ThemeColor.ACCENT);
+
+    Aesthetic aesthetic = Aesthetic.get(context);
+    onThemeChanged(aesthetic.themeState());
+    aesthetic.addThemeListener(this);
   }
 
   protected void invalidateColors(ColorIsDarkState state) {
@@ -43,35 +44,8 @@ public class AestheticCheckBox extends AppCompatCheckBox {
   }
 
   @Override
-  protected void onAttachedToWindow() {
-    super.onAttachedToWindow();
-    subscriptions = new CompositeDisposable();
-    //noinspection ConstantConditions
-    subscriptions.add(
-        Observable.combineLatest(
-                ViewUtil.getObservableForResId(
-                    getContext(), backgroundResId, Aesthetic.get(getContext()).colorAccent()),
-                Aesthetic.get(getContext()).isDark(),
-                ColorIsDarkState.creator())
-            .compose(Rx.<ColorIsDarkState>distinctToMainThread())
-            .subscribe(
-                new Consumer<ColorIsDarkState>() {
-                  @Override
-                  public void accept(@NonNull ColorIsDarkState colorIsDarkState) {
-                    invalidateColors(colorIsDarkState);
-                  }
-                },
-                onErrorLogAndRethrow()));
-    subscriptions.add(
-        Aesthetic.get(getContext())
-            .textColorPrimary()
-            .compose(Rx.<Integer>distinctToMainThread())
-            .subscribe(ViewTextColorAction.create(this)));
-  }
-
-  @Override
-  protected void onDetachedFromWindow() {
-    subscriptions.clear();
-    super.onDetachedFromWindow();
+  public void onThemeChanged(@NonNull ThemeState state) {
+    setTextColor(state.color(ThemeColor.TEXT_PRIMARY));
+    invalidateColors(ColorIsDarkState.create(state.color(tintColor), state.isDark()));
   }
 }
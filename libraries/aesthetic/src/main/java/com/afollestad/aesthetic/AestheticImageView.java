@@ -1,20 +1,17 @@
 package com.afollestad.aesthetic;
 
-import static com.afollestad.aesthetic.Rx.onErrorLogAndRethrow;
 import static com.afollestad.aesthetic.Util.resolveResId;
 
 import android.content.Context;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v7.widget.AppCompatImageView;
 import android.util.AttributeSet;
-import io.reactivex.Observable;
-import io.reactivex.disposables.Disposable;
 
 /** @author Aidan Follestad (afollestad) */
-public class AestheticImageView extends AppCompatImageView {
+public class AestheticImageView extends AppCompatImageView implements ThemeListener {
 
-  private Disposable bgSubscription;
-  private int backgroundResId;
+  @ThemeColor private int backgroundColor = ThemeColor.NONE;
 
   public AestheticImageView(Context context) {
     super(context);
@@ -32,26 +29,21 @@ public class AestheticImageView extends AppCompatImageView {
 
   private void init(Context context, AttributeSet attrs) {
     if (attrs != null) {
-      backgroundResId = resolveResId(context, attrs, android.R.attr.background);
+      int backgroundResId = resolveResId(context, attrs, android.R.attr.background);
+      backgroundColor =
+          ViewUtil.getThemeColorForResId(context, backgroundResId, ThemeColor.NONE);
     }
-  }
 
-  @Override
-  protected void onAttachedToWindow() {
-    super.onAttachedToWindow();
-    Observable<Integer> obs = ViewUtil.getObservableForResId(getContext(), backgroundResId, null);
-    if (obs != null) {
-      bgSubscription =
-          obs.compose(Rx.<Integer>distinctToMainThread())
-              .subscribe(ViewBackgroundAction.create(this), onErrorLogAndRethrow());
+    // Only a themed background needs updating
+    if (backgroundColor != ThemeColor.NONE) {
+      Aesthetic aesthetic = Aesthetic.get(context);
+      onThemeChanged(aesthetic.themeState());
+      aesthetic.addThemeListener(this);
     }
   }
 
   @Override
-  protected void onDetachedFromWindow() {
-    if (bgSubscription != null) {
-      bgSubscription.dispose();
-    }
-    super.onDetachedFromWindow();
+  public void onThemeChanged(@NonNull ThemeState state) {
+    setBackgroundColor(state.color(backgroundColor));
   }
 }
@@ -1,22 +1,20 @@
 package com.afollestad.aesthetic;
 
-import static com.afollestad.aesthetic.Rx.onErrorLogAndRethrow;
 import static com.afollestad.aesthetic.Util.resolveResId;
 
 import android.content.Context;
+import android.support.annotation.NonNull;
 import android.support.v7.widget.AppCompatTextView;
 import android.util.AttributeSet;
-import io.reactivex.Observable;
-import io.reactivex.disposables.Disposable;
 
 /** @author Aidan Follestad (afollestad) */
-public class AestheticTextView extends AppCompatTextView {
+public class AestheticTextView extends AppCompatTextView implements ThemeListener {
 
-  private Disposable subscription;
-  private int textColorResId;
+  @ThemeColor private int textColor;
 
   public AestheticTextView(Context context) {
     super(context);
+    init(context, null);
   }
 
   public AestheticTextView(Context context, AttributeSet attrs) {
@@ -30,26 +28,20 @@ public class AestheticTextView extends AppCompatTextView {
   }
 
   private void init(Context context, AttributeSet attrs) {
+    int textColorResId = 0;
     if (attrs != null) {
       textColorResId = resolveResId(context, attrs, android.R.attr.textColor);
     }
-  }
+    textColor =
+        ViewUtil.getThemeColorForResId(context, textColorResId, ThemeColor.TEXT_SECONDARY);
 
-  @Override
-  protected void onAttachedToWindow() {
-    super.onAttachedToWindow();
-    Observable<Integer> obs =
-        ViewUtil.getObservableForResId(
-            getContext(), textColorResId, Aesthetic.get(getContext()).textColorSecondary());
-    //noinspection ConstantConditions
-    subscription =
-        obs.compose(Rx.<Integer>distinctToMainThread())
-            .subscribe(ViewTextColorAction.create(this), onErrorLogAndRethrow());
+    Aesthetic aesthetic = Aesthetic.get(context);
+    onThemeChanged(aesthetic.themeState());
+    aesthetic.addThemeListener(this);
   }
 
   @Override
-  protected void onDetachedFromWindow() {
-    subscription.dispose();
-    super.onDetachedFromWindow();
+  public void onThemeChanged(@NonNull ThemeState state) {
+    setTextColor(state.color(textColor));
   }
 }
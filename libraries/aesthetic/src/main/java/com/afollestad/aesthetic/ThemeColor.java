@@ -0,0 +1,46 @@
+package com.afollestad.aesthetic;
+
+import static com.afollestad.aesthetic.ThemeColor.ACCENT;
+import static com.afollestad.aesthetic.ThemeColor.NONE;
+import static com.afollestad.aesthetic.ThemeColor.PRIMARY;
+import static com.afollestad.aesthetic.ThemeColor.PRIMARY_DARK;
+import static com.afollestad.aesthetic.ThemeColor.STATUS_BAR;
+import static com.afollestad.aesthetic.ThemeColor.TEXT_PRIMARY;
+import static com.afollestad.aesthetic.ThemeColor.TEXT_PRIMARY_INVERSE;
+import static com.afollestad.aesthetic.ThemeColor.TEXT_SECONDARY;
+import static com.afollestad.aesthetic.ThemeColor.TEXT_SECONDARY_INVERSE;
+import static com.afollestad.aesthetic.ThemeColor.WINDOW_BACKGROUND;
+import static java.lang.annotation.RetentionPolicy.SOURCE;
+
+import android.support.annotation.IntDef;
+import java.lang.annotation.Retention;
+
+/** The colours held by a {@link ThemeState}. */
+@SuppressWarnings("WeakerAccess")
+@Retention(SOURCE)
+@IntDef(
+  value = {
+    NONE,
+    PRIMARY,
+    PRIMARY_DARK,
+    STATUS_BAR,
+    ACCENT,
+    WINDOW_BACKGROUND,
+    TEXT_PRIMARY,
+    TEXT_PRIMARY_INVERSE,
+    TEXT_SECONDARY,
+    TEXT_SECONDARY_INVERSE
+  }
+)
+public @interface ThemeColor {
+  int NONE = -1;
+  int PRIMARY = 0;
+  int PRIMARY_DARK = 1;
+  int STATUS_BAR = 2;
+  int ACCENT = 3;
+  int WINDOW_BACKGROUND = 4;
+  int TEXT_PRIMARY = 5;
+  int TEXT_PRIMARY_INVERSE = 6;
+  int TEXT_SECONDARY = 7;
+  int TEXT_SECONDARY_INVERSE = 8;
+}
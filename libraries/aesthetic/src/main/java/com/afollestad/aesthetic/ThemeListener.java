@@ -0,0 +1,13 @@
+package com.afollestad.aesthetic;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Notified on the main thread when the {@link ThemeState} changes.
+ *
+ * @see Aesthetic#addThemeListener(ThemeListener)
+ */
+public interface ThemeListener {
+
+  void onThemeChanged(@NonNull ThemeState state);
+}
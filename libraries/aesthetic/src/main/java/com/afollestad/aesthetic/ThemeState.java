@@ -0,0 +1,46 @@
+package com.afollestad.aesthetic;
+
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the theme colours, which views can read synchronously rather than each
+ * subscribing to the underlying preferences.
+ *
+ * <p>{@link Aesthetic} publishes a new state, with an incremented {@link #version()}, once per
+ * change. See {@link Aesthetic#themeState()}.
+ */
+public final class ThemeState {
+
+  static final int COLOR_COUNT = ThemeColor.TEXT_SECONDARY_INVERSE + 1;
+
+  private final int version;
+  private final boolean isDark;
+  @ColorInt private final int[] colors;
+
+  ThemeState(int version, boolean isDark, @NonNull int[] colors) {
+    this.version = version;
+    this.isDark = isDark;
+    this.colors = colors;
+  }
+
+  /** Incremented each time the state changes. */
+  public int version() {
+    return version;
+  }
+
+  public boolean isDark() {
+    return isDark;
+  }
+
+  @ColorInt
+  public int color(@ThemeColor int themeColor) {
+    return colors[themeColor];
+  }
+
+  /** @return true if the passed in state has the same colours, regardless of version. */
+  boolean isSameTheme(@NonNull ThemeState other) {
+    return isDark == other.isDark && Arrays.equals(colors, other.colors);
+  }
+}
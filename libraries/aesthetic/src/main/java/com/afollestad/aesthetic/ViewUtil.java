@@ -1,10 +1,12 @@
 package com.afollestad.aesthetic;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.IdRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.SearchView;
 import android.support.v7.widget.Toolbar;
 import android.view.Menu;
@@ -14,6 +16,7 @@ import android.widget.EditText;
 import android.widget.ImageView;
 import io.reactivex.Observable;
 import java.lang.reflect.Field;
+import java.util.WeakHashMap;
 
 import static com.afollestad.aesthetic.TintHelper.createTintedDrawable;
 import static com.afollestad.aesthetic.Util.isColorLight;
@@ -25,30 +28,85 @@ public final class ViewUtil {
   @Nullable
   public static Observable<Integer> getObservableForResId(
       @NonNull Context context, @IdRes int resId, @Nullable Observable<Integer> fallback) {
+    switch (getThemeColorForResId(context, resId, ThemeColor.NONE)) {
+      case ThemeColor.PRIMARY:
+        return Aesthetic.get(context).colorPrimary();
+      case ThemeColor.PRIMARY_DARK:
+        return Aesthetic.get(context).colorPrimaryDark();
+      case ThemeColor.STATUS_BAR:
+        return Aesthetic.get(context).colorStatusBar();
+      case ThemeColor.ACCENT:
+        return Aesthetic.get(context).colorAccent();
+      case ThemeColor.WINDOW_BACKGROUND:
+        return Aesthetic.get(context).colorWindowBackground();
+      case ThemeColor.TEXT_PRIMARY:
+        return Aesthetic.get(context).textColorPrimary();
+      case ThemeColor.TEXT_PRIMARY_INVERSE:
+        return Aesthetic.get(context).textColorPrimaryInverse();
+      case ThemeColor.TEXT_SECONDARY:
+        return Aesthetic.get(context).textColorSecondary();
+      case ThemeColor.TEXT_SECONDARY_INVERSE:
+        return Aesthetic.get(context).textColorSecondaryInverse();
+      default:
+        return fallback;
+    }
+  }
+
+  /**
+   * @return the {@link ThemeColor} which the passed in resource refers to via the theme, or {@code
+   *     fallback} if it isn't one of them. Views should resolve this once, rather than each time
+   *     they're attached.
+   */
+  @ThemeColor
+  public static int getThemeColorForResId(
+      @NonNull Context context, @IdRes int resId, @ThemeColor int fallback) {
     if (resId == 0) {
       return fallback;
-    } else if (resId == resolveResId(context, R.attr.colorPrimary, 0)) {
-      return Aesthetic.get(context).colorPrimary();
-    } else if (resId == resolveResId(context, R.attr.colorPrimaryDark, 0)) {
-      return Aesthetic.get(context).colorPrimaryDark();
-    } else if (resId == resolveResId(context, android.R.attr.statusBarColor, 0)) {
-      return Aesthetic.get(context).colorStatusBar();
-    } else if (resId == resolveResId(context, R.attr.colorAccent, 0)) {
-      return Aesthetic.get(context).colorAccent();
-    } else if (resId == resolveResId(context, android.R.attr.windowBackground, 0)) {
-      return Aesthetic.get(context).colorWindowBackground();
-    } else if (resId == resolveResId(context, android.R.attr.textColorPrimary, 0)) {
-      return Aesthetic.get(context).textColorPrimary();
-    } else if (resId == resolveResId(context, android.R.attr.textColorPrimaryInverse, 0)) {
-      return Aesthetic.get(context).textColorPrimaryInverse();
-    } else if (resId == resolveResId(context, android.R.attr.textColorSecondary, 0)) {
-      return Aesthetic.get(context).textColorSecondary();
-    } else if (resId == resolveResId(context, android.R.attr.textColorSecondaryInverse, 0)) {
-      return Aesthetic.get(context).textColorSecondaryInverse();
+    }
+    int[] resIds = getThemeColorResIds(context);
+    for (int i = 0; i < resIds.length; i++) {
+      if (resIds[i] == resId) {
+        return i;
+      }
     }
     return fallback;
   }
 
+  // The theme attributes of each ThemeColor, in the same order
+  private static final int[] THEME_COLOR_ATTRS = {
+    R.attr.colorPrimary,
+    R.attr.colorPrimaryDark,
+    android.R.attr.statusBarColor,
+    R.attr.colorAccent,
+    android.R.attr.windowBackground,
+    android.R.attr.textColorPrimary,
+    android.R.attr.textColorPrimaryInverse,
+    android.R.attr.textColorSecondary,
+    android.R.attr.textColorSecondaryInverse
+  };
+
+  private static final WeakHashMap<Resources.Theme, int[]> themeColorResIds = new WeakHashMap<>();
+
+  /**
+   * @return the resource IDs the {@link ThemeColor} attributes resolve to in the context's theme,
+   *     indexed by {@link ThemeColor}. These are resolved once per theme, as it's set before the
+   *     first view is inflated (see {@link Aesthetic#attach(AppCompatActivity)}).
+   */
+  private static int[] getThemeColorResIds(@NonNull Context context) {
+    Resources.Theme theme = context.getTheme();
+    synchronized (themeColorResIds) {
+      int[] resIds = themeColorResIds.get(theme);
+      if (resIds == null) {
+        resIds = new int[THEME_COLOR_ATTRS.length];
+        for (int i = 0; i < THEME_COLOR_ATTRS.length; i++) {
+          resIds[i] = resolveResId(context, THEME_COLOR_ATTRS[i], 0);
+        }
+        themeColorResIds.put(theme, resIds);
+      }
+      return resIds;
+    }
+  }
+
   static void tintToolbarMenu(
       @NonNull Toolbar toolbar, @NonNull Menu menu, ActiveInactiveColors titleIconColors) {
     // The collapse icon displays when action views are expanded (e.g. SearchView)
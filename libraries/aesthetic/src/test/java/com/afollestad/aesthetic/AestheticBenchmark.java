@@ -0,0 +1,112 @@
+package com.afollestad.aesthetic;
+
+import static com.afollestad.aesthetic.AestheticTextViewTest.resetAesthetic;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.widget.LinearLayout;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+/**
+ * Times a palette animation, as the player runs when the artwork changes, with 200 themed views
+ * listening. Each frame sets the primary, accent and status bar colours, either committing each one
+ * as before, or in a transaction.
+ *
+ * <p>Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class AestheticBenchmark {
+
+  private static final int VIEWS = 200;
+
+  private static final int FRAMES = 60;
+
+  private static final int RUNS = 5;
+
+  private Aesthetic aesthetic;
+
+  // Held here, as theme listeners are only held weakly
+  private List<AestheticTextView> views;
+
+  @Before
+  public void setUp() throws Exception {
+    resetAesthetic();
+    ShadowLooper.pauseMainLooper();
+
+    Activity activity = Robolectric.setupActivity(Activity.class);
+    LinearLayout list = new LinearLayout(activity);
+    activity.setContentView(list);
+    views = new ArrayList<>();
+    for (int i = 0; i < VIEWS; i++) {
+      AestheticTextView view = new AestheticTextView(activity);
+      list.addView(view);
+      views.add(view);
+    }
+    aesthetic = Aesthetic.get(activity);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    ShadowLooper.unPauseMainLooper();
+    resetAesthetic();
+  }
+
+  @Test
+  public void paletteAnimation() {
+    long committedNanos = Long.MAX_VALUE;
+    long transactionNanos = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      int version = aesthetic.themeState().version();
+      long start = System.nanoTime();
+      for (int frame = 0; frame < FRAMES; frame++) {
+        aesthetic
+            .colorPrimary(primaryColor(frame))
+            .colorAccent(accentColor(frame))
+            .colorStatusBarAuto()
+            .apply();
+        // Previously, views were only notified on the next loop
+        ShadowLooper.runUiThreadTasks();
+      }
+      committedNanos = Math.min(committedNanos, System.nanoTime() - start);
+      assertThat(aesthetic.themeState().version()).isEqualTo(version + FRAMES);
+
+      version = aesthetic.themeState().version();
+      start = System.nanoTime();
+      for (int frame = 0; frame < FRAMES; frame++) {
+        aesthetic
+            .beginTransaction()
+            .colorPrimary(primaryColor(FRAMES - frame))
+            .colorAccent(accentColor(FRAMES - frame))
+            .colorStatusBarAuto()
+            .apply();
+        ShadowLooper.runUiThreadTasks();
+      }
+      transactionNanos = Math.min(transactionNanos, System.nanoTime() - start);
+      assertThat(aesthetic.themeState().version()).isEqualTo(version + FRAMES);
+    }
+
+    System.out.println(
+        String.format(
+            "%d frames, %d views: committing each colour %.2fms/frame, in a transaction %.2fms/frame",
+            FRAMES, VIEWS, committedNanos / 1e6 / FRAMES, transactionNanos / 1e6 / FRAMES));
+  }
+
+  private static int primaryColor(int frame) {
+    return Color.rgb(frame * 4, 0, 255 - frame * 4);
+  }
+
+  private static int accentColor(int frame) {
+    return Color.rgb(255 - frame * 4, frame * 4, 0);
+  }
+}
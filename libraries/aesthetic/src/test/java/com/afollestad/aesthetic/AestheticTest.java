@@ -0,0 +1,188 @@
+package com.afollestad.aesthetic;
+
+import static com.afollestad.aesthetic.AestheticTextViewTest.resetAesthetic;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class AestheticTest {
+
+  // As in Aesthetic
+  private static final String PREFS_NAME = "[aesthetic-prefs]";
+
+  private Aesthetic aesthetic;
+  private RecordingListener listener;
+  private List<String> changedKeys;
+  private ExecutorService executor;
+
+  // Preferences only hold their listeners weakly
+  private SharedPreferences.OnSharedPreferenceChangeListener prefsListener;
+
+  @Before
+  public void setUp() throws Exception {
+    resetAesthetic();
+    // As on a device, posted work waits for the main loop to come round
+    ShadowLooper.pauseMainLooper();
+
+    Activity activity = Robolectric.setupActivity(Activity.class);
+    aesthetic = Aesthetic.get(activity);
+    listener = new RecordingListener();
+    aesthetic.themeState();
+    aesthetic.addThemeListener(listener);
+
+    changedKeys = new ArrayList<>();
+    prefsListener =
+        new SharedPreferences.OnSharedPreferenceChangeListener() {
+          @Override
+          public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+            changedKeys.add(key);
+          }
+        };
+    activity
+        .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+        .registerOnSharedPreferenceChangeListener(prefsListener);
+
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdown();
+    ShadowLooper.unPauseMainLooper();
+    resetAesthetic();
+  }
+
+  @Test
+  public void transactionWritesOnApplyAndPublishesOnce() {
+    Aesthetic transaction =
+        aesthetic
+            .beginTransaction()
+            .colorPrimary(Color.RED)
+            .colorAccent(Color.BLUE)
+            .colorStatusBarAuto();
+    assertThat(changedKeys).isEmpty();
+
+    transaction.apply();
+
+    assertThat(changedKeys).hasSize(3);
+    assertThat(listener.states).hasSize(1);
+    ThemeState state = listener.states.get(0);
+    assertThat(state.color(ThemeColor.PRIMARY)).isEqualTo(Color.RED);
+    assertThat(state.color(ThemeColor.ACCENT)).isEqualTo(Color.BLUE);
+    // From the primary colour written earlier in the transaction
+    assertThat(state.color(ThemeColor.STATUS_BAR)).isEqualTo(Util.darkenColor(Color.RED));
+  }
+
+  @Test
+  public void writesOutsideATransactionAreCommittedImmediately() {
+    aesthetic.colorPrimary(Color.RED).colorAccent(Color.BLUE).apply();
+
+    assertThat(changedKeys).hasSize(2);
+    assertThat(listener.states).hasSize(1);
+  }
+
+  @Test
+  public void transactionWhichIsNeverAppliedIsAppliedOnTheNextLoop() {
+    try {
+      aesthetic.beginTransaction().colorPrimary(Color.RED).colorAccent(brokenColor());
+    } catch (IllegalArgumentException ignored) {
+    }
+    assertThat(changedKeys).isEmpty();
+
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(changedKeys).hasSize(1);
+    assertThat(listener.states).hasSize(1);
+    assertThat(listener.states.get(0).color(ThemeColor.PRIMARY)).isEqualTo(Color.RED);
+
+    // Later writes aren't held back
+    aesthetic.colorAccent(Color.BLUE).apply();
+    assertThat(changedKeys).hasSize(2);
+    assertThat(listener.states).hasSize(2);
+    assertThat(listener.states.get(1).color(ThemeColor.ACCENT)).isEqualTo(Color.BLUE);
+  }
+
+  @Test
+  public void appliedTransactionIsNotAppliedAgain() {
+    aesthetic.beginTransaction().colorPrimary(Color.RED).apply();
+
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(changedKeys).hasSize(1);
+    assertThat(listener.states).hasSize(1);
+  }
+
+  @Test
+  public void beginTransactionOffTheMainThreadThrows() throws Exception {
+    try {
+      run(
+          new Callable<Aesthetic>() {
+            @Override
+            public Aesthetic call() {
+              return aesthetic.beginTransaction();
+            }
+          });
+      throw new AssertionError("Expected beginTransaction() to throw");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+    }
+  }
+
+  @Test
+  public void applyOffTheMainThreadPublishesOnTheNextLoop() throws Exception {
+    run(
+        new Callable<Void>() {
+          @Override
+          public Void call() {
+            aesthetic.colorAccent(Color.BLUE).apply();
+            return null;
+          }
+        });
+    assertThat(listener.states).isEmpty();
+
+    ShadowLooper.runUiThreadTasks();
+
+    assertThat(listener.states).hasSize(1);
+    assertThat(listener.states.get(0).color(ThemeColor.ACCENT)).isEqualTo(Color.BLUE);
+  }
+
+  private <T> T run(Callable<T> callable) throws Exception {
+    return executor.submit(callable).get(30, TimeUnit.SECONDS);
+  }
+
+  /** Stands in for a colour calculation which throws part way through a transaction. */
+  private static int brokenColor() {
+    throw new IllegalArgumentException();
+  }
+
+  private static class RecordingListener implements ThemeListener {
+
+    final List<ThemeState> states = new ArrayList<>();
+
+    @Override
+    public void onThemeChanged(@NonNull ThemeState state) {
+      states.add(state);
+    }
+  }
+}
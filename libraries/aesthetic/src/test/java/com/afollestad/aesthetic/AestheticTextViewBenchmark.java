@@ -0,0 +1,155 @@
+package com.afollestad.aesthetic;
+
+import static com.afollestad.aesthetic.AestheticTextViewTest.VIEWS_PER_ROW;
+import static com.afollestad.aesthetic.AestheticTextViewTest.countSubscriptions;
+import static com.afollestad.aesthetic.AestheticTextViewTest.resetAesthetic;
+import static com.afollestad.aesthetic.AestheticTextViewTest.row;
+import static com.afollestad.aesthetic.Rx.onErrorLogAndRethrow;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.v7.widget.AppCompatTextView;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.plugins.RxJavaPlugins;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Times creating & attaching 200 song rows of themed text views, then scrolling them off screen and
+ * back, and counts the Rx subscriptions made. The previous view, which subscribed to its colour on
+ * each attach, is timed alongside.
+ *
+ * <p>Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class AestheticTextViewBenchmark {
+
+  private static final int ROWS = 200;
+
+  private static final int RUNS = 5;
+
+  private Activity activity;
+  private FrameLayout list;
+
+  @Before
+  public void setUp() throws Exception {
+    resetAesthetic();
+    activity = Robolectric.setupActivity(Activity.class);
+    list = new FrameLayout(activity);
+    activity.setContentView(list);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    RxJavaPlugins.reset();
+    resetAesthetic();
+  }
+
+  @Test
+  public void songRows() {
+    long previousInflateNanos = Long.MAX_VALUE;
+    long previousScrollNanos = Long.MAX_VALUE;
+    int previousSubscriptions = 0;
+    long inflateNanos = Long.MAX_VALUE;
+    long scrollNanos = Long.MAX_VALUE;
+    int subscriptions = 0;
+    for (int run = 0; run < RUNS; run++) {
+      AtomicInteger count = countSubscriptions();
+      LinearLayout[] rows = new LinearLayout[ROWS];
+      long start = System.nanoTime();
+      for (int i = 0; i < ROWS; i++) {
+        rows[i] = previousRow(activity);
+        list.addView(rows[i]);
+      }
+      previousInflateNanos = Math.min(previousInflateNanos, System.nanoTime() - start);
+      start = System.nanoTime();
+      scroll(rows);
+      previousScrollNanos = Math.min(previousScrollNanos, System.nanoTime() - start);
+      previousSubscriptions = count.get();
+      list.removeAllViews();
+
+      count = countSubscriptions();
+      start = System.nanoTime();
+      for (int i = 0; i < ROWS; i++) {
+        rows[i] = row(activity);
+        list.addView(rows[i]);
+      }
+      inflateNanos = Math.min(inflateNanos, System.nanoTime() - start);
+      start = System.nanoTime();
+      scroll(rows);
+      scrollNanos = Math.min(scrollNanos, System.nanoTime() - start);
+      subscriptions = count.get();
+      list.removeAllViews();
+    }
+
+    // Subscribed on attach and again on re-attach
+    assertThat(previousSubscriptions).isGreaterThanOrEqualTo(ROWS * VIEWS_PER_ROW * 2);
+    assertThat(subscriptions).isZero();
+
+    System.out.println(
+        String.format(
+            "%d rows: inflate %.1fms before, %.1fms after. Scroll off & back %.1fms before, %.1fms "
+                + "after. Rx subscriptions %d before, %d after",
+            ROWS,
+            previousInflateNanos / 1e6,
+            inflateNanos / 1e6,
+            previousScrollNanos / 1e6,
+            scrollNanos / 1e6,
+            previousSubscriptions,
+            subscriptions));
+  }
+
+  /** Detaches each row, as a list does when it scrolls off screen, then attaches it again. */
+  private void scroll(LinearLayout[] rows) {
+    for (LinearLayout row : rows) {
+      list.removeView(row);
+    }
+    for (LinearLayout row : rows) {
+      list.addView(row);
+    }
+  }
+
+  private static LinearLayout previousRow(Activity activity) {
+    LinearLayout row = new LinearLayout(activity);
+    for (int i = 0; i < VIEWS_PER_ROW; i++) {
+      row.addView(new PreviousTextView(activity));
+    }
+    return row;
+  }
+
+  /** AestheticTextView, as it was before it listened to the {@link ThemeState}. */
+  private static class PreviousTextView extends AppCompatTextView {
+
+    private Disposable subscription;
+
+    PreviousTextView(Context context) {
+      super(context);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+      super.onAttachedToWindow();
+      subscription =
+          ViewUtil.getObservableForResId(
+                  getContext(), 0, Aesthetic.get(getContext()).textColorSecondary())
+              .compose(Rx.<Integer>distinctToMainThread())
+              .subscribe(ViewTextColorAction.create(this), onErrorLogAndRethrow());
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+      subscription.dispose();
+      super.onDetachedFromWindow();
+    }
+  }
+}
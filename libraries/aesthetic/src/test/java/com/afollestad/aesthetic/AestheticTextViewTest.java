@@ -0,0 +1,128 @@
+package com.afollestad.aesthetic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.os.Looper;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import io.reactivex.Observable;
+import io.reactivex.Observer;
+import io.reactivex.functions.BiFunction;
+import io.reactivex.plugins.RxJavaPlugins;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class AestheticTextViewTest {
+
+  // A song row (list_item_two_lines) has four themed text views
+  static final int VIEWS_PER_ROW = 4;
+
+  private Activity activity;
+  private FrameLayout list;
+  private AtomicInteger subscriptions;
+
+  @Before
+  public void setUp() throws Exception {
+    resetAesthetic();
+    activity = Robolectric.setupActivity(Activity.class);
+    list = new FrameLayout(activity);
+    activity.setContentView(list);
+
+    subscriptions = countSubscriptions();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    RxJavaPlugins.reset();
+    resetAesthetic();
+  }
+
+  @Test
+  public void themedRowsSubscribeToNothing() {
+    for (int i = 0; i < 50; i++) {
+      LinearLayout row = row(activity);
+      list.addView(row);
+      assertThat(row.getChildAt(0).isAttachedToWindow()).isTrue();
+      // Scrolled off screen & back again
+      list.removeView(row);
+      list.addView(row);
+    }
+
+    assertThat(subscriptions.get()).isZero();
+  }
+
+  @Test
+  public void oneThemeChangeReachesEveryView() {
+    List<AestheticTextView> views = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      LinearLayout row = row(activity);
+      list.addView(row);
+      for (int j = 0; j < row.getChildCount(); j++) {
+        views.add((AestheticTextView) row.getChildAt(j));
+      }
+    }
+    Aesthetic aesthetic = Aesthetic.get(activity);
+    int version = aesthetic.themeState().version();
+
+    aesthetic.textColorSecondary(Color.RED).apply();
+
+    // Published before apply() returns on the main thread
+    assertThat(Looper.myLooper()).isSameAs(Looper.getMainLooper());
+    assertThat(aesthetic.themeState().version()).isEqualTo(version + 1);
+    for (AestheticTextView view : views) {
+      assertThat(view.getCurrentTextColor()).isEqualTo(Color.RED);
+    }
+    assertThat(subscriptions.get()).isZero();
+  }
+
+  @Test
+  public void viewsCreatedAfterAChangeStartWithIt() {
+    Aesthetic.get(activity).textColorSecondary(Color.BLUE).apply();
+
+    AestheticTextView view = new AestheticTextView(activity);
+
+    assertThat(view.getCurrentTextColor()).isEqualTo(Color.BLUE);
+  }
+
+  static LinearLayout row(Activity activity) {
+    LinearLayout row = new LinearLayout(activity);
+    for (int i = 0; i < VIEWS_PER_ROW; i++) {
+      row.addView(new AestheticTextView(activity));
+    }
+    return row;
+  }
+
+  /** @return the number of Rx subscriptions made from now on. */
+  static AtomicInteger countSubscriptions() {
+    final AtomicInteger subscriptions = new AtomicInteger();
+    RxJavaPlugins.setOnObservableSubscribe(
+        new BiFunction<Observable, Observer, Observer>() {
+          @Override
+          public Observer apply(Observable observable, Observer observer) {
+            subscriptions.incrementAndGet();
+            return observer;
+          }
+        });
+    return subscriptions;
+  }
+
+  /** Aesthetic is a singleton, which would otherwise carry listeners & state between tests. */
+  static void resetAesthetic() throws Exception {
+    Field instance = Aesthetic.class.getDeclaredField("instance");
+    instance.setAccessible(true);
+    instance.set(null, null);
+  }
+}
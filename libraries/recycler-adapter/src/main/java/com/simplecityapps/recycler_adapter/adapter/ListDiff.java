@@ -0,0 +1,193 @@
+package com.simplecityapps.recycler_adapter.adapter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import com.simplecityapps.recycler_adapter.model.ChangePayloadProvider;
+import com.simplecityapps.recycler_adapter.model.ContentsComparator;
+import com.simplecityapps.recycler_adapter.model.StableId;
+import com.simplecityapps.recycler_adapter.model.ViewModel;
+import java.util.List;
+
+/**
+ * The difference between two lists of {@link ViewModel}s.
+ * <p>
+ * The unchanged prefix & suffix common to both lists are skipped in linear time, so only the changed region in between is passed to
+ * {@link DiffUtil}. Identical lists, appends, prepends and single-block inserts/removals therefore don't need a Myers diff at all.
+ */
+final class ListDiff {
+
+    /**
+     * Above this many items (in the changed region of either list), move detection is disabled, as it's quadratic in the number of
+     * added & removed items.
+     */
+    private static final int DETECT_MOVES_MAX_ITEMS = 1000;
+
+    private final int offset;
+    private final int oldCount;
+    private final int newCount;
+
+    @Nullable
+    private final DiffUtil.DiffResult diffResult;
+
+    private ListDiff(int offset, int oldCount, int newCount, @Nullable DiffUtil.DiffResult diffResult) {
+        this.offset = offset;
+        this.oldCount = oldCount;
+        this.newCount = newCount;
+        this.diffResult = diffResult;
+    }
+
+    @NonNull
+    static ListDiff calculate(@NonNull List<ViewModel> oldList, @NonNull List<ViewModel> newList) {
+        DiffCallback callback = new DiffCallback(oldList, newList);
+
+        int oldSize = oldList.size();
+        int newSize = newList.size();
+
+        int prefix = 0;
+        int maxPrefix = Math.min(oldSize, newSize);
+        while (prefix < maxPrefix && callback.isUnchanged(prefix, prefix)) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix && callback.isUnchanged(oldSize - suffix - 1, newSize - suffix - 1)) {
+            suffix++;
+        }
+
+        int oldCount = oldSize - prefix - suffix;
+        int newCount = newSize - prefix - suffix;
+
+        if (oldCount == 0 || newCount == 0) {
+            return new ListDiff(prefix, oldCount, newCount, null);
+        }
+
+        callback.setRange(prefix, oldCount, newCount);
+        boolean detectMoves = Math.max(oldCount, newCount) <= DETECT_MOVES_MAX_ITEMS;
+        return new ListDiff(prefix, oldCount, newCount, DiffUtil.calculateDiff(callback, detectMoves));
+    }
+
+    void dispatchUpdatesTo(@NonNull ListUpdateCallback callback) {
+        if (diffResult != null) {
+            diffResult.dispatchUpdatesTo(new OffsetListUpdateCallback(callback, offset));
+        } else if (oldCount != 0) {
+            callback.onRemoved(offset, oldCount);
+        } else if (newCount != 0) {
+            callback.onInserted(offset, newCount);
+        }
+    }
+
+    private static final class OffsetListUpdateCallback implements ListUpdateCallback {
+
+        private final ListUpdateCallback callback;
+        private final int offset;
+
+        OffsetListUpdateCallback(ListUpdateCallback callback, int offset) {
+            this.callback = callback;
+            this.offset = offset;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            callback.onInserted(position + offset, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            callback.onRemoved(position + offset, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            callback.onMoved(fromPosition + offset, toPosition + offset);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            callback.onChanged(position + offset, count, payload);
+        }
+    }
+
+    private static class DiffCallback extends DiffUtil.Callback {
+
+        private final List<ViewModel> oldList;
+        private final List<ViewModel> newList;
+
+        private int offset;
+        private int oldCount;
+        private int newCount;
+
+        DiffCallback(List<ViewModel> oldList, List<ViewModel> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+            this.oldCount = oldList.size();
+            this.newCount = newList.size();
+        }
+
+        void setRange(int offset, int oldCount, int newCount) {
+            this.offset = offset;
+            this.oldCount = oldCount;
+            this.newCount = newCount;
+        }
+
+        /**
+         * @return true if the items at the passed in (absolute) positions are the same, with the same contents.
+         */
+        boolean isUnchanged(int oldPosition, int newPosition) {
+            Object oldItem = oldList.get(oldPosition);
+            Object newItem = newList.get(newPosition);
+            return oldItem == newItem || (isSameItem(oldItem, newItem) && isSameContents(oldItem, newItem));
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldCount;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newCount;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return isSameItem(oldList.get(oldItemPosition + offset), newList.get(newItemPosition + offset));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return isSameContents(oldList.get(oldItemPosition + offset), newList.get(newItemPosition + offset));
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            Object newItem = newList.get(newItemPosition + offset);
+            if (newItem instanceof ChangePayloadProvider) {
+                return ((ChangePayloadProvider) newItem).getChangePayload(oldList.get(oldItemPosition + offset));
+            }
+            return 0;
+        }
+
+        private static boolean isSameItem(@Nullable Object oldItem, @Nullable Object newItem) {
+            if (oldItem == null || newItem == null) {
+                return false;
+            }
+            if (oldItem instanceof StableId && newItem instanceof StableId) {
+                return oldItem.getClass() == newItem.getClass()
+                        && ((StableId) oldItem).getStableId() == ((StableId) newItem).getStableId();
+            }
+            return oldItem.equals(newItem);
+        }
+
+        private static boolean isSameContents(@Nullable Object oldItem, @Nullable Object newItem) {
+            if (oldItem instanceof ContentsComparator) {
+                return ((ContentsComparator) oldItem).areContentsEqual(newItem);
+            } else {
+                return isSameItem(oldItem, newItem);
+            }
+        }
+    }
+}
@@ -1,21 +1,31 @@
 package com.simplecityapps.recycler_adapter.adapter;
 
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v7.util.DiffUtil;
+import android.support.v4.os.TraceCompat;
+import android.support.v7.util.AdapterListUpdateCallback;
 import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.RecyclerView;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.ViewGroup;
 import com.simplecityapps.recycler_adapter.BuildConfig;
-import com.simplecityapps.recycler_adapter.model.ContentsComparator;
+import com.simplecityapps.recycler_adapter.model.Preparable;
+import com.simplecityapps.recycler_adapter.model.StableId;
 import com.simplecityapps.recycler_adapter.model.ViewModel;
-import io.reactivex.Single;
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A custom RecyclerView.Adapter used for adapting {@link ViewModel}'s.
@@ -28,14 +38,60 @@ public class ViewModelAdapter extends RecyclerView.Adapter {
 
     private boolean enableLogging = true;
 
+    /**
+     * Diffs are calculated on a single, shared background thread, so a burst of updates can't occupy an unbounded number of threads.
+     */
+    private static final Scheduler diffScheduler = Schedulers.from(Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ViewModelAdapter-diff");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    }));
+
     @Nullable
     private Disposable setItemsDisposable = null;
 
+    // Incremented by each call to setItems(), so a diff which has been superseded before it starts can be skipped
+    private final AtomicInteger setItemsGeneration = new AtomicInteger();
+
     /**
      * The dataset for this RecyclerView Adapter
      */
     public List<ViewModel> items = new ArrayList<>();
 
+    /**
+     * An item for each view type seen, used to create ViewHolders of that type. Populated as items are set, so
+     * {@link #onCreateViewHolder(ViewGroup, int)} doesn't need to search the dataset.
+     */
+    private final SparseArray<ViewModel> viewHolderFactories = new SparseArray<>();
+
+    // The view types waiting to be prewarmed, and the number of ViewHolders to pool for each
+    private final SparseIntArray prewarmCounts = new SparseIntArray();
+
+    @Nullable
+    private RecyclerView prewarmRecyclerView;
+
+    @Nullable
+    private MessageQueue.IdleHandler prewarmIdleHandler;
+
+    // The application context, used to prepare items off the main thread. Null until the adapter is attached to a RecyclerView.
+    @Nullable
+    private Context context;
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        context = recyclerView.getContext().getApplicationContext();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        ViewModel item = items.get(position);
+        if (item instanceof StableId) {
+            return ((StableId) item).getStableId();
+        }
+        return RecyclerView.NO_ID;
+    }
+
     @Override
     public int getItemViewType(int position) {
         return items.get(position).getViewType();
@@ -44,12 +100,83 @@ public class ViewModelAdapter extends RecyclerView.Adapter {
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
 
-        for (ViewModel item : items) {
-            if (viewType == item.getViewType()) {
-                return item.createViewHolder(parent);
+        ViewModel factory = viewHolderFactories.get(viewType);
+        if (factory == null) {
+            // The dataset may have been modified directly
+            registerViewTypes(items);
+            factory = viewHolderFactories.get(viewType);
+        }
+        if (factory == null) {
+            throw new IllegalStateException("No ViewHolder found for viewType: " + viewType);
+        }
+        return factory.createViewHolder(parent);
+    }
+
+    private void registerViewTypes(List<ViewModel> items) {
+        registerViewTypes(viewTypes(items));
+    }
+
+    private void registerViewTypes(SparseArray<ViewModel> viewTypes) {
+        for (int i = 0, size = viewTypes.size(); i < size; i++) {
+            viewHolderFactories.put(viewTypes.keyAt(i), viewTypes.valueAt(i));
+        }
+    }
+
+    /**
+     * @return an item for each view type in the passed in items.
+     */
+    private static SparseArray<ViewModel> viewTypes(List<ViewModel> items) {
+        SparseArray<ViewModel> viewTypes = new SparseArray<>();
+        for (int i = 0, size = items.size(); i < size; i++) {
+            ViewModel item = items.get(i);
+            viewTypes.put(item.getViewType(), item);
+        }
+        return viewTypes;
+    }
+
+    /**
+     * Creates ViewHolders of the passed in view type while the main thread is idle, and adds them to the RecyclerView's pool, until
+     * the pool holds {@code count} of them. This means scrolling into view a type which hasn't been seen yet doesn't have to inflate
+     * a layout per frame.
+     * <p>
+     * Does nothing if no item of the view type has been set. The pool's maximum for the view type should be at least {@code count}.
+     * Pending view types are all handled by a single idle handler, so calling this repeatedly doesn't queue up more work.
+     */
+    public void prewarm(@NonNull RecyclerView recyclerView, int viewType, int count) {
+        prewarmRecyclerView = recyclerView;
+        prewarmCounts.put(viewType, Math.max(count, prewarmCounts.get(viewType)));
+        if (prewarmIdleHandler == null) {
+            prewarmIdleHandler = this::prewarmNext;
+            Looper.myQueue().addIdleHandler(prewarmIdleHandler);
+        }
+    }
+
+    /**
+     * Creates a single ViewHolder for the first view type which still needs one.
+     *
+     * @return true if there may be more to create, to keep the idle handler registered.
+     */
+    private boolean prewarmNext() {
+        RecyclerView recyclerView = prewarmRecyclerView;
+        if (recyclerView != null && recyclerView.getAdapter() == this) {
+            RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+            while (prewarmCounts.size() > 0) {
+                int viewType = prewarmCounts.keyAt(0);
+                int pooled = pool.getRecycledViewCount(viewType);
+                if (viewHolderFactories.get(viewType) != null && pooled < prewarmCounts.valueAt(0)) {
+                    pool.putRecycledView(createViewHolder(recyclerView, viewType));
+                    // Unless the pool is full for this view type, carry on in the next idle callback
+                    if (pool.getRecycledViewCount(viewType) > pooled) {
+                        return true;
+                    }
+                }
+                prewarmCounts.removeAt(0);
             }
         }
-        throw new IllegalStateException("No ViewHolder found for viewType: " + viewType);
+        prewarmCounts.clear();
+        prewarmRecyclerView = null;
+        prewarmIdleHandler = null;
+        return false;
     }
 
     @Override
@@ -99,28 +226,72 @@ public class ViewModelAdapter extends RecyclerView.Adapter {
             setItemsDisposable.dispose();
         }
 
-        setItemsDisposable = Single.fromCallable(() -> DiffUtil.calculateDiff(new DiffCallback(this.items, items)))
-                .subscribeOn(Schedulers.io())
+        List<ViewModel> oldItems = this.items;
+        int generation = setItemsGeneration.incrementAndGet();
+
+        Context context = this.context;
+
+        setItemsDisposable = Maybe.fromCallable(() -> {
+            if (generation != setItemsGeneration.get()) {
+                return null;
+            }
+            if (context != null) {
+                prepare(context, items);
+            }
+            // The view types are collected here too, so the main thread only has to register one item per type
+            return new Update(ListDiff.calculate(oldItems, items), viewTypes(items));
+        })
+                .subscribeOn(diffScheduler)
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(diffResult -> {
+                .subscribe(update -> {
+                    ListDiff listDiff = update.listDiff;
                     ViewModelAdapter.this.items = items;
-                    diffResult.dispatchUpdatesTo(ViewModelAdapter.this);
+                    registerViewTypes(update.viewTypes);
+                    listDiff.dispatchUpdatesTo(new AdapterListUpdateCallback(ViewModelAdapter.this));
 
                     if (BuildConfig.DEBUG) {
-                        logDiffResult(diffResult);
+                        logDiffResult(listDiff);
                     }
 
                     if (callback != null) {
                         callback.onComplete();
-                        diffResult.dispatchUpdatesTo(callback);
+                        listDiff.dispatchUpdatesTo(callback);
                     }
                 });
 
         return setItemsDisposable;
     }
 
-    private void logDiffResult(DiffUtil.DiffResult diffResult) {
-        diffResult.dispatchUpdatesTo(new ListUpdateCallback() {
+    private static final class Update {
+
+        final ListDiff listDiff;
+        final SparseArray<ViewModel> viewTypes;
+
+        Update(ListDiff listDiff, SparseArray<ViewModel> viewTypes) {
+            this.listDiff = listDiff;
+            this.viewTypes = viewTypes;
+        }
+    }
+
+    /**
+     * Prepares any {@link Preparable} items for binding. Items which are already prepared should return quickly.
+     */
+    private static void prepare(Context context, List<ViewModel> items) {
+        TraceCompat.beginSection("ViewModelAdapter.prepare");
+        try {
+            for (int i = 0, size = items.size(); i < size; i++) {
+                Object item = items.get(i);
+                if (item instanceof Preparable) {
+                    ((Preparable) item).prepare(context);
+                }
+            }
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    private void logDiffResult(ListDiff listDiff) {
+        listDiff.dispatchUpdatesTo(new ListUpdateCallback() {
             @Override
             public void onInserted(int position, int count) {
                 if (enableLogging && BuildConfig.DEBUG) {
@@ -159,6 +330,7 @@ public class ViewModelAdapter extends RecyclerView.Adapter {
      */
     public void addItem(int position, ViewModel item) {
         items.add(position, item);
+        viewHolderFactories.put(item.getViewType(), item);
         notifyItemInserted(position);
     }
 
@@ -169,6 +341,7 @@ public class ViewModelAdapter extends RecyclerView.Adapter {
      */
     public void addItem(ViewModel item) {
         items.add(item);
+        viewHolderFactories.put(item.getViewType(), item);
         notifyItemInserted(items.size());
     }
 
@@ -180,6 +353,7 @@ public class ViewModelAdapter extends RecyclerView.Adapter {
     public void addItems(List<ViewModel> items) {
         int previousItemCount = this.items.size();
         this.items.addAll(items);
+        registerViewTypes(items);
         notifyItemRangeInserted(previousItemCount, items.size());
     }
 
@@ -224,61 +398,4 @@ public class ViewModelAdapter extends RecyclerView.Adapter {
         items.add(toPosition, model);
         notifyItemMoved(fromPosition, toPosition);
     }
-
-    private static class DiffCallback extends DiffUtil.Callback {
-
-        private List<ViewModel> oldList;
-        private List<ViewModel> newList;
-
-        DiffCallback(List<ViewModel> oldList, List<ViewModel> newList) {
-            this.oldList = oldList;
-            this.newList = newList;
-        }
-
-        @Override
-        public int getOldListSize() {
-            return oldList != null ? oldList.size() : 0;
-        }
-
-        @Override
-        public int getNewListSize() {
-            return newList != null ? newList.size() : 0;
-        }
-
-        Object getOldItem(int oldItemPosition) {
-            return oldList.get(oldItemPosition);
-        }
-
-        Object getNewItem(int newItemPosition) {
-            return newList.get(newItemPosition);
-        }
-
-        @Override
-        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-
-            Object oldItem = getOldItem(oldItemPosition);
-            Object newItem = getNewItem(newItemPosition);
-
-            return !(oldItem == null || newItem == null) && oldItem.equals(newItem);
-        }
-
-        @Override
-        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-
-            Object oldItem = getOldItem(oldItemPosition);
-            Object newItem = getNewItem(newItemPosition);
-
-            if (oldItem instanceof ContentsComparator) {
-                return ((ContentsComparator) oldItem).areContentsEqual(newItem);
-            } else {
-                return areItemsTheSame(oldItemPosition, newItemPosition);
-            }
-        }
-
-        @Nullable
-        @Override
-        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
-            return 0;
-        }
-    }
 }
\ No newline at end of file
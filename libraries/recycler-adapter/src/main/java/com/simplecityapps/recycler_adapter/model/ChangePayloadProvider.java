@@ -0,0 +1,19 @@
+package com.simplecityapps.recycler_adapter.model;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Implemented by {@link ViewModel}s which can describe how they differ from a previous version of the same item, so only the
+ * affected part of the row needs to be rebound.
+ */
+public interface ChangePayloadProvider {
+
+    /**
+     * Called when this item and {@code oldItem} represent the same item, but their contents differ.
+     *
+     * @return a payload to be passed to {@link ViewModel#bindView(android.support.v7.widget.RecyclerView.ViewHolder, int, java.util.List)},
+     * or null to rebind the whole row.
+     */
+    @Nullable
+    Object getChangePayload(Object oldItem);
+}
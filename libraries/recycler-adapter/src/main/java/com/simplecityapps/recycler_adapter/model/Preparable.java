@@ -0,0 +1,16 @@
+package com.simplecityapps.recycler_adapter.model;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+/**
+ * Implemented by {@link ViewModel}s which can do the expensive part of binding (formatting labels etc.) ahead of time.
+ * <p>
+ * {@link com.simplecityapps.recycler_adapter.adapter.ViewModelAdapter#setItems(java.util.List)} calls {@link #prepare(Context)} on its
+ * background thread, before the items are dispatched, so {@code bindView()} only has to set the prepared values. Implementations must
+ * be safe to call from any thread, and more than once.
+ */
+public interface Preparable {
+
+    void prepare(@NonNull Context context);
+}
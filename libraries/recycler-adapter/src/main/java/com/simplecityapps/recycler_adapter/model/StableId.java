@@ -0,0 +1,13 @@
+package com.simplecityapps.recycler_adapter.model;
+
+/**
+ * Implemented by {@link ViewModel}s which can be identified by a long id.
+ * <p>
+ * Ids are used to match items when diffing (which is cheaper than {@link Object#equals(Object)}), and are returned from
+ * {@link com.simplecityapps.recycler_adapter.adapter.ViewModelAdapter#getItemId(int)}. Ids only need to be unique per view type, unless
+ * the adapter is set to have stable ids, in which case they must be unique across the whole list.
+ */
+public interface StableId {
+
+    long getStableId();
+}
@@ -0,0 +1,76 @@
+package com.simplecityapps.recycler_adapter.adapter;
+
+import android.support.v7.util.DiffUtil;
+import com.simplecityapps.recycler_adapter.adapter.ListDiffTest.RecordingCallback;
+import com.simplecityapps.recycler_adapter.adapter.ListDiffTest.TestViewModel;
+import com.simplecityapps.recycler_adapter.model.StableId;
+import com.simplecityapps.recycler_adapter.model.ViewModel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static com.simplecityapps.recycler_adapter.adapter.ListDiffTest.items;
+
+/**
+ * Left out of the default test run, run with {@code -Pbenchmark}.
+ */
+public class ListDiffBenchmark {
+
+    @Test
+    public void largeList() {
+        int size = 10000;
+        List<ViewModel> oldItems = items(0, size);
+        List<ViewModel> newItems = new ArrayList<>(oldItems);
+        newItems.add(size / 2, new TestViewModel(size, 0));
+        newItems.set(size / 2 + 10, new TestViewModel(size / 2 + 9, 1));
+
+        long listDiffNanos = Long.MAX_VALUE;
+        long fullDiffNanos = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            ListDiff.calculate(oldItems, newItems).dispatchUpdatesTo(new RecordingCallback());
+            listDiffNanos = Math.min(listDiffNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            DiffUtil.calculateDiff(new FullDiffCallback(oldItems, newItems), true).dispatchUpdatesTo(new RecordingCallback());
+            fullDiffNanos = Math.min(fullDiffNanos, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format("Diff of %d items, 2 changes: ListDiff %.2fms, DiffUtil over whole list %.2fms",
+                size, listDiffNanos / 1e6, fullDiffNanos / 1e6));
+    }
+
+    /**
+     * Diffs the whole of both lists, as the adapter did before {@link ListDiff}.
+     */
+    private static class FullDiffCallback extends DiffUtil.Callback {
+
+        private final List<ViewModel> oldItems;
+        private final List<ViewModel> newItems;
+
+        FullDiffCallback(List<ViewModel> oldItems, List<ViewModel> newItems) {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return ((StableId) oldItems.get(oldItemPosition)).getStableId() == ((StableId) newItems.get(newItemPosition)).getStableId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return oldItems.get(oldItemPosition).areContentsEqual(newItems.get(newItemPosition));
+        }
+    }
+}
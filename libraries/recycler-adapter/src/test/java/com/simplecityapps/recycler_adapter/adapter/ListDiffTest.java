@@ -0,0 +1,252 @@
+package com.simplecityapps.recycler_adapter.adapter;
+
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+import com.simplecityapps.recycler_adapter.model.StableId;
+import com.simplecityapps.recycler_adapter.model.ViewModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ListDiffTest {
+
+    @Test
+    public void identicalListsDispatchNothing() {
+        List<ViewModel> items = items(0, 100);
+
+        RecordingCallback callback = dispatch(items, new ArrayList<>(items));
+
+        assertThat(callback.operations).isZero();
+    }
+
+    @Test
+    public void appendIsSingleInsert() {
+        List<ViewModel> oldItems = items(0, 100);
+        List<ViewModel> newItems = new ArrayList<>(oldItems);
+        newItems.addAll(items(100, 10));
+
+        RecordingCallback callback = dispatch(oldItems, newItems);
+
+        assertThat(callback.log).containsExactly("insert 100 10");
+    }
+
+    @Test
+    public void prependIsSingleInsert() {
+        List<ViewModel> oldItems = items(10, 100);
+        List<ViewModel> newItems = items(0, 10);
+        newItems.addAll(oldItems);
+
+        RecordingCallback callback = dispatch(oldItems, newItems);
+
+        assertThat(callback.log).containsExactly("insert 0 10");
+    }
+
+    @Test
+    public void middleRemovalIsSingleRemove() {
+        List<ViewModel> oldItems = items(0, 100);
+        List<ViewModel> newItems = new ArrayList<>(oldItems);
+        newItems.subList(40, 50).clear();
+
+        RecordingCallback callback = dispatch(oldItems, newItems);
+
+        assertThat(callback.log).containsExactly("remove 40 10");
+    }
+
+    @Test
+    public void changedItemIsOffsetByPrefix() {
+        List<ViewModel> oldItems = items(0, 100);
+        List<ViewModel> newItems = new ArrayList<>(oldItems);
+        newItems.set(60, new TestViewModel(60, 1));
+        newItems.add(70, new TestViewModel(1000, 0));
+
+        RecordingCallback callback = dispatch(oldItems, newItems);
+
+        assertResultMatches(callback, oldItems, newItems);
+        assertThat(callback.log).containsExactly("insert 70 1");
+        assertThat(callback.changed).containsExactly(60);
+    }
+
+    @Test
+    public void randomEditsProduceNewList() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            List<ViewModel> oldItems = items(0, random.nextInt(200));
+            List<ViewModel> newItems = new ArrayList<>(oldItems);
+            int edits = random.nextInt(10);
+            for (int i = 0; i < edits; i++) {
+                int operation = random.nextInt(4);
+                if (operation == 0 || newItems.isEmpty()) {
+                    newItems.add(random.nextInt(newItems.size() + 1), new TestViewModel(1000 + run * 10 + i, 0));
+                } else if (operation == 1) {
+                    newItems.remove(random.nextInt(newItems.size()));
+                } else if (operation == 2) {
+                    int position = random.nextInt(newItems.size());
+                    TestViewModel item = (TestViewModel) newItems.get(position);
+                    newItems.set(position, new TestViewModel(item.id, item.contents + 1));
+                } else {
+                    newItems.add(random.nextInt(newItems.size()), newItems.remove(random.nextInt(newItems.size())));
+                }
+            }
+
+            assertResultMatches(dispatch(oldItems, newItems), oldItems, newItems);
+        }
+    }
+
+    /**
+     * Applies the dispatched updates to the old list, and checks the result lines up with the new list: every surviving item has the
+     * same id as the new item at its position, and any whose contents differ were reported as changed.
+     */
+    private static void assertResultMatches(RecordingCallback callback, List<ViewModel> oldItems, List<ViewModel> newItems) {
+        List<Slot> result = callback.apply(oldItems);
+        assertThat(result).hasSameSizeAs(newItems);
+        for (int i = 0; i < result.size(); i++) {
+            Slot slot = result.get(i);
+            if (slot.item == null) {
+                continue;
+            }
+            TestViewModel newItem = (TestViewModel) newItems.get(i);
+            assertThat(slot.item.id).isEqualTo(newItem.id);
+            if (slot.item.contents != newItem.contents) {
+                assertThat(slot.changed).isTrue();
+            }
+        }
+    }
+
+    private static RecordingCallback dispatch(List<ViewModel> oldItems, List<ViewModel> newItems) {
+        RecordingCallback callback = new RecordingCallback();
+        ListDiff.calculate(oldItems, newItems).dispatchUpdatesTo(callback);
+        return callback;
+    }
+
+    static List<ViewModel> items(int firstId, int count) {
+        List<ViewModel> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(new TestViewModel(firstId + i, 0));
+        }
+        return items;
+    }
+
+    static class RecordingCallback implements ListUpdateCallback {
+
+        final List<String> log = new ArrayList<>();
+        final List<Integer> changed = new ArrayList<>();
+        int operations;
+
+        // Replayed by apply()
+        private final List<int[]> updates = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            record("insert", position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            record("remove", position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            record("move", fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            operations++;
+            for (int i = 0; i < count; i++) {
+                changed.add(position + i);
+            }
+            updates.add(new int[] { 'c', position, count });
+        }
+
+        private void record(String operation, int a, int b) {
+            operations++;
+            log.add(operation + " " + a + " " + b);
+            updates.add(new int[] { operation.charAt(0), a, b });
+        }
+
+        List<Slot> apply(List<ViewModel> oldItems) {
+            List<Slot> slots = new ArrayList<>(oldItems.size());
+            for (ViewModel item : oldItems) {
+                slots.add(new Slot((TestViewModel) item));
+            }
+            for (int[] update : updates) {
+                if (update[0] == 'i') {
+                    for (int i = 0; i < update[2]; i++) {
+                        slots.add(update[1], new Slot(null));
+                    }
+                } else if (update[0] == 'r') {
+                    slots.subList(update[1], update[1] + update[2]).clear();
+                } else if (update[0] == 'm') {
+                    slots.add(update[2], slots.remove(update[1]));
+                } else {
+                    for (int i = 0; i < update[2]; i++) {
+                        slots.get(update[1] + i).changed = true;
+                    }
+                }
+            }
+            return slots;
+        }
+    }
+
+    private static class Slot {
+
+        // Null for an inserted item
+        final TestViewModel item;
+        boolean changed;
+
+        Slot(TestViewModel item) {
+            this.item = item;
+        }
+    }
+
+    static class TestViewModel implements ViewModel<RecyclerView.ViewHolder>, StableId {
+
+        final long id;
+        final int contents;
+
+        TestViewModel(long id, int contents) {
+            this.id = id;
+            this.contents = contents;
+        }
+
+        @Override
+        public long getStableId() {
+            return id;
+        }
+
+        @Override
+        public boolean areContentsEqual(Object other) {
+            return other instanceof TestViewModel && ((TestViewModel) other).contents == contents;
+        }
+
+        @Override
+        public int getViewType() {
+            return 0;
+        }
+
+        @Override
+        public void bindView(RecyclerView.ViewHolder holder) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void bindView(RecyclerView.ViewHolder holder, int position, List payloads) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public RecyclerView.ViewHolder createViewHolder(ViewGroup parent) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getSpanSize(int spanCount) {
+            return 1;
+        }
+    }
+}